@@ -17,7 +17,6 @@
 package org.thoughtcrime.securesms;
 
 import android.content.Context;
-import android.os.AsyncTask;
 import android.os.Build;
 import android.support.multidex.MultiDexApplication;
 import android.util.Log;
@@ -39,7 +38,9 @@ import org.thoughtcrime.securesms.service.DirectoryRefreshListener;
 import org.thoughtcrime.securesms.service.ExpiringMessageManager;
 import org.thoughtcrime.securesms.service.RotateSignedPreKeyListener;
 import org.thoughtcrime.securesms.service.UpdateApkRefreshListener;
+import org.thoughtcrime.securesms.util.Stopwatch;
 import org.thoughtcrime.securesms.util.TextSecurePreferences;
+import org.thoughtcrime.securesms.util.ThreadUtil;
 import org.webrtc.PeerConnectionFactory;
 import org.webrtc.voiceengine.WebRtcAudioManager;
 import org.webrtc.voiceengine.WebRtcAudioUtils;
@@ -60,6 +61,8 @@ import dagger.ObjectGraph;
  *
  * We're using this as an insertion point to patch up the Android PRNG disaster,
  * to initialize the job manager, and to check for GCM registration freshness.
+ * Only what the rest of the app needs synchronously is initialized on the main
+ * thread; everything else is deferred to a background thread.
  *
  * @author Moxie Marlinspike
  */
@@ -67,9 +70,12 @@ public class ApplicationContext extends MultiDexApplication implements Dependenc
 
   private static final String TAG = ApplicationContext.class.getName();
 
+  private final Object webRtcLock = new Object();
+
   private ExpiringMessageManager expiringMessageManager;
   private JobManager             jobManager;
   private ObjectGraph            objectGraph;
+  private boolean                webRtcInitialized;
 
   private MediaNetworkRequirementProvider mediaNetworkRequirementProvider = new MediaNetworkRequirementProvider();
 
@@ -79,17 +85,19 @@ public class ApplicationContext extends MultiDexApplication implements Dependenc
 
   @Override
   public void onCreate() {
+    Stopwatch stopwatch = new Stopwatch("app-create");
+
     super.onCreate();
     initializeRandomNumberFix();
+    stopwatch.split("prng");
     initializeLogging();
+    stopwatch.split("logging");
     initializeDependencyInjection();
+    stopwatch.split("dependencies");
     initializeJobManager();
-    initializeExpiringMessageManager();
-    initializeGcmCheck();
-    initializeSignedPreKeyCheck();
-    initializePeriodicTasks();
-    initializeCircumvention();
-    initializeWebRtc();
+    stopwatch.split("job-manager");
+    initializeDeferredComponents();
+    stopwatch.stop(TAG);
   }
 
   @Override
@@ -103,10 +111,76 @@ public class ApplicationContext extends MultiDexApplication implements Dependenc
     return jobManager;
   }
 
-  public ExpiringMessageManager getExpiringMessageManager() {
+  public synchronized ExpiringMessageManager getExpiringMessageManager() {
+    if (expiringMessageManager == null) {
+      expiringMessageManager = new ExpiringMessageManager(this);
+    }
+
     return expiringMessageManager;
   }
 
+  /**
+   * WebRTC globals are only needed once a call is placed or received, so they are
+   * initialized in the background at startup and on demand by the call service.
+   * This takes a while, so it has a lock of its own rather than the application's.
+   */
+  public void initializeWebRtc() {
+    synchronized (webRtcLock) {
+      if (webRtcInitialized) return;
+
+      Set<String> HARDWARE_AEC_BLACKLIST = new HashSet<String>() {{
+        add("Pixel");
+        add("Pixel XL");
+      }};
+
+      Set<String> OPEN_SL_ES_WHITELIST = new HashSet<String>() {{
+        add("Pixel");
+        add("Pixel XL");
+      }};
+
+      if (Build.VERSION.SDK_INT >= 11) {
+        if (HARDWARE_AEC_BLACKLIST.contains(Build.MODEL)) {
+          WebRtcAudioUtils.setWebRtcBasedAcousticEchoCanceler(true);
+        }
+
+        if (!OPEN_SL_ES_WHITELIST.contains(Build.MODEL)) {
+          WebRtcAudioManager.setBlacklistDeviceForOpenSLESUsage(true);
+        }
+
+        PeerConnectionFactory.initializeAndroidGlobals(this, true, true, true);
+      }
+
+      webRtcInitialized = true;
+    }
+  }
+
+  /**
+   * Components that nothing on the critical path depends on are brought up in order on a
+   * background thread. Each is also safe to initialize on first use.
+   */
+  private void initializeDeferredComponents() {
+    ThreadUtil.newDynamicSingleThreadedExecutor().execute(new Runnable() {
+      @Override
+      public void run() {
+        Stopwatch stopwatch = new Stopwatch("app-create-deferred");
+
+        getExpiringMessageManager();
+        stopwatch.split("expiring-messages");
+        initializeGcmCheck();
+        stopwatch.split("gcm-check");
+        initializeSignedPreKeyCheck();
+        stopwatch.split("signed-prekey-check");
+        initializePeriodicTasks();
+        stopwatch.split("periodic-tasks");
+        initializeCircumvention();
+        stopwatch.split("circumvention");
+        initializeWebRtc();
+        stopwatch.split("webrtc");
+        stopwatch.stop(TAG);
+      }
+    });
+  }
+
   private void initializeRandomNumberFix() {
     PRNGFixes.apply();
   }
@@ -153,10 +227,6 @@ public class ApplicationContext extends MultiDexApplication implements Dependenc
     }
   }
 
-  private void initializeExpiringMessageManager() {
-    this.expiringMessageManager = new ExpiringMessageManager(this);
-  }
-
   private void initializePeriodicTasks() {
     RotateSignedPreKeyListener.schedule(this);
     DirectoryRefreshListener.schedule(this);
@@ -166,47 +236,14 @@ public class ApplicationContext extends MultiDexApplication implements Dependenc
     }
   }
 
-  private void initializeWebRtc() {
-    Set<String> HARDWARE_AEC_BLACKLIST = new HashSet<String>() {{
-      add("Pixel");
-      add("Pixel XL");
-    }};
-
-    Set<String> OPEN_SL_ES_WHITELIST = new HashSet<String>() {{
-      add("Pixel");
-      add("Pixel XL");
-    }};
-
-    if (Build.VERSION.SDK_INT >= 11) {
-      if (HARDWARE_AEC_BLACKLIST.contains(Build.MODEL)) {
-        WebRtcAudioUtils.setWebRtcBasedAcousticEchoCanceler(true);
-      }
-
-      if (!OPEN_SL_ES_WHITELIST.contains(Build.MODEL)) {
-        WebRtcAudioManager.setBlacklistDeviceForOpenSLESUsage(true);
-      }
-
-      PeerConnectionFactory.initializeAndroidGlobals(this, true, true, true);
-    }
-  }
-
   private void initializeCircumvention() {
-    AsyncTask<Void, Void, Void> task = new AsyncTask<Void, Void, Void>() {
-      @Override
-      protected Void doInBackground(Void... params) {
-        if (new SignalServiceNetworkAccess(ApplicationContext.this).isCensored(ApplicationContext.this)) {
-          try {
-            ProviderInstaller.installIfNeeded(ApplicationContext.this);
-          } catch (Throwable t) {
-            Log.w(TAG, t);
-          }
-        }
-        return null;
+    if (new SignalServiceNetworkAccess(this).isCensored(this)) {
+      try {
+        ProviderInstaller.installIfNeeded(this);
+      } catch (Throwable t) {
+        Log.w(TAG, t);
       }
-    };
-
-    if (Build.VERSION.SDK_INT >= 11) task.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
-    else                             task.execute();
+    }
   }
 
 }
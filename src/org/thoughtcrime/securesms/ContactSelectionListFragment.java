@@ -72,6 +72,8 @@ public class ContactSelectionListFragment extends    Fragment
   private RecyclerView              recyclerView;
   private RecyclerViewFastScroller  fastScroller;
 
+  private final ContactsCursorLoader.SearchState searchState = new ContactsCursorLoader.SearchState();
+
   @Override
   public void onActivityCreated(Bundle icicle) {
     super.onActivityCreated(icicle);
@@ -151,7 +153,7 @@ public class ContactSelectionListFragment extends    Fragment
   public Loader<Cursor> onCreateLoader(int id, Bundle args) {
     return new ContactsCursorLoader(getActivity(),
                                     getActivity().getIntent().getIntExtra(DISPLAY_MODE, DISPLAY_MODE_ALL),
-                                    cursorFilter);
+                                    cursorFilter, searchState);
   }
 
   @Override
@@ -67,6 +67,7 @@ import org.thoughtcrime.securesms.crypto.MasterSecret;
 import org.thoughtcrime.securesms.database.DatabaseFactory;
 import org.thoughtcrime.securesms.database.MessagingDatabase.MarkedMessageInfo;
 import org.thoughtcrime.securesms.database.loaders.ConversationListLoader;
+import org.thoughtcrime.securesms.database.loaders.ConversationListSnapshot;
 import org.thoughtcrime.securesms.notifications.MarkReadReceiver;
 import org.thoughtcrime.securesms.notifications.MessageNotifier;
 import org.thoughtcrime.securesms.recipients.Recipients;
@@ -95,6 +96,7 @@ public class ConversationListFragment extends Fragment
   private Locale               locale;
   private String               queryFilter  = "";
   private boolean              archive;
+  private boolean              liveCursorLoaded;
 
   @Override
   public void onCreate(Bundle icicle) {
@@ -153,6 +155,19 @@ public class ConversationListFragment extends Fragment
     list.getAdapter().notifyDataSetChanged();
   }
 
+  @Override
+  public void onPause() {
+    super.onPause();
+
+    Cursor cursor = getListAdapter().getCursor();
+
+    if (!archive && liveCursorLoaded && masterSecret != null && TextUtils.isEmpty(queryFilter) &&
+        cursor != null && !cursor.isClosed())
+    {
+      new ConversationListSnapshot(getActivity(), masterSecret).save(cursor);
+    }
+  }
+
   public ConversationListAdapter getListAdapter() {
     return (ConversationListAdapter) list.getAdapter();
   }
@@ -201,7 +216,14 @@ public class ConversationListFragment extends Fragment
   }
 
   private void initializeListAdapter() {
-    list.setAdapter(new ConversationListAdapter(getActivity(), masterSecret, locale, null, this));
+    Cursor snapshot = null;
+
+    if (!archive && masterSecret != null) {
+      snapshot = new ConversationListSnapshot(getActivity(), masterSecret).load();
+    }
+
+    liveCursorLoaded = false;
+    list.setAdapter(new ConversationListAdapter(getActivity(), masterSecret, locale, snapshot, this));
     getLoaderManager().restartLoader(0, null, this);
   }
 
@@ -320,11 +342,13 @@ public class ConversationListFragment extends Fragment
 
   @Override
   public void onLoadFinished(Loader<Cursor> arg0, Cursor cursor) {
+    liveCursorLoaded = true;
     getListAdapter().changeCursor(cursor);
   }
 
   @Override
   public void onLoaderReset(Loader<Cursor> arg0) {
+    liveCursorLoaded = false;
     getListAdapter().changeCursor(null);
   }
 
@@ -26,14 +26,14 @@ import android.os.Bundle;
 import android.util.Log;
 import android.view.View;
 import android.widget.ProgressBar;
+import android.widget.TextView;
 
 import org.thoughtcrime.securesms.attachments.DatabaseAttachment;
 import org.thoughtcrime.securesms.crypto.IdentityKeyUtil;
 import org.thoughtcrime.securesms.crypto.MasterSecret;
-import org.thoughtcrime.securesms.crypto.storage.TextSecurePreKeyStore;
-import org.thoughtcrime.securesms.crypto.storage.TextSecureSessionStore;
 import org.thoughtcrime.securesms.database.AttachmentDatabase;
 import org.thoughtcrime.securesms.database.DatabaseFactory;
+import org.thoughtcrime.securesms.database.MessageReencryptor;
 import org.thoughtcrime.securesms.database.MmsDatabase;
 import org.thoughtcrime.securesms.database.MmsDatabase.Reader;
 import org.thoughtcrime.securesms.database.PushDatabase;
@@ -68,6 +68,8 @@ public class DatabaseUpgradeActivity extends BaseActivity {
   public static final int CONTACTS_ACCOUNT_VERSION             = 136;
   public static final int MEDIA_DOWNLOAD_CONTROLS_VERSION      = 151;
   public static final int REDPHONE_SUPPORT_VERSION             = 157;
+  public static final int ASYMMETRIC_REENCRYPTION_VERSION      = 275;
+  public static final int ENCRYPTED_BODY_BLOBS_VERSION         = 275;
 //  public static final int FINGERPRINTS_NON_BLOCKING_VESRION    = 212;
 
   private static final SortedSet<Integer> UPGRADE_VERSIONS = new TreeSet<Integer>() {{
@@ -82,6 +84,8 @@ public class DatabaseUpgradeActivity extends BaseActivity {
     add(MIGRATE_SESSION_PLAINTEXT);
     add(MEDIA_DOWNLOAD_CONTROLS_VERSION);
     add(REDPHONE_SUPPORT_VERSION);
+    add(ASYMMETRIC_REENCRYPTION_VERSION);
+    add(ENCRYPTED_BODY_BLOBS_VERSION);
 //    add(FINGERPRINTS_NON_BLOCKING_VESRION);
   }};
 
@@ -98,8 +102,9 @@ public class DatabaseUpgradeActivity extends BaseActivity {
 
       ProgressBar indeterminateProgress = (ProgressBar)findViewById(R.id.indeterminate_progress);
       ProgressBar determinateProgress   = (ProgressBar)findViewById(R.id.determinate_progress);
+      TextView    throughput            = (TextView)findViewById(R.id.throughput);
 
-      new DatabaseUpgradeTask(indeterminateProgress, determinateProgress)
+      new DatabaseUpgradeTask(indeterminateProgress, determinateProgress, throughput)
           .execute(VersionTracker.getLastSeenVersion(this));
     } else {
       VersionTracker.updateLastSeenVersion(this);
@@ -153,15 +158,19 @@ public class DatabaseUpgradeActivity extends BaseActivity {
   }
 
   private class DatabaseUpgradeTask extends AsyncTask<Integer, Double, Void>
-      implements DatabaseUpgradeListener
+      implements DatabaseUpgradeListener, MessageReencryptor.ProgressListener
   {
 
     private final ProgressBar indeterminateProgress;
     private final ProgressBar determinateProgress;
+    private final TextView    throughput;
 
-    public DatabaseUpgradeTask(ProgressBar indeterminateProgress, ProgressBar determinateProgress) {
+    public DatabaseUpgradeTask(ProgressBar indeterminateProgress, ProgressBar determinateProgress,
+                               TextView throughput)
+    {
       this.indeterminateProgress = indeterminateProgress;
       this.determinateProgress   = determinateProgress;
+      this.throughput            = throughput;
     }
 
     @Override
@@ -207,8 +216,7 @@ public class DatabaseUpgradeActivity extends BaseActivity {
       }
 
       if (params[0] < MIGRATE_SESSION_PLAINTEXT) {
-        new TextSecureSessionStore(context, masterSecret).migrateSessions();
-        new TextSecurePreKeyStore(context, masterSecret).migrateRecords();
+        DatabaseFactory.getInstance(context).migrateLegacyProtocolStore(context, masterSecret);
 
         IdentityKeyUtil.migrateIdentityKeys(context, masterSecret);
         scheduleMessagesInPushDatabase(context);;
@@ -233,6 +241,14 @@ public class DatabaseUpgradeActivity extends BaseActivity {
                           .add(new DirectoryRefreshJob(getApplicationContext()));
       }
 
+      if (params[0] < ASYMMETRIC_REENCRYPTION_VERSION) {
+        MessageReencryptor.forAsymmetricMessages(context, masterSecret).run(this);
+      }
+
+      if (params[0] < ENCRYPTED_BODY_BLOBS_VERSION) {
+        DatabaseFactory.getInstance(context).migrateEncryptedBodies(this);
+      }
+
 //      if (params[0] < FINGERPRINTS_NON_BLOCKING_VESRION) {
 //        TextSecurePreferences.setBlockingIdentityUpdates(getApplicationContext(), true);
 //      }
@@ -290,6 +306,12 @@ public class DatabaseUpgradeActivity extends BaseActivity {
 
       double scaler = update[0];
       determinateProgress.setProgress((int)Math.floor(determinateProgress.getMax() * scaler));
+
+      if (update.length > 1) {
+        throughput.setVisibility(View.VISIBLE);
+        throughput.setText(getString(R.string.database_upgrade_activity__d_messages_per_second,
+                                     (int)Math.round(update[1])));
+      }
     }
 
     @Override
@@ -305,6 +327,11 @@ public class DatabaseUpgradeActivity extends BaseActivity {
     public void setProgress(int progress, int total) {
       publishProgress(((double)progress / (double)total));
     }
+
+    @Override
+    public void onProgress(int processed, int total, double messagesPerSecond) {
+      publishProgress(((double)processed / (double)total), messagesPerSecond);
+    }
   }
 
 }
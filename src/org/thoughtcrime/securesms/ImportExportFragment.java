@@ -7,16 +7,21 @@ import android.content.DialogInterface;
 import android.content.Intent;
 import android.os.AsyncTask;
 import android.os.Bundle;
+import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
 import android.support.v7.app.AlertDialog;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.EditText;
 import android.widget.Toast;
 
+import org.thoughtcrime.securesms.crypto.InvalidPassphraseException;
 import org.thoughtcrime.securesms.crypto.MasterSecret;
+import org.thoughtcrime.securesms.database.BinaryBackupImporter;
 import org.thoughtcrime.securesms.database.NoExternalStorageException;
+import org.thoughtcrime.securesms.database.backup.BinaryBackupExporter;
 import org.thoughtcrime.securesms.database.backup.PlaintextBackupExporter;
 import org.thoughtcrime.securesms.database.PlaintextBackupImporter;
 import org.thoughtcrime.securesms.service.ApplicationMigrationService;
@@ -26,9 +31,10 @@ import java.io.IOException;
 
 public class ImportExportFragment extends Fragment {
 
-  private static final int SUCCESS    = 0;
-  private static final int NO_SD_CARD = 1;
-  private static final int ERROR_IO   = 2;
+  private static final int SUCCESS        = 0;
+  private static final int NO_SD_CARD     = 1;
+  private static final int ERROR_IO       = 2;
+  private static final int BAD_PASSPHRASE = 3;
 
   private MasterSecret   masterSecret;
   private ProgressDialog progressDialog;
@@ -45,6 +51,8 @@ public class ImportExportFragment extends Fragment {
     View importSmsView       = layout.findViewById(R.id.import_sms             );
     View importPlaintextView = layout.findViewById(R.id.import_plaintext_backup);
     View exportPlaintextView = layout.findViewById(R.id.export_plaintext_backup);
+    View importEncryptedView = layout.findViewById(R.id.import_encrypted_backup);
+    View exportEncryptedView = layout.findViewById(R.id.export_encrypted_backup);
 
     importSmsView.setOnClickListener(new View.OnClickListener() {
       @Override
@@ -67,6 +75,20 @@ public class ImportExportFragment extends Fragment {
       }
     });
 
+    importEncryptedView.setOnClickListener(new View.OnClickListener() {
+      @Override
+      public void onClick(View v) {
+        handleImportEncryptedBackup();
+      }
+    });
+
+    exportEncryptedView.setOnClickListener(new View.OnClickListener() {
+      @Override
+      public void onClick(View v) {
+        handleExportEncryptedBackup();
+      }
+    });
+
     return layout;
   }
 
@@ -127,13 +149,101 @@ public class ImportExportFragment extends Fragment {
     builder.setPositiveButton(getActivity().getString(R.string.ExportFragment_export), new Dialog.OnClickListener() {
       @Override
       public void onClick(DialogInterface dialog, int which) {
-        new ExportPlaintextTask().execute();
+        new ExportPlaintextTask(false).execute();
       }
     });
+
+    if (hasPlaintextBackup()) {
+      builder.setNeutralButton(getActivity().getString(R.string.ExportFragment_export_new_messages), new Dialog.OnClickListener() {
+        @Override
+        public void onClick(DialogInterface dialog, int which) {
+          new ExportPlaintextTask(true).execute();
+        }
+      });
+    }
+
     builder.setNegativeButton(getActivity().getString(R.string.ExportFragment_cancel), null);
     builder.show();
   }
 
+  private void handleImportEncryptedBackup() {
+    View           view       = LayoutInflater.from(getActivity()).inflate(R.layout.backup_passphrase_dialog, null);
+    final EditText passphrase = (EditText) view.findViewById(R.id.backup_passphrase);
+
+    AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+    builder.setIconAttribute(R.attr.dialog_alert_icon);
+    builder.setTitle(getActivity().getString(R.string.ImportFragment_import_encrypted_backup));
+    builder.setMessage(getActivity().getString(R.string.ImportFragment_this_will_import_messages_from_an_encrypted_backup));
+    builder.setView(view);
+    builder.setPositiveButton(getActivity().getString(R.string.ImportFragment_import), new AlertDialog.OnClickListener() {
+      @Override
+      public void onClick(DialogInterface dialog, int which) {
+        String entered = getPassphrase(passphrase);
+        if (entered != null) new ImportEncryptedBackupTask(entered).execute();
+      }
+    });
+    builder.setNegativeButton(getActivity().getString(R.string.ImportFragment_cancel), null);
+    builder.show();
+  }
+
+  private void handleExportEncryptedBackup() {
+    View           view       = LayoutInflater.from(getActivity()).inflate(R.layout.backup_passphrase_dialog, null);
+    final EditText passphrase = (EditText) view.findViewById(R.id.backup_passphrase);
+
+    AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+    builder.setIconAttribute(R.attr.dialog_info_icon);
+    builder.setTitle(getActivity().getString(R.string.ExportFragment_export_encrypted_backup));
+    builder.setMessage(getActivity().getString(R.string.ExportFragment_this_will_export_your_messages_encrypted_with_the_passphrase));
+    builder.setView(view);
+    builder.setPositiveButton(getActivity().getString(R.string.ExportFragment_export), new Dialog.OnClickListener() {
+      @Override
+      public void onClick(DialogInterface dialog, int which) {
+        String entered = getPassphrase(passphrase);
+        if (entered != null) new ExportEncryptedBackupTask(entered, false).execute();
+      }
+    });
+
+    if (hasEncryptedBackup()) {
+      builder.setNeutralButton(getActivity().getString(R.string.ExportFragment_export_new_messages), new Dialog.OnClickListener() {
+        @Override
+        public void onClick(DialogInterface dialog, int which) {
+          String entered = getPassphrase(passphrase);
+          if (entered != null) new ExportEncryptedBackupTask(entered, true).execute();
+        }
+      });
+    }
+
+    builder.setNegativeButton(getActivity().getString(R.string.ExportFragment_cancel), null);
+    builder.show();
+  }
+
+  private @Nullable String getPassphrase(EditText passphrase) {
+    if (passphrase.getText().length() == 0) {
+      Toast.makeText(getActivity(), R.string.ExportFragment_you_need_to_enter_a_passphrase, Toast.LENGTH_LONG).show();
+      return null;
+    }
+
+    return passphrase.getText().toString();
+  }
+
+  private boolean hasPlaintextBackup() {
+    try {
+      return PlaintextBackupExporter.getPlaintextExportFile().exists();
+    } catch (NoExternalStorageException e) {
+      Log.w("ExportFragment", e);
+      return false;
+    }
+  }
+
+  private boolean hasEncryptedBackup() {
+    try {
+      return BinaryBackupExporter.getBinaryExportFile().exists();
+    } catch (NoExternalStorageException e) {
+      Log.w("ExportFragment", e);
+      return false;
+    }
+  }
+
   private class ImportPlaintextBackupTask extends AsyncTask<Void, Void, Integer> {
 
     @Override
@@ -188,8 +298,14 @@ public class ImportExportFragment extends Fragment {
   }
 
   private class ExportPlaintextTask extends AsyncTask<Void, Void, Integer> {
+    private final boolean incremental;
+
     private ProgressDialog dialog;
 
+    ExportPlaintextTask(boolean incremental) {
+      this.incremental = incremental;
+    }
+
     @Override
     protected void onPreExecute() {
       dialog = ProgressDialog.show(getActivity(),
@@ -201,7 +317,7 @@ public class ImportExportFragment extends Fragment {
     @Override
     protected Integer doInBackground(Void... params) {
       try {
-        PlaintextBackupExporter.exportPlaintextToSd(getActivity(), masterSecret);
+        PlaintextBackupExporter.exportPlaintextToSd(getActivity(), masterSecret, incremental);
         return SUCCESS;
       } catch (NoExternalStorageException e) {
         Log.w("ExportFragment", e);
@@ -243,4 +359,134 @@ public class ImportExportFragment extends Fragment {
   }
 
 
+  private class ImportEncryptedBackupTask extends AsyncTask<Void, Void, Integer> {
+    private final String passphrase;
+
+    ImportEncryptedBackupTask(String passphrase) {
+      this.passphrase = passphrase;
+    }
+
+    @Override
+    protected void onPreExecute() {
+      progressDialog = ProgressDialog.show(getActivity(),
+                                           getActivity().getString(R.string.ImportFragment_importing),
+                                           getActivity().getString(R.string.ImportFragment_importing_encrypted_backup),
+                                           true, false);
+    }
+
+    @Override
+    protected Integer doInBackground(Void... params) {
+      try {
+        BinaryBackupImporter.importBinaryFromSd(getActivity(), masterSecret, passphrase);
+        return SUCCESS;
+      } catch (NoExternalStorageException e) {
+        Log.w("ImportFragment", e);
+        return NO_SD_CARD;
+      } catch (InvalidPassphraseException e) {
+        Log.w("ImportFragment", e);
+        return BAD_PASSPHRASE;
+      } catch (IOException e) {
+        Log.w("ImportFragment", e);
+        return ERROR_IO;
+      }
+    }
+
+    @Override
+    protected void onPostExecute(Integer result) {
+      Context context = getActivity();
+
+      if (progressDialog != null)
+        progressDialog.dismiss();
+
+      if (context == null)
+        return;
+
+      switch (result) {
+        case NO_SD_CARD:
+          Toast.makeText(context,
+                         context.getString(R.string.ImportFragment_no_encrypted_backup_found),
+                         Toast.LENGTH_LONG).show();
+          break;
+        case BAD_PASSPHRASE:
+          Toast.makeText(context,
+                         context.getString(R.string.ImportFragment_incorrect_backup_passphrase),
+                         Toast.LENGTH_LONG).show();
+          break;
+        case ERROR_IO:
+          Toast.makeText(context,
+                         context.getString(R.string.ImportFragment_error_importing_backup),
+                         Toast.LENGTH_LONG).show();
+          break;
+        case SUCCESS:
+          Toast.makeText(context,
+                         context.getString(R.string.ImportFragment_import_complete),
+                         Toast.LENGTH_LONG).show();
+          break;
+      }
+    }
+  }
+
+  private class ExportEncryptedBackupTask extends AsyncTask<Void, Void, Integer> {
+    private final String  passphrase;
+    private final boolean incremental;
+
+    private ProgressDialog dialog;
+
+    ExportEncryptedBackupTask(String passphrase, boolean incremental) {
+      this.passphrase  = passphrase;
+      this.incremental = incremental;
+    }
+
+    @Override
+    protected void onPreExecute() {
+      dialog = ProgressDialog.show(getActivity(),
+                                   getActivity().getString(R.string.ExportFragment_exporting),
+                                   getActivity().getString(R.string.ExportFragment_exporting_encrypted_backup),
+                                   true, false);
+    }
+
+    @Override
+    protected Integer doInBackground(Void... params) {
+      try {
+        BinaryBackupExporter.exportBinaryToSd(getActivity(), masterSecret, passphrase, incremental);
+        return SUCCESS;
+      } catch (NoExternalStorageException e) {
+        Log.w("ExportFragment", e);
+        return NO_SD_CARD;
+      } catch (IOException e) {
+        Log.w("ExportFragment", e);
+        return ERROR_IO;
+      }
+    }
+
+    @Override
+    protected void onPostExecute(Integer result) {
+      Context context = getActivity();
+
+      if (dialog != null)
+        dialog.dismiss();
+
+      if (context == null)
+        return;
+
+      switch (result) {
+        case NO_SD_CARD:
+          Toast.makeText(context,
+                         context.getString(R.string.ExportFragment_error_unable_to_write_to_storage),
+                         Toast.LENGTH_LONG).show();
+          break;
+        case ERROR_IO:
+          Toast.makeText(context,
+                         context.getString(R.string.ExportFragment_error_while_writing_to_storage),
+                         Toast.LENGTH_LONG).show();
+          break;
+        case SUCCESS:
+          Toast.makeText(context,
+                         context.getString(R.string.ExportFragment_export_successful),
+                         Toast.LENGTH_LONG).show();
+          break;
+      }
+    }
+  }
+
 }
\ No newline at end of file
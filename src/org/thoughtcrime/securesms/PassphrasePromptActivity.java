@@ -112,6 +112,7 @@ public class PassphrasePromptActivity extends PassphraseActivity {
       String passphrase         = (text == null ? "" : text.toString());
       MasterSecret masterSecret = MasterSecretUtil.getMasterSecret(this, passphrase);
 
+      MasterSecretUtil.upgradeIterationCountInBackground(this, masterSecret, passphrase);
       setMasterSecret(masterSecret);
     } catch (InvalidPassphraseException ipe) {
       passphraseText.setText("");
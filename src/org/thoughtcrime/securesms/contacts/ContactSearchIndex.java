@@ -0,0 +1,341 @@
+package org.thoughtcrime.securesms.contacts;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.provider.ContactsContract;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import android.util.Log;
+
+import org.thoughtcrime.securesms.database.DatabaseFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An in-memory copy of the Signal contacts that the contact picker searches on
+ * every keystroke, instead of running a LIKE query against the contacts
+ * provider each time.  Every entry is indexed by the trigrams of its name and
+ * number, and a query that extends the previous one from the same loader only
+ * re-checks that query's matches.
+ *
+ * System contacts are only kept for the unfiltered list.  Filtering them stays
+ * with the provider's CONTENT_FILTER_URI, which matches on word prefixes of the
+ * name, nicknames and normalized numbers in ways a substring search can't
+ * reproduce.
+ *
+ * The copy is reloaded when the system contacts change, or once it's older
+ * than {@link #MAX_AGE_MILLIS}.
+ */
+class ContactSearchIndex {
+
+  private static final String TAG = ContactSearchIndex.class.getSimpleName();
+
+  private static final long MAX_AGE_MILLIS = 10 * 60 * 1000;
+
+  static final String[] COLUMNS = new String[] {ContactsDatabase.ID_COLUMN,
+                                                ContactsDatabase.NAME_COLUMN,
+                                                ContactsDatabase.NUMBER_COLUMN,
+                                                ContactsDatabase.NUMBER_TYPE_COLUMN,
+                                                ContactsDatabase.LABEL_COLUMN,
+                                                ContactsDatabase.CONTACT_TYPE_COLUMN};
+
+  private static ContactSearchIndex instance;
+
+  static synchronized ContactSearchIndex getInstance(Context context) {
+    if (instance == null) {
+      instance = new ContactSearchIndex(context.getApplicationContext());
+    }
+
+    return instance;
+  }
+
+  private final Context context;
+
+  private Section pushContacts;
+  private Section systemContacts;
+  private long    loadedAt;
+  private boolean stale = true;
+
+  private ContactSearchIndex(Context context) {
+    this.context = context;
+
+    context.getContentResolver().registerContentObserver(ContactsContract.Contacts.CONTENT_URI, true, new ContentObserver(null) {
+      @Override
+      public void onChange(boolean selfChange) {
+        synchronized (ContactSearchIndex.this) {
+          stale = true;
+        }
+      }
+    });
+  }
+
+  synchronized @NonNull Cursor queryTextSecureContacts(@Nullable String filter, @NonNull QueryState state) {
+    refreshIfStale();
+    return pushContacts.query(filter, state);
+  }
+
+  @NonNull Cursor querySystemContacts(@Nullable String filter) {
+    if (!TextUtils.isEmpty(filter)) {
+      return DatabaseFactory.getContactsDatabase(context).querySystemContacts(filter);
+    }
+
+    synchronized (this) {
+      refreshIfStale();
+      return systemContacts.getAll();
+    }
+  }
+
+  private void refreshIfStale() {
+    if (!stale && System.currentTimeMillis() - loadedAt < MAX_AGE_MILLIS) return;
+
+    long             startMillis = System.currentTimeMillis();
+    ContactsDatabase database    = DatabaseFactory.getContactsDatabase(context);
+
+    pushContacts   = new Section(database.queryTextSecureContacts(null), true);
+    systemContacts = new Section(database.querySystemContacts(null), false);
+    loadedAt       = System.currentTimeMillis();
+    stale          = false;
+
+    Log.w(TAG, "Indexed " + pushContacts.entries.size() + " push and " + systemContacts.entries.size() +
+               " system contacts in " + (loadedAt - startMillis) + "ms");
+  }
+
+  /**
+   * The last query a loader ran against a section and what it matched.  Each
+   * loader keeps its own, so two pickers searching at once don't narrow each
+   * other's results.
+   */
+  static class QueryState {
+    private Section section;
+    private String  lastQuery;
+    private int[]   lastMatches;
+  }
+
+  static class Section {
+
+    private final List<Entry>        entries = new ArrayList<>();
+    private final Map<String, int[]> trigrams;
+
+    Section(@NonNull Cursor cursor, boolean searchable) {
+      Map<String, List<Integer>> postings = new HashMap<>();
+
+      try {
+        while (cursor.moveToNext()) {
+          Entry entry = new Entry(cursor);
+          int   index = entries.size();
+
+          entries.add(entry);
+
+          if (!searchable) continue;
+
+          for (String trigram : getTrigrams(entry.searchText)) {
+            List<Integer> posting = postings.get(trigram);
+
+            if (posting == null) {
+              posting = new ArrayList<>();
+              postings.put(trigram, posting);
+            }
+
+            if (posting.isEmpty() || posting.get(posting.size() - 1) != index) {
+              posting.add(index);
+            }
+          }
+        }
+      } finally {
+        cursor.close();
+      }
+
+      trigrams = new HashMap<>(postings.size());
+
+      for (Map.Entry<String, List<Integer>> posting : postings.entrySet()) {
+        int[] indexes = new int[posting.getValue().size()];
+
+        for (int i=0;i<indexes.length;i++) {
+          indexes[i] = posting.getValue().get(i);
+        }
+
+        trigrams.put(posting.getKey(), indexes);
+      }
+    }
+
+    private @NonNull Cursor getAll() {
+      MatrixCursor cursor = new MatrixCursor(COLUMNS);
+
+      for (Entry entry : entries) entry.addTo(cursor);
+      return cursor;
+    }
+
+    private @NonNull Cursor query(@Nullable String filter, @NonNull QueryState state) {
+      if (TextUtils.isEmpty(filter)) {
+        return getAll();
+      }
+
+      MatrixCursor cursor = new MatrixCursor(COLUMNS);
+
+      for (int index : getMatches(filter, state)) {
+        entries.get(index).addTo(cursor);
+      }
+
+      return cursor;
+    }
+
+    /**
+     * @return the indexes of the entries that match a non-empty filter, in
+     *         display order.
+     */
+    @NonNull int[] getMatches(@NonNull String filter, @NonNull QueryState state) {
+      if (state.section != this) {
+        state.section     = this;
+        state.lastQuery   = null;
+        state.lastMatches = null;
+      }
+
+      String query  = filter.toLowerCase(Locale.getDefault());
+      String digits = getDigits(query);
+
+      if (!digits.equals(query.replaceAll("[\\s\\-().+]", ""))) {
+        digits = null;
+      }
+
+      int[] candidates;
+
+      if      (state.lastQuery != null && query.contains(state.lastQuery)) candidates = state.lastMatches;
+      else if (query.length() >= 3)                                        candidates = getCandidates(query, digits);
+      else                                                                 candidates = null;
+
+      int[] matches = new int[candidates == null ? entries.size() : candidates.length];
+      int   count   = 0;
+
+      for (int i=0;i<(candidates == null ? entries.size() : candidates.length);i++) {
+        int index = candidates == null ? i : candidates[i];
+
+        if (entries.get(index).matches(query, digits)) {
+          matches[count++] = index;
+        }
+      }
+
+      state.lastQuery   = query;
+      state.lastMatches = Arrays.copyOf(matches, count);
+
+      return state.lastMatches;
+    }
+
+    /**
+     * Entries that contain every trigram of the query or of its digits, in
+     * display order, or null if the trigrams can't narrow the search.
+     */
+    private @Nullable int[] getCandidates(@NonNull String query, @Nullable String digits) {
+      int[] candidates = intersect(query);
+
+      if (digits != null && !digits.equals(query)) {
+        if (digits.length() < 3) return null;
+        candidates = union(candidates, intersect(digits));
+      }
+
+      return candidates;
+    }
+
+    private @NonNull int[] intersect(@NonNull String text) {
+      int[] result = null;
+
+      for (String trigram : getTrigrams(text)) {
+        int[] posting = trigrams.get(trigram);
+
+        if (posting == null) return new int[0];
+
+        if (result == null) {
+          result = posting;
+        } else {
+          int[] merged = new int[Math.min(result.length, posting.length)];
+          int   count  = 0;
+
+          for (int i=0, j=0;i<result.length && j<posting.length;) {
+            if      (result[i] < posting[j]) i++;
+            else if (result[i] > posting[j]) j++;
+            else    {merged[count++] = result[i]; i++; j++;}
+          }
+
+          result = Arrays.copyOf(merged, count);
+        }
+      }
+
+      return result == null ? new int[0] : result;
+    }
+
+    private static @NonNull int[] union(@NonNull int[] first, @NonNull int[] second) {
+      int[] merged = new int[first.length + second.length];
+      int   count  = 0;
+      int   i      = 0;
+      int   j      = 0;
+
+      while (i < first.length || j < second.length) {
+        if      (j >= second.length || (i < first.length && first[i] < second[j])) merged[count++] = first[i++];
+        else if (i >= first.length  || second[j] < first[i])                        merged[count++] = second[j++];
+        else                                                                         {merged[count++] = first[i++]; j++;}
+      }
+
+      return Arrays.copyOf(merged, count);
+    }
+  }
+
+  private static class Entry {
+    private final long   id;
+    private final String name;
+    private final String number;
+    private final int    numberType;
+    private final String label;
+    private final int    contactType;
+    private final String searchText;
+
+    private Entry(@NonNull Cursor cursor) {
+      this.id          = cursor.getLong(cursor.getColumnIndexOrThrow(ContactsDatabase.ID_COLUMN));
+      this.name        = cursor.getString(cursor.getColumnIndexOrThrow(ContactsDatabase.NAME_COLUMN));
+      this.number      = cursor.getString(cursor.getColumnIndexOrThrow(ContactsDatabase.NUMBER_COLUMN));
+      this.numberType  = cursor.getInt(cursor.getColumnIndexOrThrow(ContactsDatabase.NUMBER_TYPE_COLUMN));
+      this.label       = cursor.getString(cursor.getColumnIndexOrThrow(ContactsDatabase.LABEL_COLUMN));
+      this.contactType = cursor.getInt(cursor.getColumnIndexOrThrow(ContactsDatabase.CONTACT_TYPE_COLUMN));
+
+      String lowerName   = name   == null ? "" : name.toLowerCase(Locale.getDefault());
+      String lowerNumber = number == null ? "" : number.toLowerCase(Locale.getDefault());
+
+      this.searchText = lowerName + "\n" + lowerNumber + "\n" + getDigits(lowerNumber);
+    }
+
+    private boolean matches(@NonNull String query, @Nullable String digits) {
+      return searchText.contains(query) || (digits != null && digits.length() > 0 && searchText.contains(digits));
+    }
+
+    private void addTo(@NonNull MatrixCursor cursor) {
+      cursor.addRow(new Object[] {id, name, number, numberType, label, contactType});
+    }
+  }
+
+  private static @NonNull List<String> getTrigrams(@NonNull String text) {
+    List<String> results = new ArrayList<>(Math.max(0, text.length() - 2));
+
+    for (int i=0;i + 3<=text.length();i++) {
+      results.add(text.substring(i, i + 3));
+    }
+
+    return results;
+  }
+
+  private static @NonNull String getDigits(@NonNull String text) {
+    StringBuilder builder = new StringBuilder(text.length());
+
+    for (int i=0;i<text.length();i++) {
+      char c = text.charAt(i);
+      if (c >= '0' && c <= '9') builder.append(c);
+    }
+
+    return builder.toString();
+  }
+}
@@ -27,7 +27,6 @@ import android.text.TextUtils;
 import android.util.Log;
 
 import org.thoughtcrime.securesms.R;
-import org.thoughtcrime.securesms.database.DatabaseFactory;
 import org.thoughtcrime.securesms.recipients.RecipientFactory;
 import org.thoughtcrime.securesms.recipients.Recipients;
 import org.thoughtcrime.securesms.util.DirectoryHelper;
@@ -35,6 +34,8 @@ import org.thoughtcrime.securesms.util.DirectoryHelper.UserCapabilities.Capabili
 import org.thoughtcrime.securesms.util.NumberUtil;
 
 import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
 
 /**
  * CursorLoader that initializes a ContactsDatabase instance
@@ -49,29 +50,37 @@ public class ContactsCursorLoader extends CursorLoader {
   public final static int MODE_PUSH_ONLY = 1;
   public final static int MODE_SMS_ONLY  = 2;
 
-  private final String filter;
-  private final int    mode;
+  private static final int RECIPIENT_PREFETCH_COUNT = 50;
+
+  private final String      filter;
+  private final int         mode;
+  private final SearchState searchState;
 
   public ContactsCursorLoader(Context context, int mode, String filter) {
+    this(context, mode, filter, new SearchState());
+  }
+
+  public ContactsCursorLoader(Context context, int mode, String filter, @NonNull SearchState searchState) {
     super(context);
 
-    this.filter = filter;
-    this.mode   = mode;
+    this.filter      = filter;
+    this.mode        = mode;
+    this.searchState = searchState;
   }
 
   @Override
   public Cursor loadInBackground() {
-    ContactsDatabase  contactsDatabase = DatabaseFactory.getContactsDatabase(getContext());
-    ArrayList<Cursor> cursorList       = new ArrayList<>(3);
+    ContactSearchIndex searchIndex = ContactSearchIndex.getInstance(getContext());
+    ArrayList<Cursor>  cursorList  = new ArrayList<>(3);
 
     if (mode != MODE_SMS_ONLY) {
-      cursorList.add(contactsDatabase.queryTextSecureContacts(filter));
+      cursorList.add(searchIndex.queryTextSecureContacts(filter, searchState.pushContacts));
     }
 
     if (mode == MODE_ALL) {
-      cursorList.add(contactsDatabase.querySystemContacts(filter));
+      cursorList.add(searchIndex.querySystemContacts(filter));
     } else if (mode == MODE_SMS_ONLY) {
-      cursorList.add(filterNonPushContacts(contactsDatabase.querySystemContacts(filter)));
+      cursorList.add(filterNonPushContacts(searchIndex.querySystemContacts(filter)));
     }
 
     if (!TextUtils.isEmpty(filter) && NumberUtil.isValidSmsOrEmail(filter)) {
@@ -89,7 +98,29 @@ public class ContactsCursorLoader extends CursorLoader {
       cursorList.add(newNumberCursor);
     }
 
-    return new MergeCursor(cursorList.toArray(new Cursor[0]));
+    return prefetchRecipients(new MergeCursor(cursorList.toArray(new Cursor[0])));
+  }
+
+  /**
+   * Resolves the first contacts' recipients in one batch, rather than in a
+   * lookup per row as each one is bound.
+   */
+  private @NonNull Cursor prefetchRecipients(@NonNull Cursor cursor) {
+    List<String> numbers = new LinkedList<>();
+
+    while (numbers.size() < RECIPIENT_PREFETCH_COUNT && cursor.moveToNext()) {
+      String number = cursor.getString(cursor.getColumnIndexOrThrow(ContactsDatabase.NUMBER_COLUMN));
+      int    type   = cursor.getInt(cursor.getColumnIndexOrThrow(ContactsDatabase.CONTACT_TYPE_COLUMN));
+
+      if (type != ContactsDatabase.NEW_TYPE && !TextUtils.isEmpty(number)) {
+        numbers.add(number);
+      }
+    }
+
+    cursor.moveToPosition(-1);
+
+    RecipientFactory.prefetchRecipientsFromStrings(getContext(), numbers, true);
+    return cursor;
   }
 
   private @NonNull Cursor filterNonPushContacts(@NonNull Cursor cursor) {
@@ -122,4 +153,13 @@ public class ContactsCursorLoader extends CursorLoader {
       cursor.close();
     }
   }
+
+  /**
+   * What the previous search matched, handed from one loader to the next one
+   * that replaces it so that typing another character only re-checks those
+   * matches.
+   */
+  public static class SearchState {
+    private final ContactSearchIndex.QueryState pushContacts = new ContactSearchIndex.QueryState();
+  }
 }
@@ -35,11 +35,11 @@ import android.util.Log;
 import android.util.Pair;
 
 import org.thoughtcrime.securesms.R;
+import org.thoughtcrime.securesms.util.PhoneNumberNormalizer;
 import org.thoughtcrime.securesms.util.Util;
 import org.whispersystems.libsignal.util.guava.Optional;
 import org.whispersystems.signalservice.api.push.ContactTokenDetails;
 import org.whispersystems.signalservice.api.util.InvalidNumberException;
-import org.whispersystems.signalservice.api.util.PhoneNumberFormatter;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -371,7 +371,7 @@ public class ContactsDatabase {
         String currentNumber;
 
         try {
-          currentNumber = PhoneNumberFormatter.formatNumber(cursor.getString(1), localNumber);
+          currentNumber = PhoneNumberNormalizer.getInstance().normalize(cursor.getString(1), localNumber);
         } catch (InvalidNumberException e) {
           Log.w(TAG, e);
           currentNumber = cursor.getString(1);
@@ -416,7 +416,7 @@ public class ContactsDatabase {
       while (numberCursor != null && numberCursor.moveToNext()) {
         try {
           String systemNumber              = numberCursor.getString(0);
-          String canonicalizedSystemNumber = PhoneNumberFormatter.formatNumber(systemNumber, localNumber);
+          String canonicalizedSystemNumber = PhoneNumberNormalizer.getInstance().normalize(systemNumber, localNumber);
 
           if (canonicalizedSystemNumber.equals(e164number)) {
             idCursor = context.getContentResolver().query(RawContacts.CONTENT_URI,
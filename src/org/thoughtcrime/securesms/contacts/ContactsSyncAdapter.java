@@ -30,7 +30,7 @@ public class ContactsSyncAdapter extends AbstractThreadedSyncAdapter {
 
     if (TextSecurePreferences.isPushRegistered(getContext())) {
       try {
-        DirectoryHelper.refreshDirectory(getContext(), KeyCachingService.getMasterSecret(getContext()));
+        DirectoryHelper.refreshDirectoryForChangedContacts(getContext(), KeyCachingService.getMasterSecret(getContext()));
       } catch (IOException e) {
         Log.w(TAG, e);
       }
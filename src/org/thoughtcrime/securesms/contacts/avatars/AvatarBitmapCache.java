@@ -0,0 +1,60 @@
+package org.thoughtcrime.securesms.contacts.avatars;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+
+/**
+ * Decoded avatars shared by every recipient in the process, so that a recipient
+ * that's resolved again after falling out of the recipient cache, or that shows
+ * up in both a contact and a group context, doesn't decode its avatar again.
+ * Bounded by the size of the bitmaps rather than the number of entries.
+ */
+class AvatarBitmapCache {
+
+  private static final int MAX_SIZE_BYTES = (int) Math.min(Runtime.getRuntime().maxMemory() / 16, Integer.MAX_VALUE);
+
+  private static final AvatarBitmapCache instance = new AvatarBitmapCache(MAX_SIZE_BYTES);
+
+  static AvatarBitmapCache getInstance() {
+    return instance;
+  }
+
+  private final LruCache<String, BitmapContactPhoto> cache;
+
+  private AvatarBitmapCache(int maxSizeBytes) {
+    this.cache = new LruCache<String, BitmapContactPhoto>(maxSizeBytes) {
+      @Override
+      protected int sizeOf(String key, BitmapContactPhoto value) {
+        Bitmap bitmap = value.getBitmap();
+        return bitmap.getRowBytes() * bitmap.getHeight();
+      }
+    };
+  }
+
+  @Nullable BitmapContactPhoto get(@NonNull String key) {
+    return cache.get(key);
+  }
+
+  @NonNull BitmapContactPhoto put(@NonNull String key, @NonNull Bitmap bitmap) {
+    BitmapContactPhoto photo = new BitmapContactPhoto(bitmap);
+    cache.put(key, photo);
+    return photo;
+  }
+
+  void clear() {
+    cache.evictAll();
+  }
+
+  static @NonNull String getKey(@NonNull String source, int size) {
+    return source + "#" + size;
+  }
+
+  /**
+   * For avatars that are decoded at their full size.
+   */
+  static @NonNull String getKey(@NonNull String source) {
+    return source;
+  }
+}
@@ -16,6 +16,10 @@ public class BitmapContactPhoto implements ContactPhoto {
     this.bitmap = bitmap;
   }
 
+  Bitmap getBitmap() {
+    return bitmap;
+  }
+
   @Override
   public Drawable asDrawable(Context context, int color) {
     return asDrawable(context, color, false);
@@ -11,10 +11,16 @@ import android.text.TextUtils;
 
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.request.FutureTarget;
 
 import org.thoughtcrime.securesms.R;
 import org.thoughtcrime.securesms.mms.ContactPhotoUriLoader.ContactPhotoUri;
+import org.thoughtcrime.securesms.util.Hex;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 public class ContactPhotoFactory {
@@ -50,22 +56,90 @@ public class ContactPhotoFactory {
   {
     if (uri == null) return getDefaultContactPhoto(name);
 
-    try {
-      Bitmap bitmap = Glide.with(context)
-                           .load(new ContactPhotoUri(uri)).asBitmap()
-                           .diskCacheStrategy(DiskCacheStrategy.NONE)
-                           .centerCrop().into(targetSize, targetSize).get();
-      return new BitmapContactPhoto(bitmap);
-    } catch (ExecutionException e) {
-      return getDefaultContactPhoto(name);
-    } catch (InterruptedException e) {
-      throw new AssertionError(e);
+    Map<Uri, String> request = new HashMap<>(1);
+    request.put(uri, name);
+
+    return getContactPhotos(context, request, targetSize).get(uri);
+  }
+
+  /**
+   * Loads the photos for many contacts at once.  Cached avatars are returned
+   * directly, and the remaining ones are all handed to Glide before waiting on
+   * any of them, so that they're decoded in parallel.
+   *
+   * @param contacts A map of contact URIs to the names used for their default photos.
+   */
+  public static @NonNull Map<Uri, ContactPhoto> getContactPhotos(@NonNull Context context,
+                                                                 @NonNull Map<Uri, String> contacts)
+  {
+    int targetSize = context.getResources().getDimensionPixelSize(R.dimen.contact_photo_target_size);
+    return getContactPhotos(context, contacts, targetSize);
+  }
+
+  private static @NonNull Map<Uri, ContactPhoto> getContactPhotos(@NonNull Context context,
+                                                                  @NonNull Map<Uri, String> contacts,
+                                                                  int targetSize)
+  {
+    AvatarBitmapCache              cache   = AvatarBitmapCache.getInstance();
+    Map<Uri, ContactPhoto>         results = new HashMap<>(contacts.size());
+    Map<Uri, FutureTarget<Bitmap>> pending = new HashMap<>();
+
+    for (Uri uri : contacts.keySet()) {
+      BitmapContactPhoto cached = cache.get(AvatarBitmapCache.getKey(uri.toString(), targetSize));
+
+      if (cached != null) {
+        results.put(uri, cached);
+      } else {
+        pending.put(uri, Glide.with(context)
+                              .load(new ContactPhotoUri(uri)).asBitmap()
+                              .diskCacheStrategy(DiskCacheStrategy.NONE)
+                              .centerCrop().into(targetSize, targetSize));
+      }
+    }
+
+    for (Map.Entry<Uri, FutureTarget<Bitmap>> entry : pending.entrySet()) {
+      Uri uri = entry.getKey();
+
+      try {
+        results.put(uri, cache.put(AvatarBitmapCache.getKey(uri.toString(), targetSize), entry.getValue().get()));
+      } catch (ExecutionException e) {
+        results.put(uri, getDefaultContactPhoto(contacts.get(uri)));
+      } catch (InterruptedException e) {
+        throw new AssertionError(e);
+      }
     }
+
+    return results;
   }
 
   public static ContactPhoto getGroupContactPhoto(@Nullable byte[] avatar) {
     if (avatar == null) return getDefaultGroupPhoto();
 
-    return new BitmapContactPhoto(BitmapFactory.decodeByteArray(avatar, 0, avatar.length));
+    AvatarBitmapCache  cache  = AvatarBitmapCache.getInstance();
+    String             key    = AvatarBitmapCache.getKey("group:" + getDigest(avatar));
+    BitmapContactPhoto cached = cache.get(key);
+
+    if (cached != null) return cached;
+
+    Bitmap bitmap = BitmapFactory.decodeByteArray(avatar, 0, avatar.length);
+
+    if (bitmap == null) return getDefaultGroupPhoto();
+    else                return cache.put(key, bitmap);
+  }
+
+  /**
+   * Drops every decoded avatar.  Group avatars are keyed by their content, but
+   * contact photos are keyed by URI and have to be dropped when contacts change.
+   */
+  public static void clearCache() {
+    AvatarBitmapCache.getInstance().clear();
+  }
+
+  private static @NonNull String getDigest(@NonNull byte[] avatar) {
+    try {
+      return Hex.toStringCondensed(MessageDigest.getInstance("SHA-256").digest(avatar));
+    } catch (NoSuchAlgorithmException e) {
+      throw new AssertionError(e);
+    }
   }
 }
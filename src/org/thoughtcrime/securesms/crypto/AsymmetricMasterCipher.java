@@ -94,7 +94,7 @@ public class AsymmetricMasterCipher {
   }
 
   public String decryptBody(String body) throws IOException, InvalidMessageException {
-    byte[] combined = Base64.decode(body);
+    byte[] combined = Base64.decode(body, Base64.DONT_GUNZIP);
     return new String(decryptBytes(combined));
   }
 
@@ -94,9 +94,13 @@ public class MasterCipher {
   }
 	
   public byte[] decryptBytes(@NonNull byte[] decodedBody) throws InvalidMessageException {
+    return decryptBytes(decodedBody, 0, decodedBody.length);
+  }
+
+  public byte[] decryptBytes(@NonNull byte[] decodedBody, int offset, int length) throws InvalidMessageException {
     try {
       Mac mac              = getMac(masterSecret.getMacKey());
-      byte[] encryptedBody = verifyMacBody(mac, decodedBody);
+      byte[] encryptedBody = verifyMacBody(mac, decodedBody, offset, length);
 			
       Cipher cipher        = getDecryptingCipher(masterSecret.getEncryptionKey(), encryptedBody);
       byte[] encrypted     = getDecryptedBody(cipher, encryptedBody);
@@ -142,7 +146,7 @@ public class MasterCipher {
 
   private byte[] decodeAndDecryptBytes(String body) throws InvalidMessageException {
     try {
-      byte[] decodedBody = Base64.decode(body);
+      byte[] decodedBody = Base64.decode(body, Base64.DONT_GUNZIP);
       return decryptBytes(decodedBody);
     } catch (IOException e) {
       throw new InvalidMessageException("Bad Base64 Encoding...", e);
@@ -154,16 +158,18 @@ public class MasterCipher {
     return Base64.encodeBytes(encryptedAndMacBody);
   }
 	
-  private byte[] verifyMacBody(@NonNull Mac hmac, @NonNull byte[] encryptedAndMac) throws InvalidMessageException {
-    if (encryptedAndMac.length < hmac.getMacLength()) {
+  private byte[] verifyMacBody(@NonNull Mac hmac, @NonNull byte[] encryptedAndMac, int offset, int length)
+      throws InvalidMessageException
+  {
+    if (length < hmac.getMacLength()) {
       throw new InvalidMessageException("length(encrypted body + MAC) < length(MAC)");
     }
 
-    byte[] encrypted = new byte[encryptedAndMac.length - hmac.getMacLength()];
-    System.arraycopy(encryptedAndMac, 0, encrypted, 0, encrypted.length);
+    byte[] encrypted = new byte[length - hmac.getMacLength()];
+    System.arraycopy(encryptedAndMac, offset, encrypted, 0, encrypted.length);
 		
     byte[] remoteMac = new byte[hmac.getMacLength()];
-    System.arraycopy(encryptedAndMac, encryptedAndMac.length - remoteMac.length, remoteMac, 0, remoteMac.length);
+    System.arraycopy(encryptedAndMac, offset + length - remoteMac.length, remoteMac, 0, remoteMac.length);
 		
     byte[] localMac  = hmac.doFinal(encrypted);
 		
@@ -19,6 +19,7 @@ package org.thoughtcrime.securesms.crypto;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.AsyncTask;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
@@ -56,9 +57,19 @@ import javax.crypto.spec.SecretKeySpec;
 
 public class MasterSecretUtil {
 
+  private static final String TAG = MasterSecretUtil.class.getSimpleName();
+
   public static final String UNENCRYPTED_PASSPHRASE  = "unencrypted";
   public static final String PREFERENCES_NAME        = "SecureSMS-Preferences";
 
+  private static final String BENCHMARK_ITERATIONS_PER_SECOND = "passphrase_benchmark_iterations_per_second";
+
+  private static final int TARGET_UNLOCK_TIME        = 100;   //ms, for the two derivations of an unlock
+  private static final int MINIMUM_ITERATION_COUNT   = 100;   //default for low-end devices
+  private static final int BENCHMARK_ITERATION_COUNT = 10000; //baseline starting iteration count
+
+  private static volatile long lastDerivationTime = -1;
+
   private static final String ASYMMETRIC_LOCAL_PUBLIC_DJB   = "asymmetric_master_secret_curve25519_public";
   private static final String ASYMMETRIC_LOCAL_PRIVATE_DJB  = "asymmetric_master_secret_curve25519_private";
 
@@ -71,20 +82,17 @@ public class MasterSecretUtil {
                                             masterSecret.getMacKey().getEncoded());
 
       byte[] encryptionSalt               = generateSalt();
-      int    iterations                   = generateIterationCount(newPassphrase, encryptionSalt);
+      int    iterations                   = Math.max(getTargetIterationCount(context),
+                                                     retrieve(context, "passphrase_iterations", 0));
       byte[] encryptedMasterSecret        = encryptWithPassphrase(encryptionSalt, iterations, combinedSecrets, newPassphrase);
       byte[] macSalt                      = generateSalt();
       byte[] encryptedAndMacdMasterSecret = macWithPassphrase(macSalt, iterations, encryptedMasterSecret, newPassphrase);
 
-      save(context, "encryption_salt", encryptionSalt);
-      save(context, "mac_salt", macSalt);
-      save(context, "passphrase_iterations", iterations);
-      save(context, "master_secret", encryptedAndMacdMasterSecret);
-      save(context, "passphrase_initialized", true);
+      save(context, encryptionSalt, macSalt, iterations, encryptedAndMacdMasterSecret);
 
       return masterSecret;
-    } catch (GeneralSecurityException gse) {
-      throw new AssertionError(gse);
+    } catch (GeneralSecurityException | IOException e) {
+      throw new AssertionError(e);
     }
   }
 
@@ -103,6 +111,7 @@ public class MasterSecretUtil {
       throws InvalidPassphraseException
   {
     try {
+      long   startTime                    = System.currentTimeMillis();
       byte[] encryptedAndMacdMasterSecret = retrieve(context, "master_secret");
       byte[] macSalt                      = retrieve(context, "mac_salt");
       int    iterations                   = retrieve(context, "passphrase_iterations", 100);
@@ -111,9 +120,13 @@ public class MasterSecretUtil {
       byte[] combinedSecrets              = decryptWithPassphrase(encryptionSalt, iterations, encryptedMasterSecret, passphrase);
       byte[] encryptionSecret             = Util.split(combinedSecrets, 16, 20)[0];
       byte[] macSecret                    = Util.split(combinedSecrets, 16, 20)[1];
+      MasterSecret masterSecret           = new MasterSecret(new SecretKeySpec(encryptionSecret, "AES"),
+                                                             new SecretKeySpec(macSecret, "HmacSHA1"));
 
-      return new MasterSecret(new SecretKeySpec(encryptionSecret, "AES"),
-                              new SecretKeySpec(macSecret, "HmacSHA1"));
+      lastDerivationTime = System.currentTimeMillis() - startTime;
+      Log.w(TAG, "Unlocked with " + iterations + " iterations in " + lastDerivationTime + "ms");
+
+      return masterSecret;
     } catch (GeneralSecurityException e) {
       Log.w("keyutil", e);
       return null; //XXX
@@ -169,16 +182,12 @@ public class MasterSecretUtil {
       byte[] macSecret                    = generateMacSecret();
       byte[] masterSecret                 = Util.combine(encryptionSecret, macSecret);
       byte[] encryptionSalt               = generateSalt();
-      int    iterations                   = generateIterationCount(passphrase, encryptionSalt);
+      int    iterations                   = getTargetIterationCount(context);
       byte[] encryptedMasterSecret        = encryptWithPassphrase(encryptionSalt, iterations, masterSecret, passphrase);
       byte[] macSalt                      = generateSalt();
       byte[] encryptedAndMacdMasterSecret = macWithPassphrase(macSalt, iterations, encryptedMasterSecret, passphrase);
 
-      save(context, "encryption_salt", encryptionSalt);
-      save(context, "mac_salt", macSalt);
-      save(context, "passphrase_iterations", iterations);
-      save(context, "master_secret", encryptedAndMacdMasterSecret);
-      save(context, "passphrase_initialized", true);
+      save(context, encryptionSalt, macSalt, iterations, encryptedAndMacdMasterSecret);
 
       return new MasterSecret(new SecretKeySpec(encryptionSecret, "AES"),
                               new SecretKeySpec(macSecret, "HmacSHA1"));
@@ -188,6 +197,86 @@ public class MasterSecretUtil {
     }
   }
 
+  /**
+   * Re-wraps the master secret with the target iteration count if it's
+   * stored with fewer, as it is after unlocking with a passphrase set by an
+   * older release.  That costs another full derivation, so it runs in the
+   * background once the unlock is done, and it writes nothing if the
+   * passphrase was changed in the meantime.
+   */
+  public static void upgradeIterationCountInBackground(@NonNull Context context,
+                                                       @NonNull final MasterSecret masterSecret,
+                                                       @NonNull final String passphrase)
+  {
+    final Context applicationContext = context.getApplicationContext();
+
+    new AsyncTask<Void, Void, Void>() {
+      @Override
+      protected Void doInBackground(Void... params) {
+        upgradeIterationCount(applicationContext, masterSecret, passphrase);
+        return null;
+      }
+    }.execute();
+  }
+
+  private static void upgradeIterationCount(Context context, MasterSecret masterSecret, String passphrase) {
+    SharedPreferences preferences = context.getSharedPreferences(PREFERENCES_NAME, 0);
+    String            wrapped     = preferences.getString("master_secret", "");
+    int               iterations  = preferences.getInt("passphrase_iterations", 100);
+    int               target      = getTargetIterationCount(context);
+
+    if (iterations >= target) return;
+
+    try {
+      byte[] combinedSecrets              = Util.combine(masterSecret.getEncryptionKey().getEncoded(),
+                                                         masterSecret.getMacKey().getEncoded());
+      byte[] encryptionSalt               = generateSalt();
+      byte[] encryptedMasterSecret        = encryptWithPassphrase(encryptionSalt, target, combinedSecrets, passphrase);
+      byte[] macSalt                      = generateSalt();
+      byte[] encryptedAndMacdMasterSecret = macWithPassphrase(macSalt, target, encryptedMasterSecret, passphrase);
+
+      synchronized (MasterSecretUtil.class) {
+        if (!wrapped.equals(preferences.getString("master_secret", ""))) {
+          Log.w(TAG, "Passphrase changed, not upgrading iterations");
+          return;
+        }
+
+        save(context, encryptionSalt, macSalt, target, encryptedAndMacdMasterSecret);
+        Log.w(TAG, "Upgraded passphrase iterations from " + iterations + " to " + target);
+      }
+    } catch (GeneralSecurityException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * @return how long the last unlock took to derive its keys, in ms, or -1
+   * if there hasn't been one since the process started.
+   */
+  public static long getLastDerivationTime() {
+    return lastDerivationTime;
+  }
+
+  /**
+   * The iteration count that makes an unlock take about TARGET_UNLOCK_TIME
+   * on this device.  The device is benchmarked the first time this is asked
+   * for, and the result is kept, so later passphrase changes and unlocks
+   * don't pay for another benchmark.
+   */
+  public static int getTargetIterationCount(Context context) {
+    SharedPreferences preferences         = context.getSharedPreferences(PREFERENCES_NAME, 0);
+    int               iterationsPerSecond = preferences.getInt(BENCHMARK_ITERATIONS_PER_SECOND, -1);
+
+    if (iterationsPerSecond <= 0) {
+      iterationsPerSecond = benchmarkIterationsPerSecond();
+      if (iterationsPerSecond > 0) save(context, BENCHMARK_ITERATIONS_PER_SECOND, iterationsPerSecond);
+    }
+
+    long scaledIterationTarget = (long)iterationsPerSecond * (TARGET_UNLOCK_TIME / 2) / 1000;
+
+    return (int)Math.min(Integer.MAX_VALUE, Math.max(MINIMUM_ITERATION_COUNT, scaledIterationTarget));
+  }
+
   public static boolean hasAsymmericMasterSecret(Context context) {
     SharedPreferences settings = context.getSharedPreferences(PREFERENCES_NAME, 0);
     return settings.contains(ASYMMETRIC_LOCAL_PUBLIC_DJB);
@@ -198,30 +287,40 @@ public class MasterSecretUtil {
     return preferences.getBoolean("passphrase_initialized", false);
   }
 
-  private static void save(Context context, String key, int value) {
+  /**
+   * Writes a wrapped master secret and everything needed to unwrap it in one
+   * commit, so that a crash can't leave them out of step with each other.
+   */
+  private static synchronized void save(Context context, byte[] encryptionSalt, byte[] macSalt,
+                                        int iterations, byte[] encryptedAndMacdMasterSecret)
+  {
     if (!context.getSharedPreferences(PREFERENCES_NAME, 0)
                 .edit()
-                .putInt(key, value)
+                .putString("encryption_salt", Base64.encodeBytes(encryptionSalt))
+                .putString("mac_salt", Base64.encodeBytes(macSalt))
+                .putInt("passphrase_iterations", iterations)
+                .putString("master_secret", Base64.encodeBytes(encryptedAndMacdMasterSecret))
+                .putBoolean("passphrase_initialized", true)
                 .commit())
     {
       throw new AssertionError("failed to save a shared pref in MasterSecretUtil");
     }
   }
 
-  private static void save(Context context, String key, byte[] value) {
+  private static void save(Context context, String key, int value) {
     if (!context.getSharedPreferences(PREFERENCES_NAME, 0)
                 .edit()
-                .putString(key, Base64.encodeBytes(value))
+                .putInt(key, value)
                 .commit())
     {
       throw new AssertionError("failed to save a shared pref in MasterSecretUtil");
     }
   }
 
-  private static void save(Context context, String key, boolean value) {
+  private static void save(Context context, String key, byte[] value) {
     if (!context.getSharedPreferences(PREFERENCES_NAME, 0)
                 .edit()
-                .putBoolean(key, value)
+                .putString(key, Base64.encodeBytes(value))
                 .commit())
     {
       throw new AssertionError("failed to save a shared pref in MasterSecretUtil");
@@ -272,29 +371,21 @@ public class MasterSecretUtil {
     return salt;
   }
 
-  private static int generateIterationCount(String passphrase, byte[] salt) {
-    int TARGET_ITERATION_TIME     = 50;   //ms
-    int MINIMUM_ITERATION_COUNT   = 100;   //default for low-end devices
-    int BENCHMARK_ITERATION_COUNT = 10000; //baseline starting iteration count
-
+  private static int benchmarkIterationsPerSecond() {
     try {
-      PBEKeySpec       keyspec = new PBEKeySpec(passphrase.toCharArray(), salt, BENCHMARK_ITERATION_COUNT);
+      PBEKeySpec       keyspec = new PBEKeySpec(UNENCRYPTED_PASSPHRASE.toCharArray(), generateSalt(), BENCHMARK_ITERATION_COUNT);
       SecretKeyFactory skf     = SecretKeyFactory.getInstance("PBEWITHSHA1AND128BITAES-CBC-BC");
 
       long startTime = System.currentTimeMillis();
       skf.generateSecret(keyspec);
-      long finishTime = System.currentTimeMillis();
+      long elapsedTime = Math.max(1, System.currentTimeMillis() - startTime);
 
-      int scaledIterationTarget = (int) (((double)BENCHMARK_ITERATION_COUNT / (double)(finishTime - startTime)) * TARGET_ITERATION_TIME);
+      Log.w(TAG, "Benchmarked " + BENCHMARK_ITERATION_COUNT + " iterations in " + elapsedTime + "ms");
 
-      if (scaledIterationTarget < MINIMUM_ITERATION_COUNT) return MINIMUM_ITERATION_COUNT;
-      else                                                 return scaledIterationTarget;
-    } catch (NoSuchAlgorithmException e) {
-      Log.w("MasterSecretUtil", e);
-      return MINIMUM_ITERATION_COUNT;
-    } catch (InvalidKeySpecException e) {
-      Log.w("MasterSecretUtil", e);
-      return MINIMUM_ITERATION_COUNT;
+      return (int)Math.min(Integer.MAX_VALUE, BENCHMARK_ITERATION_COUNT * 1000L / elapsedTime);
+    } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+      Log.w(TAG, e);
+      return -1;
     }
   }
 
@@ -19,7 +19,7 @@ public class SessionUtil {
   }
 
   public static boolean hasSession(Context context, MasterSecret masterSecret, @NonNull String number) {
-    SessionStore          sessionStore   = new TextSecureSessionStore(context, masterSecret);
+    SessionStore          sessionStore   = new TextSecureSessionStore(context);
     SignalProtocolAddress axolotlAddress = new SignalProtocolAddress(number, SignalServiceAddress.DEFAULT_DEVICE_ID);
 
     return sessionStore.containsSession(axolotlAddress);
@@ -5,121 +5,113 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.Log;
 
-import org.thoughtcrime.securesms.crypto.MasterCipher;
-import org.thoughtcrime.securesms.crypto.MasterSecret;
+import org.thoughtcrime.securesms.database.DatabaseFactory;
+import org.thoughtcrime.securesms.database.SessionDatabase;
+import org.thoughtcrime.securesms.database.SessionDatabase.SessionRow;
+import org.thoughtcrime.securesms.database.SessionDatabase.SessionWrite;
 import org.thoughtcrime.securesms.recipients.Recipient;
 import org.thoughtcrime.securesms.recipients.RecipientFactory;
-import org.thoughtcrime.securesms.util.Conversions;
+import org.thoughtcrime.securesms.util.LRUCache;
+import org.thoughtcrime.securesms.util.ThreadUtil;
 import org.whispersystems.libsignal.SignalProtocolAddress;
-import org.whispersystems.libsignal.InvalidMessageException;
 import org.whispersystems.libsignal.protocol.CiphertextMessage;
 import org.whispersystems.libsignal.state.SessionRecord;
-import org.whispersystems.libsignal.state.SessionState;
 import org.whispersystems.libsignal.state.SessionStore;
 import org.whispersystems.signalservice.api.push.SignalServiceAddress;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-
-import static org.whispersystems.libsignal.state.StorageProtos.SessionStructure;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class TextSecureSessionStore implements SessionStore {
 
-  private static final String TAG                   = TextSecureSessionStore.class.getSimpleName();
-  private static final String SESSIONS_DIRECTORY_V2 = "sessions-v2";
-  private static final Object FILE_LOCK             = new Object();
-
-  private static final int SINGLE_STATE_VERSION   = 1;
-  private static final int ARCHIVE_STATES_VERSION = 2;
-  private static final int PLAINTEXT_VERSION      = 3;
-  private static final int CURRENT_VERSION        = 3;
+  private static final String TAG                 = TextSecureSessionStore.class.getSimpleName();
+  private static final int    LOCK_STRIPES        = 16;
+  private static final int    MAX_CACHED_SESSIONS = 500;
 
-  @NonNull  private final Context      context;
-  @Nullable private final MasterSecret masterSecret;
+  private static final Object   FLUSH_LOCK = new Object();
+  private static final Object[] LOCKS      = new Object[LOCK_STRIPES];
 
-  public TextSecureSessionStore(@NonNull Context context) {
-    this(context, null);
+  static {
+    for (int i=0;i<LOCKS.length;i++) LOCKS[i] = new Object();
   }
 
-  public TextSecureSessionStore(@NonNull Context context, @Nullable MasterSecret masterSecret) {
-    this.context      = context.getApplicationContext();
-    this.masterSecret = masterSecret;
+  /**
+   * Serialized records that have been read from or written to the database, keyed by address.
+   * Records are cached serialized so that every caller gets its own mutable SessionRecord.
+   */
+  private static final Map<SignalProtocolAddress, byte[]> CACHE =
+      Collections.synchronizedMap(new LRUCache<SignalProtocolAddress, byte[]>(MAX_CACHED_SESSIONS));
+
+  /**
+   * Writes and deletes that have not yet been flushed to the database. Pending writes are never
+   * evicted, so the dirty set is authoritative over both the cache and the database.
+   */
+  private static final ConcurrentHashMap<SignalProtocolAddress, PendingWrite> DIRTY = new ConcurrentHashMap<>();
+
+  private static final ExecutorService FLUSH_EXECUTOR  = ThreadUtil.newDynamicSingleThreadedExecutor();
+  private static final AtomicBoolean   FLUSH_SCHEDULED = new AtomicBoolean(false);
+
+  @NonNull  private final Context context;
+
+  public TextSecureSessionStore(@NonNull Context context) {
+    this.context = context.getApplicationContext();
   }
 
   @Override
   public SessionRecord loadSession(@NonNull SignalProtocolAddress address) {
-    synchronized (FILE_LOCK) {
+    synchronized (getLock(address)) {
       try {
-        FileInputStream in            = new FileInputStream(getSessionFile(address));
-        int             versionMarker = readInteger(in);
-
-        if (versionMarker > CURRENT_VERSION) {
-          throw new AssertionError("Unknown version: " + versionMarker);
-        }
-
-        byte[] serialized = readBlob(in);
-        in.close();
-
-        if (versionMarker < PLAINTEXT_VERSION && masterSecret != null) {
-          serialized = new MasterCipher(masterSecret).decryptBytes(serialized);
-        } else if (versionMarker < PLAINTEXT_VERSION) {
-          throw new AssertionError("Session didn't get migrated: (" + versionMarker + "," + address + ")");
-        }
+        byte[] serialized = getSerializedRecord(address);
 
-        if (versionMarker == SINGLE_STATE_VERSION) {
-          SessionStructure sessionStructure = SessionStructure.parseFrom(serialized);
-          SessionState     sessionState     = new SessionState(sessionStructure);
-          return new SessionRecord(sessionState);
-        } else if (versionMarker >= ARCHIVE_STATES_VERSION) {
-          return new SessionRecord(serialized);
-        } else {
-          throw new AssertionError("Unknown version: " + versionMarker);
-        }
-      } catch (InvalidMessageException | IOException e) {
-        Log.w(TAG, "No existing session information found.");
-        return new SessionRecord();
+        if (serialized != null) return new SessionRecord(serialized);
+      } catch (IOException e) {
+        Log.w(TAG, e);
       }
+
+      Log.w(TAG, "No existing session information found.");
+      return new SessionRecord();
     }
   }
 
   @Override
   public void storeSession(@NonNull SignalProtocolAddress address, @NonNull SessionRecord record) {
-    synchronized (FILE_LOCK) {
-      try {
-        RandomAccessFile sessionFile  = new RandomAccessFile(getSessionFile(address), "rw");
-        FileChannel      out          = sessionFile.getChannel();
-
-        out.position(0);
-        writeInteger(CURRENT_VERSION, out);
-        writeBlob(record.serialize(), out);
-        out.truncate(out.position());
+    synchronized (getLock(address)) {
+      byte[] serialized = record.serialize();
 
-        sessionFile.close();
-      } catch (IOException e) {
-        throw new AssertionError(e);
-      }
+      CACHE.put(address, serialized);
+      DIRTY.put(address, new PendingWrite(getRecipientId(address), address.getDeviceId(), serialized));
     }
+
+    scheduleFlush(context);
   }
 
   @Override
   public boolean containsSession(SignalProtocolAddress address) {
-    if (!getSessionFile(address).exists()) return false;
+    synchronized (getLock(address)) {
+      if (getSerializedRecord(address) == null) return false;
 
-    SessionRecord sessionRecord = loadSession(address);
+      SessionRecord sessionRecord = loadSession(address);
 
-    return sessionRecord.getSessionState().hasSenderChain() &&
-           sessionRecord.getSessionState().getSessionVersion() == CiphertextMessage.CURRENT_VERSION;
+      return sessionRecord.getSessionState().hasSenderChain() &&
+             sessionRecord.getSessionState().getSessionVersion() == CiphertextMessage.CURRENT_VERSION;
+    }
   }
 
   @Override
   public void deleteSession(SignalProtocolAddress address) {
-    getSessionFile(address).delete();
+    synchronized (getLock(address)) {
+      CACHE.remove(address);
+      DIRTY.put(address, new PendingWrite(getRecipientId(address), address.getDeviceId(), null));
+    }
+
+    scheduleFlush(context);
   }
 
   @Override
@@ -136,127 +128,111 @@ public class TextSecureSessionStore implements SessionStore {
   @Override
   public List<Integer> getSubDeviceSessions(String name) {
     long          recipientId = RecipientFactory.getRecipientsFromString(context, name, true).getPrimaryRecipient().getRecipientId();
-    List<Integer> results     = new LinkedList<>();
-    File          parent      = getSessionDirectory();
-    String[]      children    = parent.list();
+    List<Integer> results     = DatabaseFactory.getSessionDatabase(context).getSubDevices(recipientId);
 
-    if (children == null) return results;
+    for (Map.Entry<SignalProtocolAddress, PendingWrite> pending : DIRTY.entrySet()) {
+      PendingWrite write  = pending.getValue();
+      Integer      device = write.deviceId;
 
-    for (String child : children) {
-      try {
-        String[] parts              = child.split("[.]", 2);
-        long     sessionRecipientId = Long.parseLong(parts[0]);
-
-        if (sessionRecipientId == recipientId && parts.length > 1) {
-          results.add(Integer.parseInt(parts[1]));
-        }
-      } catch (NumberFormatException e) {
-        Log.w(TAG, e);
+      if (write.recipientId != recipientId || write.deviceId == SignalServiceAddress.DEFAULT_DEVICE_ID) {
+        continue;
       }
+
+      if      (write.serialized == null)  results.remove(device);
+      else if (!results.contains(device)) results.add(device);
     }
 
     return results;
   }
 
-  public void migrateSessions() {
-    synchronized (FILE_LOCK) {
-      File directory = getSessionDirectory();
+  public void archiveAllSessions() {
+    flushPendingSessions(context);
 
-      for (File session : directory.listFiles()) {
-        if (session.isFile()) {
-          SignalProtocolAddress address = getAddressName(session);
+    for (SessionRow row : DatabaseFactory.getSessionDatabase(context).getAll()) {
+      Recipient             recipient = RecipientFactory.getRecipientForId(context, row.getRecipientId(), true);
+      SignalProtocolAddress address   = new SignalProtocolAddress(recipient.getNumber(), row.getDeviceId());
 
-          if (address != null) {
-            SessionRecord sessionRecord = loadSession(address);
-            storeSession(address, sessionRecord);
-          }
-        }
+      synchronized (getLock(address)) {
+        SessionRecord sessionRecord = loadSession(address);
+        sessionRecord.archiveCurrentState();
+        storeSession(address, sessionRecord);
       }
     }
-  }
 
-  public void archiveAllSessions() {
-    synchronized (FILE_LOCK) {
-      File directory = getSessionDirectory();
-
-      for (File session : directory.listFiles()) {
-        if (session.isFile()) {
-          SignalProtocolAddress address = getAddressName(session);
-
-          if (address != null) {
-            SessionRecord sessionRecord = loadSession(address);
-            sessionRecord.archiveCurrentState();
-            storeSession(address, sessionRecord);
-          }
-        }
-      }
-    }
+    flushPendingSessions(context);
   }
 
-  private File getSessionFile(SignalProtocolAddress address) {
-    return new File(getSessionDirectory(), getSessionName(address));
-  }
+  /**
+   * Synchronously writes every pending session change to the database in one transaction.
+   * Must be called before an operation that depends on session state being durable,
+   * such as removing a decrypted envelope from the push queue or completing a send.
+   */
+  public static void flushPendingSessions(@NonNull Context context) {
+    synchronized (FLUSH_LOCK) {
+      if (DIRTY.isEmpty()) return;
 
-  private File getSessionDirectory() {
-    File directory = new File(context.getFilesDir(), SESSIONS_DIRECTORY_V2);
+      Map<SignalProtocolAddress, PendingWrite> snapshot = new HashMap<>(DIRTY);
+      List<SessionWrite>                       writes   = new LinkedList<>();
 
-    if (!directory.exists()) {
-      if (!directory.mkdirs()) {
-        Log.w(TAG, "Session directory creation failed!");
+      for (PendingWrite pendingWrite : snapshot.values()) {
+        writes.add(new SessionWrite(pendingWrite.recipientId, pendingWrite.deviceId, pendingWrite.serialized));
       }
-    }
 
-    return directory;
+      DatabaseFactory.getSessionDatabase(context).store(writes);
+
+      for (Map.Entry<SignalProtocolAddress, PendingWrite> flushed : snapshot.entrySet()) {
+        DIRTY.remove(flushed.getKey(), flushed.getValue());
+      }
+    }
   }
 
-  private String getSessionName(SignalProtocolAddress axolotlAddress) {
-    Recipient recipient   = RecipientFactory.getRecipientsFromString(context, axolotlAddress.getName(), true)
-                                          .getPrimaryRecipient();
-    long      recipientId = recipient.getRecipientId();
-    int       deviceId    = axolotlAddress.getDeviceId();
+  private static void scheduleFlush(final @NonNull Context context) {
+    if (FLUSH_SCHEDULED.compareAndSet(false, true)) {
+      FLUSH_EXECUTOR.execute(new Runnable() {
+        @Override
+        public void run() {
+          FLUSH_SCHEDULED.set(false);
+          flushPendingSessions(context);
+        }
+      });
+    }
+  }
 
-    return recipientId + (deviceId == SignalServiceAddress.DEFAULT_DEVICE_ID ? "" : "." + deviceId);
+  private static Object getLock(SignalProtocolAddress address) {
+    return LOCKS[(address.hashCode() & 0x7fffffff) % LOCKS.length];
   }
 
-  private @Nullable SignalProtocolAddress getAddressName(File sessionFile) {
-    try {
-      String[]  parts     = sessionFile.getName().split("[.]");
-      Recipient recipient = RecipientFactory.getRecipientForId(context, Integer.valueOf(parts[0]), true);
+  private @Nullable byte[] getSerializedRecord(SignalProtocolAddress address) {
+    PendingWrite pendingWrite = DIRTY.get(address);
 
-      int deviceId;
+    if (pendingWrite != null) return pendingWrite.serialized;
 
-      if (parts.length > 1) deviceId = Integer.parseInt(parts[1]);
-      else                  deviceId = SignalServiceAddress.DEFAULT_DEVICE_ID;
+    byte[] serialized = CACHE.get(address);
 
-      return new SignalProtocolAddress(recipient.getNumber(), deviceId);
-    } catch (NumberFormatException e) {
-      Log.w(TAG, e);
-      return null;
+    if (serialized == null) {
+      serialized = DatabaseFactory.getSessionDatabase(context).load(getRecipientId(address), address.getDeviceId());
+      if (serialized != null) CACHE.put(address, serialized);
     }
-  }
 
-  private byte[] readBlob(FileInputStream in) throws IOException {
-    int length       = readInteger(in);
-    byte[] blobBytes = new byte[length];
-
-    in.read(blobBytes, 0, blobBytes.length);
-    return blobBytes;
+    return serialized;
   }
 
-  private void writeBlob(byte[] blobBytes, FileChannel out) throws IOException {
-    writeInteger(blobBytes.length, out);
-    out.write(ByteBuffer.wrap(blobBytes));
+  private long getRecipientId(SignalProtocolAddress address) {
+    return RecipientFactory.getRecipientsFromString(context, address.getName(), true)
+                           .getPrimaryRecipient()
+                           .getRecipientId();
   }
 
-  private int readInteger(FileInputStream in) throws IOException {
-    byte[] integer = new byte[4];
-    in.read(integer, 0, integer.length);
-    return Conversions.byteArrayToInt(integer);
-  }
+  private static class PendingWrite {
+    private final           long   recipientId;
+    private final           int    deviceId;
+    private final @Nullable byte[] serialized;
 
-  private void writeInteger(int value, FileChannel out) throws IOException {
-    byte[] valueBytes = Conversions.intToByteArray(value);
-    out.write(ByteBuffer.wrap(valueBytes));
+    private PendingWrite(long recipientId, int deviceId, @Nullable byte[] serialized) {
+      this.recipientId = recipientId;
+      this.deviceId    = deviceId;
+      this.serialized  = serialized;
+    }
   }
 
 }
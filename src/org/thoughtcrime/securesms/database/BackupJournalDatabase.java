@@ -0,0 +1,215 @@
+package org.thoughtcrime.securesms.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.support.annotation.Nullable;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * A log of the sms and mms rows that changed or were deleted, so a delta
+ * backup can carry just those instead of the whole history.  Triggers fill
+ * it in, and only once {@link #enable()} has been called by a first backup,
+ * so nothing is logged for users who never make one.  Updates are only
+ * logged for the columns a backup holds, so marking messages read or
+ * recording delivery receipts doesn't put them in the next delta.
+ */
+public class BackupJournalDatabase extends Database {
+
+  private static final String TABLE_NAME        = "backup_journal";
+  private static final String ENABLED_TABLE     = "backup_journal_enabled";
+  private static final String ID                = "_id";
+  private static final String MESSAGE_TABLE     = "message_table";
+  private static final String MESSAGE_ID        = "message_id";
+  private static final String DATE_SENT         = "date_sent";
+  private static final String ADDRESS           = "address";
+  private static final String TYPE              = "type";
+  private static final String DELETED           = "deleted";
+  private static final String THREAD_RECIPIENTS = "thread_recipients";
+
+  public static final String CREATE_TABLE = "CREATE TABLE " + TABLE_NAME + " (" + ID + " INTEGER PRIMARY KEY, " +
+                                            MESSAGE_TABLE + " TEXT, " + MESSAGE_ID + " INTEGER, " + DATE_SENT + " INTEGER, " +
+                                            ADDRESS + " TEXT, " + TYPE + " INTEGER, " + DELETED + " INTEGER, " +
+                                            THREAD_RECIPIENTS + " TEXT);";
+
+  public static final String CREATE_ENABLED_TABLE = "CREATE TABLE " + ENABLED_TABLE + " (" + ID + " INTEGER PRIMARY KEY);";
+
+  private static final String SMS_COLUMNS  = MmsSmsColumns.BODY + ", " + MmsSmsColumns.ADDRESS + ", " + SmsDatabase.DATE_SENT + ", " +
+                                             SmsDatabase.DATE_RECEIVED + ", " + SmsDatabase.TYPE + ", " + SmsDatabase.STATUS;
+  private static final String MMS_COLUMNS  = MmsSmsColumns.BODY + ", " + MmsSmsColumns.ADDRESS + ", " + MmsDatabase.DATE_SENT + ", " +
+                                             MmsDatabase.DATE_RECEIVED + ", " + MmsDatabase.MESSAGE_BOX + ", " + MmsDatabase.PART_COUNT;
+  private static final String PART_COLUMNS = AttachmentDatabase.DATA + ", " + AttachmentDatabase.CONTENT_TYPE;
+
+  public static final String[] CREATE_TRIGGERS = {
+      createTrigger("backup_journal_sms_update", "UPDATE OF " + SMS_COLUMNS, SmsDatabase.TABLE_NAME, SmsDatabase.TABLE_NAME,
+                    "new." + MmsSmsColumns.ID, "new." + SmsDatabase.DATE_SENT, "new." + MmsSmsColumns.ADDRESS,
+                    "new." + SmsDatabase.TYPE, 0, "NULL"),
+      createTrigger("backup_journal_sms_delete", "DELETE", SmsDatabase.TABLE_NAME, SmsDatabase.TABLE_NAME,
+                    "old." + MmsSmsColumns.ID, "old." + SmsDatabase.DATE_SENT, "old." + MmsSmsColumns.ADDRESS,
+                    "old." + SmsDatabase.TYPE, 1, getThreadRecipients("old." + MmsSmsColumns.THREAD_ID)),
+      createTrigger("backup_journal_mms_update", "UPDATE OF " + MMS_COLUMNS, MmsDatabase.TABLE_NAME, MmsDatabase.TABLE_NAME,
+                    "new." + MmsSmsColumns.ID, "new." + MmsDatabase.DATE_SENT, "new." + MmsSmsColumns.ADDRESS,
+                    "new." + MmsDatabase.MESSAGE_BOX, 0, "NULL"),
+      createTrigger("backup_journal_mms_delete", "DELETE", MmsDatabase.TABLE_NAME, MmsDatabase.TABLE_NAME,
+                    "old." + MmsSmsColumns.ID, "old." + MmsDatabase.DATE_SENT, "old." + MmsSmsColumns.ADDRESS,
+                    "old." + MmsDatabase.MESSAGE_BOX, 1, getThreadRecipients("old." + MmsSmsColumns.THREAD_ID)),
+      createTrigger("backup_journal_part_insert", "INSERT", AttachmentDatabase.TABLE_NAME, MmsDatabase.TABLE_NAME,
+                    "new." + AttachmentDatabase.MMS_ID, "NULL", "NULL", "NULL", 0, "NULL"),
+      createTrigger("backup_journal_part_update", "UPDATE OF " + PART_COLUMNS, AttachmentDatabase.TABLE_NAME, MmsDatabase.TABLE_NAME,
+                    "new." + AttachmentDatabase.MMS_ID, "NULL", "NULL", "NULL", 0, "NULL"),
+      createTrigger("backup_journal_part_delete", "DELETE", AttachmentDatabase.TABLE_NAME, MmsDatabase.TABLE_NAME,
+                    "old." + AttachmentDatabase.MMS_ID, "NULL", "NULL", "NULL", 0, "NULL"),
+  };
+
+  public BackupJournalDatabase(Context context, SQLiteOpenHelper databaseHelper) {
+    super(context, databaseHelper);
+  }
+
+  /**
+   * Starts logging changes, if that isn't already happening.
+   */
+  public void enable() {
+    SQLiteDatabase db = databaseHelper.getWritableDatabase();
+    db.execSQL("INSERT OR IGNORE INTO " + ENABLED_TABLE + " (" + ID + ") VALUES (1)");
+  }
+
+  /**
+   * @return the id of the newest entry, or 0 if there's none.
+   */
+  public long getLastId() {
+    return getLastId(databaseHelper.getReadableDatabase());
+  }
+
+  static long getLastId(SQLiteDatabase db) {
+    Cursor cursor = null;
+
+    try {
+      cursor = db.query(TABLE_NAME, new String[] {"MAX(" + ID + ")"}, null, null, null, null, null);
+
+      if (cursor != null && cursor.moveToFirst()) return cursor.getLong(0);
+      else                                        return 0;
+    } finally {
+      if (cursor != null)
+        cursor.close();
+    }
+  }
+
+  /**
+   * Drops the entries after lastId, for changes that leave every message as
+   * it was and so have nothing to back up.
+   */
+  static void discardAfter(SQLiteDatabase db, long lastId) {
+    db.delete(TABLE_NAME, ID + " > ?", new String[] {String.valueOf(lastId)});
+  }
+
+  /**
+   * @return the entries after afterId and up to lastId, oldest first.
+   */
+  public List<Entry> getEntries(long afterId, long lastId) {
+    SQLiteDatabase db      = databaseHelper.getReadableDatabase();
+    List<Entry>    entries = new LinkedList<>();
+    Cursor         cursor  = null;
+
+    try {
+      cursor = db.query(TABLE_NAME, null, ID + " > ? AND " + ID + " <= ?",
+                        new String[] {String.valueOf(afterId), String.valueOf(lastId)},
+                        null, null, ID);
+
+      while (cursor != null && cursor.moveToNext()) {
+        entries.add(new Entry(cursor.getString(cursor.getColumnIndexOrThrow(MESSAGE_TABLE)),
+                              cursor.getLong(cursor.getColumnIndexOrThrow(MESSAGE_ID)),
+                              cursor.getLong(cursor.getColumnIndexOrThrow(DATE_SENT)),
+                              cursor.getString(cursor.getColumnIndexOrThrow(ADDRESS)),
+                              cursor.getLong(cursor.getColumnIndexOrThrow(TYPE)),
+                              cursor.getInt(cursor.getColumnIndexOrThrow(DELETED)) == 1,
+                              cursor.getString(cursor.getColumnIndexOrThrow(THREAD_RECIPIENTS))));
+      }
+    } finally {
+      if (cursor != null)
+        cursor.close();
+    }
+
+    return entries;
+  }
+
+  /**
+   * Drops the entries up to lastId, once a backup holds them.
+   */
+  public void clear(long lastId) {
+    SQLiteDatabase db = databaseHelper.getWritableDatabase();
+    db.delete(TABLE_NAME, ID + " <= ?", new String[] {String.valueOf(lastId)});
+  }
+
+  private static String createTrigger(String name, String event, String table, String messageTable,
+                                      String messageId, String dateSent, String address, String type,
+                                      int deleted, String threadRecipients)
+  {
+    return "CREATE TRIGGER " + name + " AFTER " + event + " ON " + table + " " +
+           "WHEN EXISTS (SELECT 1 FROM " + ENABLED_TABLE + ") BEGIN " +
+           "INSERT INTO " + TABLE_NAME + " (" + MESSAGE_TABLE + ", " + MESSAGE_ID + ", " + DATE_SENT + ", " +
+           ADDRESS + ", " + TYPE + ", " + DELETED + ", " + THREAD_RECIPIENTS + ") VALUES ('" + messageTable + "', " +
+           messageId + ", " + dateSent + ", " + address + ", " + type + ", " + deleted + ", " + threadRecipients + "); END;";
+  }
+
+  private static String getThreadRecipients(String threadId) {
+    return "(SELECT " + ThreadDatabase.RECIPIENT_IDS + " FROM " + ThreadDatabase.TABLE_NAME + " " +
+           "WHERE " + ThreadDatabase.ID + " = " + threadId + ")";
+  }
+
+  public static class Entry {
+    private final String  messageTable;
+    private final long    messageId;
+    private final long    dateSent;
+    private final String  address;
+    private final long    type;
+    private final boolean deleted;
+    private final String  threadRecipients;
+
+    Entry(String messageTable, long messageId, long dateSent, @Nullable String address, long type, boolean deleted,
+          @Nullable String threadRecipients)
+    {
+      this.messageTable     = messageTable;
+      this.messageId        = messageId;
+      this.dateSent         = dateSent;
+      this.address          = address;
+      this.type             = type;
+      this.deleted          = deleted;
+      this.threadRecipients = threadRecipients;
+    }
+
+    public boolean isMms() {
+      return MmsDatabase.TABLE_NAME.equals(messageTable);
+    }
+
+    public long getMessageId() {
+      return messageId;
+    }
+
+    public long getDateSent() {
+      return dateSent;
+    }
+
+    public @Nullable String getAddress() {
+      return address;
+    }
+
+    public boolean isOutgoing() {
+      return MmsSmsColumns.Types.isOutgoingMessageType(type);
+    }
+
+    public boolean isDeleted() {
+      return deleted;
+    }
+
+    /**
+     * @return the recipient ids of a deleted message's thread, as they were
+     * when it was deleted.
+     */
+    public @Nullable String getThreadRecipientIds() {
+      return threadRecipients;
+    }
+  }
+}
@@ -0,0 +1,359 @@
+package org.thoughtcrime.securesms.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import android.util.Pair;
+
+import com.google.protobuf.ByteString;
+
+import org.thoughtcrime.securesms.attachments.AttachmentId;
+import org.thoughtcrime.securesms.crypto.InvalidPassphraseException;
+import org.thoughtcrime.securesms.crypto.MasterCipher;
+import org.thoughtcrime.securesms.crypto.MasterSecret;
+import org.thoughtcrime.securesms.database.backup.BackupFrameInputStream;
+import org.thoughtcrime.securesms.database.backup.BackupProtos;
+import org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord;
+import org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage;
+import org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage;
+import org.thoughtcrime.securesms.database.backup.BinaryBackupExporter;
+import org.thoughtcrime.securesms.mms.MmsException;
+import org.thoughtcrime.securesms.recipients.RecipientFactory;
+import org.thoughtcrime.securesms.util.GroupUtil;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Imports a backup written by {@link BinaryBackupExporter}.
+ * The whole file is imported in one transaction, so a truncated or tampered
+ * backup leaves the database as it was.
+ */
+public class BinaryBackupImporter {
+
+  private static final String TAG = BinaryBackupImporter.class.getSimpleName();
+
+  private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Imports the full backup, then the deltas written against it in order.
+   *
+   * @return the number of messages imported.
+   */
+  public static int importBinaryFromSd(@NonNull Context context, @NonNull MasterSecret masterSecret,
+                                       @NonNull String passphrase)
+      throws NoExternalStorageException, IOException, InvalidPassphraseException
+  {
+    int messageCount = importBinary(context, masterSecret, passphrase, BinaryBackupExporter.getBinaryExportFile());
+
+    for (File delta : BinaryBackupExporter.getBinaryDeltaFiles()) {
+      messageCount += importBinary(context, masterSecret, passphrase, delta);
+    }
+
+    return messageCount;
+  }
+
+  public static int importBinary(@NonNull Context context, @NonNull MasterSecret masterSecret,
+                                 @NonNull String passphrase, @NonNull File file)
+      throws IOException, InvalidPassphraseException
+  {
+    SmsDatabase    smsDatabase = DatabaseFactory.getSmsDatabase(context);
+    MmsDatabase    mmsDatabase = DatabaseFactory.getMmsDatabase(context);
+    SQLiteDatabase transaction = smsDatabase.beginTransaction();
+    RecordReader   reader      = new RecordReader(new BackupFrameInputStream(new BufferedInputStream(new FileInputStream(file), READ_BUFFER_SIZE),
+                                                                             passphrase));
+    Set<Long>      threads     = new HashSet<>();
+    boolean        complete    = false;
+    int            messageCount;
+
+    try {
+      Importer importer = new Importer(context, masterSecret, transaction, reader, threads);
+      long     start    = System.currentTimeMillis();
+
+      messageCount = importer.importRecords();
+
+      for (long threadId : threads) {
+        DatabaseFactory.getThreadDatabase(context).update(threadId, true);
+      }
+
+      transaction.setTransactionSuccessful();
+      complete = true;
+
+      Log.w(TAG, "Imported " + messageCount + " messages in " + (System.currentTimeMillis() - start) + "ms");
+    } finally {
+      transaction.endTransaction();
+      reader.close();
+
+      if (!complete) {
+        DatabaseFactory.getThreadDatabase(context).clearRecipientsCache();
+      }
+    }
+
+    for (long threadId : threads) {
+      mmsDatabase.notifyConversationListeners(threadId);
+      smsDatabase.notifyConversationListeners(threadId);
+    }
+
+    return messageCount;
+  }
+
+  private static class Importer {
+    private final Context            context;
+    private final MasterSecret       masterSecret;
+    private final MasterCipher       masterCipher;
+    private final RecordReader       reader;
+    private final Set<Long>          threads;
+    private final SQLiteStatement    smsStatement;
+    private final SQLiteStatement    mmsStatement;
+    private final ThreadDatabase     threadDatabase;
+    private final GroupDatabase      groupDatabase;
+    private final AttachmentDatabase attachmentDatabase;
+    private final MmsAddressDatabase addressDatabase;
+    private final Map<String, Long>  threadIds = new HashMap<>();
+
+    Importer(Context context, MasterSecret masterSecret, SQLiteDatabase transaction,
+             RecordReader reader, Set<Long> threads)
+    {
+      this.context            = context;
+      this.masterSecret       = masterSecret;
+      this.masterCipher       = new MasterCipher(masterSecret);
+      this.reader             = reader;
+      this.threads            = threads;
+      this.smsStatement       = DatabaseFactory.getSmsDatabase(context).createInsertStatement(transaction);
+      this.mmsStatement       = DatabaseFactory.getMmsDatabase(context).createInsertStatement(transaction);
+      this.threadDatabase     = DatabaseFactory.getThreadDatabase(context);
+      this.groupDatabase      = DatabaseFactory.getGroupDatabase(context);
+      this.attachmentDatabase = DatabaseFactory.getAttachmentDatabase(context);
+      this.addressDatabase    = DatabaseFactory.getMmsAddressDatabase(context);
+    }
+
+    int importRecords() throws IOException {
+      int          messageCount = 0;
+      BackupRecord record;
+
+      while ((record = reader.next()) != null) {
+        if (record.hasSms()) {
+          importSms(record.getSms());
+          messageCount++;
+        } else if (record.hasMms()) {
+          importMms(record.getMms());
+          messageCount++;
+        } else if (record.hasEnd()) {
+          if (record.getEnd().getMessageCount() != messageCount) {
+            throw new IOException("Backup holds " + messageCount + " messages, expected " + record.getEnd().getMessageCount());
+          }
+          return messageCount;
+        } else {
+          throw new IOException("Unexpected record: " + record);
+        }
+      }
+
+      throw new IOException("Backup is truncated");
+    }
+
+    private void importSms(SmsMessage sms) throws IOException {
+      long threadId = getThreadId(sms.getThreadAddress(), null, null);
+
+      bindString(smsStatement, 1, sms.hasAddress() ? sms.getAddress() : null);
+      smsStatement.bindNull(2);
+      smsStatement.bindLong(3, sms.getDateSent());
+      smsStatement.bindLong(4, sms.getDateReceived());
+      smsStatement.bindLong(5, 0);
+      smsStatement.bindLong(6, 1);
+      smsStatement.bindLong(7, sms.getStatus());
+      long type = getSymmetricType(sms.getType());
+
+      smsStatement.bindLong(8, type);
+      smsStatement.bindNull(9);
+      smsStatement.bindNull(10);
+      bindEncrypted(smsStatement, 11, sms.hasBody() ? sms.getBody() : null, type);
+      smsStatement.bindNull(12);
+      smsStatement.bindLong(13, threadId);
+      smsStatement.execute();
+
+      threads.add(threadId);
+    }
+
+    private void importMms(MmsMessage mms) throws IOException {
+      String from     = mms.hasFrom() ? mms.getFrom() : null;
+      long   threadId = getThreadId(mms.getThreadAddress(), from, mms.getToList());
+
+      long type = getSymmetricType(mms.getType());
+
+      mmsStatement.clearBindings();
+      mmsStatement.bindLong(1, threadId);
+      mmsStatement.bindLong(2, mms.getDateSent());
+      mmsStatement.bindLong(3, mms.getDateReceived());
+      mmsStatement.bindLong(4, type);
+      mmsStatement.bindLong(5, 1);
+      bindEncrypted(mmsStatement, 9, mms.hasBody() ? mms.getBody() : null, type);
+      mmsStatement.bindLong(10, mms.getAttachmentCount());
+      bindString(mmsStatement, 13, from);
+      mmsStatement.bindLong(37, mms.getSubscriptionId());
+
+      long messageId = mmsStatement.executeInsert();
+
+      addressDatabase.insertAddressesForId(messageId, new MmsAddresses(from, mms.getToList(),
+                                                                       new LinkedList<String>(),
+                                                                       new LinkedList<String>()));
+
+      for (int i = 0; i < mms.getAttachmentCount(); i++) {
+        BackupRecord record = reader.next();
+
+        if (record == null || !record.hasAttachment()) {
+          throw new IOException("Missing attachment " + i + " of " + mms.getAttachmentCount());
+        }
+
+        importAttachment(messageId, record.getAttachment());
+      }
+
+      threads.add(threadId);
+    }
+
+    private void importAttachment(long messageId, BackupProtos.Attachment attachment) throws IOException {
+      Pair<File, Long> data;
+
+      try {
+        data = attachmentDatabase.setAttachmentData(masterSecret, new AttachmentDataInputStream(reader));
+      } catch (MmsException e) {
+        throw new IOException(e);
+      }
+
+      long          uniqueId      = System.currentTimeMillis();
+      ContentValues contentValues = new ContentValues();
+
+      contentValues.put(AttachmentDatabase.MMS_ID, messageId);
+      contentValues.put(AttachmentDatabase.CONTENT_TYPE, attachment.getContentType());
+      contentValues.put(AttachmentDatabase.TRANSFER_STATE, AttachmentDatabase.TRANSFER_PROGRESS_DONE);
+      contentValues.put(AttachmentDatabase.UNIQUE_ID, uniqueId);
+      contentValues.put(AttachmentDatabase.CONTENT_LOCATION, attachment.hasLocation() ? attachment.getLocation() : null);
+      contentValues.put(AttachmentDatabase.FILE_NAME, attachment.hasFileName() ? attachment.getFileName() : null);
+      contentValues.put(AttachmentDatabase.DATA, data.first.getAbsolutePath());
+      contentValues.put(AttachmentDatabase.SIZE, data.second);
+
+      long rowId = attachmentDatabase.insertContentValues(contentValues);
+
+      attachmentDatabase.scheduleThumbnailFetch(masterSecret, new AttachmentId(rowId, uniqueId));
+    }
+
+    private long getThreadId(@NonNull String threadAddress, @Nullable String from, @Nullable List<String> to)
+        throws IOException
+    {
+      Long cached = threadIds.get(threadAddress);
+      if (cached != null) return cached;
+
+      if (GroupUtil.isEncodedGroup(threadAddress) && from != null && to != null) {
+        byte[] groupId = GroupUtil.getDecodedId(threadAddress);
+
+        if (groupDatabase.getGroup(groupId) == null) {
+          List<String> members = new LinkedList<>(to);
+          members.add(from);
+
+          Log.w(TAG, "Creating group " + threadAddress);
+          groupDatabase.create(groupId, "imported group", members, null, null);
+        }
+      }
+
+      long threadId = threadDatabase.getThreadIdFor(RecipientFactory.getRecipientsFromString(context, threadAddress, false));
+
+      threadIds.put(threadAddress, threadId);
+      return threadId;
+    }
+
+    private long getSymmetricType(long type) {
+      return (type & ~MmsSmsColumns.Types.ENCRYPTION_MASK) | MmsSmsColumns.Types.ENCRYPTION_SYMMETRIC_BIT;
+    }
+
+    private void bindEncrypted(SQLiteStatement statement, int index, @Nullable String value, long type) {
+      if (value == null) statement.bindNull(index);
+      else               EncryptedBodyColumn.bindEncrypted(statement, index, masterCipher, value, type);
+    }
+
+    private void bindString(SQLiteStatement statement, int index, @Nullable String value) {
+      if (value == null) statement.bindNull(index);
+      else               statement.bindString(index, value);
+    }
+  }
+
+  /**
+   * Decodes records one at a time, with one record of lookahead so that an
+   * attachment's data can be read up to the record that follows it.
+   */
+  private static class RecordReader {
+    private final BackupFrameInputStream in;
+
+    private BackupRecord peeked;
+
+    RecordReader(BackupFrameInputStream in) {
+      this.in = in;
+    }
+
+    @Nullable BackupRecord peek() throws IOException {
+      if (peeked == null) {
+        peeked = in.readRecord();
+      }
+
+      return peeked;
+    }
+
+    @Nullable BackupRecord next() throws IOException {
+      BackupRecord record = peek();
+      peeked = null;
+      return record;
+    }
+
+    void close() throws IOException {
+      in.close();
+    }
+  }
+
+  private static class AttachmentDataInputStream extends InputStream {
+    private final RecordReader reader;
+
+    private ByteString data;
+    private int        position;
+
+    AttachmentDataInputStream(RecordReader reader) {
+      this.reader = reader;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] single = new byte[1];
+      return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(@NonNull byte[] buffer, int offset, int length) throws IOException {
+      while (data == null || position == data.size()) {
+        BackupRecord record = reader.peek();
+
+        if (record == null || !record.hasAttachmentData()) {
+          return -1;
+        }
+
+        data     = reader.next().getAttachmentData();
+        position = 0;
+      }
+
+      int count = Math.min(length, data.size() - position);
+      data.copyTo(buffer, position, offset, count);
+      position += count;
+
+      return count;
+    }
+  }
+}
@@ -29,13 +29,10 @@ import android.text.TextUtils;
 import android.util.Log;
 
 import org.thoughtcrime.securesms.util.GroupUtil;
-import org.thoughtcrime.securesms.util.LRUCache;
-import org.thoughtcrime.securesms.util.ShortCodeUtil;
+import org.thoughtcrime.securesms.util.PhoneNumberNormalizer;
 import org.thoughtcrime.securesms.util.TextSecurePreferences;
 import org.whispersystems.signalservice.api.util.InvalidNumberException;
-import org.whispersystems.signalservice.api.util.PhoneNumberFormatter;
 
-import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -59,9 +56,8 @@ public class CanonicalAddressDatabase {
   private        DatabaseHelper           databaseHelper;
   private final  Context                  context;
 
-  private final Map<String, Long>   addressCache          = new ConcurrentHashMap<>();
-  private final Map<Long, String>   idCache               = new ConcurrentHashMap<>();
-  private final Map<String, String> formattedAddressCache = Collections.synchronizedMap(new LRUCache<String, String>(100));
+  private final Map<String, Long> addressCache = new ConcurrentHashMap<>();
+  private final Map<Long, String> idCache      = new ConcurrentHashMap<>();
 
   public synchronized static CanonicalAddressDatabase getInstance(Context context) {
     if (instance == null)
@@ -145,22 +141,18 @@ public class CanonicalAddressDatabase {
 
   public long getCanonicalAddressId(@NonNull String address) {
     try {
-      long   canonicalAddressId;
-      String formattedAddress;
-
-      if ((formattedAddress = formattedAddressCache.get(address)) == null) {
-        String localNumber = TextSecurePreferences.getLocalNumber(context);
-
-        if (!isNumberAddress(address)                        ||
-            !TextSecurePreferences.isPushRegistered(context) ||
-            ShortCodeUtil.isShortCode(localNumber, address))
-        {
-          formattedAddress = address;
-        } else {
-          formattedAddress = PhoneNumberFormatter.formatNumber(address, localNumber);
-        }
-
-        formattedAddressCache.put(address, formattedAddress);
+      PhoneNumberNormalizer normalizer  = PhoneNumberNormalizer.getInstance();
+      String                localNumber = TextSecurePreferences.getLocalNumber(context);
+      long                  canonicalAddressId;
+      String                formattedAddress;
+
+      if (!isNumberAddress(address)                        ||
+          !TextSecurePreferences.isPushRegistered(context) ||
+          normalizer.isShortCode(localNumber, address))
+      {
+        formattedAddress = address;
+      } else {
+        formattedAddress = normalizer.normalize(address, localNumber);
       }
 
       if ((canonicalAddressId = getCanonicalAddressFromCache(formattedAddress)) == -1) {
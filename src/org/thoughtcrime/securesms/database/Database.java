@@ -18,9 +18,11 @@ package org.thoughtcrime.securesms.database;
 
 import android.content.Context;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.net.Uri;
 
+import java.util.Arrays;
 import java.util.Set;
 
 public abstract class Database {
@@ -58,6 +60,53 @@ public abstract class Database {
     cursor.setNotificationUri(context.getContentResolver(), Uri.parse(CONVERSATION_LIST_URI));
   }
 
+  /**
+   * The last _id of every page of pageSize rows in the table, in order, so that
+   * pages can be read with an _id range instead of an OFFSET that has to skip
+   * over every earlier row.  Only the _id column is read.
+   */
+  protected long[] getIdPageBoundaries(String table, int pageSize) {
+    SQLiteDatabase db         = databaseHelper.getReadableDatabase();
+    Cursor         cursor     = null;
+    long[]         boundaries = new long[16];
+    int            count      = 0;
+
+    try {
+      cursor = db.query(table, new String[] {"_id"}, null, null, null, null, "_id");
+
+      while (cursor != null && cursor.moveToNext()) {
+        if ((cursor.getPosition() + 1) % pageSize == 0 || cursor.isLast()) {
+          if (count == boundaries.length) boundaries = Arrays.copyOf(boundaries, count * 2);
+          boundaries[count++] = cursor.getLong(0);
+        }
+      }
+    } finally {
+      if (cursor != null)
+        cursor.close();
+    }
+
+    return Arrays.copyOf(boundaries, count);
+  }
+
+  /**
+   * The number of rows in the table with an _id above afterId.
+   */
+  protected int getRowCountAfter(String table, long afterId) {
+    SQLiteDatabase db     = databaseHelper.getReadableDatabase();
+    Cursor         cursor = null;
+
+    try {
+      cursor = db.query(table, new String[] {"COUNT(*)"}, "_id > ?", new String[] {String.valueOf(afterId)},
+                        null, null, null);
+
+      if (cursor != null && cursor.moveToFirst()) return cursor.getInt(0);
+      else                                        return 0;
+    } finally {
+      if (cursor != null)
+        cursor.close();
+    }
+  }
+
   public void reset(SQLiteOpenHelper databaseHelper) {
     this.databaseHelper = databaseHelper;
   }
@@ -42,6 +42,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
 
 public class DatabaseFactory {
 
@@ -79,7 +81,11 @@ public class DatabaseFactory {
   private static final int INTRODUCED_FAST_PREFLIGHT                       = 33;
   private static final int INTRODUCED_VOICE_NOTES                          = 34;
   private static final int INTRODUCED_IDENTITY_TIMESTAMP                   = 35;
-  private static final int DATABASE_VERSION                                = 35;
+  private static final int INTRODUCED_PROTOCOL_STORE_VERSION               = 36;
+  private static final int INTRODUCED_BACKUP_JOURNAL_VERSION               = 37;
+  private static final int INTRODUCED_IMPORT_CHECKPOINT_VERSION            = 38;
+  private static final int INTRODUCED_REENCRYPTION_CHECKPOINT_VERSION      = 39;
+  private static final int DATABASE_VERSION                                = 39;
 
   private static final String DATABASE_NAME    = "messages.db";
   private static final Object lock             = new Object();
@@ -103,6 +109,10 @@ public class DatabaseFactory {
   private final GroupDatabase groupDatabase;
   private final RecipientPreferenceDatabase recipientPreferenceDatabase;
   private final ContactsDatabase contactsDatabase;
+  private final SessionDatabase sessionDatabase;
+  private final OneTimePreKeyDatabase preKeyDatabase;
+  private final SignedPreKeyDatabase signedPreKeyDatabase;
+  private final BackupJournalDatabase backupJournalDatabase;
 
   public static DatabaseFactory getInstance(Context context) {
     synchronized (lock) {
@@ -173,6 +183,22 @@ public class DatabaseFactory {
     return getInstance(context).contactsDatabase;
   }
 
+  public static SessionDatabase getSessionDatabase(Context context) {
+    return getInstance(context).sessionDatabase;
+  }
+
+  public static OneTimePreKeyDatabase getPreKeyDatabase(Context context) {
+    return getInstance(context).preKeyDatabase;
+  }
+
+  public static SignedPreKeyDatabase getSignedPreKeyDatabase(Context context) {
+    return getInstance(context).signedPreKeyDatabase;
+  }
+
+  public static BackupJournalDatabase getBackupJournalDatabase(Context context) {
+    return getInstance(context).backupJournalDatabase;
+  }
+
   private DatabaseFactory(Context context) {
     this.databaseHelper              = new DatabaseHelper(context, DATABASE_NAME, null, DATABASE_VERSION);
     this.sms                         = new SmsDatabase(context, databaseHelper);
@@ -190,6 +216,10 @@ public class DatabaseFactory {
     this.groupDatabase               = new GroupDatabase(context, databaseHelper);
     this.recipientPreferenceDatabase = new RecipientPreferenceDatabase(context, databaseHelper);
     this.contactsDatabase            = new ContactsDatabase(context);
+    this.sessionDatabase             = new SessionDatabase(context, databaseHelper);
+    this.preKeyDatabase              = new OneTimePreKeyDatabase(context, databaseHelper);
+    this.signedPreKeyDatabase        = new SignedPreKeyDatabase(context, databaseHelper);
+    this.backupJournalDatabase       = new BackupJournalDatabase(context, databaseHelper);
   }
 
   public void reset(Context context) {
@@ -208,11 +238,41 @@ public class DatabaseFactory {
     this.pushDatabase.reset(databaseHelper);
     this.groupDatabase.reset(databaseHelper);
     this.recipientPreferenceDatabase.reset(databaseHelper);
+    this.sessionDatabase.reset(databaseHelper);
+    this.preKeyDatabase.reset(databaseHelper);
+    this.signedPreKeyDatabase.reset(databaseHelper);
+    this.backupJournalDatabase.reset(databaseHelper);
     old.close();
 
     this.address.reset(context);
   }
 
+  public void migrateLegacyProtocolStore(Context context, MasterSecret masterSecret) {
+    SQLiteDatabase db = databaseHelper.getWritableDatabase();
+    List<File>     migrated;
+
+    db.beginTransaction();
+
+    try {
+      migrated = ProtocolStoreMigrator.migrate(context, db, masterSecret);
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+
+    ProtocolStoreMigrator.delete(migrated);
+  }
+
+  public void migrateEncryptedBodies(DatabaseUpgradeActivity.DatabaseUpgradeListener listener) {
+    SQLiteDatabase db         = databaseHelper.getWritableDatabase();
+    long           sizeBefore = EncryptedBodyColumn.getUsedSize(db);
+    long           start      = System.currentTimeMillis();
+    int            count      = EncryptedBodyColumn.migrate(db, listener);
+
+    Log.w("DatabaseFactory", "Stored " + count + " message bodies as BLOBs in " + (System.currentTimeMillis() - start) + "ms, " +
+                             "database pages went from " + sizeBefore + " to " + EncryptedBodyColumn.getUsedSize(db) + " bytes");
+  }
+
   public void onApplicationLevelUpgrade(Context context, MasterSecret masterSecret, int fromVersion,
                                         DatabaseUpgradeActivity.DatabaseUpgradeListener listener)
   {
@@ -263,7 +323,8 @@ public class DatabaseFactory {
           listener.setProgress(smsCursor.getPosition() + skip, smsCount + threadCount);
 
           try {
-            String body = masterCipher.decryptBody(smsCursor.getString(smsCursor.getColumnIndexOrThrow("body")));
+            ByteBuffer ciphertext = EncryptedBodyColumn.getCiphertext(smsCursor, smsCursor.getColumnIndexOrThrow("body"));
+            String body = ciphertext == null ? "" : EncryptedBodyColumn.decrypt(masterCipher, ciphertext);
             long type   = smsCursor.getLong(smsCursor.getColumnIndexOrThrow("type"));
             long id     = smsCursor.getLong(smsCursor.getColumnIndexOrThrow("_id"));
 
@@ -479,10 +540,11 @@ public class DatabaseFactory {
             long   type = cursor.getLong(2);
 
             String encryptedBody = masterCipher.encryptBody(body);
+            long   encryptedType = type | SmsDatabase.Types.ENCRYPTION_SYMMETRIC_BIT;
 
             ContentValues update = new ContentValues();
-            update.put(SmsDatabase.BODY, encryptedBody);
-            update.put(SmsDatabase.TYPE, type | SmsDatabase.Types.ENCRYPTION_SYMMETRIC_BIT);
+            EncryptedBodyColumn.put(update, SmsDatabase.BODY, encryptedBody, encryptedType);
+            update.put(SmsDatabase.TYPE, encryptedType);
 
             db.update(SmsDatabase.TABLE_NAME, update, SmsDatabase.ID  + " = ?",
                       new String[] {String.valueOf(id)});
@@ -503,8 +565,13 @@ public class DatabaseFactory {
 
   private static class DatabaseHelper extends SQLiteOpenHelper {
 
+    private final Context context;
+
+    private List<File> migratedProtocolStoreFiles;
+
     public DatabaseHelper(Context context, String name, CursorFactory factory, int version) {
       super(context, name, factory, version);
+      this.context = context;
     }
 
     @Override
@@ -519,6 +586,13 @@ public class DatabaseFactory {
       db.execSQL(PushDatabase.CREATE_TABLE);
       db.execSQL(GroupDatabase.CREATE_TABLE);
       db.execSQL(RecipientPreferenceDatabase.CREATE_TABLE);
+      db.execSQL(SessionDatabase.CREATE_TABLE);
+      db.execSQL(OneTimePreKeyDatabase.CREATE_TABLE);
+      db.execSQL(SignedPreKeyDatabase.CREATE_TABLE);
+      db.execSQL(BackupJournalDatabase.CREATE_TABLE);
+      db.execSQL(BackupJournalDatabase.CREATE_ENABLED_TABLE);
+      db.execSQL(PlaintextBackupImporter.ImportCheckpoint.CREATE_TABLE);
+      db.execSQL(MessageReencryptor.Checkpoint.CREATE_TABLE);
 
       executeStatements(db, SmsDatabase.CREATE_INDEXS);
       executeStatements(db, MmsDatabase.CREATE_INDEXS);
@@ -527,6 +601,22 @@ public class DatabaseFactory {
       executeStatements(db, MmsAddressDatabase.CREATE_INDEXS);
       executeStatements(db, DraftDatabase.CREATE_INDEXS);
       executeStatements(db, GroupDatabase.CREATE_INDEXS);
+
+      executeStatements(db, BackupJournalDatabase.CREATE_TRIGGERS);
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+      // onUpgrade's transaction has committed by now
+      if (migratedProtocolStoreFiles != null) {
+        ProtocolStoreMigrator.delete(migratedProtocolStoreFiles);
+        migratedProtocolStoreFiles = null;
+      }
+
+      // A large plaintext import drops the message indexes until it's done
+      if (!db.isReadOnly()) {
+        PlaintextBackupImporter.restoreInterruptedIndexes(db);
+      }
     }
 
     @Override
@@ -878,6 +968,29 @@ public class DatabaseFactory {
         db.execSQL("CREATE INDEX IF NOT EXISTS archived_count_index ON thread (archived, message_count)");
       }
 
+      if (oldVersion < INTRODUCED_PROTOCOL_STORE_VERSION) {
+        db.execSQL("CREATE TABLE sessions (_id INTEGER PRIMARY KEY, recipient_id INTEGER NOT NULL, device INTEGER NOT NULL, record BLOB NOT NULL, UNIQUE(recipient_id, device) ON CONFLICT REPLACE)");
+        db.execSQL("CREATE TABLE one_time_prekeys (_id INTEGER PRIMARY KEY, key_id INTEGER UNIQUE, record BLOB NOT NULL)");
+        db.execSQL("CREATE TABLE signed_prekeys (_id INTEGER PRIMARY KEY, key_id INTEGER UNIQUE, record BLOB NOT NULL)");
+
+        migratedProtocolStoreFiles = ProtocolStoreMigrator.migrate(context, db, null);
+      }
+
+      if (oldVersion < INTRODUCED_BACKUP_JOURNAL_VERSION) {
+        db.execSQL("CREATE TABLE backup_journal (_id INTEGER PRIMARY KEY, message_table TEXT, message_id INTEGER, date_sent INTEGER, address TEXT, type INTEGER, deleted INTEGER, thread_recipients TEXT)");
+        db.execSQL("CREATE TABLE backup_journal_enabled (_id INTEGER PRIMARY KEY)");
+
+        executeStatements(db, BackupJournalDatabase.CREATE_TRIGGERS);
+      }
+
+      if (oldVersion < INTRODUCED_IMPORT_CHECKPOINT_VERSION) {
+        db.execSQL("CREATE TABLE plaintext_import_checkpoint (_id INTEGER PRIMARY KEY, source TEXT, file_offset INTEGER, message_count INTEGER, threads TEXT, indexes_dropped INTEGER)");
+      }
+
+      if (oldVersion < INTRODUCED_REENCRYPTION_CHECKPOINT_VERSION) {
+        db.execSQL("CREATE TABLE reencryption_checkpoint (_id INTEGER PRIMARY KEY, name TEXT UNIQUE, sms_id INTEGER, mms_id INTEGER, message_count INTEGER, threads TEXT)");
+      }
+
       db.setTransactionSuccessful();
       db.endTransaction();
     }
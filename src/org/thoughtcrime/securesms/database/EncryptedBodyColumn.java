@@ -0,0 +1,252 @@
+package org.thoughtcrime.securesms.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import org.thoughtcrime.securesms.DatabaseUpgradeActivity.DatabaseUpgradeListener;
+import org.thoughtcrime.securesms.crypto.MasterCipher;
+import org.thoughtcrime.securesms.database.MmsSmsColumns.Types;
+import org.thoughtcrime.securesms.util.Base64;
+import org.whispersystems.libsignal.InvalidMessageException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Symmetrically encrypted message bodies are stored as a BLOB holding a
+ * marker byte and the raw ciphertext, rather than as the Base64 TEXT they
+ * used to be, which took a third more space and had to be decoded on every
+ * read.  Rows written before the change still hold TEXT and are read as
+ * before, so the marker is what tells the two apart: we can't ask the
+ * cursor for a column's type below API 11.  Plaintext and asymmetrically
+ * encrypted bodies stay TEXT.
+ */
+class EncryptedBodyColumn {
+
+  private static final String TAG = EncryptedBodyColumn.class.getSimpleName();
+
+  private static final byte RAW_CIPHERTEXT  = 0x01;
+  private static final int  MIGRATION_BATCH = 500;
+
+  /**
+   * @return the ciphertext of a symmetrically encrypted body, or null if the body is empty.
+   */
+  static @Nullable ByteBuffer getCiphertext(@NonNull Cursor cursor, int column) throws InvalidMessageException {
+    byte[] stored = cursor.getBlob(column);
+
+    if (stored == null || stored.length == 0) {
+      return null;
+    }
+
+    if (stored[0] == RAW_CIPHERTEXT) {
+      return ByteBuffer.wrap(stored, 1, stored.length - 1);
+    }
+
+    try {
+      return ByteBuffer.wrap(Base64.decode(cursor.getString(column), Base64.DONT_GUNZIP));
+    } catch (IOException e) {
+      throw new InvalidMessageException(e);
+    }
+  }
+
+  static @NonNull String decrypt(@NonNull MasterCipher masterCipher, @NonNull ByteBuffer ciphertext)
+      throws InvalidMessageException
+  {
+    return new String(masterCipher.decryptBytes(ciphertext.array(),
+                                                ciphertext.arrayOffset() + ciphertext.position(),
+                                                ciphertext.remaining()));
+  }
+
+  /**
+   * @return a symmetrically encrypted body as the Base64 string it used to be
+   * stored as, for readers that don't decrypt it.
+   */
+  static @Nullable String getEncoded(@NonNull Cursor cursor, int column) {
+    byte[] stored = cursor.getBlob(column);
+
+    if (stored != null && stored.length > 0 && stored[0] == RAW_CIPHERTEXT) {
+      return Base64.encodeBytes(stored, 1, stored.length - 1);
+    }
+
+    return cursor.getString(column);
+  }
+
+  static @NonNull byte[] toStored(@NonNull byte[] ciphertext) {
+    byte[] stored = new byte[ciphertext.length + 1];
+    stored[0] = RAW_CIPHERTEXT;
+    System.arraycopy(ciphertext, 0, stored, 1, ciphertext.length);
+
+    return stored;
+  }
+
+  /**
+   * @return the value to store for a body given as a string, which is a BLOB
+   * for a symmetrically encrypted one and the string itself otherwise.
+   */
+  static @Nullable Object toStored(@Nullable String body, long type) {
+    if (body == null || body.isEmpty() || !Types.isSymmetricEncryption(type)) {
+      return body;
+    }
+
+    try {
+      return toStored(Base64.decode(body, Base64.DONT_GUNZIP));
+    } catch (IOException e) {
+      Log.w(TAG, e);
+      return body;
+    }
+  }
+
+  static void put(@NonNull ContentValues values, @NonNull String column, @Nullable String body, long type) {
+    Object stored = toStored(body, type);
+
+    if (stored instanceof byte[]) values.put(column, (byte[])stored);
+    else                          values.put(column, (String)stored);
+  }
+
+  static void bind(@NonNull SQLiteStatement statement, int index, @Nullable String body, long type) {
+    Object stored = toStored(body, type);
+
+    if      (stored instanceof byte[]) statement.bindBlob(index, (byte[])stored);
+    else if (stored != null)           statement.bindString(index, (String)stored);
+    else                               statement.bindNull(index);
+  }
+
+  /**
+   * Encrypts and binds a body for a message of the given type, skipping the
+   * Base64 round trip when it's going to be stored as a BLOB.
+   */
+  static void bindEncrypted(@NonNull SQLiteStatement statement, int index, @NonNull MasterCipher masterCipher,
+                            @NonNull String body, long type)
+  {
+    if (Types.isSymmetricEncryption(type)) statement.bindBlob(index, toStored(masterCipher.encryptBytes(body.getBytes())));
+    else                                   statement.bindString(index, masterCipher.encryptBody(body));
+  }
+
+  /**
+   * Rewrites the symmetrically encrypted TEXT bodies as BLOBs, a batch of
+   * rows per transaction so that nothing waits on the database for the whole
+   * run.  The rewrites don't change any message, so the backup journal
+   * entries they trigger are discarded.
+   *
+   * @return the number of rows rewritten.
+   */
+  static int migrate(@NonNull SQLiteDatabase db, @NonNull DatabaseUpgradeListener listener) {
+    Progress progress = new Progress(listener, getTextBodyCount(db, SmsDatabase.TABLE_NAME, SmsDatabase.TYPE) +
+                                               getTextBodyCount(db, MmsDatabase.TABLE_NAME, MmsDatabase.MESSAGE_BOX));
+
+    return migrate(db, SmsDatabase.TABLE_NAME, SmsDatabase.TYPE, progress) +
+           migrate(db, MmsDatabase.TABLE_NAME, MmsDatabase.MESSAGE_BOX, progress);
+  }
+
+  private static int migrate(SQLiteDatabase db, String table, String typeColumn, Progress progress) {
+    SQLiteStatement update    = db.compileStatement("UPDATE " + table + " SET " + MmsSmsColumns.BODY + " = ? " +
+                                                    "WHERE " + MmsSmsColumns.ID + " = ?");
+    String          selection = MmsSmsColumns.ID + " > ? AND " + getTextBodySelection(typeColumn);
+    long            lastId    = 0;
+    int             count     = 0;
+    int             batchCount;
+
+    do {
+      Cursor cursor = null;
+      batchCount = 0;
+
+      db.beginTransaction();
+
+      try {
+        long journalId = BackupJournalDatabase.getLastId(db);
+
+        cursor = db.query(table, new String[] {MmsSmsColumns.ID, MmsSmsColumns.BODY}, selection,
+                          new String[] {String.valueOf(lastId)}, null, null,
+                          MmsSmsColumns.ID, String.valueOf(MIGRATION_BATCH));
+
+        while (cursor != null && cursor.moveToNext()) {
+          lastId = cursor.getLong(0);
+          batchCount++;
+
+          try {
+            update.bindBlob(1, toStored(Base64.decode(cursor.getString(1), Base64.DONT_GUNZIP)));
+            update.bindLong(2, lastId);
+            update.execute();
+            count++;
+          } catch (IOException e) {
+            Log.w(TAG, e);
+          }
+        }
+
+        BackupJournalDatabase.discardAfter(db, journalId);
+        db.setTransactionSuccessful();
+      } finally {
+        if (cursor != null)
+          cursor.close();
+        db.endTransaction();
+      }
+
+      progress.update(batchCount);
+    } while (batchCount == MIGRATION_BATCH);
+
+    update.close();
+    return count;
+  }
+
+  private static int getTextBodyCount(SQLiteDatabase db, String table, String typeColumn) {
+    Cursor cursor = null;
+
+    try {
+      cursor = db.query(table, new String[] {"COUNT(*)"}, getTextBodySelection(typeColumn), null, null, null, null);
+
+      if (cursor != null && cursor.moveToFirst()) return cursor.getInt(0);
+      else                                        return 0;
+    } finally {
+      if (cursor != null)
+        cursor.close();
+    }
+  }
+
+  private static String getTextBodySelection(String typeColumn) {
+    return typeColumn + " & " + Types.ENCRYPTION_SYMMETRIC_BIT + " != 0 AND " +
+           "typeof(" + MmsSmsColumns.BODY + ") = 'text' AND " + MmsSmsColumns.BODY + " != ''";
+  }
+
+  /**
+   * @return the bytes the database's pages hold, leaving out free pages.
+   */
+  static long getUsedSize(@NonNull SQLiteDatabase db) {
+    return (getPragma(db, "page_count") - getPragma(db, "freelist_count")) * getPragma(db, "page_size");
+  }
+
+  private static long getPragma(SQLiteDatabase db, String pragma) {
+    Cursor cursor = null;
+
+    try {
+      cursor = db.rawQuery("PRAGMA " + pragma, null);
+
+      if (cursor != null && cursor.moveToFirst()) return cursor.getLong(0);
+      else                                        return 0;
+    } finally {
+      if (cursor != null)
+        cursor.close();
+    }
+  }
+
+  private static class Progress {
+    private final DatabaseUpgradeListener listener;
+    private final int                     total;
+
+    private int processed;
+
+    Progress(DatabaseUpgradeListener listener, int total) {
+      this.listener = listener;
+      this.total    = total;
+    }
+
+    void update(int count) {
+      processed += count;
+      if (count > 0) listener.setProgress(processed, total);
+    }
+  }
+}
@@ -38,6 +38,7 @@ import org.whispersystems.libsignal.InvalidMessageException;
 import org.whispersystems.libsignal.util.guava.Optional;
 
 import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.Map;
 
@@ -54,10 +55,10 @@ public class EncryptingSmsDatabase extends SmsDatabase {
     return bodyCipher.encryptBody(body);
   }
 
-  private String getEncryptedBody(MasterSecret masterSecret, String body) {
+  private byte[] getEncryptedBody(MasterSecret masterSecret, String body) {
     MasterCipher bodyCipher = new MasterCipher(masterSecret);
-    String ciphertext       = bodyCipher.encryptBody(body);
-    plaintextCache.put(ciphertext, body);
+    byte[]       ciphertext = bodyCipher.encryptBytes(body.getBytes());
+    plaintextCache.put(ByteBuffer.wrap(ciphertext), body);
 
     return ciphertext;
   }
@@ -69,14 +70,16 @@ public class EncryptingSmsDatabase extends SmsDatabase {
     long type = Types.BASE_SENDING_TYPE;
 
     if (masterSecret.getMasterSecret().isPresent()) {
-      message = message.withBody(getEncryptedBody(masterSecret.getMasterSecret().get(), message.getMessageBody()));
-      type   |= Types.ENCRYPTION_SYMMETRIC_BIT;
+      byte[] ciphertext = getEncryptedBody(masterSecret.getMasterSecret().get(), message.getMessageBody());
+      type |= Types.ENCRYPTION_SYMMETRIC_BIT;
+
+      return insertMessageOutbox(threadId, message, ciphertext, type, forceSms, timestamp, insertListener);
     } else {
       message = message.withBody(getAsymmetricEncryptedBody(masterSecret.getAsymmetricMasterSecret().get(), message.getMessageBody()));
       type   |= Types.ENCRYPTION_ASYMMETRIC_BIT;
-    }
 
-    return insertMessageOutbox(threadId, message, type, forceSms, timestamp, insertListener);
+      return insertMessageOutbox(threadId, message, type, forceSms, timestamp, insertListener);
+    }
   }
 
   public Optional<InsertResult> insertMessageInbox(@NonNull MasterSecretUnion masterSecret,
@@ -94,9 +97,7 @@ public class EncryptingSmsDatabase extends SmsDatabase {
   {
     long type = Types.BASE_INBOX_TYPE | Types.ENCRYPTION_SYMMETRIC_BIT;
 
-    message = message.withMessageBody(getEncryptedBody(masterSecret, message.getMessageBody()));
-
-    return insertMessageInbox(message, type);
+    return insertMessageInbox(message, getEncryptedBody(masterSecret, message.getMessageBody()), type);
   }
 
   private Optional<InsertResult> insertMessageInbox(@NonNull AsymmetricMasterSecret masterSecret,
@@ -111,31 +112,24 @@ public class EncryptingSmsDatabase extends SmsDatabase {
 
   public Pair<Long, Long> updateBundleMessageBody(MasterSecretUnion masterSecret, long messageId, String body) {
     long type = Types.BASE_INBOX_TYPE | Types.SECURE_MESSAGE_BIT | Types.PUSH_MESSAGE_BIT;
-    String encryptedBody;
 
     if (masterSecret.getMasterSecret().isPresent()) {
-      encryptedBody = getEncryptedBody(masterSecret.getMasterSecret().get(), body);
-      type         |= Types.ENCRYPTION_SYMMETRIC_BIT;
+      byte[] ciphertext = getEncryptedBody(masterSecret.getMasterSecret().get(), body);
+      return updateMessageBodyAndType(messageId, ciphertext, Types.TOTAL_MASK, type | Types.ENCRYPTION_SYMMETRIC_BIT);
     } else {
-      encryptedBody = getAsymmetricEncryptedBody(masterSecret.getAsymmetricMasterSecret().get(), body);
-      type         |= Types.ENCRYPTION_ASYMMETRIC_BIT;
+      String encryptedBody = getAsymmetricEncryptedBody(masterSecret.getAsymmetricMasterSecret().get(), body);
+      return updateMessageBodyAndType(messageId, encryptedBody, Types.TOTAL_MASK, type | Types.ENCRYPTION_ASYMMETRIC_BIT);
     }
-
-    return updateMessageBodyAndType(messageId, encryptedBody, Types.TOTAL_MASK, type);
   }
 
   public void updateMessageBody(MasterSecretUnion masterSecret, long messageId, String body) {
-    long type;
-
     if (masterSecret.getMasterSecret().isPresent()) {
-      body = getEncryptedBody(masterSecret.getMasterSecret().get(), body);
-      type = Types.ENCRYPTION_SYMMETRIC_BIT;
+      byte[] ciphertext = getEncryptedBody(masterSecret.getMasterSecret().get(), body);
+      updateMessageBodyAndType(messageId, ciphertext, Types.ENCRYPTION_MASK, Types.ENCRYPTION_SYMMETRIC_BIT);
     } else {
-      body = getAsymmetricEncryptedBody(masterSecret.getAsymmetricMasterSecret().get(), body);
-      type = Types.ENCRYPTION_ASYMMETRIC_BIT;
+      String encryptedBody = getAsymmetricEncryptedBody(masterSecret.getAsymmetricMasterSecret().get(), body);
+      updateMessageBodyAndType(messageId, encryptedBody, Types.ENCRYPTION_MASK, Types.ENCRYPTION_ASYMMETRIC_BIT);
     }
-
-    updateMessageBodyAndType(messageId, body, Types.ENCRYPTION_MASK, type);
   }
 
   public Reader getMessages(MasterSecret masterSecret, int skip, int limit) {
@@ -143,6 +137,11 @@ public class EncryptingSmsDatabase extends SmsDatabase {
     return new DecryptingReader(masterSecret, cursor);
   }
 
+  public Reader getMessagesInRange(MasterSecret masterSecret, long afterId, long lastId) {
+    Cursor cursor = super.getMessagesInRange(afterId, lastId);
+    return new DecryptingReader(masterSecret, cursor);
+  }
+
   public Reader getOutgoingMessages(MasterSecret masterSecret) {
     Cursor cursor = super.getOutgoingMessages();
     return new DecryptingReader(masterSecret, cursor);
@@ -179,26 +178,31 @@ public class EncryptingSmsDatabase extends SmsDatabase {
 
     @Override
     protected DisplayRecord.Body getBody(Cursor cursor) {
-      long type         = cursor.getLong(cursor.getColumnIndexOrThrow(SmsDatabase.TYPE));
-      String ciphertext = cursor.getString(cursor.getColumnIndexOrThrow(SmsDatabase.BODY));
+      long type   = cursor.getLong(cursor.getColumnIndexOrThrow(SmsDatabase.TYPE));
+      int  column = cursor.getColumnIndexOrThrow(SmsDatabase.BODY);
 
-      if (ciphertext == null) {
+      if (cursor.isNull(column)) {
         return new DisplayRecord.Body("", true);
       }
 
       try {
         if (SmsDatabase.Types.isSymmetricEncryption(type)) {
+          ByteBuffer ciphertext = EncryptedBodyColumn.getCiphertext(cursor, column);
+
+          if (ciphertext == null)
+            return new DisplayRecord.Body("", true);
+
           String plaintext = plaintextCache.get(ciphertext);
 
           if (plaintext != null)
             return new DisplayRecord.Body(plaintext, true);
 
-          plaintext = masterCipher.decryptBody(ciphertext);
+          plaintext = EncryptedBodyColumn.decrypt(masterCipher, ciphertext);
 
           plaintextCache.put(ciphertext, plaintext);
           return new DisplayRecord.Body(plaintext, true);
         } else {
-          return new DisplayRecord.Body(ciphertext, true);
+          return new DisplayRecord.Body(cursor.getString(column), true);
         }
       } catch (InvalidMessageException e) {
         Log.w("EncryptingSmsDatabase", e);
@@ -209,14 +213,14 @@ public class EncryptingSmsDatabase extends SmsDatabase {
 
   private static class PlaintextCache {
     private static final int MAX_CACHE_SIZE = 2000;
-    private static final Map<String, SoftReference<String>> decryptedBodyCache =
-        Collections.synchronizedMap(new LRUCache<String, SoftReference<String>>(MAX_CACHE_SIZE));
+    private static final Map<ByteBuffer, SoftReference<String>> decryptedBodyCache =
+        Collections.synchronizedMap(new LRUCache<ByteBuffer, SoftReference<String>>(MAX_CACHE_SIZE));
 
-    public void put(String ciphertext, String plaintext) {
+    public void put(ByteBuffer ciphertext, String plaintext) {
       decryptedBodyCache.put(ciphertext, new SoftReference<String>(plaintext));
     }
 
-    public String get(String ciphertext) {
+    public String get(ByteBuffer ciphertext) {
       SoftReference<String> plaintextReference = decryptedBodyCache.get(ciphertext);
 
       if (plaintextReference != null) {
@@ -0,0 +1,422 @@
+package org.thoughtcrime.securesms.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import android.util.Log;
+
+import org.thoughtcrime.securesms.crypto.AsymmetricMasterCipher;
+import org.thoughtcrime.securesms.crypto.AsymmetricMasterSecret;
+import org.thoughtcrime.securesms.crypto.MasterCipher;
+import org.thoughtcrime.securesms.crypto.MasterSecret;
+import org.thoughtcrime.securesms.crypto.MasterSecretUtil;
+import org.thoughtcrime.securesms.database.MmsSmsColumns.Types;
+import org.whispersystems.libsignal.InvalidMessageException;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Re-encrypts the bodies of every sms and mms with the given type bits set.
+ * Batches of messages are transformed on a small worker pool and written back
+ * in order, each in its own transaction along with a checkpoint, so a run
+ * that is killed picks up after the last batch written instead of starting
+ * over.  Threads are updated and notified once, at the end.
+ */
+public class MessageReencryptor {
+
+  private static final String TAG = MessageReencryptor.class.getSimpleName();
+
+  private static final int  BATCH_SIZE          = 200;
+  private static final int  WORKER_COUNT        = Math.min(4, Math.max(2, Runtime.getRuntime().availableProcessors()));
+  private static final int  MAX_PENDING_BATCHES = WORKER_COUNT * 2;
+  private static final long LOG_INTERVAL_MILLIS = 5000;
+
+  public interface BodyTransform {
+    @NonNull String transform(@Nullable String body) throws InvalidMessageException;
+  }
+
+  /**
+   * Creates a transform for each batch, since the ciphers behind one aren't
+   * safe to share between the workers.
+   */
+  public interface BodyTransformFactory {
+    BodyTransform create();
+  }
+
+  public interface ProgressListener {
+    void onProgress(int processed, int total, double messagesPerSecond);
+  }
+
+  private final Context              context;
+  private final String               name;
+  private final long                 requiredBits;
+  private final long                 maskOff;
+  private final long                 maskOn;
+  private final BodyTransformFactory transformFactory;
+
+  public MessageReencryptor(@NonNull Context context, @NonNull String name, long requiredBits,
+                            long maskOff, long maskOn, @NonNull BodyTransformFactory transformFactory)
+  {
+    this.context          = context;
+    this.name             = name;
+    this.requiredBits     = requiredBits;
+    this.maskOff          = maskOff;
+    this.maskOn           = maskOn;
+    this.transformFactory = transformFactory;
+  }
+
+  /**
+   * Moves the messages stored with {@link AsymmetricMasterCipher} while
+   * locked over to the {@link MasterCipher}.
+   */
+  public static MessageReencryptor forAsymmetricMessages(@NonNull Context context,
+                                                         @NonNull final MasterSecret masterSecret)
+  {
+    final AsymmetricMasterSecret asymmetricMasterSecret = MasterSecretUtil.getAsymmetricMasterSecret(context, masterSecret);
+
+    return new MessageReencryptor(context, "asymmetric", Types.ENCRYPTION_ASYMMETRIC_BIT,
+                                  Types.ENCRYPTION_MASK, Types.ENCRYPTION_SYMMETRIC_BIT,
+                                  new BodyTransformFactory() {
+      @Override
+      public BodyTransform create() {
+        final AsymmetricMasterCipher asymmetricMasterCipher = new AsymmetricMasterCipher(asymmetricMasterSecret);
+        final MasterCipher           masterCipher           = new MasterCipher(masterSecret);
+
+        return new BodyTransform() {
+          @Override
+          public @NonNull String transform(@Nullable String body) throws InvalidMessageException {
+            try {
+              if (TextUtils.isEmpty(body)) return masterCipher.encryptBody("");
+              else                         return masterCipher.encryptBody(asymmetricMasterCipher.decryptBody(body));
+            } catch (IOException e) {
+              throw new InvalidMessageException(e);
+            }
+          }
+        };
+      }
+    });
+  }
+
+  /**
+   * @return the number of messages re-encrypted, including those of an
+   * earlier run that was interrupted.
+   */
+  public int run(@Nullable ProgressListener listener) {
+    SQLiteDatabase  db         = DatabaseFactory.getSmsDatabase(context).databaseHelper.getWritableDatabase();
+    Checkpoint      checkpoint = Checkpoint.load(db, name);
+    ExecutorService executor   = Executors.newFixedThreadPool(WORKER_COUNT);
+    Progress        progress   = new Progress(listener, checkpoint.messageCount,
+                                              checkpoint.messageCount +
+                                              getRemainingCount(db, SmsDatabase.TABLE_NAME, SmsDatabase.TYPE, checkpoint.smsId) +
+                                              getRemainingCount(db, MmsDatabase.TABLE_NAME, MmsDatabase.MESSAGE_BOX, checkpoint.mmsId));
+
+    if (checkpoint.messageCount > 0) {
+      Log.w(TAG, "Resuming " + name + " re-encryption after " + checkpoint.messageCount + " messages");
+    }
+
+    try {
+      reencrypt(db, executor, checkpoint, progress, false);
+      reencrypt(db, executor, checkpoint, progress, true);
+    } finally {
+      executor.shutdown();
+    }
+
+    progress.log();
+
+    ThreadDatabase threadDatabase = DatabaseFactory.getThreadDatabase(context);
+    SmsDatabase    smsDatabase    = DatabaseFactory.getSmsDatabase(context);
+
+    for (long threadId : checkpoint.threads) {
+      threadDatabase.update(threadId, true);
+      smsDatabase.notifyConversationListeners(threadId);
+    }
+
+    smsDatabase.notifyConversationListListeners();
+    Checkpoint.clear(db, name);
+
+    return checkpoint.messageCount;
+  }
+
+  private void reencrypt(SQLiteDatabase db, ExecutorService executor, Checkpoint checkpoint,
+                         Progress progress, boolean mms)
+  {
+    String                    table      = mms ? MmsDatabase.TABLE_NAME : SmsDatabase.TABLE_NAME;
+    String                    typeColumn = mms ? MmsDatabase.MESSAGE_BOX : SmsDatabase.TYPE;
+    SQLiteStatement           update     = db.compileStatement("UPDATE " + table + " SET " + MmsSmsColumns.BODY + " = ?, " +
+                                                               typeColumn + " = (" + typeColumn + " & " + (Types.TOTAL_MASK - maskOff) + " | " + maskOn + ")" +
+                                                               " WHERE " + MmsSmsColumns.ID + " = ?");
+    LinkedList<Future<Batch>> pending    = new LinkedList<>();
+    long                      lastId     = mms ? checkpoint.mmsId : checkpoint.smsId;
+    boolean                   exhausted  = false;
+
+    try {
+      while (!exhausted || !pending.isEmpty()) {
+        while (!exhausted && pending.size() < MAX_PENDING_BATCHES) {
+          Batch batch = readBatch(db, table, typeColumn, lastId);
+
+          if (batch == null) {
+            exhausted = true;
+          } else {
+            pending.add(executor.submit(batch));
+            lastId = batch.lastId;
+          }
+        }
+
+        if (!pending.isEmpty()) {
+          Batch batch = getBatch(pending.removeFirst());
+
+          if (mms) checkpoint.mmsId = batch.lastId;
+          else     checkpoint.smsId = batch.lastId;
+
+          write(db, update, batch, checkpoint);
+          progress.update(batch.ids.length);
+        }
+      }
+    } finally {
+      for (Future<Batch> future : pending) future.cancel(false);
+      update.close();
+    }
+  }
+
+  private void write(SQLiteDatabase db, SQLiteStatement update, Batch batch, Checkpoint checkpoint) {
+    db.beginTransaction();
+
+    try {
+      for (int i = 0; i < batch.ids.length; i++) {
+        if (batch.bodies[i] == null) continue;
+
+        EncryptedBodyColumn.bind(update, 1, batch.bodies[i], maskOn);
+        update.bindLong(2, batch.ids[i]);
+        update.execute();
+
+        checkpoint.threads.add(batch.threadIds[i]);
+      }
+
+      checkpoint.messageCount += batch.ids.length;
+      checkpoint.save(db);
+
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+  }
+
+  private @Nullable Batch readBatch(SQLiteDatabase db, String table, String typeColumn, long afterId) {
+    Cursor cursor = null;
+
+    try {
+      cursor = db.query(table, new String[] {MmsSmsColumns.ID, MmsSmsColumns.THREAD_ID, MmsSmsColumns.BODY},
+                        MmsSmsColumns.ID + " > ? AND " + typeColumn + " & " + requiredBits + " != 0",
+                        new String[] {String.valueOf(afterId)}, null, null, MmsSmsColumns.ID,
+                        String.valueOf(BATCH_SIZE));
+
+      if (cursor == null || cursor.getCount() == 0) {
+        return null;
+      }
+
+      Batch batch = new Batch(cursor.getCount());
+
+      while (cursor.moveToNext()) {
+        batch.ids[cursor.getPosition()]       = cursor.getLong(0);
+        batch.threadIds[cursor.getPosition()] = cursor.getLong(1);
+        batch.bodies[cursor.getPosition()]    = cursor.getString(2);
+      }
+
+      batch.lastId = batch.ids[batch.ids.length - 1];
+      return batch;
+    } finally {
+      if (cursor != null)
+        cursor.close();
+    }
+  }
+
+  private int getRemainingCount(SQLiteDatabase db, String table, String typeColumn, long afterId) {
+    Cursor cursor = null;
+
+    try {
+      cursor = db.query(table, new String[] {"COUNT(*)"},
+                        MmsSmsColumns.ID + " > ? AND " + typeColumn + " & " + requiredBits + " != 0",
+                        new String[] {String.valueOf(afterId)}, null, null, null);
+
+      if (cursor != null && cursor.moveToFirst()) return cursor.getInt(0);
+      else                                        return 0;
+    } finally {
+      if (cursor != null)
+        cursor.close();
+    }
+  }
+
+  private static Batch getBatch(Future<Batch> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      throw new AssertionError(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * A run of messages read in _id order.  Transforming it replaces each body
+   * with its re-encrypted form, or null for a body that couldn't be decrypted
+   * and is left as it is.
+   */
+  private class Batch implements Callable<Batch> {
+    private final long[]   ids;
+    private final long[]   threadIds;
+    private final String[] bodies;
+
+    private long lastId;
+
+    Batch(int size) {
+      this.ids       = new long[size];
+      this.threadIds = new long[size];
+      this.bodies    = new String[size];
+    }
+
+    @Override
+    public Batch call() {
+      BodyTransform transform = transformFactory.create();
+
+      for (int i = 0; i < bodies.length; i++) {
+        try {
+          bodies[i] = transform.transform(bodies[i]);
+        } catch (InvalidMessageException e) {
+          Log.w(TAG, "Skipping message " + ids[i], e);
+          bodies[i] = null;
+        }
+      }
+
+      return this;
+    }
+  }
+
+  private static class Progress {
+    private final ProgressListener listener;
+    private final int              resumedCount;
+    private final int              total;
+    private final long             startMillis = System.currentTimeMillis();
+
+    private int  processed;
+    private long lastLogMillis = startMillis;
+
+    Progress(@Nullable ProgressListener listener, int resumedCount, int total) {
+      this.listener     = listener;
+      this.resumedCount = resumedCount;
+      this.total        = total;
+      this.processed    = resumedCount;
+    }
+
+    void update(int messages) {
+      processed += messages;
+
+      if (listener != null) {
+        listener.onProgress(processed, total, getMessagesPerSecond());
+      }
+
+      if (System.currentTimeMillis() - lastLogMillis >= LOG_INTERVAL_MILLIS) {
+        log();
+      }
+    }
+
+    void log() {
+      lastLogMillis = System.currentTimeMillis();
+
+      Log.w(TAG, String.format(Locale.US, "Re-encrypted %d/%d messages (%.0f messages/s)",
+                               processed, total, getMessagesPerSecond()));
+    }
+
+    private double getMessagesPerSecond() {
+      double seconds = Math.max(1, System.currentTimeMillis() - startMillis) / 1000.0;
+      return (processed - resumedCount) / seconds;
+    }
+  }
+
+  /**
+   * The last sms and mms ids written and the threads touched so far, saved
+   * with each batch.
+   */
+  static class Checkpoint {
+
+    private static final String TABLE_NAME    = "reencryption_checkpoint";
+    private static final String ID            = "_id";
+    private static final String NAME          = "name";
+    private static final String SMS_ID        = "sms_id";
+    private static final String MMS_ID        = "mms_id";
+    private static final String MESSAGE_COUNT = "message_count";
+    private static final String THREADS       = "threads";
+
+    static final String CREATE_TABLE = "CREATE TABLE " + TABLE_NAME + " (" + ID + " INTEGER PRIMARY KEY, " +
+                                       NAME + " TEXT UNIQUE, " + SMS_ID + " INTEGER, " + MMS_ID + " INTEGER, " +
+                                       MESSAGE_COUNT + " INTEGER, " + THREADS + " TEXT);";
+
+    private final String    name;
+    private final Set<Long> threads = new HashSet<>();
+
+    private long smsId;
+    private long mmsId;
+    private int  messageCount;
+
+    private Checkpoint(String name) {
+      this.name = name;
+    }
+
+    static Checkpoint load(SQLiteDatabase database, String name) {
+      Checkpoint checkpoint = new Checkpoint(name);
+      Cursor     cursor     = null;
+
+      try {
+        cursor = database.query(TABLE_NAME, null, NAME + " = ?", new String[] {name}, null, null, null);
+
+        if (cursor != null && cursor.moveToFirst()) {
+          checkpoint.smsId        = cursor.getLong(cursor.getColumnIndexOrThrow(SMS_ID));
+          checkpoint.mmsId        = cursor.getLong(cursor.getColumnIndexOrThrow(MMS_ID));
+          checkpoint.messageCount = cursor.getInt(cursor.getColumnIndexOrThrow(MESSAGE_COUNT));
+
+          String threadIds = cursor.getString(cursor.getColumnIndexOrThrow(THREADS));
+
+          if (!TextUtils.isEmpty(threadIds)) {
+            for (String threadId : threadIds.split(",")) {
+              checkpoint.threads.add(Long.parseLong(threadId));
+            }
+          }
+        }
+      } finally {
+        if (cursor != null)
+          cursor.close();
+      }
+
+      return checkpoint;
+    }
+
+    void save(SQLiteDatabase database) {
+      ContentValues values = new ContentValues();
+      values.put(NAME, name);
+      values.put(SMS_ID, smsId);
+      values.put(MMS_ID, mmsId);
+      values.put(MESSAGE_COUNT, messageCount);
+      values.put(THREADS, TextUtils.join(",", threads));
+
+      database.replace(TABLE_NAME, null, values);
+    }
+
+    static void clear(SQLiteDatabase database, String name) {
+      database.delete(TABLE_NAME, NAME + " = ?", new String[] {name});
+    }
+  }
+}
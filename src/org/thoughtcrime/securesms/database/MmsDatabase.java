@@ -72,6 +72,7 @@ import org.whispersystems.libsignal.util.guava.Optional;
 import org.whispersystems.signalservice.api.util.InvalidNumberException;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.HashSet;
@@ -172,6 +173,15 @@ public class MmsDatabase extends MessagingDatabase {
     "CREATE INDEX IF NOT EXISTS mms_thread_date_index ON " + TABLE_NAME + " (" + THREAD_ID + ", " + DATE_RECEIVED + ");"
   };
 
+  public static final String[] DROP_INDEXS = {
+    "DROP INDEX IF EXISTS mms_thread_id_index;",
+    "DROP INDEX IF EXISTS mms_read_index;",
+    "DROP INDEX IF EXISTS mms_read_and_notified_and_thread_id_index;",
+    "DROP INDEX IF EXISTS mms_message_box_index;",
+    "DROP INDEX IF EXISTS mms_date_sent_index;",
+    "DROP INDEX IF EXISTS mms_thread_date_index;"
+  };
+
   private static final String[] MMS_PROJECTION = new String[] {
       MmsDatabase.TABLE_NAME + "." + ID + " AS " + ID,
       THREAD_ID, DATE_SENT + " AS " + NORMALIZED_DATE_SENT,
@@ -409,6 +419,19 @@ public class MmsDatabase extends MessagingDatabase {
     return readerFor(masterSecret, rawQuery(skip, limit));
   }
 
+  public Reader getMessagesInRange(MasterSecret masterSecret, long afterId, long lastId) {
+    String where = TABLE_NAME + "." + ID + " > ? AND " + TABLE_NAME + "." + ID + " <= ? ORDER BY " + TABLE_NAME + "." + ID;
+    return readerFor(masterSecret, rawQuery(where, new String[] {String.valueOf(afterId), String.valueOf(lastId)}));
+  }
+
+  public long[] getMessagePageBoundaries(int pageSize) {
+    return getIdPageBoundaries(TABLE_NAME, pageSize);
+  }
+
+  public int getMessageCountAfter(long afterId) {
+    return getRowCountAfter(TABLE_NAME, afterId);
+  }
+
   public int getMessageCount() {
     SQLiteDatabase db = databaseHelper.getReadableDatabase();
     Cursor cursor     = null;
@@ -655,7 +678,7 @@ public class MmsDatabase extends MessagingDatabase {
     db.execSQL("UPDATE " + TABLE_NAME + " SET " + BODY + " = ?, " +
                MESSAGE_BOX + " = (" + MESSAGE_BOX + " & " + (Types.TOTAL_MASK - maskOff) + " | " + maskOn + ") " +
                "WHERE " + ID + " = ?",
-               new String[] {body, messageId + ""});
+               new Object[] {EncryptedBodyColumn.toStored(body, maskOn), messageId + ""});
 
     long threadId = getThreadIdForMessage(messageId);
 
@@ -697,14 +720,13 @@ public class MmsDatabase extends MessagingDatabase {
 
       if (cursor != null && cursor.moveToNext()) {
         long             outboxType     = cursor.getLong(cursor.getColumnIndexOrThrow(MESSAGE_BOX));
-        String           messageText    = cursor.getString(cursor.getColumnIndexOrThrow(BODY));
         long             timestamp      = cursor.getLong(cursor.getColumnIndexOrThrow(NORMALIZED_DATE_SENT));
         int              subscriptionId = cursor.getInt(cursor.getColumnIndexOrThrow(SUBSCRIPTION_ID));
         long             expiresIn      = cursor.getLong(cursor.getColumnIndexOrThrow(EXPIRES_IN));
         List<Attachment> attachments    = new LinkedList<Attachment>(attachmentDatabase.getAttachmentsForMessage(masterSecret, messageId));
         MmsAddresses     addresses      = addr.getAddressesForId(messageId);
         List<String>     destinations   = new LinkedList<>();
-        String           body           = getDecryptedBody(masterSecret, messageText, outboxType);
+        String           body           = getDecryptedBody(masterSecret, cursor, outboxType);
 
         destinations.addAll(addresses.getBcc());
         destinations.addAll(addresses.getCc());
@@ -1012,14 +1034,18 @@ public class MmsDatabase extends MessagingDatabase {
   }
 
   private @Nullable String getDecryptedBody(@NonNull MasterSecret masterSecret,
-                                            @Nullable String body, long outboxType)
+                                            @NonNull Cursor cursor, long outboxType)
   {
+    int column = cursor.getColumnIndexOrThrow(BODY);
+
     try {
-      if (!TextUtils.isEmpty(body) && Types.isSymmetricEncryption(outboxType)) {
+      ByteBuffer ciphertext = Types.isSymmetricEncryption(outboxType) ? EncryptedBodyColumn.getCiphertext(cursor, column) : null;
+
+      if (ciphertext != null) {
         MasterCipher masterCipher = new MasterCipher(masterSecret);
-        return masterCipher.decryptBody(body);
+        return EncryptedBodyColumn.decrypt(masterCipher, ciphertext);
       } else {
-        return body;
+        return cursor.getString(column);
       }
     } catch (InvalidMessageException e) {
       Log.w(TAG, e);
@@ -1040,11 +1066,11 @@ public class MmsDatabase extends MessagingDatabase {
     AttachmentDatabase partsDatabase   = DatabaseFactory.getAttachmentDatabase(context);
     MmsAddressDatabase addressDatabase = DatabaseFactory.getMmsAddressDatabase(context);
 
-    if (Types.isSymmetricEncryption(contentValues.getAsLong(MESSAGE_BOX)) ||
-        Types.isAsymmetricEncryption(contentValues.getAsLong(MESSAGE_BOX)))
-    {
+    long box = contentValues.getAsLong(MESSAGE_BOX);
+
+    if (Types.isSymmetricEncryption(box) || Types.isAsymmetricEncryption(box)) {
       if (!TextUtils.isEmpty(body)) {
-        contentValues.put(BODY, getEncryptedBody(masterSecret, body));
+        EncryptedBodyColumn.put(contentValues, BODY, getEncryptedBody(masterSecret, body), box);
       }
     }
 
@@ -1072,6 +1098,13 @@ public class MmsDatabase extends MessagingDatabase {
   }
 
   public boolean delete(long messageId) {
+    long    threadId      = deleteWithoutThreadUpdate(messageId);
+    boolean threadDeleted = DatabaseFactory.getThreadDatabase(context).update(threadId, false);
+    notifyConversationListeners(threadId);
+    return threadDeleted;
+  }
+
+  /*package*/ long deleteWithoutThreadUpdate(long messageId) {
     long               threadId           = getThreadIdForMessage(messageId);
     MmsAddressDatabase addrDatabase       = DatabaseFactory.getMmsAddressDatabase(context);
     AttachmentDatabase attachmentDatabase = DatabaseFactory.getAttachmentDatabase(context);
@@ -1080,9 +1113,7 @@ public class MmsDatabase extends MessagingDatabase {
 
     SQLiteDatabase database = databaseHelper.getWritableDatabase();
     database.delete(TABLE_NAME, ID_WHERE, new String[] {messageId+""});
-    boolean threadDeleted = DatabaseFactory.getThreadDatabase(context).update(threadId, false);
-    notifyConversationListeners(threadId);
-    return threadDeleted;
+    return threadId;
   }
 
   public void deleteThread(long threadId) {
@@ -1447,12 +1478,21 @@ public class MmsDatabase extends MessagingDatabase {
 
     private DisplayRecord.Body getBody(Cursor cursor) {
       try {
-        String body = cursor.getString(cursor.getColumnIndexOrThrow(MmsDatabase.BODY));
+        int  column = cursor.getColumnIndexOrThrow(MmsDatabase.BODY);
         long box    = cursor.getLong(cursor.getColumnIndexOrThrow(MmsDatabase.MESSAGE_BOX));
 
-        if (!TextUtils.isEmpty(body) && masterCipher != null && Types.isSymmetricEncryption(box)) {
-          return new DisplayRecord.Body(masterCipher.decryptBody(body), true);
-        } else if (!TextUtils.isEmpty(body) && masterCipher == null && Types.isSymmetricEncryption(box)) {
+        if (masterCipher != null && Types.isSymmetricEncryption(box)) {
+          ByteBuffer ciphertext = EncryptedBodyColumn.getCiphertext(cursor, column);
+
+          if (ciphertext != null) {
+            return new DisplayRecord.Body(EncryptedBodyColumn.decrypt(masterCipher, ciphertext), true);
+          }
+        }
+
+        String body = Types.isSymmetricEncryption(box) ? EncryptedBodyColumn.getEncoded(cursor, column)
+                                                       : cursor.getString(column);
+
+        if (!TextUtils.isEmpty(body) && masterCipher == null && Types.isSymmetricEncryption(box)) {
           return new DisplayRecord.Body(body, false);
         } else if (!TextUtils.isEmpty(body) && Types.isAsymmetricEncryption(box)) {
           return new DisplayRecord.Body(body, false);
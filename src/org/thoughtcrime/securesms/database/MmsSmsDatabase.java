@@ -29,8 +29,10 @@ import org.thoughtcrime.securesms.attachments.Attachment;
 import org.thoughtcrime.securesms.crypto.MasterSecret;
 import org.thoughtcrime.securesms.database.MessagingDatabase.SyncMessageId;
 import org.thoughtcrime.securesms.database.model.MessageRecord;
+import org.thoughtcrime.securesms.util.Util;
 import org.whispersystems.libsignal.util.guava.Optional;
 
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -118,6 +120,33 @@ public class MmsSmsDatabase extends Database {
     return queryTables(PROJECTION, selection, order, null);
   }
 
+  /**
+   * Returns only the id, transport and receive date of each unread, unnotified
+   * message, without touching message bodies or attachments.
+   */
+  public Cursor getUnreadIds() {
+    String selection = MmsSmsColumns.READ + " = 0 AND " + MmsSmsColumns.NOTIFIED + " = 0";
+    String query     = "SELECT " + MmsSmsColumns.ID + ", '" + SMS_TRANSPORT + "' AS " + TRANSPORT + ", " +
+                       SmsDatabase.DATE_RECEIVED + " AS " + MmsSmsColumns.NORMALIZED_DATE_RECEIVED +
+                       " FROM " + SmsDatabase.TABLE_NAME + " WHERE " + selection +
+                       " UNION ALL " +
+                       "SELECT " + MmsSmsColumns.ID + ", '" + MMS_TRANSPORT + "' AS " + TRANSPORT + ", " +
+                       MmsDatabase.DATE_RECEIVED + " AS " + MmsSmsColumns.NORMALIZED_DATE_RECEIVED +
+                       " FROM " + MmsDatabase.TABLE_NAME + " WHERE " + selection +
+                       " ORDER BY " + MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " ASC";
+
+    return databaseHelper.getReadableDatabase().rawQuery(query, null);
+  }
+
+  public Cursor getUnread(@NonNull long[] smsIds, @NonNull long[] mmsIds) {
+    String order        = MmsSmsColumns.NORMALIZED_DATE_RECEIVED + " ASC";
+    String selection    = MmsSmsColumns.READ + " = 0 AND " + MmsSmsColumns.NOTIFIED + " = 0";
+    String smsSelection = selection + " AND " + MmsSmsColumns.ID + " IN (" + Util.join(smsIds, ",") + ")";
+    String mmsSelection = selection + " AND " + MmsDatabase.TABLE_NAME + "." + MmsDatabase.ID + " IN (" + Util.join(mmsIds, ",") + ")";
+
+    return queryTables(PROJECTION, smsSelection, mmsSelection, order, null);
+  }
+
   public int getUnreadCount(long threadId) {
     String selection = MmsSmsColumns.READ + " = 0 AND " + MmsSmsColumns.NOTIFIED + " = 0 AND " + MmsSmsColumns.THREAD_ID + " = " + threadId;
     Cursor cursor    = queryTables(PROJECTION, selection, null, null);
@@ -136,12 +165,50 @@ public class MmsSmsDatabase extends Database {
     return count;
   }
 
+  /**
+   * Deletes a batch of SMS and MMS messages in a single transaction, updating each
+   * affected thread only once.
+   */
+  public void deleteMessages(@NonNull Collection<Long> smsIds, @NonNull Collection<Long> mmsIds) {
+    SmsDatabase    smsDatabase    = DatabaseFactory.getSmsDatabase(context);
+    MmsDatabase    mmsDatabase    = DatabaseFactory.getMmsDatabase(context);
+    ThreadDatabase threadDatabase = DatabaseFactory.getThreadDatabase(context);
+    SQLiteDatabase database       = databaseHelper.getWritableDatabase();
+    Set<Long>      threadIds      = new HashSet<>();
+
+    database.beginTransaction();
+
+    try {
+      for (long smsId : smsIds) {
+        threadIds.add(smsDatabase.deleteWithoutThreadUpdate(smsId));
+      }
+
+      for (long mmsId : mmsIds) {
+        threadIds.add(mmsDatabase.deleteWithoutThreadUpdate(mmsId));
+      }
+
+      for (long threadId : threadIds) {
+        threadDatabase.update(threadId, false);
+      }
+
+      database.setTransactionSuccessful();
+    } finally {
+      database.endTransaction();
+    }
+
+    notifyConversationListeners(threadIds);
+  }
+
   public void incrementDeliveryReceiptCount(SyncMessageId syncMessageId) {
     DatabaseFactory.getSmsDatabase(context).incrementDeliveryReceiptCount(syncMessageId);
     DatabaseFactory.getMmsDatabase(context).incrementDeliveryReceiptCount(syncMessageId);
   }
 
   private Cursor queryTables(String[] projection, String selection, String order, String limit) {
+    return queryTables(projection, selection, selection, order, limit);
+  }
+
+  private Cursor queryTables(String[] projection, String smsSelection, String mmsSelection, String order, String limit) {
     String[] mmsProjection = {MmsDatabase.DATE_SENT + " AS " + MmsSmsColumns.NORMALIZED_DATE_SENT,
                               MmsDatabase.DATE_RECEIVED + " AS " + MmsSmsColumns.NORMALIZED_DATE_RECEIVED,
                               MmsDatabase.TABLE_NAME + "." + MmsDatabase.ID + " AS " + MmsSmsColumns.ID,
@@ -281,9 +348,9 @@ public class MmsSmsDatabase extends Database {
     smsColumnsPresent.add(SmsDatabase.STATUS);
 
     @SuppressWarnings("deprecation")
-    String mmsSubQuery = mmsQueryBuilder.buildUnionSubQuery(TRANSPORT, mmsProjection, mmsColumnsPresent, 4, MMS_TRANSPORT, selection, null, null, null);
+    String mmsSubQuery = mmsQueryBuilder.buildUnionSubQuery(TRANSPORT, mmsProjection, mmsColumnsPresent, 4, MMS_TRANSPORT, mmsSelection, null, null, null);
     @SuppressWarnings("deprecation")
-    String smsSubQuery = smsQueryBuilder.buildUnionSubQuery(TRANSPORT, smsProjection, smsColumnsPresent, 4, SMS_TRANSPORT, selection, null, null, null);
+    String smsSubQuery = smsQueryBuilder.buildUnionSubQuery(TRANSPORT, smsProjection, smsColumnsPresent, 4, SMS_TRANSPORT, smsSelection, null, null, null);
 
     SQLiteQueryBuilder unionQueryBuilder = new SQLiteQueryBuilder();
     String unionQuery = unionQueryBuilder.buildUnionQuery(new String[] {smsSubQuery, mmsSubQuery}, order, limit);
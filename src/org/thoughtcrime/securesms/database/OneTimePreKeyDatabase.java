@@ -0,0 +1,86 @@
+package org.thoughtcrime.securesms.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import org.whispersystems.libsignal.state.PreKeyRecord;
+
+import java.io.IOException;
+
+public class OneTimePreKeyDatabase extends Database {
+
+  private static final String TAG = OneTimePreKeyDatabase.class.getSimpleName();
+
+  static final String TABLE_NAME = "one_time_prekeys";
+
+  private static final String ID     = "_id";
+  static final         String KEY_ID = "key_id";
+  static final         String RECORD = "record";
+
+  public static final String CREATE_TABLE = "CREATE TABLE " + TABLE_NAME +
+      " (" + ID + " INTEGER PRIMARY KEY, " +
+      KEY_ID + " INTEGER UNIQUE, " +
+      RECORD + " BLOB NOT NULL);";
+
+  OneTimePreKeyDatabase(Context context, SQLiteOpenHelper databaseHelper) {
+    super(context, databaseHelper);
+  }
+
+  public @Nullable PreKeyRecord getPreKey(int keyId) {
+    SQLiteDatabase database = databaseHelper.getReadableDatabase();
+    Cursor         cursor   = null;
+
+    try {
+      cursor = database.query(TABLE_NAME, new String[] {RECORD}, KEY_ID + " = ?",
+                              new String[] {String.valueOf(keyId)},
+                              null, null, null);
+
+      if (cursor != null && cursor.moveToFirst()) {
+        return new PreKeyRecord(cursor.getBlob(cursor.getColumnIndexOrThrow(RECORD)));
+      }
+    } catch (IOException e) {
+      Log.w(TAG, e);
+    } finally {
+      if (cursor != null) cursor.close();
+    }
+
+    return null;
+  }
+
+  public void insertPreKey(int keyId, @NonNull PreKeyRecord record) {
+    SQLiteDatabase database = databaseHelper.getWritableDatabase();
+
+    ContentValues contentValues = new ContentValues(2);
+    contentValues.put(KEY_ID, keyId);
+    contentValues.put(RECORD, record.serialize());
+
+    database.replace(TABLE_NAME, null, contentValues);
+  }
+
+  public boolean containsPreKey(int keyId) {
+    SQLiteDatabase database = databaseHelper.getReadableDatabase();
+    Cursor         cursor   = null;
+
+    try {
+      cursor = database.query(TABLE_NAME, new String[] {ID}, KEY_ID + " = ?",
+                              new String[] {String.valueOf(keyId)},
+                              null, null, null);
+
+      return cursor != null && cursor.moveToFirst();
+    } finally {
+      if (cursor != null) cursor.close();
+    }
+  }
+
+  public void removePreKey(int keyId) {
+    SQLiteDatabase database = databaseHelper.getWritableDatabase();
+    database.delete(TABLE_NAME, KEY_ID + " = ?", new String[] {String.valueOf(keyId)});
+  }
+
+}
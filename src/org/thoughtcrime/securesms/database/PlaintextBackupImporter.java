@@ -2,10 +2,12 @@ package org.thoughtcrime.securesms.database;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteStatement;
 import android.os.Environment;
 import android.provider.Telephony;
+import android.text.TextUtils;
 import android.util.Log;
 
 import android.util.Pair;
@@ -14,9 +16,11 @@ import org.thoughtcrime.securesms.attachments.AttachmentId;
 import org.thoughtcrime.securesms.crypto.MasterCipher;
 import org.thoughtcrime.securesms.crypto.MasterSecret;
 import org.thoughtcrime.securesms.crypto.MasterSecretUnion;
+import org.thoughtcrime.securesms.database.backup.AttachmentSpoolingInputStream.SpooledPart;
 import org.thoughtcrime.securesms.database.backup.MmsBackupItem;
 import org.thoughtcrime.securesms.database.backup.PlaintextBackupExporter;
 import org.thoughtcrime.securesms.database.backup.SmsBackupItem;
+import org.thoughtcrime.securesms.database.backup.TombstoneBackupItem;
 import org.thoughtcrime.securesms.database.backup.XmlBackupReader;
 import org.thoughtcrime.securesms.database.backup.BackupItem;
 import org.thoughtcrime.securesms.mms.MmsException;
@@ -25,6 +29,7 @@ import org.thoughtcrime.securesms.recipients.Recipients;
 import org.thoughtcrime.securesms.util.Base64;
 import org.thoughtcrime.securesms.util.GroupUtil;
 import org.thoughtcrime.securesms.util.MediaUtil;
+import org.thoughtcrime.securesms.util.Util;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.ByteArrayInputStream;
@@ -33,6 +38,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -42,10 +48,30 @@ public class PlaintextBackupImporter {
 
   public static final String TAG = PlaintextBackupImporter.class.getSimpleName();
 
+  private static final int CHUNK_SIZE                   = 500;
+  private static final int DEFERRED_INDEX_MESSAGE_COUNT = 10000;
+
+  /**
+   * Imports the full backup, then applies the deltas written against it in
+   * order.
+   */
   public static void importPlaintextFromSd(Context context, MasterSecret masterSecret)
       throws NoExternalStorageException, IOException
   {
-    Log.w(TAG, "importPlaintext()");
+    importPlaintext(context, masterSecret, getPlaintextExportFile());
+
+    for (File delta : PlaintextBackupExporter.getPlaintextDeltaFiles()) {
+      importPlaintext(context, masterSecret, delta);
+    }
+  }
+
+  /**
+   * Imports a single backup file, either a full backup or a delta.
+   */
+  public static void importPlaintext(Context context, MasterSecret masterSecret, File file)
+      throws IOException
+  {
+    Log.w(TAG, "importPlaintext(" + file.getName() + ")");
     SmsDatabase    smsDatabase    = DatabaseFactory.getSmsDatabase(context);
     SQLiteDatabase transaction = smsDatabase.beginTransaction();
     MmsDatabase    mmsDatabase    = DatabaseFactory.getMmsDatabase(context);
@@ -53,11 +79,24 @@ public class PlaintextBackupImporter {
     MmsAddressDatabase addressDatabase = DatabaseFactory.getMmsAddressDatabase(context);
     GroupDatabase groupDatabase = DatabaseFactory.getGroupDatabase(context);
 
+    ImportCheckpoint checkpoint = ImportCheckpoint.load(transaction, file);
+    XmlBackupReader  backup     = null;
+    List<File>       chunkParts = new ArrayList<>();
+    boolean          complete   = false;
+
     try {
-      ThreadDatabase threads         = DatabaseFactory.getThreadDatabase(context);
-      XmlBackupReader backup          = new XmlBackupReader(getPlaintextExportFile().getAbsolutePath());
-      MasterCipher   masterCipher    = new MasterCipher(masterSecret);
-      Set<Long>      modifiedThreads = new HashSet<>();
+      ThreadDatabase    threads         = DatabaseFactory.getThreadDatabase(context);
+      MasterCipher      masterCipher    = new MasterCipher(masterSecret);
+      Map<String, Long> threadIds       = new HashMap<>();
+      int               chunkCount      = 0;
+      boolean           started         = false;
+
+      backup = new XmlBackupReader(file.getAbsolutePath(), checkpoint.offset, masterSecret,
+                                   context.getDir("parts", Context.MODE_PRIVATE));
+
+      if (checkpoint.offset > 0) {
+        Log.w(TAG, "Resuming import at offset " + checkpoint.offset + " after " + checkpoint.messageCount + " messages");
+      }
 
       SQLiteStatement mmsStatement = mmsDatabase.createInsertStatement(transaction);
       SQLiteStatement smsStatement = smsDatabase.createInsertStatement(transaction);
@@ -66,6 +105,40 @@ public class PlaintextBackupImporter {
       BackupItem msg;
 
       while ((msg = backup.getNext()) != null) {
+        if (!started) {
+          started = true;
+
+          if (checkpoint.offset == 0 && backup.getCount() >= DEFERRED_INDEX_MESSAGE_COUNT) {
+            checkpoint.indexesDropped = true;
+          }
+
+          if (checkpoint.indexesDropped) {
+            Log.w(TAG, "Dropping message indexes until the import is done");
+            executeStatements(transaction, SmsDatabase.DROP_INDEXS);
+            executeStatements(transaction, MmsDatabase.DROP_INDEXS);
+          }
+        }
+
+        if (chunkCount >= CHUNK_SIZE && backup.getMessageOffset() > 0) {
+          checkpoint.offset = backup.getMessageOffset();
+          checkpoint.save(transaction);
+
+          transaction.setTransactionSuccessful();
+          transaction.endTransaction();
+          transaction.beginTransaction();
+
+          chunkParts.clear();
+          chunkCount = 0;
+        }
+
+        chunkCount++;
+
+        if (msg instanceof TombstoneBackupItem) {
+          long threadId = applyTombstone(context, transaction, threads, threadIds, smsDatabase, mmsDatabase, (TombstoneBackupItem) msg);
+          if (threadId != -1) checkpoint.threads.add(threadId);
+          continue;
+        }
+
         if (msg.getAddress() == null || msg.getAddress().equals("null")) {
           Log.i(TAG, "did not import message with null address");
           continue;
@@ -74,7 +147,7 @@ public class PlaintextBackupImporter {
           Log.i(TAG, "did not import message with unhandled type: " + msg.getType());
           continue;
         }
-        final long threadId = getThreadId(context, threads, msg);
+        final long threadId = getThreadId(context, threads, threadIds, msg);
 
         if (msg instanceof SmsBackupItem) {
           addSmstoStatement(smsStatement, (SmsBackupItem) msg, threadId, masterCipher);
@@ -100,49 +173,188 @@ public class PlaintextBackupImporter {
 
           addressDatabase.insertAddressesForId(messageId, mms.getAddresses());
           for (Map<String, String> part : mms.parts) {
-            insertAttachment(masterSecret, messageId, part, attachmentDatabase);
+            insertAttachment(masterSecret, messageId, part, backup, attachmentDatabase, chunkParts);
           }
 
         }
 
-        modifiedThreads.add(threadId);
+        checkpoint.messageCount++;
+        checkpoint.threads.add(threadId);
+      }
+
+      // The thread updates below look messages up by thread
+      if (checkpoint.indexesDropped) {
+        executeStatements(transaction, SmsDatabase.CREATE_INDEXS);
+        executeStatements(transaction, MmsDatabase.CREATE_INDEXS);
       }
 
-      for (long threadId : modifiedThreads) {
+      for (long threadId : checkpoint.threads) {
         threads.update(threadId, true);
-        mmsDatabase.notifyConversationListeners(threadId);
-        smsDatabase.notifyConversationListeners(threadId);
       }
 
+      ImportCheckpoint.clear(transaction);
       transaction.setTransactionSuccessful();
+      complete = true;
 
-      Log.w(TAG, "Exited loop");
+      Log.w(TAG, "Exited loop after " + checkpoint.messageCount + " messages");
     } catch (XmlPullParserException e) {
       Log.w(TAG, e);
       throw new IOException("XML Parsing error!");
     } finally {
       transaction.endTransaction();
+      if (backup != null) backup.close();
+
+      if (!complete) {
+        DatabaseFactory.getThreadDatabase(context).clearRecipientsCache();
+
+        // The rows of the chunk that rolled back are gone, so are their parts
+        for (File part : chunkParts) {
+          if (!part.delete()) Log.w(TAG, "Couldn't delete " + part);
+        }
+      }
+
+      if (!complete && checkpoint.indexesDropped) {
+        executeStatements(transaction, SmsDatabase.CREATE_INDEXS);
+        executeStatements(transaction, MmsDatabase.CREATE_INDEXS);
+      }
+    }
+
+    for (long threadId : checkpoint.threads) {
+      mmsDatabase.notifyConversationListeners(threadId);
+      smsDatabase.notifyConversationListeners(threadId);
+    }
+  }
+
+  /**
+   * Deletes the messages a tombstone matches, which are those in its thread
+   * with its sent date and direction.  Incoming messages also have to match
+   * the sender, our own are matched without the address, since the one
+   * stored for an outgoing message depends on how it was imported.
+   *
+   * The thread is left for the end of the import to update, so it can't
+   * disappear from under the cached thread ids while messages are still
+   * being added to it.
+   *
+   * @return the id of the tombstone's thread, or -1 if it has none.
+   */
+  private static long applyTombstone(Context context, SQLiteDatabase database, ThreadDatabase threads,
+                                     Map<String, Long> threadIds, SmsDatabase smsDatabase, MmsDatabase mmsDatabase,
+                                     TombstoneBackupItem tombstone)
+  {
+    long threadId = getTombstoneThreadId(context, threads, threadIds, tombstone);
+
+    if (threadId == -1) {
+      Log.w(TAG, "No thread for tombstone, skipping");
+      return -1;
+    }
+
+    for (long messageId : getTombstoneMatches(database, SmsDatabase.TABLE_NAME, SmsDatabase.DATE_SENT, SmsDatabase.TYPE, threadId, tombstone)) {
+      smsDatabase.deleteWithoutThreadUpdate(messageId);
+    }
+
+    for (long messageId : getTombstoneMatches(database, MmsDatabase.TABLE_NAME, MmsDatabase.DATE_SENT, MmsDatabase.MESSAGE_BOX, threadId, tombstone)) {
+      mmsDatabase.deleteWithoutThreadUpdate(messageId);
+    }
+
+    return threadId;
+  }
+
+  /**
+   * @return the id of the tombstone's thread, or -1 if there isn't one. A
+   * tombstone never creates a thread.
+   */
+  private static long getTombstoneThreadId(Context context, ThreadDatabase threads, Map<String, Long> threadIds,
+                                           TombstoneBackupItem tombstone)
+  {
+    String threadAddress = tombstone.getThreadAddress();
+    if (threadAddress == null) return -1;
+
+    Long cached = threadIds.get(threadAddress);
+    if (cached != null) return cached;
+
+    Recipients recipients = RecipientFactory.getRecipientsFromString(context, threadAddress, false);
+    long       id         = threads.getThreadIdIfExistsFor(recipients);
+
+    if (id != -1) threadIds.put(threadAddress, id);
+    return id;
+  }
+
+  private static List<Long> getTombstoneMatches(SQLiteDatabase database, String table, String dateSentColumn,
+                                                String typeColumn, long threadId, TombstoneBackupItem tombstone)
+  {
+    String       outgoing = "(" + typeColumn + " & " + MmsSmsColumns.Types.BASE_TYPE_MASK + ") IN (" +
+                            Util.join(MmsSmsColumns.Types.OUTGOING_MESSAGE_TYPES, ",") + ")";
+    List<Long>   matches  = new ArrayList<>(1);
+    String       where;
+    String[]     args;
+    Cursor       cursor   = null;
+
+    if (tombstone.isOutgoing()) {
+      where = dateSentColumn + " = ? AND " + MmsSmsColumns.THREAD_ID + " = ? AND " + outgoing;
+      args  = new String[] {String.valueOf(tombstone.getDateSent()), String.valueOf(threadId)};
+    } else {
+      where = dateSentColumn + " = ? AND " + MmsSmsColumns.THREAD_ID + " = ? AND " + MmsSmsColumns.ADDRESS + " = ? AND NOT " + outgoing;
+      args  = new String[] {String.valueOf(tombstone.getDateSent()), String.valueOf(threadId), String.valueOf(tombstone.getAddress())};
+    }
+
+    try {
+      cursor = database.query(table, new String[] {MmsSmsColumns.ID}, where, args, null, null, null);
+
+      while (cursor != null && cursor.moveToNext()) {
+        matches.add(cursor.getLong(0));
+      }
+    } finally {
+      if (cursor != null)
+        cursor.close();
+    }
+
+    return matches;
+  }
+
+  private static void executeStatements(SQLiteDatabase database, String[] statements) {
+    for (String statement : statements) {
+      database.execSQL(statement);
     }
   }
 
+  /**
+   * Puts back the message indexes an import dropped if it was killed before
+   * it could, which {@link DatabaseFactory} checks for when the database is
+   * opened.
+   */
+  static void restoreInterruptedIndexes(SQLiteDatabase database) {
+    if (ImportCheckpoint.hasDroppedIndexes(database)) {
+      Log.w(TAG, "Restoring the message indexes of an interrupted import");
+      executeStatements(database, SmsDatabase.CREATE_INDEXS);
+      executeStatements(database, MmsDatabase.CREATE_INDEXS);
+      ImportCheckpoint.setIndexesRestored(database);
+    }
+  }
 
-  private static AttachmentId insertAttachment(MasterSecret masterSecret, long mmsId, Map<String, String> mmspart, AttachmentDatabase attachmentDatabase) {
+  private static AttachmentId insertAttachment(MasterSecret masterSecret, long mmsId, Map<String, String> mmspart,
+                                               XmlBackupReader backup, AttachmentDatabase attachmentDatabase,
+                                               List<File> chunkParts)
+  {
     Log.w(TAG, "Inserting attachment for mms id: " + mmsId);
 
     long uniqueId = System.currentTimeMillis();
 
     Pair<File, Long> partData;
+    SpooledPart      spooledPart = backup.takeSpooledPart(mmspart.get("data"));
 
-    try {
-      for (String key: mmspart.keySet()) {
+    if (spooledPart != null) {
+      partData = new Pair<>(spooledPart.getFile(), spooledPart.getSize());
+    } else {
+      try {
+        InputStream in = new Base64.InputStream(new ByteArrayInputStream(mmspart.get("data").getBytes(Charset.forName("UTF-8"))), Base64.DECODE | Base64.DONT_GUNZIP);
+        partData = attachmentDatabase.setAttachmentData(masterSecret, in);
+      }
+      catch (MmsException e) {
+        throw new RuntimeException(e);
       }
-      InputStream in = new Base64.InputStream(new ByteArrayInputStream(mmspart.get("data").getBytes(Charset.forName("UTF-8"))), Base64.DECODE | Base64.DONT_GUNZIP);
-      partData = attachmentDatabase.setAttachmentData(masterSecret, in);
-    }
-    catch (MmsException e) {
-      throw new RuntimeException(e);
     }
 
+    chunkParts.add(partData.first);
 
     ContentValues contentValues = new ContentValues();
     contentValues.put(AttachmentDatabase.MMS_ID, mmsId);
@@ -175,12 +387,16 @@ public class PlaintextBackupImporter {
   }
 
 
-  private static long getThreadId(Context context, ThreadDatabase threads, BackupItem msg) {
+  private static long getThreadId(Context context, ThreadDatabase threads, Map<String, Long> threadIds, BackupItem msg) {
     final String recipientAddress = (msg.getSignalGroupAddress() == null) ?
             msg.getAddress().replace('~', ',') :  // '~' is the address separator used by SMSB&R
             msg.getSignalGroupAddress();
+    Long cached = threadIds.get(recipientAddress);
+    if (cached != null) return cached;
+
     final Recipients recipients = RecipientFactory.getRecipientsFromString(context, recipientAddress, false);
     long id = threads.getThreadIdFor(recipients);
+    threadIds.put(recipientAddress, id);
     return id;
   }
 
@@ -192,11 +408,12 @@ public class PlaintextBackupImporter {
     addLongToStatement(statement, 5, sms.getProtocol());
     addLongToStatement(statement, 6, sms.getRead());
     addLongToStatement(statement, 7, sms.getDeliveryStatus());
-    if (sms.getSignalType() == null) addTranslatedTypeToStatement(statement, 8, sms.getType());
-    else addLongToStatement(statement, 8, sms.getSignalType());
+    long type = (sms.getSignalType() == null) ? getTranslatedType(sms.getType()) : sms.getSignalType();
+
+    addLongToStatement(statement, 8, type);
     addNullToStatement(statement, 9); //REPLY_PATH_PRESENT
     addStringToStatement(statement, 10, sms.getSubject());
-    addEncryptedStringToStatement(masterCipher, statement, 11, sms.getBody());
+    addEncryptedStringToStatement(masterCipher, statement, 11, sms.getBody(), type);
     addStringToStatement(statement, 12, sms.getServiceCenter());
     addLongToStatement(statement, 13, threadId);
   }
@@ -207,13 +424,13 @@ public class PlaintextBackupImporter {
             mms.attributes.get(Telephony.BaseMmsColumns.DATE_SENT),
             mms.attributes.get(Telephony.BaseMmsColumns.DATE),
             (mms.getSignalType() == null) ?
-                    String.valueOf(SmsDatabase.Types.translateFromSystemBaseType(mms.getMessageBox()) | SmsDatabase.Types.ENCRYPTION_SYMMETRIC_BIT) :
+                    String.valueOf(getTranslatedType(mms.getMessageBox())) :
                     String.valueOf(mms.getSignalType()),
             mms.attributes.get(Telephony.BaseMmsColumns.READ),
             mms.attributes.get(Telephony.BaseMmsColumns.MESSAGE_ID),
             mms.attributes.get(Telephony.BaseMmsColumns.SUBJECT),
             mms.attributes.get(Telephony.BaseMmsColumns.SUBJECT_CHARSET),
-            (mms.getBody() == null) ? null : masterCipher.encryptBody(mms.getBody()),
+            null, // BODY, bound below
             String.valueOf(mms.getPartCount()),
             mms.attributes.get(Telephony.BaseMmsColumns.CONTENT_TYPE),
             mms.attributes.get(Telephony.BaseMmsColumns.CONTENT_LOCATION),
@@ -248,10 +465,11 @@ public class PlaintextBackupImporter {
       if ((arg == null) || "null".equals(arg)) statement.bindNull(i);
       else statement.bindString(i, arg);
     }
+    addEncryptedStringToStatement(masterCipher, statement, 9, mms.getBody(), Long.parseLong(args[3]));
 //    addLongToStatement(statement, 1, threadId);                              // THREAD_ID
 //    addLongToStatement(statement, 2, mms.getDateSent());                     // DATE_SENT
 //    addLongToStatement(statement, 3, mms.getDate());                         // DATE_RECEIVED
-//    addTranslatedTypeToStatement(statement, 4, mms.getMessageBox());         // MESSAGE_BOX
+//    addLongToStatement(statement, 4, getTranslatedType(mms.getMessageBox())); // MESSAGE_BOX
 //    addLongToStatement(statement, 5, mms.getRead());                         // READ                  DEFAULT 0
 //    addNullToStatement(statement, 6);                                        // MESSAGE_ID
 //    addStringToStatement(statement, 7, mms.getSubject());                    // SUBJECT
@@ -287,16 +505,18 @@ public class PlaintextBackupImporter {
 //    addLongToStatement(statement, 37, mms.getSubscriptionId());              // SUBSCRIPTION_ID       DEFAULT -1
   }
 
-  private static void addEncryptedStringToStatement(MasterCipher masterCipher, SQLiteStatement statement, int index, String value) {
+  private static void addEncryptedStringToStatement(MasterCipher masterCipher, SQLiteStatement statement,
+                                                    int index, String value, long type)
+  {
     if (value == null || value.equals("null")) {
       statement.bindNull(index);
     } else {
-      statement.bindString(index, masterCipher.encryptBody(value));
+      EncryptedBodyColumn.bindEncrypted(statement, index, masterCipher, value, type);
     }
   }
 
-  private static void addTranslatedTypeToStatement(SQLiteStatement statement, int index, int type) {
-    statement.bindLong(index, SmsDatabase.Types.translateFromSystemBaseType(type) | SmsDatabase.Types.ENCRYPTION_SYMMETRIC_BIT);
+  private static long getTranslatedType(int type) {
+    return SmsDatabase.Types.translateFromSystemBaseType(type) | SmsDatabase.Types.ENCRYPTION_SYMMETRIC_BIT;
   }
 
   private static void addStringToStatement(SQLiteStatement statement, int index, String value) {
@@ -319,4 +539,98 @@ public class PlaintextBackupImporter {
            ourType == MmsSmsColumns.Types.BASE_SENT_TYPE ||
            ourType == MmsSmsColumns.Types.BASE_SENT_FAILED_TYPE;
   }
+
+  /**
+   * How far an import got, kept in the database and committed with every
+   * chunk, so an interrupted import picks up after the last committed chunk
+   * instead of importing it twice.
+   */
+  static class ImportCheckpoint {
+
+    private static final String TABLE_NAME      = "plaintext_import_checkpoint";
+    private static final String ID              = "_id";
+    private static final String SOURCE          = "source";
+    private static final String FILE_OFFSET     = "file_offset";
+    private static final String MESSAGE_COUNT   = "message_count";
+    private static final String THREADS         = "threads";
+    private static final String INDEXES_DROPPED = "indexes_dropped";
+
+    static final String CREATE_TABLE = "CREATE TABLE " + TABLE_NAME + " (" + ID + " INTEGER PRIMARY KEY, " +
+                                       SOURCE + " TEXT, " + FILE_OFFSET + " INTEGER, " + MESSAGE_COUNT + " INTEGER, " +
+                                       THREADS + " TEXT, " + INDEXES_DROPPED + " INTEGER);";
+
+    private final String    source;
+    private final Set<Long> threads = new HashSet<>();
+
+    private long    offset;
+    private int     messageCount;
+    private boolean indexesDropped;
+
+    private ImportCheckpoint(String source) {
+      this.source = source;
+    }
+
+    static ImportCheckpoint load(SQLiteDatabase database, File file) {
+      ImportCheckpoint checkpoint = new ImportCheckpoint(file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified());
+      Cursor           cursor     = null;
+
+      try {
+        cursor = database.query(TABLE_NAME, null, SOURCE + " = ?", new String[] {checkpoint.source}, null, null, null);
+
+        if (cursor != null && cursor.moveToFirst()) {
+          checkpoint.offset         = cursor.getLong(cursor.getColumnIndexOrThrow(FILE_OFFSET));
+          checkpoint.messageCount   = cursor.getInt(cursor.getColumnIndexOrThrow(MESSAGE_COUNT));
+          checkpoint.indexesDropped = cursor.getInt(cursor.getColumnIndexOrThrow(INDEXES_DROPPED)) == 1;
+
+          String threadIds = cursor.getString(cursor.getColumnIndexOrThrow(THREADS));
+
+          if (!TextUtils.isEmpty(threadIds)) {
+            for (String threadId : threadIds.split(",")) {
+              checkpoint.threads.add(Long.parseLong(threadId));
+            }
+          }
+        }
+      } finally {
+        if (cursor != null)
+          cursor.close();
+      }
+
+      return checkpoint;
+    }
+
+    void save(SQLiteDatabase database) {
+      ContentValues values = new ContentValues();
+      values.put(ID, 1);
+      values.put(SOURCE, source);
+      values.put(FILE_OFFSET, offset);
+      values.put(MESSAGE_COUNT, messageCount);
+      values.put(THREADS, TextUtils.join(",", threads));
+      values.put(INDEXES_DROPPED, indexesDropped ? 1 : 0);
+
+      database.replace(TABLE_NAME, null, values);
+    }
+
+    static void clear(SQLiteDatabase database) {
+      database.delete(TABLE_NAME, null, null);
+    }
+
+    static boolean hasDroppedIndexes(SQLiteDatabase database) {
+      Cursor cursor = null;
+
+      try {
+        cursor = database.query(TABLE_NAME, new String[] {ID}, INDEXES_DROPPED + " = 1", null, null, null, null);
+        return cursor != null && cursor.moveToFirst();
+      } finally {
+        if (cursor != null)
+          cursor.close();
+      }
+    }
+
+    static void setIndexesRestored(SQLiteDatabase database) {
+      ContentValues values = new ContentValues();
+      values.put(INDEXES_DROPPED, 0);
+
+      database.update(TABLE_NAME, values, null, null);
+    }
+  }
 }
@@ -0,0 +1,208 @@
+package org.thoughtcrime.securesms.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import org.thoughtcrime.securesms.crypto.MasterCipher;
+import org.thoughtcrime.securesms.crypto.MasterSecret;
+import org.thoughtcrime.securesms.util.Conversions;
+import org.thoughtcrime.securesms.util.Util;
+import org.whispersystems.libsignal.InvalidMessageException;
+import org.whispersystems.libsignal.state.SessionRecord;
+import org.whispersystems.libsignal.state.SessionState;
+import org.whispersystems.signalservice.api.push.SignalServiceAddress;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.whispersystems.libsignal.state.StorageProtos.SessionStructure;
+
+/**
+ * Moves the legacy file-per-record session, prekey and signed prekey stores into the
+ * database. Records that can't be read yet (because they are still encrypted and no
+ * master secret is available) are left in place for a later pass.
+ * <p>
+ * The migrated files are only handed back, so that the caller can delete them once the
+ * transaction holding their rows has committed.  A file that outlives a crash after the
+ * commit doesn't replace the row it was already moved to.
+ */
+public class ProtocolStoreMigrator {
+
+  private static final String TAG = ProtocolStoreMigrator.class.getSimpleName();
+
+  private static final String SESSIONS_DIRECTORY      = "sessions-v2";
+  private static final String PREKEY_DIRECTORY        = "prekeys";
+  private static final String SIGNED_PREKEY_DIRECTORY = "signed_prekeys";
+  private static final String INDEX_FILE_NAME         = "index.dat";
+
+  private static final int SESSION_SINGLE_STATE_VERSION   = 1;
+  private static final int SESSION_ARCHIVE_STATES_VERSION = 2;
+  private static final int SESSION_PLAINTEXT_VERSION      = 3;
+  private static final int PREKEY_PLAINTEXT_VERSION       = 2;
+
+  /**
+   * @return the files that were migrated, to be deleted after the transaction commits.
+   */
+  public static @NonNull List<File> migrate(@NonNull Context context, @NonNull SQLiteDatabase db,
+                                            @Nullable MasterSecret masterSecret)
+  {
+    MasterCipher masterCipher = masterSecret != null ? new MasterCipher(masterSecret) : null;
+    List<File>   migrated     = new LinkedList<>();
+
+    migrateSessions(new File(context.getFilesDir(), SESSIONS_DIRECTORY), db, masterCipher, migrated);
+    migratePreKeys(new File(context.getFilesDir(), PREKEY_DIRECTORY), OneTimePreKeyDatabase.TABLE_NAME,
+                   OneTimePreKeyDatabase.KEY_ID, OneTimePreKeyDatabase.RECORD, db, masterCipher, migrated);
+    migratePreKeys(new File(context.getFilesDir(), SIGNED_PREKEY_DIRECTORY), SignedPreKeyDatabase.TABLE_NAME,
+                   SignedPreKeyDatabase.KEY_ID, SignedPreKeyDatabase.RECORD, db, masterCipher, migrated);
+
+    return migrated;
+  }
+
+  public static void delete(@NonNull List<File> migrated) {
+    for (File file : migrated) {
+      if (!file.delete()) Log.w(TAG, "Failed to delete " + file);
+    }
+  }
+
+  private static void migrateSessions(File directory, SQLiteDatabase db, @Nullable MasterCipher masterCipher,
+                                      List<File> migratedFiles)
+  {
+    File[] sessions = directory.listFiles();
+
+    if (sessions == null) return;
+
+    int migrated = 0;
+
+    for (File session : sessions) {
+      if (!session.isFile()) continue;
+
+      try {
+        String[] parts       = session.getName().split("[.]");
+        long     recipientId = Long.parseLong(parts[0]);
+        int      deviceId    = parts.length > 1 ? Integer.parseInt(parts[1]) : SignalServiceAddress.DEFAULT_DEVICE_ID;
+        byte[]   record      = readSessionRecord(session, masterCipher);
+
+        if (record == null) continue;
+
+        ContentValues values = new ContentValues(3);
+        values.put(SessionDatabase.RECIPIENT_ID, recipientId);
+        values.put(SessionDatabase.DEVICE, deviceId);
+        values.put(SessionDatabase.RECORD, record);
+
+        db.insertWithOnConflict(SessionDatabase.TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+        migratedFiles.add(session);
+        migrated++;
+      } catch (NumberFormatException | IOException | InvalidMessageException e) {
+        Log.w(TAG, e);
+      }
+    }
+
+    Log.w(TAG, "Migrated " + migrated + " sessions.");
+  }
+
+  private static void migratePreKeys(File directory, String table, String keyIdColumn, String recordColumn,
+                                     SQLiteDatabase db, @Nullable MasterCipher masterCipher,
+                                     List<File> migratedFiles)
+  {
+    File[] records = directory.listFiles();
+
+    if (records == null) return;
+
+    for (File record : records) {
+      if (!record.isFile() || INDEX_FILE_NAME.equals(record.getName())) continue;
+
+      try {
+        int    keyId      = Integer.parseInt(record.getName());
+        byte[] serialized = readPreKeyRecord(record, masterCipher);
+
+        if (serialized == null) continue;
+
+        ContentValues values = new ContentValues(2);
+        values.put(keyIdColumn, keyId);
+        values.put(recordColumn, serialized);
+
+        db.insertWithOnConflict(table, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+        migratedFiles.add(record);
+      } catch (NumberFormatException | IOException | InvalidMessageException e) {
+        Log.w(TAG, e);
+      }
+    }
+  }
+
+  private static @Nullable byte[] readSessionRecord(File file, @Nullable MasterCipher masterCipher)
+      throws IOException, InvalidMessageException
+  {
+    InputStream in = new FileInputStream(file);
+
+    try {
+      int    version    = readInteger(in);
+      byte[] serialized = readBlob(in);
+
+      if (version > SESSION_PLAINTEXT_VERSION) {
+        throw new IOException("Unknown version: " + version);
+      }
+
+      if (version < SESSION_PLAINTEXT_VERSION) {
+        if (masterCipher == null) return null;
+        serialized = masterCipher.decryptBytes(serialized);
+      }
+
+      if (version == SESSION_SINGLE_STATE_VERSION) {
+        return new SessionRecord(new SessionState(SessionStructure.parseFrom(serialized))).serialize();
+      } else if (version >= SESSION_ARCHIVE_STATES_VERSION) {
+        return serialized;
+      } else {
+        throw new IOException("Unknown version: " + version);
+      }
+    } finally {
+      Util.close(in);
+    }
+  }
+
+  private static @Nullable byte[] readPreKeyRecord(File file, @Nullable MasterCipher masterCipher)
+      throws IOException, InvalidMessageException
+  {
+    InputStream in = new FileInputStream(file);
+
+    try {
+      int    version    = readInteger(in);
+      byte[] serialized = readBlob(in);
+
+      if (version > PREKEY_PLAINTEXT_VERSION) {
+        throw new IOException("Invalid version: " + version);
+      }
+
+      if (version < PREKEY_PLAINTEXT_VERSION) {
+        if (masterCipher == null) return null;
+        serialized = masterCipher.decryptBytes(serialized);
+      }
+
+      return serialized;
+    } finally {
+      Util.close(in);
+    }
+  }
+
+  private static byte[] readBlob(InputStream in) throws IOException {
+    int    length    = readInteger(in);
+    byte[] blobBytes = new byte[length];
+
+    Util.readFully(in, blobBytes);
+    return blobBytes;
+  }
+
+  private static int readInteger(InputStream in) throws IOException {
+    byte[] integer = new byte[4];
+    Util.readFully(in, integer);
+    return Conversions.byteArrayToInt(integer);
+  }
+
+}
@@ -18,12 +18,20 @@ import org.thoughtcrime.securesms.util.Util;
 import org.whispersystems.libsignal.util.guava.Optional;
 
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 
 
 public class RecipientPreferenceDatabase extends Database {
 
   private static final String TAG = RecipientPreferenceDatabase.class.getSimpleName();
   private static final String RECIPIENT_PREFERENCES_URI = "content://textsecure/recipients/";
+  private static final int    MAX_QUERY_ARGUMENTS       = 500;
 
   private static final String TABLE_NAME              = "recipient_preferences";
   private static final String ID                      = "_id";
@@ -98,37 +106,77 @@ public class RecipientPreferenceDatabase extends Database {
                               null, null, null);
 
       if (cursor != null && cursor.moveToNext()) {
-        boolean blocked               = cursor.getInt(cursor.getColumnIndexOrThrow(BLOCK))                == 1;
-        String  notification          = cursor.getString(cursor.getColumnIndexOrThrow(NOTIFICATION));
-        int     vibrateState          = cursor.getInt(cursor.getColumnIndexOrThrow(VIBRATE));
-        long    muteUntil             = cursor.getLong(cursor.getColumnIndexOrThrow(MUTE_UNTIL));
-        String  serializedColor       = cursor.getString(cursor.getColumnIndexOrThrow(COLOR));
-        Uri     notificationUri       = notification == null ? null : Uri.parse(notification);
-        boolean seenInviteReminder    = cursor.getInt(cursor.getColumnIndexOrThrow(SEEN_INVITE_REMINDER)) == 1;
-        int     defaultSubscriptionId = cursor.getInt(cursor.getColumnIndexOrThrow(DEFAULT_SUBSCRIPTION_ID));
-        int     expireMessages        = cursor.getInt(cursor.getColumnIndexOrThrow(EXPIRE_MESSAGES));
-
-        MaterialColor color;
+        return Optional.of(getRecipientsPreferences(cursor));
+      }
+
+      return Optional.absent();
+    } finally {
+      if (cursor != null) cursor.close();
+    }
+  }
+
+  /**
+   * Loads the preferences of many individual recipients with one query per
+   * batch of ids.  Recipients without any preferences are absent from the result.
+   */
+  public @NonNull Map<Long, RecipientsPreferences> getIndividualRecipientsPreferences(@NonNull Collection<Long> recipientIds) {
+    Map<Long, RecipientsPreferences> results  = new HashMap<>();
+    SQLiteDatabase                   database = databaseHelper.getReadableDatabase();
+    List<String>                     batch    = new LinkedList<>();
+    Iterator<Long>                   iterator = recipientIds.iterator();
+
+    while (iterator.hasNext()) {
+      batch.add(String.valueOf(iterator.next()));
+
+      if (batch.size() == MAX_QUERY_ARGUMENTS || !iterator.hasNext()) {
+        String placeholders = Util.join(Collections.nCopies(batch.size(), "?"), ",");
+        Cursor cursor       = null;
 
         try {
-          color = serializedColor == null ? null : MaterialColor.fromSerialized(serializedColor);
-        } catch (MaterialColor.UnknownColorException e) {
-          Log.w(TAG, e);
-          color = null;
+          cursor = database.query(TABLE_NAME, null, RECIPIENT_IDS + " IN (" + placeholders + ")",
+                                  batch.toArray(new String[0]), null, null, null);
+
+          while (cursor != null && cursor.moveToNext()) {
+            long recipientId = Long.parseLong(cursor.getString(cursor.getColumnIndexOrThrow(RECIPIENT_IDS)));
+            results.put(recipientId, getRecipientsPreferences(cursor));
+          }
+        } finally {
+          if (cursor != null) cursor.close();
         }
 
-        Log.w(TAG, "Muted until: " + muteUntil);
-
-        return Optional.of(new RecipientsPreferences(blocked, muteUntil,
-                                                     VibrateState.fromId(vibrateState),
-                                                     notificationUri, color, seenInviteReminder,
-                                                     defaultSubscriptionId, expireMessages));
+        batch.clear();
       }
+    }
 
-      return Optional.absent();
-    } finally {
-      if (cursor != null) cursor.close();
+    return results;
+  }
+
+  private @NonNull RecipientsPreferences getRecipientsPreferences(@NonNull Cursor cursor) {
+    boolean blocked               = cursor.getInt(cursor.getColumnIndexOrThrow(BLOCK))                == 1;
+    String  notification          = cursor.getString(cursor.getColumnIndexOrThrow(NOTIFICATION));
+    int     vibrateState          = cursor.getInt(cursor.getColumnIndexOrThrow(VIBRATE));
+    long    muteUntil             = cursor.getLong(cursor.getColumnIndexOrThrow(MUTE_UNTIL));
+    String  serializedColor       = cursor.getString(cursor.getColumnIndexOrThrow(COLOR));
+    Uri     notificationUri       = notification == null ? null : Uri.parse(notification);
+    boolean seenInviteReminder    = cursor.getInt(cursor.getColumnIndexOrThrow(SEEN_INVITE_REMINDER)) == 1;
+    int     defaultSubscriptionId = cursor.getInt(cursor.getColumnIndexOrThrow(DEFAULT_SUBSCRIPTION_ID));
+    int     expireMessages        = cursor.getInt(cursor.getColumnIndexOrThrow(EXPIRE_MESSAGES));
+
+    MaterialColor color;
+
+    try {
+      color = serializedColor == null ? null : MaterialColor.fromSerialized(serializedColor);
+    } catch (MaterialColor.UnknownColorException e) {
+      Log.w(TAG, e);
+      color = null;
     }
+
+    Log.w(TAG, "Muted until: " + muteUntil);
+
+    return new RecipientsPreferences(blocked, muteUntil,
+                                     VibrateState.fromId(vibrateState),
+                                     notificationUri, color, seenInviteReminder,
+                                     defaultSubscriptionId, expireMessages);
   }
 
   public void setColor(Recipients recipients, MaterialColor color) {
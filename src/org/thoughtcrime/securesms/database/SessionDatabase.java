@@ -0,0 +1,152 @@
+package org.thoughtcrime.securesms.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.whispersystems.signalservice.api.push.SignalServiceAddress;
+
+import java.util.LinkedList;
+import java.util.List;
+
+public class SessionDatabase extends Database {
+
+  static final String TABLE_NAME = "sessions";
+
+  private static final String ID           = "_id";
+  static final         String RECIPIENT_ID = "recipient_id";
+  static final         String DEVICE       = "device";
+  static final         String RECORD       = "record";
+
+  public static final String CREATE_TABLE = "CREATE TABLE " + TABLE_NAME +
+      " (" + ID + " INTEGER PRIMARY KEY, " + RECIPIENT_ID + " INTEGER NOT NULL, " +
+      DEVICE + " INTEGER NOT NULL, " + RECORD + " BLOB NOT NULL, " +
+      "UNIQUE(" + RECIPIENT_ID + "," + DEVICE + ") ON CONFLICT REPLACE);";
+
+  SessionDatabase(Context context, SQLiteOpenHelper databaseHelper) {
+    super(context, databaseHelper);
+  }
+
+  public @Nullable byte[] load(long recipientId, int deviceId) {
+    SQLiteDatabase database = databaseHelper.getReadableDatabase();
+    Cursor         cursor   = null;
+
+    try {
+      cursor = database.query(TABLE_NAME, new String[] {RECORD},
+                              RECIPIENT_ID + " = ? AND " + DEVICE + " = ?",
+                              new String[] {String.valueOf(recipientId), String.valueOf(deviceId)},
+                              null, null, null);
+
+      if (cursor != null && cursor.moveToFirst()) {
+        return cursor.getBlob(cursor.getColumnIndexOrThrow(RECORD));
+      }
+    } finally {
+      if (cursor != null) cursor.close();
+    }
+
+    return null;
+  }
+
+  /**
+   * Applies a batch of session writes in a single transaction. A null record deletes the
+   * session for that recipient and device.
+   */
+  public void store(@NonNull List<SessionWrite> writes) {
+    SQLiteDatabase database = databaseHelper.getWritableDatabase();
+
+    database.beginTransaction();
+
+    try {
+      for (SessionWrite write : writes) {
+        if (write.record == null) {
+          database.delete(TABLE_NAME, RECIPIENT_ID + " = ? AND " + DEVICE + " = ?",
+                          new String[] {String.valueOf(write.recipientId), String.valueOf(write.deviceId)});
+        } else {
+          ContentValues values = new ContentValues(3);
+          values.put(RECIPIENT_ID, write.recipientId);
+          values.put(DEVICE, write.deviceId);
+          values.put(RECORD, write.record);
+
+          database.replace(TABLE_NAME, null, values);
+        }
+      }
+
+      database.setTransactionSuccessful();
+    } finally {
+      database.endTransaction();
+    }
+  }
+
+  public @NonNull List<Integer> getSubDevices(long recipientId) {
+    SQLiteDatabase database = databaseHelper.getReadableDatabase();
+    List<Integer>  results  = new LinkedList<>();
+    Cursor         cursor   = null;
+
+    try {
+      cursor = database.query(TABLE_NAME, new String[] {DEVICE},
+                              RECIPIENT_ID + " = ? AND " + DEVICE + " != ?",
+                              new String[] {String.valueOf(recipientId), String.valueOf(SignalServiceAddress.DEFAULT_DEVICE_ID)},
+                              null, null, null);
+
+      while (cursor != null && cursor.moveToNext()) {
+        results.add(cursor.getInt(0));
+      }
+    } finally {
+      if (cursor != null) cursor.close();
+    }
+
+    return results;
+  }
+
+  public @NonNull List<SessionRow> getAll() {
+    SQLiteDatabase   database = databaseHelper.getReadableDatabase();
+    List<SessionRow> results  = new LinkedList<>();
+    Cursor           cursor   = null;
+
+    try {
+      cursor = database.query(TABLE_NAME, new String[] {RECIPIENT_ID, DEVICE}, null, null, null, null, null);
+
+      while (cursor != null && cursor.moveToNext()) {
+        results.add(new SessionRow(cursor.getLong(0), cursor.getInt(1)));
+      }
+    } finally {
+      if (cursor != null) cursor.close();
+    }
+
+    return results;
+  }
+
+  public static class SessionRow {
+    private final long recipientId;
+    private final int  deviceId;
+
+    public SessionRow(long recipientId, int deviceId) {
+      this.recipientId = recipientId;
+      this.deviceId    = deviceId;
+    }
+
+    public long getRecipientId() {
+      return recipientId;
+    }
+
+    public int getDeviceId() {
+      return deviceId;
+    }
+  }
+
+  public static class SessionWrite {
+    private final           long   recipientId;
+    private final           int    deviceId;
+    private final @Nullable byte[] record;
+
+    public SessionWrite(long recipientId, int deviceId, @Nullable byte[] record) {
+      this.recipientId = recipientId;
+      this.deviceId    = deviceId;
+      this.record      = record;
+    }
+  }
+}
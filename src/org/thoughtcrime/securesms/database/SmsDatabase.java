@@ -23,6 +23,7 @@ import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.database.sqlite.SQLiteStatement;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.telephony.PhoneNumberUtils;
 import android.text.TextUtils;
 import android.util.Log;
@@ -93,6 +94,15 @@ public class SmsDatabase extends MessagingDatabase {
     "CREATE INDEX IF NOT EXISTS sms_thread_date_index ON " + TABLE_NAME + " (" + THREAD_ID + ", " + DATE_RECEIVED + ");"
   };
 
+  public static final String[] DROP_INDEXS = {
+    "DROP INDEX IF EXISTS sms_thread_id_index;",
+    "DROP INDEX IF EXISTS sms_read_index;",
+    "DROP INDEX IF EXISTS sms_read_and_notified_and_thread_id_index;",
+    "DROP INDEX IF EXISTS sms_type_index;",
+    "DROP INDEX IF EXISTS sms_date_sent_index;",
+    "DROP INDEX IF EXISTS sms_thread_date_index;"
+  };
+
   private static final String[] MESSAGE_PROJECTION = new String[] {
       ID, THREAD_ID, ADDRESS, ADDRESS_DEVICE_ID, PERSON,
       DATE_RECEIVED + " AS " + NORMALIZED_DATE_RECEIVED,
@@ -419,11 +429,19 @@ public class SmsDatabase extends MessagingDatabase {
   }
 
   protected Pair<Long, Long> updateMessageBodyAndType(long messageId, String body, long maskOff, long maskOn) {
+    return updateStoredBodyAndType(messageId, EncryptedBodyColumn.toStored(body, maskOn), maskOff, maskOn);
+  }
+
+  protected Pair<Long, Long> updateMessageBodyAndType(long messageId, byte[] ciphertext, long maskOff, long maskOn) {
+    return updateStoredBodyAndType(messageId, EncryptedBodyColumn.toStored(ciphertext), maskOff, maskOn);
+  }
+
+  private Pair<Long, Long> updateStoredBodyAndType(long messageId, Object body, long maskOff, long maskOn) {
     SQLiteDatabase db = databaseHelper.getWritableDatabase();
     db.execSQL("UPDATE " + TABLE_NAME + " SET " + BODY + " = ?, " +
                    TYPE + " = (" + TYPE + " & " + (Types.TOTAL_MASK - maskOff) + " | " + maskOn + ") " +
                    "WHERE " + ID + " = ?",
-               new String[] {body, messageId + ""});
+               new Object[] {body, messageId + ""});
 
     long threadId = getThreadIdForMessage(messageId);
 
@@ -438,15 +456,16 @@ public class SmsDatabase extends MessagingDatabase {
     Reader           reader = readerFor(getMessage(messageId));
     SmsMessageRecord record = reader.getNext();
 
+    long          type          = (record.getType() & ~Types.BASE_TYPE_MASK) | Types.BASE_INBOX_TYPE;
     ContentValues contentValues = new ContentValues();
-    contentValues.put(TYPE, (record.getType() & ~Types.BASE_TYPE_MASK) | Types.BASE_INBOX_TYPE);
+    contentValues.put(TYPE, type);
     contentValues.put(ADDRESS, record.getIndividualRecipient().getNumber());
     contentValues.put(ADDRESS_DEVICE_ID, record.getRecipientDeviceId());
     contentValues.put(DATE_RECEIVED, System.currentTimeMillis());
     contentValues.put(DATE_SENT, record.getDateSent());
     contentValues.put(PROTOCOL, 31337);
     contentValues.put(READ, 0);
-    contentValues.put(BODY, record.getBody().getBody());
+    EncryptedBodyColumn.put(contentValues, BODY, record.getBody().getBody(), type);
     contentValues.put(THREAD_ID, record.getThreadId());
     contentValues.put(EXPIRES_IN, record.getExpiresIn());
 
@@ -502,6 +521,14 @@ public class SmsDatabase extends MessagingDatabase {
   }
 
   protected Optional<InsertResult> insertMessageInbox(IncomingTextMessage message, long type) {
+    return insertMessageInbox(message, null, type);
+  }
+
+  /**
+   * @param ciphertext the symmetrically encrypted body to store in place of
+   *                   the message's own, or null to store the message's.
+   */
+  protected Optional<InsertResult> insertMessageInbox(IncomingTextMessage message, @Nullable byte[] ciphertext, long type) {
     if (message.isJoined()) {
       type = (type & (Types.TOTAL_MASK - Types.BASE_TYPE_MASK)) | Types.JOINED_TYPE;
     } else if (message.isPreKeyBundle()) {
@@ -565,7 +592,10 @@ public class SmsDatabase extends MessagingDatabase {
 
     values.put(REPLY_PATH_PRESENT, message.isReplyPathPresent());
     values.put(SERVICE_CENTER, message.getServiceCenterAddress());
-    values.put(BODY, message.getMessageBody());
+
+    if (ciphertext != null) values.put(BODY, EncryptedBodyColumn.toStored(ciphertext));
+    else                    EncryptedBodyColumn.put(values, BODY, message.getMessageBody(), type);
+
     values.put(TYPE, type);
     values.put(THREAD_ID, threadId);
 
@@ -605,6 +635,17 @@ public class SmsDatabase extends MessagingDatabase {
   protected long insertMessageOutbox(long threadId, OutgoingTextMessage message,
                                      long type, boolean forceSms, long date,
                                      InsertListener insertListener)
+  {
+    return insertMessageOutbox(threadId, message, null, type, forceSms, date, insertListener);
+  }
+
+  /**
+   * @param ciphertext the symmetrically encrypted body to store in place of
+   *                   the message's own, or null to store the message's.
+   */
+  protected long insertMessageOutbox(long threadId, OutgoingTextMessage message, @Nullable byte[] ciphertext,
+                                     long type, boolean forceSms, long date,
+                                     InsertListener insertListener)
   {
     if      (message.isKeyExchange())   type |= Types.KEY_EXCHANGE_BIT;
     else if (message.isSecureMessage()) type |= (Types.SECURE_MESSAGE_BIT | Types.PUSH_MESSAGE_BIT);
@@ -619,7 +660,10 @@ public class SmsDatabase extends MessagingDatabase {
     ContentValues contentValues = new ContentValues(6);
     contentValues.put(ADDRESS, PhoneNumberUtils.formatNumber(address));
     contentValues.put(THREAD_ID, threadId);
-    contentValues.put(BODY, message.getMessageBody());
+
+    if (ciphertext != null) contentValues.put(BODY, EncryptedBodyColumn.toStored(ciphertext));
+    else                    EncryptedBodyColumn.put(contentValues, BODY, message.getMessageBody(), type);
+
     contentValues.put(DATE_RECEIVED, System.currentTimeMillis());
     contentValues.put(DATE_SENT, date);
     contentValues.put(READ, 1);
@@ -659,6 +703,20 @@ public class SmsDatabase extends MessagingDatabase {
     return db.query(TABLE_NAME, MESSAGE_PROJECTION, null, null, null, null, ID, skip + "," + limit);
   }
 
+  Cursor getMessagesInRange(long afterId, long lastId) {
+    SQLiteDatabase db = databaseHelper.getReadableDatabase();
+    return db.query(TABLE_NAME, MESSAGE_PROJECTION, ID + " > ? AND " + ID + " <= ?",
+                    new String[] {String.valueOf(afterId), String.valueOf(lastId)}, null, null, ID);
+  }
+
+  public long[] getMessagePageBoundaries(int pageSize) {
+    return getIdPageBoundaries(TABLE_NAME, pageSize);
+  }
+
+  public int getMessageCountAfter(long afterId) {
+    return getRowCountAfter(TABLE_NAME, afterId);
+  }
+
   Cursor getOutgoingMessages() {
     String outgoingSelection = TYPE + " & "  + Types.BASE_TYPE_MASK + " = " + Types.BASE_OUTBOX_TYPE;
     SQLiteDatabase db        = databaseHelper.getReadableDatabase();
@@ -694,13 +752,18 @@ public class SmsDatabase extends MessagingDatabase {
   }
 
   public boolean deleteMessage(long messageId) {
+    long    threadId      = deleteWithoutThreadUpdate(messageId);
+    boolean threadDeleted = DatabaseFactory.getThreadDatabase(context).update(threadId, false);
+    notifyConversationListeners(threadId);
+    return threadDeleted;
+  }
+
+  /*package*/ long deleteWithoutThreadUpdate(long messageId) {
     Log.w("MessageDatabase", "Deleting: " + messageId);
     SQLiteDatabase db = databaseHelper.getWritableDatabase();
     long threadId     = getThreadIdForMessage(messageId);
     db.delete(TABLE_NAME, ID_WHERE, new String[] {messageId+""});
-    boolean threadDeleted = DatabaseFactory.getThreadDatabase(context).update(threadId, false);
-    notifyConversationListeners(threadId);
-    return threadDeleted;
+    return threadId;
   }
 
   private boolean isDuplicate(IncomingTextMessage message, long threadId) {
@@ -898,12 +961,12 @@ public class SmsDatabase extends MessagingDatabase {
 
     protected DisplayRecord.Body getBody(Cursor cursor) {
       long type   = cursor.getLong(cursor.getColumnIndexOrThrow(SmsDatabase.TYPE));
-      String body = cursor.getString(cursor.getColumnIndexOrThrow(SmsDatabase.BODY));
+      int  column = cursor.getColumnIndexOrThrow(SmsDatabase.BODY);
 
       if (Types.isSymmetricEncryption(type)) {
-        return new DisplayRecord.Body(body, false);
+        return new DisplayRecord.Body(EncryptedBodyColumn.getEncoded(cursor, column), false);
       } else {
-        return new DisplayRecord.Body(body, true);
+        return new DisplayRecord.Body(cursor.getString(column), true);
       }
     }
 
@@ -45,7 +45,7 @@ public class SmsMigrator {
     if (cursor.isNull(columnIndex)) {
       statement.bindNull(index);
     } else {
-      statement.bindString(index, encrypt(masterSecret, cursor.getString(columnIndex)));
+      statement.bindBlob(index, EncryptedBodyColumn.toStored(encrypt(masterSecret, cursor.getString(columnIndex))));
     }
   }
 
@@ -157,10 +157,10 @@ public class SmsMigrator {
     else                  return RecipientFactory.getRecipientsFromString(context, sb.toString(), true);
   }
 
-  private static String encrypt(MasterSecret masterSecret, String body)
+  private static byte[] encrypt(MasterSecret masterSecret, String body)
   {
     MasterCipher masterCipher = new MasterCipher(masterSecret);
-    return masterCipher.encryptBody(body);
+    return masterCipher.encryptBytes(body.getBytes());
   }
 
   private static void migrateConversation(Context context, MasterSecret masterSecret,
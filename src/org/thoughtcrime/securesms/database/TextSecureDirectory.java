@@ -1,24 +1,29 @@
 package org.thoughtcrime.securesms.database;
 
+import android.annotation.SuppressLint;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.net.Uri;
+import android.os.Build;
 import android.provider.ContactsContract.CommonDataKinds.Phone;
 import android.text.TextUtils;
 import android.util.Log;
 
+import org.thoughtcrime.securesms.util.PhoneNumberNormalizer;
 import org.whispersystems.signalservice.api.push.ContactTokenDetails;
-import org.whispersystems.signalservice.api.util.InvalidNumberException;
-import org.whispersystems.signalservice.api.util.PhoneNumberFormatter;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TextSecureDirectory {
 
@@ -61,8 +66,15 @@ public class TextSecureDirectory {
     return instance;
   }
 
+  private static final int CAPABILITY_REGISTERED = 1;
+  private static final int CAPABILITY_VOICE      = 1 << 1;
+  private static final int CAPABILITY_VIDEO      = 1 << 2;
+
   private final DatabaseHelper databaseHelper;
   private final Context        context;
+  private final Object         indexLock = new Object();
+
+  private volatile Map<String, Integer> index;
 
   private TextSecureDirectory(Context context) {
     this.context = context;
@@ -70,80 +82,92 @@ public class TextSecureDirectory {
   }
 
   public boolean isSecureTextSupported(String e164number) throws NotInDirectoryException {
-    if (e164number == null || e164number.length() == 0) {
-      return false;
-    }
-
-    SQLiteDatabase db = databaseHelper.getReadableDatabase();
-    Cursor cursor = null;
-
-    try {
-      cursor = db.query(TABLE_NAME,
-          new String[]{REGISTERED}, NUMBER + " = ?",
-          new String[] {e164number}, null, null, null);
+    return hasCapability(e164number, CAPABILITY_REGISTERED);
+  }
 
-      if (cursor != null && cursor.moveToFirst()) {
-        return cursor.getInt(0) == 1;
-      } else {
-        throw new NotInDirectoryException();
-      }
+  public boolean isSecureVoiceSupported(String e164number) throws NotInDirectoryException {
+    return hasCapability(e164number, CAPABILITY_VOICE);
+  }
 
-    } finally {
-      if (cursor != null)
-        cursor.close();
-    }
+  public boolean isSecureVideoSupported(String e164number) throws NotInDirectoryException {
+    return hasCapability(e164number, CAPABILITY_VIDEO);
   }
 
-  public boolean isSecureVoiceSupported(String e164number) throws NotInDirectoryException {
+  private boolean hasCapability(String e164number, int capability) throws NotInDirectoryException {
     if (TextUtils.isEmpty(e164number)) {
       return false;
     }
 
-    SQLiteDatabase db     = databaseHelper.getReadableDatabase();
-    Cursor         cursor = null;
-
-    try {
-      cursor = db.query(TABLE_NAME,
-                        new String[]{VOICE}, NUMBER + " = ?",
-                        new String[] {e164number}, null, null, null);
-
-      if (cursor != null && cursor.moveToFirst()) {
-        return cursor.getInt(0) == 1;
-      } else {
-        throw new NotInDirectoryException();
-      }
+    Integer capabilities = getIndex().get(e164number);
 
-    } finally {
-      if (cursor != null)
-        cursor.close();
+    if (capabilities == null) {
+      throw new NotInDirectoryException();
     }
+
+    return (capabilities & capability) != 0;
   }
 
-  public boolean isSecureVideoSupported(String e164number) throws NotInDirectoryException {
-    if (TextUtils.isEmpty(e164number)) {
-      return false;
+  /**
+   * The capability bits of every number in the directory, read from the
+   * database the first time they're needed and updated on every write after
+   * that.  Capability values are all small enough to be boxed from the
+   * Integer cache, so lookups don't allocate.
+   */
+  private Map<String, Integer> getIndex() {
+    Map<String, Integer> index = this.index;
+
+    if (index == null) {
+      synchronized (indexLock) {
+        index = this.index;
+
+        if (index == null) {
+          index = loadIndex();
+          this.index = index;
+        }
+      }
     }
 
-    SQLiteDatabase db     = databaseHelper.getReadableDatabase();
-    Cursor         cursor = null;
+    return index;
+  }
+
+  private Map<String, Integer> loadIndex() {
+    Map<String, Integer> results = new ConcurrentHashMap<>();
+    Cursor               cursor  = null;
 
     try {
-      cursor = db.query(TABLE_NAME,
-                        new String[]{VIDEO}, NUMBER + " = ?",
-                        new String[] {e164number}, null, null, null);
+      cursor = databaseHelper.getReadableDatabase().query(TABLE_NAME, new String[] {NUMBER, REGISTERED, VOICE, VIDEO},
+                                                          null, null, null, null, null);
 
-      if (cursor != null && cursor.moveToFirst()) {
-        return cursor.getInt(0) == 1;
-      } else {
-        throw new NotInDirectoryException();
+      while (cursor != null && cursor.moveToNext()) {
+        String number = cursor.getString(0);
+
+        if (number != null) {
+          results.put(number, getCapabilities(cursor.getInt(1) == 1, cursor.getInt(2) == 1, cursor.getInt(3) == 1));
+        }
       }
 
+      Log.w("Directory", "Loaded " + results.size() + " directory entries");
+      return results;
     } finally {
       if (cursor != null)
         cursor.close();
     }
   }
 
+  private void updateIndex(String number, boolean registered, boolean voice, boolean video) {
+    synchronized (indexLock) {
+      if (index != null && number != null) {
+        index.put(number, getCapabilities(registered, voice, video));
+      }
+    }
+  }
+
+  private static int getCapabilities(boolean registered, boolean voice, boolean video) {
+    return (registered ? CAPABILITY_REGISTERED : 0) |
+           (voice      ? CAPABILITY_VOICE      : 0) |
+           (video      ? CAPABILITY_VIDEO      : 0);
+  }
+
   public String getRelay(String e164number) {
     SQLiteDatabase database = databaseHelper.getReadableDatabase();
     Cursor         cursor   = null;
@@ -172,15 +196,32 @@ public class TextSecureDirectory {
     values.put(VOICE, token.isVoice());
     values.put(VIDEO, token.isVideo());
     db.replace(TABLE_NAME, null, values);
+
+    updateIndex(token.getNumber(), active, token.isVoice(), token.isVideo());
   }
 
+  /**
+   * Records the results of a directory query, rewriting only the rows whose
+   * registration state or capabilities differ from what's already stored.
+   */
   public void setNumbers(List<ContactTokenDetails> activeTokens, Collection<String> inactiveTokens) {
-    long timestamp    = System.currentTimeMillis();
-    SQLiteDatabase db = databaseHelper.getWritableDatabase();
+    long                 timestamp = System.currentTimeMillis();
+    Map<String, Entry>   existing  = getEntries();
+    Map<String, Integer> changed   = new HashMap<>();
+    SQLiteDatabase       db        = databaseHelper.getWritableDatabase();
+
     db.beginTransaction();
 
     try {
       for (ContactTokenDetails token : activeTokens) {
+        Entry entry = existing.get(token.getNumber());
+
+        if (entry != null && entry.registered && entry.voice == token.isVoice() &&
+            entry.video == token.isVideo() && TextUtils.equals(entry.relay, token.getRelay()))
+        {
+          continue;
+        }
+
         Log.w("Directory", "Adding active token: " + token.getNumber() + ", " + token.getToken() + ", video: " + token.isVideo());
         ContentValues values = new ContentValues();
         values.put(NUMBER, token.getNumber());
@@ -190,53 +231,147 @@ public class TextSecureDirectory {
         values.put(VOICE, token.isVoice());
         values.put(VIDEO, token.isVideo());
         db.replace(TABLE_NAME, null, values);
+        changed.put(token.getNumber(), getCapabilities(true, token.isVoice(), token.isVideo()));
       }
 
       for (String token : inactiveTokens) {
+        Entry entry = existing.get(token);
+
+        if (entry != null && !entry.registered) {
+          continue;
+        }
+
         ContentValues values = new ContentValues();
         values.put(NUMBER, token);
         values.put(REGISTERED, 0);
         values.put(TIMESTAMP, timestamp);
         db.replace(TABLE_NAME, null, values);
+        changed.put(token, getCapabilities(false, false, false));
       }
 
       db.setTransactionSuccessful();
     } finally {
       db.endTransaction();
     }
+
+    synchronized (indexLock) {
+      if (index != null) index.putAll(changed);
+    }
+
+    Log.w("Directory", "Updated " + changed.size() + " of " + (activeTokens.size() + inactiveTokens.size()) + " directory entries");
   }
 
-  public Set<String> getPushEligibleContactNumbers(String localNumber) {
-    final Uri         uri     = Phone.CONTENT_URI;
-    final Set<String> results = new HashSet<>();
-          Cursor      cursor  = null;
+  /**
+   * Scans every phone number in the system contacts along with every number
+   * already in the directory.
+   */
+  public ContactNumbers getPushEligibleContactNumbers(String localNumber) {
+    ContactNumbers contactNumbers = getContactNumbers(localNumber, 0);
+    Cursor         cursor         = null;
 
     try {
-      cursor = context.getContentResolver().query(uri, new String[] {Phone.NUMBER}, null, null, null);
+      final SQLiteDatabase readableDb = databaseHelper.getReadableDatabase();
+      if (readableDb != null) {
+        cursor = readableDb.query(TABLE_NAME, new String[]{NUMBER},
+            null, null, null, null, null);
+
+        while (cursor != null && cursor.moveToNext()) {
+          contactNumbers.numbers.add(cursor.getString(0));
+        }
+      }
+
+      return contactNumbers;
+    } finally {
+      if (cursor != null)
+        cursor.close();
+    }
+  }
+
+  /**
+   * Returns the numbers of contacts that changed after the given contacts
+   * timestamp and that aren't in the directory yet.  Those that are already
+   * registered don't need looking up again, but their contacts may still need
+   * updating, so they're returned as the registered numbers.
+   */
+  public ContactNumbers getNewContactNumbers(String localNumber, long updatedAfter) {
+    ContactNumbers       contactNumbers = getContactNumbers(localNumber, updatedAfter);
+    Iterator<String>     iterator       = contactNumbers.numbers.iterator();
+    Map<String, Integer> known          = getIndex();
+
+    while (iterator.hasNext()) {
+      String  number       = iterator.next();
+      Integer capabilities = known.get(number);
+
+      if (capabilities != null) {
+        if ((capabilities & CAPABILITY_REGISTERED) != 0) {
+          contactNumbers.registeredNumbers.add(number);
+        }
+
+        iterator.remove();
+      }
+    }
+
+    return contactNumbers;
+  }
+
+  public static boolean isIncrementalContactScanSupported() {
+    return Build.VERSION.SDK_INT >= 18;
+  }
+
+  @SuppressLint("NewApi")
+  private ContactNumbers getContactNumbers(String localNumber, long updatedAfter) {
+    final Uri         uri         = Phone.CONTENT_URI;
+    final Set<String> rawNumbers  = new HashSet<>();
+    final Set<String> results     = new HashSet<>();
+    final boolean     incremental = isIncrementalContactScanSupported();
+          long        lastUpdated = updatedAfter;
+          Cursor      cursor      = null;
+
+    String[] projection = incremental ? new String[] {Phone.NUMBER, Phone.CONTACT_LAST_UPDATED_TIMESTAMP}
+                                      : new String[] {Phone.NUMBER};
+    String   selection  = null;
+    String[] args       = null;
+
+    if (incremental && updatedAfter > 0) {
+      selection = Phone.CONTACT_LAST_UPDATED_TIMESTAMP + " > ?";
+      args      = new String[] {String.valueOf(updatedAfter)};
+    }
+
+    try {
+      cursor = context.getContentResolver().query(uri, projection, selection, args, null);
 
       while (cursor != null && cursor.moveToNext()) {
         final String rawNumber = cursor.getString(0);
+
+        if (incremental) {
+          lastUpdated = Math.max(lastUpdated, cursor.getLong(1));
+        }
+
         if (rawNumber != null) {
-          try {
-            final String e164Number = PhoneNumberFormatter.formatNumber(rawNumber, localNumber);
-            results.add(e164Number);
-          } catch (InvalidNumberException e) {
-            Log.w("Directory", "Invalid number: " + rawNumber);
-          }
+          rawNumbers.add(rawNumber);
         }
       }
 
+      results.addAll(PhoneNumberNormalizer.getInstance().normalize(rawNumbers, localNumber).values());
+
+      return new ContactNumbers(results, lastUpdated);
+    } finally {
       if (cursor != null)
         cursor.close();
+    }
+  }
 
-      final SQLiteDatabase readableDb = databaseHelper.getReadableDatabase();
-      if (readableDb != null) {
-        cursor = readableDb.query(TABLE_NAME, new String[]{NUMBER},
-            null, null, null, null, null);
+  private Map<String, Entry> getEntries() {
+    Map<String, Entry> results = new HashMap<>();
+    Cursor             cursor  = null;
 
-        while (cursor != null && cursor.moveToNext()) {
-          results.add(cursor.getString(0));
-        }
+    try {
+      cursor = databaseHelper.getReadableDatabase().query(TABLE_NAME, new String[] {NUMBER, REGISTERED, RELAY, VOICE, VIDEO},
+                                                          null, null, null, null, null);
+
+      while (cursor != null && cursor.moveToNext()) {
+        results.put(cursor.getString(0), new Entry(cursor.getInt(1) == 1, cursor.getString(2),
+                                                   cursor.getInt(3) == 1, cursor.getInt(4) == 1));
       }
 
       return results;
@@ -263,6 +398,51 @@ public class TextSecureDirectory {
     }
   }
 
+  public static class ContactNumbers {
+    private final Set<String> numbers;
+    private final Set<String> registeredNumbers = new HashSet<>();
+    private final long        lastUpdated;
+
+    private ContactNumbers(Set<String> numbers, long lastUpdated) {
+      this.numbers     = numbers;
+      this.lastUpdated = lastUpdated;
+    }
+
+    public Set<String> getNumbers() {
+      return numbers;
+    }
+
+    /**
+     * The numbers from an incremental scan that the directory already has as
+     * registered, which aren't included in {@link #getNumbers()}.
+     */
+    public Set<String> getRegisteredNumbers() {
+      return registeredNumbers;
+    }
+
+    /**
+     * The newest contact update timestamp seen by the scan, to be used as the
+     * starting point of the next incremental scan.
+     */
+    public long getLastUpdated() {
+      return lastUpdated;
+    }
+  }
+
+  private static class Entry {
+    private final boolean registered;
+    private final String  relay;
+    private final boolean voice;
+    private final boolean video;
+
+    private Entry(boolean registered, String relay, boolean voice, boolean video) {
+      this.registered = registered;
+      this.relay      = relay;
+      this.voice      = voice;
+      this.video      = video;
+    }
+  }
+
   private static class DatabaseHelper extends SQLiteOpenHelper {
 
     public DatabaseHelper(Context context, String name,
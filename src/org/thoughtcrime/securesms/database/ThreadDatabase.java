@@ -40,13 +40,18 @@ import org.thoughtcrime.securesms.mms.SlideDeck;
 import org.thoughtcrime.securesms.recipients.Recipient;
 import org.thoughtcrime.securesms.recipients.RecipientFactory;
 import org.thoughtcrime.securesms.recipients.Recipients;
+import org.thoughtcrime.securesms.util.LRUCache;
 import org.thoughtcrime.securesms.util.Util;
 import org.whispersystems.libsignal.InvalidMessageException;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class ThreadDatabase extends Database {
@@ -86,10 +91,28 @@ public class ThreadDatabase extends Database {
     "CREATE INDEX IF NOT EXISTS archived_count_index ON " + TABLE_NAME + " (" + ARCHIVED + ", " + MESSAGE_COUNT + ");",
   };
 
+  private static final int MAX_QUERY_ARGUMENTS = 500;
+
+  private final ThreadRecipientsCache recipientsCache = new ThreadRecipientsCache(1000);
+
   public ThreadDatabase(Context context, SQLiteOpenHelper databaseHelper) {
     super(context, databaseHelper);
   }
 
+  @Override
+  public void reset(SQLiteOpenHelper databaseHelper) {
+    super.reset(databaseHelper);
+    recipientsCache.clear();
+  }
+
+  /**
+   * Drops every cached thread, for callers whose transaction rolled back
+   * after creating or deleting threads.
+   */
+  public void clearRecipientsCache() {
+    recipientsCache.clear();
+  }
+
   private long[] getRecipientIds(Recipients recipients) {
     Set<Long>       recipientSet  = new HashSet<>();
     List<Recipient> recipientList = recipients.getRecipientsList();
@@ -132,8 +155,14 @@ public class ThreadDatabase extends Database {
 
     contentValues.put(MESSAGE_COUNT, 0);
 
-    SQLiteDatabase db = databaseHelper.getWritableDatabase();
-    return db.insert(TABLE_NAME, null, contentValues);
+    SQLiteDatabase db       = databaseHelper.getWritableDatabase();
+    long           threadId = db.insert(TABLE_NAME, null, contentValues);
+
+    if (threadId != -1) {
+      cacheRecipientIds(db, threadId, recipients);
+    }
+
+    return threadId;
   }
 
   private void updateThread(long threadId, long count, String body, @Nullable Uri attachment,
@@ -179,6 +208,7 @@ public class ThreadDatabase extends Database {
   private void deleteThread(long threadId) {
     SQLiteDatabase db = databaseHelper.getWritableDatabase();
     db.delete(TABLE_NAME, ID_WHERE, new String[] {threadId + ""});
+    recipientsCache.remove(threadId);
     notifyConversationListListeners();
   }
 
@@ -193,12 +223,18 @@ public class ThreadDatabase extends Database {
     where = where.substring(0, where.length() - 4);
 
     db.delete(TABLE_NAME, where, null);
+
+    for (long threadId : threadIds) {
+      recipientsCache.remove(threadId);
+    }
+
     notifyConversationListListeners();
   }
 
   private void deleteAllThreads() {
     SQLiteDatabase db = databaseHelper.getWritableDatabase();
     db.delete(TABLE_NAME, null, null);
+    recipientsCache.clear();
     notifyConversationListListeners();
   }
 
@@ -448,24 +484,7 @@ public class ThreadDatabase extends Database {
   }
 
   public long getThreadIdIfExistsFor(Recipients recipients) {
-    long[] recipientIds    = getRecipientIds(recipients);
-    String recipientsList  = getRecipientsAsString(recipientIds);
-    SQLiteDatabase db      = databaseHelper.getReadableDatabase();
-    String where           = RECIPIENT_IDS + " = ?";
-    String[] recipientsArg = new String[] {recipientsList};
-    Cursor cursor          = null;
-
-    try {
-      cursor = db.query(TABLE_NAME, new String[]{ID}, where, recipientsArg, null, null, null);
-
-      if (cursor != null && cursor.moveToFirst())
-        return cursor.getLong(cursor.getColumnIndexOrThrow(ID));
-      else
-        return -1L;
-    } finally {
-      if (cursor != null)
-        cursor.close();
-    }
+    return getThreadIdFor(getRecipientsAsString(getRecipientIds(recipients)));
   }
 
   public long getThreadIdFor(Recipients recipients) {
@@ -473,20 +492,34 @@ public class ThreadDatabase extends Database {
   }
 
   public long getThreadIdFor(Recipients recipients, int distributionType) {
-    long[] recipientIds    = getRecipientIds(recipients);
-    String recipientsList  = getRecipientsAsString(recipientIds);
-    SQLiteDatabase db      = databaseHelper.getReadableDatabase();
-    String where           = RECIPIENT_IDS + " = ?";
-    String[] recipientsArg = new String[] {recipientsList};
-    Cursor cursor          = null;
+    long[] recipientIds   = getRecipientIds(recipients);
+    String recipientsList = getRecipientsAsString(recipientIds);
+    long   threadId       = getThreadIdFor(recipientsList);
+
+    if (threadId != -1) return threadId;
+    else                return createThreadForRecipients(recipientsList, recipientIds.length, distributionType);
+  }
+
+  private long getThreadIdFor(String recipientsList) {
+    long cachedThreadId = recipientsCache.getThreadId(recipientsList);
+
+    if (cachedThreadId != -1) return cachedThreadId;
+
+    SQLiteDatabase db            = databaseHelper.getReadableDatabase();
+    String         where         = RECIPIENT_IDS + " = ?";
+    String[]       recipientsArg = new String[] {recipientsList};
+    Cursor         cursor        = null;
 
     try {
       cursor = db.query(TABLE_NAME, new String[]{ID}, where, recipientsArg, null, null, null);
 
-      if (cursor != null && cursor.moveToFirst())
-        return cursor.getLong(cursor.getColumnIndexOrThrow(ID));
-      else
-        return createThreadForRecipients(recipientsList, recipientIds.length, distributionType);
+      if (cursor != null && cursor.moveToFirst()) {
+        long threadId = cursor.getLong(cursor.getColumnIndexOrThrow(ID));
+        cacheRecipientIds(db, threadId, recipientsList);
+        return threadId;
+      } else {
+        return -1L;
+      }
     } finally {
       if (cursor != null)
         cursor.close();
@@ -494,14 +527,21 @@ public class ThreadDatabase extends Database {
   }
 
   public @Nullable Recipients getRecipientsForThreadId(long threadId) {
-    SQLiteDatabase db = databaseHelper.getReadableDatabase();
-    Cursor cursor     = null;
+    String recipientIds = recipientsCache.getRecipientIds(threadId);
+
+    if (recipientIds != null) {
+      return RecipientFactory.getRecipientsForIds(context, recipientIds, false);
+    }
+
+    SQLiteDatabase db     = databaseHelper.getReadableDatabase();
+    Cursor         cursor = null;
 
     try {
-      cursor = db.query(TABLE_NAME, null, ID + " = ?", new String[] {threadId+""}, null, null, null);
+      cursor = db.query(TABLE_NAME, new String[] {RECIPIENT_IDS}, ID + " = ?", new String[] {threadId+""}, null, null, null);
 
       if (cursor != null && cursor.moveToFirst()) {
-        String recipientIds = cursor.getString(cursor.getColumnIndexOrThrow(RECIPIENT_IDS));
+        recipientIds = cursor.getString(cursor.getColumnIndexOrThrow(RECIPIENT_IDS));
+        cacheRecipientIds(db, threadId, recipientIds);
         return RecipientFactory.getRecipientsForIds(context, recipientIds, false);
       }
     } finally {
@@ -512,6 +552,65 @@ public class ThreadDatabase extends Database {
     return null;
   }
 
+  /**
+   * Looks up the recipients of many threads, reading only the threads that
+   * aren't already cached.  Threads that don't exist are absent from the result.
+   */
+  public Map<Long, Recipients> getRecipientsForThreadIds(Collection<Long> threadIds) {
+    Map<Long, String> recipientIds = new HashMap<>(threadIds.size());
+    List<Long>        missing      = new ArrayList<>();
+
+    for (long threadId : threadIds) {
+      String cached = recipientsCache.getRecipientIds(threadId);
+
+      if (cached != null) recipientIds.put(threadId, cached);
+      else                missing.add(threadId);
+    }
+
+    SQLiteDatabase db = databaseHelper.getReadableDatabase();
+
+    for (List<Long> batch : Util.partition(missing, MAX_QUERY_ARGUMENTS)) {
+      Cursor cursor = null;
+
+      try {
+        cursor = db.query(TABLE_NAME, new String[] {ID, RECIPIENT_IDS},
+                          ID + " IN (" + TextUtils.join(",", batch) + ")",
+                          null, null, null, null);
+
+        while (cursor != null && cursor.moveToNext()) {
+          long   threadId   = cursor.getLong(0);
+          String recipients = cursor.getString(1);
+
+          cacheRecipientIds(db, threadId, recipients);
+          recipientIds.put(threadId, recipients);
+        }
+      } finally {
+        if (cursor != null)
+          cursor.close();
+      }
+    }
+
+    RecipientFactory.prefetchRecipients(context, recipientIds.values(), false);
+
+    Map<Long, Recipients> results = new HashMap<>(recipientIds.size());
+
+    for (Map.Entry<Long, String> entry : recipientIds.entrySet()) {
+      results.put(entry.getKey(), RecipientFactory.getRecipientsForIds(context, entry.getValue(), false));
+    }
+
+    return results;
+  }
+
+  /**
+   * Only caches what's been committed, since a thread created or read inside
+   * a transaction disappears if it rolls back.
+   */
+  private void cacheRecipientIds(SQLiteDatabase db, long threadId, String recipientIds) {
+    if (!db.inTransaction()) {
+      recipientsCache.put(threadId, recipientIds);
+    }
+  }
+
   public void updateReadState(long threadId) {
     int unreadCount = DatabaseFactory.getMmsSmsDatabase(context).getUnreadCount(threadId);
 
@@ -566,6 +665,52 @@ public class ThreadDatabase extends Database {
     return thumbnail != null ? thumbnail.getThumbnailUri() : null;
   }
 
+  /**
+   * The recipient ids of recently used threads in both directions.  A thread's
+   * recipients never change once it's created, so entries only need to be
+   * dropped when the thread is deleted.
+   */
+  static class ThreadRecipientsCache {
+
+    private final LRUCache<Long, String> recipientIdsByThread;
+    private final Map<String, Long>      threadsByRecipientIds = new HashMap<>();
+
+    ThreadRecipientsCache(int maxSize) {
+      this.recipientIdsByThread = new LRUCache<Long, String>(maxSize) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+          boolean remove = super.removeEldestEntry(eldest);
+          if (remove) threadsByRecipientIds.remove(eldest.getValue());
+          return remove;
+        }
+      };
+    }
+
+    synchronized void put(long threadId, String recipientIds) {
+      recipientIdsByThread.put(threadId, recipientIds);
+      threadsByRecipientIds.put(recipientIds, threadId);
+    }
+
+    synchronized long getThreadId(String recipientIds) {
+      Long threadId = threadsByRecipientIds.get(recipientIds);
+      return threadId == null ? -1 : threadId;
+    }
+
+    synchronized @Nullable String getRecipientIds(long threadId) {
+      return recipientIdsByThread.get(threadId);
+    }
+
+    synchronized void remove(long threadId) {
+      String recipientIds = recipientIdsByThread.remove(threadId);
+      if (recipientIds != null) threadsByRecipientIds.remove(recipientIds);
+    }
+
+    synchronized void clear() {
+      recipientIdsByThread.clear();
+      threadsByRecipientIds.clear();
+    }
+  }
+
   public static interface ProgressListener {
     public void onProgress(int complete, int total);
   }
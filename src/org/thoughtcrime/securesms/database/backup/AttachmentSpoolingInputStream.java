@@ -0,0 +1,322 @@
+package org.thoughtcrime.securesms.database.backup;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import org.thoughtcrime.securesms.crypto.EncryptingPartOutputStream;
+import org.thoughtcrime.securesms.crypto.MasterSecret;
+import org.thoughtcrime.securesms.util.Base64;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * Sits between a backup file and the XML parser, and decodes the data attribute
+ * of every part element straight into an encrypted part file as it goes by.
+ * The parser only sees a short reference in place of the attribute value, so
+ * an attachment is never held in memory, however large it is.
+ *
+ * It also notes the file offset of every sms, mms and tombstone element it
+ * passes, so that an import can be resumed from the start of any of them.
+ */
+public class AttachmentSpoolingInputStream extends InputStream {
+
+  private static final String TAG = AttachmentSpoolingInputStream.class.getSimpleName();
+
+  private static final int    BUFFER_SIZE      = 64 * 1024;
+  private static final int    MAX_NAME_LENGTH  = 16;
+  private static final String PART_TAG         = "part";
+  private static final String SMS_TAG          = "sms";
+  private static final String MMS_TAG          = "mms";
+  private static final String TOMBSTONE_TAG    = "tombstone";
+  private static final String DATA_ATTRIBUTE   = "data";
+  private static final String REFERENCE_PREFIX = "spooled-part:";
+
+  private static final int STATE_TEXT      = 0;
+  private static final int STATE_TAG_NAME  = 1;
+  private static final int STATE_TAG       = 2;
+  private static final int STATE_VALUE     = 3;
+
+  private final InputStream  in;
+  private final MasterSecret masterSecret;
+  private final File         directory;
+
+  private final Map<String, SpooledPart> spooled        = new HashMap<>();
+  private final LinkedList<Long>         messageOffsets = new LinkedList<>();
+
+  private final byte[]        buffer = new byte[BUFFER_SIZE];
+  private       int           position;
+  private       int           limit;
+  private       long          bufferOffset;
+  private       byte[]        pending;
+  private       int           pendingPosition;
+
+  private final StringBuilder name = new StringBuilder(MAX_NAME_LENGTH);
+  private       int           state = STATE_TEXT;
+  private       long          tagOffset;
+  private       boolean       inPart;
+  private       boolean       awaitingValue;
+  private       byte          quote;
+  private       int           nextReference;
+
+  public AttachmentSpoolingInputStream(@NonNull InputStream in,
+                                       @NonNull MasterSecret masterSecret,
+                                       @NonNull File directory)
+  {
+    this(in, 0, masterSecret, directory);
+  }
+
+  /**
+   * @param startOffset the offset in the backup file that in starts at.
+   */
+  public AttachmentSpoolingInputStream(@NonNull InputStream in,
+                                       long startOffset,
+                                       @NonNull MasterSecret masterSecret,
+                                       @NonNull File directory)
+  {
+    this.in           = in;
+    this.bufferOffset = startOffset;
+    this.masterSecret = masterSecret;
+    this.directory    = directory;
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] single = new byte[1];
+    return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+  }
+
+  @Override
+  public int read(@NonNull byte[] output, int offset, int length) throws IOException {
+    if (length == 0) return 0;
+
+    if (pending != null) {
+      int count = Math.min(length, pending.length - pendingPosition);
+      System.arraycopy(pending, pendingPosition, output, offset, count);
+      pendingPosition += count;
+
+      if (pendingPosition == pending.length) pending = null;
+      return count;
+    }
+
+    if (position == limit && !fill()) return -1;
+
+    int count = 0;
+
+    while (count < length && position < limit) {
+      byte b = buffer[position++];
+      output[offset + count++] = b;
+
+      if (advance(b)) {
+        String reference = spool();
+        pending         = (reference + "\"").getBytes(Charset.forName("US-ASCII"));
+        pendingPosition = 0;
+        break;
+      }
+    }
+
+    return count;
+  }
+
+  /**
+   * @return the part a data attribute was replaced with, or null if the value
+   *         wasn't spooled.  The caller takes ownership of the part's file.
+   */
+  public @Nullable SpooledPart takeSpooledPart(@Nullable String data) {
+    if (data == null || !data.startsWith(REFERENCE_PREFIX)) return null;
+    return spooled.remove(data);
+  }
+
+  /**
+   * @return the file offset of the next sms, mms or tombstone element the
+   *         parser will see, in document order, or -1 if there's none.
+   */
+  public long takeMessageOffset() {
+    Long offset = messageOffsets.poll();
+    return offset == null ? -1 : offset;
+  }
+
+  /**
+   * Deletes the files of every part nobody took, such as the parts of
+   * messages that weren't imported.
+   */
+  public void deleteUntakenParts() {
+    for (SpooledPart part : spooled.values()) {
+      if (!part.getFile().delete()) {
+        Log.w(TAG, "Failed to delete " + part.getFile().getAbsolutePath());
+      }
+    }
+
+    spooled.clear();
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  /**
+   * Tracks where in the markup a byte falls.
+   *
+   * @return true if the byte opened the value of a part's data attribute.
+   */
+  private boolean advance(byte b) {
+    switch (state) {
+      case STATE_TEXT:
+        if (b == '<') {
+          name.setLength(0);
+          tagOffset = bufferOffset + position - 1;
+          state     = STATE_TAG_NAME;
+        }
+        return false;
+
+      case STATE_TAG_NAME:
+        if (b == '>' || isWhitespace(b) || b == '/') {
+          String tag = name.toString();
+
+          if (SMS_TAG.equalsIgnoreCase(tag) || MMS_TAG.equalsIgnoreCase(tag) || TOMBSTONE_TAG.equalsIgnoreCase(tag)) {
+            messageOffsets.add(tagOffset);
+          }
+
+          inPart        = PART_TAG.equalsIgnoreCase(tag);
+          awaitingValue = false;
+          name.setLength(0);
+          state         = b == '>' ? STATE_TEXT : STATE_TAG;
+        } else if (name.length() < MAX_NAME_LENGTH) {
+          name.append((char) b);
+        }
+        return false;
+
+      case STATE_TAG:
+        if (b == '>') {
+          state = STATE_TEXT;
+        } else if (b == '"' || b == '\'') {
+          boolean data = awaitingValue && b == '"' && inPart && DATA_ATTRIBUTE.contentEquals(name);
+
+          quote         = b;
+          awaitingValue = false;
+          name.setLength(0);
+          state         = STATE_VALUE;
+
+          return data;
+        } else if (b == '=') {
+          awaitingValue = true;
+        } else if (isWhitespace(b)) {
+          if (!awaitingValue) name.setLength(0);
+        } else if (name.length() < MAX_NAME_LENGTH) {
+          name.append((char) b);
+        }
+        return false;
+
+      case STATE_VALUE:
+        if (b == quote) state = STATE_TAG;
+        return false;
+
+      default:
+        throw new AssertionError("Unknown state: " + state);
+    }
+  }
+
+  /**
+   * Decodes everything up to the closing quote into a new part file, and
+   * leaves the closing quote consumed.
+   */
+  private @NonNull String spool() throws IOException {
+    File                 file    = File.createTempFile("part", ".mms", directory);
+    CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(new EncryptingPartOutputStream(file, masterSecret), BUFFER_SIZE));
+    OutputStream         decoder = new Base64.OutputStream(counter, Base64.DECODE);
+    boolean              closed  = false;
+
+    try {
+      while (!closed) {
+        if (position == limit && !fill()) throw new IOException("Backup ended inside attachment data");
+
+        int end = position;
+        while (end < limit && buffer[end] != '"') end++;
+
+        decoder.write(buffer, position, end - position);
+
+        closed   = end < limit;
+        position = closed ? end + 1 : end;
+      }
+
+      decoder.close();
+    } catch (IOException e) {
+      if (!file.delete()) Log.w(TAG, "Failed to delete " + file.getAbsolutePath());
+      throw e;
+    }
+
+    state = STATE_TAG;
+
+    String reference = REFERENCE_PREFIX + (nextReference++);
+    spooled.put(reference, new SpooledPart(file, counter.getCount()));
+
+    return reference;
+  }
+
+  private boolean fill() throws IOException {
+    bufferOffset += limit;
+
+    int read = in.read(buffer, 0, buffer.length);
+
+    position = 0;
+    limit    = Math.max(read, 0);
+
+    return read > 0;
+  }
+
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+  }
+
+  public static class SpooledPart {
+    private final File file;
+    private final long size;
+
+    private SpooledPart(@NonNull File file, long size) {
+      this.file = file;
+      this.size = size;
+    }
+
+    public @NonNull File getFile() {
+      return file;
+    }
+
+    public long getSize() {
+      return size;
+    }
+  }
+
+  private static class CountingOutputStream extends FilterOutputStream {
+    private long count;
+
+    private CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(@NonNull byte[] buffer, int offset, int length) throws IOException {
+      out.write(buffer, offset, length);
+      count += length;
+    }
+
+    long getCount() {
+      return count;
+    }
+  }
+}
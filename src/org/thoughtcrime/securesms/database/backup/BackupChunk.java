@@ -0,0 +1,76 @@
+package org.thoughtcrime.securesms.database.backup;
+
+import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.Writer;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * The rendered XML for one page of messages.  Attachments aren't encoded into
+ * the page, only their location is kept, so that a page waiting to be written
+ * holds text rather than base64 media.
+ */
+class BackupChunk extends Writer {
+
+  private final List<Segment> segments = new LinkedList<>();
+
+  private StringBuilder text = new StringBuilder();
+  private int           messageCount;
+
+  @Override
+  public void write(@NonNull char[] buffer, int offset, int length) {
+    text.append(buffer, offset, length);
+  }
+
+  @Override
+  public void flush() {}
+
+  @Override
+  public void close() {}
+
+  void addAttachment(@NonNull Uri dataUri) {
+    endText();
+    segments.add(new Segment(null, dataUri));
+  }
+
+  void addMessage() {
+    messageCount++;
+  }
+
+  int getMessageCount() {
+    return messageCount;
+  }
+
+  @NonNull List<Segment> getSegments() {
+    endText();
+    return segments;
+  }
+
+  private void endText() {
+    if (text.length() > 0) {
+      segments.add(new Segment(text.toString(), null));
+      text = new StringBuilder();
+    }
+  }
+
+  static class Segment {
+    private final @Nullable String text;
+    private final @Nullable Uri    attachment;
+
+    private Segment(@Nullable String text, @Nullable Uri attachment) {
+      this.text       = text;
+      this.attachment = attachment;
+    }
+
+    @Nullable String getText() {
+      return text;
+    }
+
+    @Nullable Uri getAttachment() {
+      return attachment;
+    }
+  }
+}
@@ -0,0 +1,185 @@
+package org.thoughtcrime.securesms.database.backup;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.protobuf.CodedInputStream;
+
+import org.thoughtcrime.securesms.crypto.InvalidPassphraseException;
+import org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader;
+import org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+
+/**
+ * Reads the records of a backup written by {@link BackupFrameOutputStream}.
+ */
+public class BackupFrameInputStream implements Closeable {
+
+  private static final int MAX_HEADER_LENGTH = 1024;
+  private static final int MAX_FRAME_LENGTH  = 16 * 1024 * 1024;
+  private static final int IV_LENGTH         = 16;
+
+  private final DataInputStream in;
+  private final BackupHeader    header;
+  private final BackupKeys      keys;
+  private final Cipher          cipher;
+  private final Mac             mac;
+  private final Inflater        inflater;
+  private final byte[]          inflated = new byte[BackupFrameOutputStream.FRAME_SIZE];
+
+  private CodedInputStream frame;
+  private long             frameCount;
+
+  public BackupFrameInputStream(@NonNull InputStream in, @NonNull String passphrase)
+      throws IOException, InvalidPassphraseException
+  {
+    this.in = new DataInputStream(in);
+
+    byte[] magic = new byte[BackupFrameOutputStream.MAGIC.length];
+    this.in.readFully(magic);
+
+    if (!Arrays.equals(magic, BackupFrameOutputStream.MAGIC)) {
+      throw new IOException("Not a backup file");
+    }
+
+    int headerLength = this.in.readInt();
+
+    if (headerLength < 0 || headerLength > MAX_HEADER_LENGTH) {
+      throw new IOException("Bad header length: " + headerLength);
+    }
+
+    byte[] encodedHeader = new byte[headerLength];
+    this.in.readFully(encodedHeader);
+
+    this.header = BackupHeader.parseFrom(encodedHeader);
+
+    if (header.getVersion() != BackupFrameOutputStream.VERSION) {
+      throw new IOException("Unsupported backup version: " + header.getVersion());
+    }
+
+    try {
+      this.keys   = BackupKeys.derive(passphrase, header.getSalt().toByteArray(), header.getIterations());
+      this.cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+      this.mac    = Mac.getInstance("HmacSHA1");
+
+      this.mac.init(keys.getMacKey());
+
+      if (!keys.isKeyCheckValid(header.getKeyCheck().toByteArray())) {
+        throw new InvalidPassphraseException("Wrong backup passphrase");
+      }
+    } catch (GeneralSecurityException e) {
+      throw new AssertionError(e);
+    }
+
+    byte[] headerMac = new byte[mac.getMacLength()];
+    this.in.readFully(headerMac);
+
+    if (!MessageDigest.isEqual(headerMac, BackupKeys.getHeaderMac(mac, encodedHeader))) {
+      throw new IOException("Bad MAC on header");
+    }
+
+    this.inflater = header.getCompressed() ? new Inflater() : null;
+  }
+
+  public long getSmsAfterId() {
+    return header.getSmsAfterId();
+  }
+
+  public long getMmsAfterId() {
+    return header.getMmsAfterId();
+  }
+
+  /**
+   * @return the next record, or null at the end of the file.
+   */
+  public @Nullable BackupRecord readRecord() throws IOException {
+    while (frame == null || frame.isAtEnd()) {
+      if (!readFrame()) return null;
+    }
+
+    return BackupRecord.parseFrom(frame.readRawBytes(frame.readRawVarint32()));
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (inflater != null) inflater.end();
+    in.close();
+  }
+
+  private boolean readFrame() throws IOException {
+    int first = in.read();
+
+    if (first == -1) return false;
+
+    int length = (first << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+
+    if (length < IV_LENGTH + mac.getMacLength() || length > MAX_FRAME_LENGTH) {
+      throw new IOException("Bad frame length: " + length);
+    }
+
+    byte[] iv         = new byte[IV_LENGTH];
+    byte[] ciphertext = new byte[length - IV_LENGTH - mac.getMacLength()];
+    byte[] tag        = new byte[mac.getMacLength()];
+
+    try {
+      in.readFully(iv);
+      in.readFully(ciphertext);
+      in.readFully(tag);
+    } catch (EOFException e) {
+      throw new IOException("Backup is truncated", e);
+    }
+
+    if (!MessageDigest.isEqual(tag, BackupKeys.getFrameMac(mac, frameCount++, iv, ciphertext))) {
+      throw new IOException("Bad MAC on frame " + (frameCount - 1));
+    }
+
+    try {
+      cipher.init(Cipher.DECRYPT_MODE, keys.getCipherKey(), new IvParameterSpec(iv));
+
+      byte[] plaintext = cipher.doFinal(ciphertext);
+
+      frame = CodedInputStream.newInstance(inflater != null ? inflate(plaintext) : plaintext);
+      return true;
+    } catch (GeneralSecurityException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private byte[] inflate(byte[] input) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream(input.length * 2);
+
+    inflater.reset();
+    inflater.setInput(input);
+
+    try {
+      while (!inflater.finished()) {
+        int count = inflater.inflate(inflated);
+
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IOException("Truncated compressed frame");
+        }
+
+        output.write(inflated, 0, count);
+      }
+    } catch (DataFormatException e) {
+      throw new IOException(e);
+    }
+
+    return output.toByteArray();
+  }
+}
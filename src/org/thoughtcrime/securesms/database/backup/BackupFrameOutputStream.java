@@ -0,0 +1,140 @@
+package org.thoughtcrime.securesms.database.backup;
+
+import android.support.annotation.NonNull;
+
+import com.google.protobuf.ByteString;
+
+import org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader;
+import org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.zip.Deflater;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+
+/**
+ * Writes records to a passphrase encrypted backup, see protobuf/Backup.proto.
+ * Records are gathered into frames of about {@link #FRAME_SIZE} bytes, which
+ * are compressed if asked, then encrypted and authenticated one at a time.
+ */
+public class BackupFrameOutputStream implements Closeable {
+
+  static final byte[] MAGIC      = {'S', 'I', 'G', 'B', 'A', 'K'};
+  static final int    VERSION    = 1;
+  static final int    FRAME_SIZE = 64 * 1024;
+
+  private final DataOutputStream      out;
+  private final BackupKeys            keys;
+  private final Cipher                cipher;
+  private final Mac                   mac;
+  private final SecureRandom          random;
+  private final Deflater              deflater;
+  private final ByteArrayOutputStream pending  = new ByteArrayOutputStream(FRAME_SIZE * 2);
+  private final byte[]                deflated = new byte[FRAME_SIZE];
+
+  private long frameCount;
+
+  public BackupFrameOutputStream(@NonNull OutputStream out, @NonNull String passphrase, boolean compressed,
+                                 long smsAfterId, long mmsAfterId)
+      throws IOException
+  {
+    byte[] keyCheck;
+    byte[] headerMac;
+    byte[] header;
+
+    try {
+      this.out      = new DataOutputStream(out);
+      this.random   = SecureRandom.getInstance("SHA1PRNG");
+      this.keys     = BackupKeys.generate(passphrase, random);
+      this.cipher   = Cipher.getInstance("AES/CBC/PKCS5Padding");
+      this.mac      = Mac.getInstance("HmacSHA1");
+      this.deflater = compressed ? new Deflater(Deflater.BEST_SPEED) : null;
+
+      this.mac.init(keys.getMacKey());
+      keyCheck = keys.getKeyCheck();
+    } catch (GeneralSecurityException e) {
+      throw new AssertionError(e);
+    }
+
+    header = BackupHeader.newBuilder()
+                         .setVersion(VERSION)
+                         .setSalt(ByteString.copyFrom(keys.getSalt()))
+                         .setIterations(keys.getIterations())
+                         .setKeyCheck(ByteString.copyFrom(keyCheck))
+                         .setCompressed(compressed)
+                         .setSmsAfterId(smsAfterId)
+                         .setMmsAfterId(mmsAfterId)
+                         .build()
+                         .toByteArray();
+
+    headerMac = BackupKeys.getHeaderMac(mac, header);
+
+    this.out.write(MAGIC);
+    this.out.writeInt(header.length);
+    this.out.write(header);
+    this.out.write(headerMac);
+  }
+
+  public void writeRecord(@NonNull BackupRecord record) throws IOException {
+    record.writeDelimitedTo(pending);
+
+    if (pending.size() >= FRAME_SIZE) {
+      writeFrame();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (pending.size() > 0) {
+      writeFrame();
+    }
+
+    if (deflater != null) deflater.end();
+    out.close();
+  }
+
+  private void writeFrame() throws IOException {
+    byte[] plaintext = deflater != null ? deflate(pending.toByteArray()) : pending.toByteArray();
+    pending.reset();
+
+    try {
+      byte[] iv = new byte[16];
+      random.nextBytes(iv);
+
+      cipher.init(Cipher.ENCRYPT_MODE, keys.getCipherKey(), new IvParameterSpec(iv));
+
+      byte[] ciphertext = cipher.doFinal(plaintext);
+      byte[] tag        = BackupKeys.getFrameMac(mac, frameCount++, iv, ciphertext);
+
+      out.writeInt(iv.length + ciphertext.length + tag.length);
+      out.write(iv);
+      out.write(ciphertext);
+      out.write(tag);
+    } catch (GeneralSecurityException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private byte[] deflate(byte[] input) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 2);
+
+    deflater.reset();
+    deflater.setInput(input);
+    deflater.finish();
+
+    while (!deflater.finished()) {
+      int count = deflater.deflate(deflated);
+      output.write(deflated, 0, count);
+    }
+
+    return output.toByteArray();
+  }
+}
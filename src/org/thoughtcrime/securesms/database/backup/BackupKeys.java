@@ -0,0 +1,112 @@
+package org.thoughtcrime.securesms.database.backup;
+
+import android.support.annotation.NonNull;
+
+import org.thoughtcrime.securesms.util.Conversions;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * The cipher and MAC keys of a backup, derived from its passphrase.  Unlike
+ * the master secret they don't depend on this install, so a backup can be
+ * restored anywhere its passphrase is known.
+ */
+class BackupKeys {
+
+  private static final int    ITERATIONS        = 20000;
+  private static final int    CIPHER_KEY_LENGTH = 16;
+  private static final int    MAC_KEY_LENGTH    = 20;
+  private static final byte[] KEY_CHECK_INPUT   = {'k', 'e', 'y', ' ', 'c', 'h', 'e', 'c', 'k'};
+  private static final byte[] HEADER_MAC_INPUT  = {'h', 'e', 'a', 'd', 'e', 'r'};
+
+  private final byte[]        salt;
+  private final int           iterations;
+  private final SecretKeySpec cipherKey;
+  private final SecretKeySpec macKey;
+
+  private BackupKeys(byte[] salt, int iterations, SecretKeySpec cipherKey, SecretKeySpec macKey) {
+    this.salt       = salt;
+    this.iterations = iterations;
+    this.cipherKey  = cipherKey;
+    this.macKey     = macKey;
+  }
+
+  static BackupKeys generate(@NonNull String passphrase, @NonNull SecureRandom random)
+      throws GeneralSecurityException
+  {
+    byte[] salt = new byte[16];
+    random.nextBytes(salt);
+
+    return derive(passphrase, salt, ITERATIONS);
+  }
+
+  static BackupKeys derive(@NonNull String passphrase, @NonNull byte[] salt, int iterations)
+      throws GeneralSecurityException
+  {
+    PBEKeySpec       keySpec = new PBEKeySpec(passphrase.toCharArray(), salt, iterations,
+                                              (CIPHER_KEY_LENGTH + MAC_KEY_LENGTH) * 8);
+    SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
+    byte[]           derived = factory.generateSecret(keySpec).getEncoded();
+
+    return new BackupKeys(salt, iterations,
+                          new SecretKeySpec(Arrays.copyOfRange(derived, 0, CIPHER_KEY_LENGTH), "AES"),
+                          new SecretKeySpec(Arrays.copyOfRange(derived, CIPHER_KEY_LENGTH, derived.length), "HmacSHA1"));
+  }
+
+  byte[] getSalt() {
+    return salt;
+  }
+
+  int getIterations() {
+    return iterations;
+  }
+
+  SecretKeySpec getCipherKey() {
+    return cipherKey;
+  }
+
+  SecretKeySpec getMacKey() {
+    return macKey;
+  }
+
+  byte[] getKeyCheck() throws GeneralSecurityException {
+    Mac mac = Mac.getInstance("HmacSHA1");
+    mac.init(macKey);
+    return mac.doFinal(KEY_CHECK_INPUT);
+  }
+
+  boolean isKeyCheckValid(byte[] keyCheck) throws GeneralSecurityException {
+    return MessageDigest.isEqual(getKeyCheck(), keyCheck);
+  }
+
+  /**
+   * The header isn't encrypted, so its MAC keeps the compression flag, the
+   * ids an incremental backup starts after, and the key parameters from
+   * being changed.
+   */
+  static byte[] getHeaderMac(Mac mac, byte[] header) {
+    mac.update(HEADER_MAC_INPUT);
+    return mac.doFinal(header);
+  }
+
+  /**
+   * The MAC of a frame covers its position, so frames can't be dropped or
+   * reordered without it being noticed.
+   */
+  static byte[] getFrameMac(Mac mac, long frameIndex, byte[] iv, byte[] ciphertext) {
+    byte[] index = new byte[8];
+    Conversions.longToByteArray(index, 0, frameIndex);
+
+    mac.update(index);
+    mac.update(iv);
+    return mac.doFinal(ciphertext);
+  }
+}
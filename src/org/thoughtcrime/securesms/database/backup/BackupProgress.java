@@ -0,0 +1,47 @@
+package org.thoughtcrime.securesms.database.backup;
+
+import android.util.Log;
+
+import java.util.Locale;
+
+/**
+ * Logs the throughput of a backup export every few seconds, so runs of the
+ * different formats over the same data can be compared.
+ */
+class BackupProgress {
+
+  private static final long LOG_INTERVAL_MILLIS = 5000;
+
+  private final String tag;
+  private final int    total;
+  private final long   startMillis = System.currentTimeMillis();
+
+  private int  messages;
+  private long bytes;
+  private long lastLogMillis = startMillis;
+
+  BackupProgress(String tag, int total) {
+    this.tag   = tag;
+    this.total = total;
+  }
+
+  void update(int messages, long bytes) {
+    this.messages += messages;
+    this.bytes    += bytes;
+
+    if (System.currentTimeMillis() - lastLogMillis >= LOG_INTERVAL_MILLIS) {
+      log();
+    }
+  }
+
+  void log() {
+    long   now     = System.currentTimeMillis();
+    double seconds = Math.max(1, now - startMillis) / 1000.0;
+
+    lastLogMillis = now;
+
+    Log.w(tag, String.format(Locale.US, "Exported %d/%d messages, %.1fMB in %.1fs (%.0f messages/s, %.2fMB/s)",
+                             messages, total, bytes / 1048576.0, seconds,
+                             messages / seconds, bytes / 1048576.0 / seconds));
+  }
+}
@@ -0,0 +1,5926 @@
+// Generated by the protocol buffer compiler.  DO NOT EDIT!
+// source: Backup.proto
+
+package org.thoughtcrime.securesms.database.backup;
+
+public final class BackupProtos {
+  private BackupProtos() {}
+  public static void registerAllExtensions(
+      com.google.protobuf.ExtensionRegistry registry) {
+  }
+  public interface BackupHeaderOrBuilder
+      extends com.google.protobuf.MessageOrBuilder {
+
+    // optional uint32 version = 1;
+    /**
+     * <code>optional uint32 version = 1;</code>
+     */
+    boolean hasVersion();
+    /**
+     * <code>optional uint32 version = 1;</code>
+     */
+    int getVersion();
+
+    // optional bytes salt = 2;
+    /**
+     * <code>optional bytes salt = 2;</code>
+     */
+    boolean hasSalt();
+    /**
+     * <code>optional bytes salt = 2;</code>
+     */
+    com.google.protobuf.ByteString getSalt();
+
+    // optional uint32 iterations = 3;
+    /**
+     * <code>optional uint32 iterations = 3;</code>
+     */
+    boolean hasIterations();
+    /**
+     * <code>optional uint32 iterations = 3;</code>
+     */
+    int getIterations();
+
+    // optional bytes keyCheck = 4;
+    /**
+     * <code>optional bytes keyCheck = 4;</code>
+     */
+    boolean hasKeyCheck();
+    /**
+     * <code>optional bytes keyCheck = 4;</code>
+     */
+    com.google.protobuf.ByteString getKeyCheck();
+
+    // optional bool compressed = 5;
+    /**
+     * <code>optional bool compressed = 5;</code>
+     */
+    boolean hasCompressed();
+    /**
+     * <code>optional bool compressed = 5;</code>
+     */
+    boolean getCompressed();
+
+    // optional uint64 smsAfterId = 6;
+    /**
+     * <code>optional uint64 smsAfterId = 6;</code>
+     */
+    boolean hasSmsAfterId();
+    /**
+     * <code>optional uint64 smsAfterId = 6;</code>
+     */
+    long getSmsAfterId();
+
+    // optional uint64 mmsAfterId = 7;
+    /**
+     * <code>optional uint64 mmsAfterId = 7;</code>
+     */
+    boolean hasMmsAfterId();
+    /**
+     * <code>optional uint64 mmsAfterId = 7;</code>
+     */
+    long getMmsAfterId();
+  }
+  /**
+   * Protobuf type {@code signal.BackupHeader}
+   */
+  public static final class BackupHeader extends
+      com.google.protobuf.GeneratedMessage
+      implements BackupHeaderOrBuilder {
+    // Use BackupHeader.newBuilder() to construct.
+    private BackupHeader(com.google.protobuf.GeneratedMessage.Builder<?> builder) {
+      super(builder);
+      this.unknownFields = builder.getUnknownFields();
+    }
+    private BackupHeader(boolean noInit) { this.unknownFields = com.google.protobuf.UnknownFieldSet.getDefaultInstance(); }
+
+    private static final BackupHeader defaultInstance;
+    public static BackupHeader getDefaultInstance() {
+      return defaultInstance;
+    }
+
+    public BackupHeader getDefaultInstanceForType() {
+      return defaultInstance;
+    }
+
+    private final com.google.protobuf.UnknownFieldSet unknownFields;
+    @java.lang.Override
+    public final com.google.protobuf.UnknownFieldSet
+        getUnknownFields() {
+      return this.unknownFields;
+    }
+    private BackupHeader(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      initFields();
+      int mutable_bitField0_ = 0;
+      com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder();
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            default: {
+              if (!parseUnknownField(input, unknownFields,
+                                     extensionRegistry, tag)) {
+                done = true;
+              }
+              break;
+            }
+            case 8: {
+              bitField0_ |= 0x00000001;
+              version_ = input.readUInt32();
+              break;
+            }
+            case 18: {
+              bitField0_ |= 0x00000002;
+              salt_ = input.readBytes();
+              break;
+            }
+            case 24: {
+              bitField0_ |= 0x00000004;
+              iterations_ = input.readUInt32();
+              break;
+            }
+            case 34: {
+              bitField0_ |= 0x00000008;
+              keyCheck_ = input.readBytes();
+              break;
+            }
+            case 40: {
+              bitField0_ |= 0x00000010;
+              compressed_ = input.readBool();
+              break;
+            }
+            case 48: {
+              bitField0_ |= 0x00000020;
+              smsAfterId_ = input.readUInt64();
+              break;
+            }
+            case 56: {
+              bitField0_ |= 0x00000040;
+              mmsAfterId_ = input.readUInt64();
+              break;
+            }
+          }
+        }
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(this);
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(
+            e.getMessage()).setUnfinishedMessage(this);
+      } finally {
+        this.unknownFields = unknownFields.build();
+        makeExtensionsImmutable();
+      }
+    }
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_BackupHeader_descriptor;
+    }
+
+    protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_BackupHeader_fieldAccessorTable
+          .ensureFieldAccessorsInitialized(
+              org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader.class, org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader.Builder.class);
+    }
+
+    public static com.google.protobuf.Parser<BackupHeader> PARSER =
+        new com.google.protobuf.AbstractParser<BackupHeader>() {
+      public BackupHeader parsePartialFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return new BackupHeader(input, extensionRegistry);
+      }
+    };
+
+    @java.lang.Override
+    public com.google.protobuf.Parser<BackupHeader> getParserForType() {
+      return PARSER;
+    }
+
+    private int bitField0_;
+    // optional uint32 version = 1;
+    public static final int VERSION_FIELD_NUMBER = 1;
+    private int version_;
+    /**
+     * <code>optional uint32 version = 1;</code>
+     */
+    public boolean hasVersion() {
+      return ((bitField0_ & 0x00000001) == 0x00000001);
+    }
+    /**
+     * <code>optional uint32 version = 1;</code>
+     */
+    public int getVersion() {
+      return version_;
+    }
+
+    // optional bytes salt = 2;
+    public static final int SALT_FIELD_NUMBER = 2;
+    private com.google.protobuf.ByteString salt_;
+    /**
+     * <code>optional bytes salt = 2;</code>
+     */
+    public boolean hasSalt() {
+      return ((bitField0_ & 0x00000002) == 0x00000002);
+    }
+    /**
+     * <code>optional bytes salt = 2;</code>
+     */
+    public com.google.protobuf.ByteString getSalt() {
+      return salt_;
+    }
+
+    // optional uint32 iterations = 3;
+    public static final int ITERATIONS_FIELD_NUMBER = 3;
+    private int iterations_;
+    /**
+     * <code>optional uint32 iterations = 3;</code>
+     */
+    public boolean hasIterations() {
+      return ((bitField0_ & 0x00000004) == 0x00000004);
+    }
+    /**
+     * <code>optional uint32 iterations = 3;</code>
+     */
+    public int getIterations() {
+      return iterations_;
+    }
+
+    // optional bytes keyCheck = 4;
+    public static final int KEYCHECK_FIELD_NUMBER = 4;
+    private com.google.protobuf.ByteString keyCheck_;
+    /**
+     * <code>optional bytes keyCheck = 4;</code>
+     */
+    public boolean hasKeyCheck() {
+      return ((bitField0_ & 0x00000008) == 0x00000008);
+    }
+    /**
+     * <code>optional bytes keyCheck = 4;</code>
+     */
+    public com.google.protobuf.ByteString getKeyCheck() {
+      return keyCheck_;
+    }
+
+    // optional bool compressed = 5;
+    public static final int COMPRESSED_FIELD_NUMBER = 5;
+    private boolean compressed_;
+    /**
+     * <code>optional bool compressed = 5;</code>
+     */
+    public boolean hasCompressed() {
+      return ((bitField0_ & 0x00000010) == 0x00000010);
+    }
+    /**
+     * <code>optional bool compressed = 5;</code>
+     */
+    public boolean getCompressed() {
+      return compressed_;
+    }
+
+    // optional uint64 smsAfterId = 6;
+    public static final int SMSAFTERID_FIELD_NUMBER = 6;
+    private long smsAfterId_;
+    /**
+     * <code>optional uint64 smsAfterId = 6;</code>
+     */
+    public boolean hasSmsAfterId() {
+      return ((bitField0_ & 0x00000020) == 0x00000020);
+    }
+    /**
+     * <code>optional uint64 smsAfterId = 6;</code>
+     */
+    public long getSmsAfterId() {
+      return smsAfterId_;
+    }
+
+    // optional uint64 mmsAfterId = 7;
+    public static final int MMSAFTERID_FIELD_NUMBER = 7;
+    private long mmsAfterId_;
+    /**
+     * <code>optional uint64 mmsAfterId = 7;</code>
+     */
+    public boolean hasMmsAfterId() {
+      return ((bitField0_ & 0x00000040) == 0x00000040);
+    }
+    /**
+     * <code>optional uint64 mmsAfterId = 7;</code>
+     */
+    public long getMmsAfterId() {
+      return mmsAfterId_;
+    }
+
+    private void initFields() {
+      version_ = 0;
+      salt_ = com.google.protobuf.ByteString.EMPTY;
+      iterations_ = 0;
+      keyCheck_ = com.google.protobuf.ByteString.EMPTY;
+      compressed_ = false;
+      smsAfterId_ = 0L;
+      mmsAfterId_ = 0L;
+    }
+    private byte memoizedIsInitialized = -1;
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized != -1) return isInitialized == 1;
+
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      getSerializedSize();
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        output.writeUInt32(1, version_);
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        output.writeBytes(2, salt_);
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        output.writeUInt32(3, iterations_);
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        output.writeBytes(4, keyCheck_);
+      }
+      if (((bitField0_ & 0x00000010) == 0x00000010)) {
+        output.writeBool(5, compressed_);
+      }
+      if (((bitField0_ & 0x00000020) == 0x00000020)) {
+        output.writeUInt64(6, smsAfterId_);
+      }
+      if (((bitField0_ & 0x00000040) == 0x00000040)) {
+        output.writeUInt64(7, mmsAfterId_);
+      }
+      getUnknownFields().writeTo(output);
+    }
+
+    private int memoizedSerializedSize = -1;
+    public int getSerializedSize() {
+      int size = memoizedSerializedSize;
+      if (size != -1) return size;
+
+      size = 0;
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt32Size(1, version_);
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(2, salt_);
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt32Size(3, iterations_);
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(4, keyCheck_);
+      }
+      if (((bitField0_ & 0x00000010) == 0x00000010)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBoolSize(5, compressed_);
+      }
+      if (((bitField0_ & 0x00000020) == 0x00000020)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt64Size(6, smsAfterId_);
+      }
+      if (((bitField0_ & 0x00000040) == 0x00000040)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt64Size(7, mmsAfterId_);
+      }
+      size += getUnknownFields().getSerializedSize();
+      memoizedSerializedSize = size;
+      return size;
+    }
+
+    private static final long serialVersionUID = 0L;
+    @java.lang.Override
+    protected java.lang.Object writeReplace()
+        throws java.io.ObjectStreamException {
+      return super.writeReplace();
+    }
+
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return PARSER.parseDelimitedFrom(input);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseDelimitedFrom(input, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input, extensionRegistry);
+    }
+
+    public static Builder newBuilder() { return Builder.create(); }
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder(org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader prototype) {
+      return newBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() { return newBuilder(this); }
+
+    @java.lang.Override
+    protected Builder newBuilderForType(
+        com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+    /**
+     * Protobuf type {@code signal.BackupHeader}
+     */
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessage.Builder<Builder>
+       implements org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeaderOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_BackupHeader_descriptor;
+      }
+
+      protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_BackupHeader_fieldAccessorTable
+            .ensureFieldAccessorsInitialized(
+                org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader.class, org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader.Builder.class);
+      }
+
+      // Construct using org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+
+      private Builder(
+          com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders) {
+        }
+      }
+      private static Builder create() {
+        return new Builder();
+      }
+
+      public Builder clear() {
+        super.clear();
+        version_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000001);
+        salt_ = com.google.protobuf.ByteString.EMPTY;
+        bitField0_ = (bitField0_ & ~0x00000002);
+        iterations_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000004);
+        keyCheck_ = com.google.protobuf.ByteString.EMPTY;
+        bitField0_ = (bitField0_ & ~0x00000008);
+        compressed_ = false;
+        bitField0_ = (bitField0_ & ~0x00000010);
+        smsAfterId_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000020);
+        mmsAfterId_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000040);
+        return this;
+      }
+
+      public Builder clone() {
+        return create().mergeFrom(buildPartial());
+      }
+
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_BackupHeader_descriptor;
+      }
+
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader getDefaultInstanceForType() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader.getDefaultInstance();
+      }
+
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader build() {
+        org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader buildPartial() {
+        org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader result = new org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader(this);
+        int from_bitField0_ = bitField0_;
+        int to_bitField0_ = 0;
+        if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
+          to_bitField0_ |= 0x00000001;
+        }
+        result.version_ = version_;
+        if (((from_bitField0_ & 0x00000002) == 0x00000002)) {
+          to_bitField0_ |= 0x00000002;
+        }
+        result.salt_ = salt_;
+        if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
+          to_bitField0_ |= 0x00000004;
+        }
+        result.iterations_ = iterations_;
+        if (((from_bitField0_ & 0x00000008) == 0x00000008)) {
+          to_bitField0_ |= 0x00000008;
+        }
+        result.keyCheck_ = keyCheck_;
+        if (((from_bitField0_ & 0x00000010) == 0x00000010)) {
+          to_bitField0_ |= 0x00000010;
+        }
+        result.compressed_ = compressed_;
+        if (((from_bitField0_ & 0x00000020) == 0x00000020)) {
+          to_bitField0_ |= 0x00000020;
+        }
+        result.smsAfterId_ = smsAfterId_;
+        if (((from_bitField0_ & 0x00000040) == 0x00000040)) {
+          to_bitField0_ |= 0x00000040;
+        }
+        result.mmsAfterId_ = mmsAfterId_;
+        result.bitField0_ = to_bitField0_;
+        onBuilt();
+        return result;
+      }
+
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader) {
+          return mergeFrom((org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader other) {
+        if (other == org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader.getDefaultInstance()) return this;
+        if (other.hasVersion()) {
+          setVersion(other.getVersion());
+        }
+        if (other.hasSalt()) {
+          setSalt(other.getSalt());
+        }
+        if (other.hasIterations()) {
+          setIterations(other.getIterations());
+        }
+        if (other.hasKeyCheck()) {
+          setKeyCheck(other.getKeyCheck());
+        }
+        if (other.hasCompressed()) {
+          setCompressed(other.getCompressed());
+        }
+        if (other.hasSmsAfterId()) {
+          setSmsAfterId(other.getSmsAfterId());
+        }
+        if (other.hasMmsAfterId()) {
+          setMmsAfterId(other.getMmsAfterId());
+        }
+        this.mergeUnknownFields(other.getUnknownFields());
+        return this;
+      }
+
+      public final boolean isInitialized() {
+        return true;
+      }
+
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (org.thoughtcrime.securesms.database.backup.BackupProtos.BackupHeader) e.getUnfinishedMessage();
+          throw e;
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
+      }
+      private int bitField0_;
+
+      // optional uint32 version = 1;
+      private int version_ ;
+      /**
+       * <code>optional uint32 version = 1;</code>
+       */
+      public boolean hasVersion() {
+        return ((bitField0_ & 0x00000001) == 0x00000001);
+      }
+      /**
+       * <code>optional uint32 version = 1;</code>
+       */
+      public int getVersion() {
+        return version_;
+      }
+      /**
+       * <code>optional uint32 version = 1;</code>
+       */
+      public Builder setVersion(int value) {
+        bitField0_ |= 0x00000001;
+        version_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional uint32 version = 1;</code>
+       */
+      public Builder clearVersion() {
+        bitField0_ = (bitField0_ & ~0x00000001);
+        version_ = 0;
+        onChanged();
+        return this;
+      }
+
+      // optional bytes salt = 2;
+      private com.google.protobuf.ByteString salt_ = com.google.protobuf.ByteString.EMPTY;
+      /**
+       * <code>optional bytes salt = 2;</code>
+       */
+      public boolean hasSalt() {
+        return ((bitField0_ & 0x00000002) == 0x00000002);
+      }
+      /**
+       * <code>optional bytes salt = 2;</code>
+       */
+      public com.google.protobuf.ByteString getSalt() {
+        return salt_;
+      }
+      /**
+       * <code>optional bytes salt = 2;</code>
+       */
+      public Builder setSalt(com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000002;
+        salt_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional bytes salt = 2;</code>
+       */
+      public Builder clearSalt() {
+        bitField0_ = (bitField0_ & ~0x00000002);
+        salt_ = getDefaultInstance().getSalt();
+        onChanged();
+        return this;
+      }
+
+      // optional uint32 iterations = 3;
+      private int iterations_ ;
+      /**
+       * <code>optional uint32 iterations = 3;</code>
+       */
+      public boolean hasIterations() {
+        return ((bitField0_ & 0x00000004) == 0x00000004);
+      }
+      /**
+       * <code>optional uint32 iterations = 3;</code>
+       */
+      public int getIterations() {
+        return iterations_;
+      }
+      /**
+       * <code>optional uint32 iterations = 3;</code>
+       */
+      public Builder setIterations(int value) {
+        bitField0_ |= 0x00000004;
+        iterations_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional uint32 iterations = 3;</code>
+       */
+      public Builder clearIterations() {
+        bitField0_ = (bitField0_ & ~0x00000004);
+        iterations_ = 0;
+        onChanged();
+        return this;
+      }
+
+      // optional bytes keyCheck = 4;
+      private com.google.protobuf.ByteString keyCheck_ = com.google.protobuf.ByteString.EMPTY;
+      /**
+       * <code>optional bytes keyCheck = 4;</code>
+       */
+      public boolean hasKeyCheck() {
+        return ((bitField0_ & 0x00000008) == 0x00000008);
+      }
+      /**
+       * <code>optional bytes keyCheck = 4;</code>
+       */
+      public com.google.protobuf.ByteString getKeyCheck() {
+        return keyCheck_;
+      }
+      /**
+       * <code>optional bytes keyCheck = 4;</code>
+       */
+      public Builder setKeyCheck(com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000008;
+        keyCheck_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional bytes keyCheck = 4;</code>
+       */
+      public Builder clearKeyCheck() {
+        bitField0_ = (bitField0_ & ~0x00000008);
+        keyCheck_ = getDefaultInstance().getKeyCheck();
+        onChanged();
+        return this;
+      }
+
+      // optional bool compressed = 5;
+      private boolean compressed_ ;
+      /**
+       * <code>optional bool compressed = 5;</code>
+       */
+      public boolean hasCompressed() {
+        return ((bitField0_ & 0x00000010) == 0x00000010);
+      }
+      /**
+       * <code>optional bool compressed = 5;</code>
+       */
+      public boolean getCompressed() {
+        return compressed_;
+      }
+      /**
+       * <code>optional bool compressed = 5;</code>
+       */
+      public Builder setCompressed(boolean value) {
+        bitField0_ |= 0x00000010;
+        compressed_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional bool compressed = 5;</code>
+       */
+      public Builder clearCompressed() {
+        bitField0_ = (bitField0_ & ~0x00000010);
+        compressed_ = false;
+        onChanged();
+        return this;
+      }
+
+      // optional uint64 smsAfterId = 6;
+      private long smsAfterId_ ;
+      /**
+       * <code>optional uint64 smsAfterId = 6;</code>
+       */
+      public boolean hasSmsAfterId() {
+        return ((bitField0_ & 0x00000020) == 0x00000020);
+      }
+      /**
+       * <code>optional uint64 smsAfterId = 6;</code>
+       */
+      public long getSmsAfterId() {
+        return smsAfterId_;
+      }
+      /**
+       * <code>optional uint64 smsAfterId = 6;</code>
+       */
+      public Builder setSmsAfterId(long value) {
+        bitField0_ |= 0x00000020;
+        smsAfterId_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional uint64 smsAfterId = 6;</code>
+       */
+      public Builder clearSmsAfterId() {
+        bitField0_ = (bitField0_ & ~0x00000020);
+        smsAfterId_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      // optional uint64 mmsAfterId = 7;
+      private long mmsAfterId_ ;
+      /**
+       * <code>optional uint64 mmsAfterId = 7;</code>
+       */
+      public boolean hasMmsAfterId() {
+        return ((bitField0_ & 0x00000040) == 0x00000040);
+      }
+      /**
+       * <code>optional uint64 mmsAfterId = 7;</code>
+       */
+      public long getMmsAfterId() {
+        return mmsAfterId_;
+      }
+      /**
+       * <code>optional uint64 mmsAfterId = 7;</code>
+       */
+      public Builder setMmsAfterId(long value) {
+        bitField0_ |= 0x00000040;
+        mmsAfterId_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional uint64 mmsAfterId = 7;</code>
+       */
+      public Builder clearMmsAfterId() {
+        bitField0_ = (bitField0_ & ~0x00000040);
+        mmsAfterId_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      // @@protoc_insertion_point(builder_scope:signal.BackupHeader)
+    }
+
+    static {
+      defaultInstance = new BackupHeader(true);
+      defaultInstance.initFields();
+    }
+
+    // @@protoc_insertion_point(class_scope:signal.BackupHeader)
+  }
+
+  public interface SmsMessageOrBuilder
+      extends com.google.protobuf.MessageOrBuilder {
+
+    // optional string address = 1;
+    /**
+     * <code>optional string address = 1;</code>
+     */
+    boolean hasAddress();
+    /**
+     * <code>optional string address = 1;</code>
+     */
+    java.lang.String getAddress();
+    /**
+     * <code>optional string address = 1;</code>
+     */
+    com.google.protobuf.ByteString
+        getAddressBytes();
+
+    // optional string threadAddress = 2;
+    /**
+     * <code>optional string threadAddress = 2;</code>
+     */
+    boolean hasThreadAddress();
+    /**
+     * <code>optional string threadAddress = 2;</code>
+     */
+    java.lang.String getThreadAddress();
+    /**
+     * <code>optional string threadAddress = 2;</code>
+     */
+    com.google.protobuf.ByteString
+        getThreadAddressBytes();
+
+    // optional uint64 dateSent = 3;
+    /**
+     * <code>optional uint64 dateSent = 3;</code>
+     */
+    boolean hasDateSent();
+    /**
+     * <code>optional uint64 dateSent = 3;</code>
+     */
+    long getDateSent();
+
+    // optional uint64 dateReceived = 4;
+    /**
+     * <code>optional uint64 dateReceived = 4;</code>
+     */
+    boolean hasDateReceived();
+    /**
+     * <code>optional uint64 dateReceived = 4;</code>
+     */
+    long getDateReceived();
+
+    // optional uint64 type = 5;
+    /**
+     * <code>optional uint64 type = 5;</code>
+     */
+    boolean hasType();
+    /**
+     * <code>optional uint64 type = 5;</code>
+     */
+    long getType();
+
+    // optional int32 status = 6;
+    /**
+     * <code>optional int32 status = 6;</code>
+     */
+    boolean hasStatus();
+    /**
+     * <code>optional int32 status = 6;</code>
+     */
+    int getStatus();
+
+    // optional string body = 7;
+    /**
+     * <code>optional string body = 7;</code>
+     */
+    boolean hasBody();
+    /**
+     * <code>optional string body = 7;</code>
+     */
+    java.lang.String getBody();
+    /**
+     * <code>optional string body = 7;</code>
+     */
+    com.google.protobuf.ByteString
+        getBodyBytes();
+  }
+  /**
+   * Protobuf type {@code signal.SmsMessage}
+   */
+  public static final class SmsMessage extends
+      com.google.protobuf.GeneratedMessage
+      implements SmsMessageOrBuilder {
+    // Use SmsMessage.newBuilder() to construct.
+    private SmsMessage(com.google.protobuf.GeneratedMessage.Builder<?> builder) {
+      super(builder);
+      this.unknownFields = builder.getUnknownFields();
+    }
+    private SmsMessage(boolean noInit) { this.unknownFields = com.google.protobuf.UnknownFieldSet.getDefaultInstance(); }
+
+    private static final SmsMessage defaultInstance;
+    public static SmsMessage getDefaultInstance() {
+      return defaultInstance;
+    }
+
+    public SmsMessage getDefaultInstanceForType() {
+      return defaultInstance;
+    }
+
+    private final com.google.protobuf.UnknownFieldSet unknownFields;
+    @java.lang.Override
+    public final com.google.protobuf.UnknownFieldSet
+        getUnknownFields() {
+      return this.unknownFields;
+    }
+    private SmsMessage(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      initFields();
+      int mutable_bitField0_ = 0;
+      com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder();
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            default: {
+              if (!parseUnknownField(input, unknownFields,
+                                     extensionRegistry, tag)) {
+                done = true;
+              }
+              break;
+            }
+            case 10: {
+              bitField0_ |= 0x00000001;
+              address_ = input.readBytes();
+              break;
+            }
+            case 18: {
+              bitField0_ |= 0x00000002;
+              threadAddress_ = input.readBytes();
+              break;
+            }
+            case 24: {
+              bitField0_ |= 0x00000004;
+              dateSent_ = input.readUInt64();
+              break;
+            }
+            case 32: {
+              bitField0_ |= 0x00000008;
+              dateReceived_ = input.readUInt64();
+              break;
+            }
+            case 40: {
+              bitField0_ |= 0x00000010;
+              type_ = input.readUInt64();
+              break;
+            }
+            case 48: {
+              bitField0_ |= 0x00000020;
+              status_ = input.readInt32();
+              break;
+            }
+            case 58: {
+              bitField0_ |= 0x00000040;
+              body_ = input.readBytes();
+              break;
+            }
+          }
+        }
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(this);
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(
+            e.getMessage()).setUnfinishedMessage(this);
+      } finally {
+        this.unknownFields = unknownFields.build();
+        makeExtensionsImmutable();
+      }
+    }
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_SmsMessage_descriptor;
+    }
+
+    protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_SmsMessage_fieldAccessorTable
+          .ensureFieldAccessorsInitialized(
+              org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage.class, org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage.Builder.class);
+    }
+
+    public static com.google.protobuf.Parser<SmsMessage> PARSER =
+        new com.google.protobuf.AbstractParser<SmsMessage>() {
+      public SmsMessage parsePartialFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return new SmsMessage(input, extensionRegistry);
+      }
+    };
+
+    @java.lang.Override
+    public com.google.protobuf.Parser<SmsMessage> getParserForType() {
+      return PARSER;
+    }
+
+    private int bitField0_;
+    // optional string address = 1;
+    public static final int ADDRESS_FIELD_NUMBER = 1;
+    private java.lang.Object address_;
+    /**
+     * <code>optional string address = 1;</code>
+     */
+    public boolean hasAddress() {
+      return ((bitField0_ & 0x00000001) == 0x00000001);
+    }
+    /**
+     * <code>optional string address = 1;</code>
+     */
+    public java.lang.String getAddress() {
+      java.lang.Object ref = address_;
+      if (ref instanceof java.lang.String) {
+        return (java.lang.String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        java.lang.String s = bs.toStringUtf8();
+        if (bs.isValidUtf8()) {
+          address_ = s;
+        }
+        return s;
+      }
+    }
+    /**
+     * <code>optional string address = 1;</code>
+     */
+    public com.google.protobuf.ByteString
+        getAddressBytes() {
+      java.lang.Object ref = address_;
+      if (ref instanceof java.lang.String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8(
+                (java.lang.String) ref);
+        address_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+
+    // optional string threadAddress = 2;
+    public static final int THREADADDRESS_FIELD_NUMBER = 2;
+    private java.lang.Object threadAddress_;
+    /**
+     * <code>optional string threadAddress = 2;</code>
+     */
+    public boolean hasThreadAddress() {
+      return ((bitField0_ & 0x00000002) == 0x00000002);
+    }
+    /**
+     * <code>optional string threadAddress = 2;</code>
+     */
+    public java.lang.String getThreadAddress() {
+      java.lang.Object ref = threadAddress_;
+      if (ref instanceof java.lang.String) {
+        return (java.lang.String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        java.lang.String s = bs.toStringUtf8();
+        if (bs.isValidUtf8()) {
+          threadAddress_ = s;
+        }
+        return s;
+      }
+    }
+    /**
+     * <code>optional string threadAddress = 2;</code>
+     */
+    public com.google.protobuf.ByteString
+        getThreadAddressBytes() {
+      java.lang.Object ref = threadAddress_;
+      if (ref instanceof java.lang.String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8(
+                (java.lang.String) ref);
+        threadAddress_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+
+    // optional uint64 dateSent = 3;
+    public static final int DATESENT_FIELD_NUMBER = 3;
+    private long dateSent_;
+    /**
+     * <code>optional uint64 dateSent = 3;</code>
+     */
+    public boolean hasDateSent() {
+      return ((bitField0_ & 0x00000004) == 0x00000004);
+    }
+    /**
+     * <code>optional uint64 dateSent = 3;</code>
+     */
+    public long getDateSent() {
+      return dateSent_;
+    }
+
+    // optional uint64 dateReceived = 4;
+    public static final int DATERECEIVED_FIELD_NUMBER = 4;
+    private long dateReceived_;
+    /**
+     * <code>optional uint64 dateReceived = 4;</code>
+     */
+    public boolean hasDateReceived() {
+      return ((bitField0_ & 0x00000008) == 0x00000008);
+    }
+    /**
+     * <code>optional uint64 dateReceived = 4;</code>
+     */
+    public long getDateReceived() {
+      return dateReceived_;
+    }
+
+    // optional uint64 type = 5;
+    public static final int TYPE_FIELD_NUMBER = 5;
+    private long type_;
+    /**
+     * <code>optional uint64 type = 5;</code>
+     */
+    public boolean hasType() {
+      return ((bitField0_ & 0x00000010) == 0x00000010);
+    }
+    /**
+     * <code>optional uint64 type = 5;</code>
+     */
+    public long getType() {
+      return type_;
+    }
+
+    // optional int32 status = 6;
+    public static final int STATUS_FIELD_NUMBER = 6;
+    private int status_;
+    /**
+     * <code>optional int32 status = 6;</code>
+     */
+    public boolean hasStatus() {
+      return ((bitField0_ & 0x00000020) == 0x00000020);
+    }
+    /**
+     * <code>optional int32 status = 6;</code>
+     */
+    public int getStatus() {
+      return status_;
+    }
+
+    // optional string body = 7;
+    public static final int BODY_FIELD_NUMBER = 7;
+    private java.lang.Object body_;
+    /**
+     * <code>optional string body = 7;</code>
+     */
+    public boolean hasBody() {
+      return ((bitField0_ & 0x00000040) == 0x00000040);
+    }
+    /**
+     * <code>optional string body = 7;</code>
+     */
+    public java.lang.String getBody() {
+      java.lang.Object ref = body_;
+      if (ref instanceof java.lang.String) {
+        return (java.lang.String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        java.lang.String s = bs.toStringUtf8();
+        if (bs.isValidUtf8()) {
+          body_ = s;
+        }
+        return s;
+      }
+    }
+    /**
+     * <code>optional string body = 7;</code>
+     */
+    public com.google.protobuf.ByteString
+        getBodyBytes() {
+      java.lang.Object ref = body_;
+      if (ref instanceof java.lang.String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8(
+                (java.lang.String) ref);
+        body_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+
+    private void initFields() {
+      address_ = "";
+      threadAddress_ = "";
+      dateSent_ = 0L;
+      dateReceived_ = 0L;
+      type_ = 0L;
+      status_ = 0;
+      body_ = "";
+    }
+    private byte memoizedIsInitialized = -1;
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized != -1) return isInitialized == 1;
+
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      getSerializedSize();
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        output.writeBytes(1, getAddressBytes());
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        output.writeBytes(2, getThreadAddressBytes());
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        output.writeUInt64(3, dateSent_);
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        output.writeUInt64(4, dateReceived_);
+      }
+      if (((bitField0_ & 0x00000010) == 0x00000010)) {
+        output.writeUInt64(5, type_);
+      }
+      if (((bitField0_ & 0x00000020) == 0x00000020)) {
+        output.writeInt32(6, status_);
+      }
+      if (((bitField0_ & 0x00000040) == 0x00000040)) {
+        output.writeBytes(7, getBodyBytes());
+      }
+      getUnknownFields().writeTo(output);
+    }
+
+    private int memoizedSerializedSize = -1;
+    public int getSerializedSize() {
+      int size = memoizedSerializedSize;
+      if (size != -1) return size;
+
+      size = 0;
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(1, getAddressBytes());
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(2, getThreadAddressBytes());
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt64Size(3, dateSent_);
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt64Size(4, dateReceived_);
+      }
+      if (((bitField0_ & 0x00000010) == 0x00000010)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt64Size(5, type_);
+      }
+      if (((bitField0_ & 0x00000020) == 0x00000020)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(6, status_);
+      }
+      if (((bitField0_ & 0x00000040) == 0x00000040)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(7, getBodyBytes());
+      }
+      size += getUnknownFields().getSerializedSize();
+      memoizedSerializedSize = size;
+      return size;
+    }
+
+    private static final long serialVersionUID = 0L;
+    @java.lang.Override
+    protected java.lang.Object writeReplace()
+        throws java.io.ObjectStreamException {
+      return super.writeReplace();
+    }
+
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return PARSER.parseDelimitedFrom(input);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseDelimitedFrom(input, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input, extensionRegistry);
+    }
+
+    public static Builder newBuilder() { return Builder.create(); }
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder(org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage prototype) {
+      return newBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() { return newBuilder(this); }
+
+    @java.lang.Override
+    protected Builder newBuilderForType(
+        com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+    /**
+     * Protobuf type {@code signal.SmsMessage}
+     */
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessage.Builder<Builder>
+       implements org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessageOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_SmsMessage_descriptor;
+      }
+
+      protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_SmsMessage_fieldAccessorTable
+            .ensureFieldAccessorsInitialized(
+                org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage.class, org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage.Builder.class);
+      }
+
+      // Construct using org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+
+      private Builder(
+          com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders) {
+        }
+      }
+      private static Builder create() {
+        return new Builder();
+      }
+
+      public Builder clear() {
+        super.clear();
+        address_ = "";
+        bitField0_ = (bitField0_ & ~0x00000001);
+        threadAddress_ = "";
+        bitField0_ = (bitField0_ & ~0x00000002);
+        dateSent_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000004);
+        dateReceived_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000008);
+        type_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000010);
+        status_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000020);
+        body_ = "";
+        bitField0_ = (bitField0_ & ~0x00000040);
+        return this;
+      }
+
+      public Builder clone() {
+        return create().mergeFrom(buildPartial());
+      }
+
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_SmsMessage_descriptor;
+      }
+
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage getDefaultInstanceForType() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage.getDefaultInstance();
+      }
+
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage build() {
+        org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage buildPartial() {
+        org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage result = new org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage(this);
+        int from_bitField0_ = bitField0_;
+        int to_bitField0_ = 0;
+        if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
+          to_bitField0_ |= 0x00000001;
+        }
+        result.address_ = address_;
+        if (((from_bitField0_ & 0x00000002) == 0x00000002)) {
+          to_bitField0_ |= 0x00000002;
+        }
+        result.threadAddress_ = threadAddress_;
+        if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
+          to_bitField0_ |= 0x00000004;
+        }
+        result.dateSent_ = dateSent_;
+        if (((from_bitField0_ & 0x00000008) == 0x00000008)) {
+          to_bitField0_ |= 0x00000008;
+        }
+        result.dateReceived_ = dateReceived_;
+        if (((from_bitField0_ & 0x00000010) == 0x00000010)) {
+          to_bitField0_ |= 0x00000010;
+        }
+        result.type_ = type_;
+        if (((from_bitField0_ & 0x00000020) == 0x00000020)) {
+          to_bitField0_ |= 0x00000020;
+        }
+        result.status_ = status_;
+        if (((from_bitField0_ & 0x00000040) == 0x00000040)) {
+          to_bitField0_ |= 0x00000040;
+        }
+        result.body_ = body_;
+        result.bitField0_ = to_bitField0_;
+        onBuilt();
+        return result;
+      }
+
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage) {
+          return mergeFrom((org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage other) {
+        if (other == org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage.getDefaultInstance()) return this;
+        if (other.hasAddress()) {
+          bitField0_ |= 0x00000001;
+          address_ = other.address_;
+          onChanged();
+        }
+        if (other.hasThreadAddress()) {
+          bitField0_ |= 0x00000002;
+          threadAddress_ = other.threadAddress_;
+          onChanged();
+        }
+        if (other.hasDateSent()) {
+          setDateSent(other.getDateSent());
+        }
+        if (other.hasDateReceived()) {
+          setDateReceived(other.getDateReceived());
+        }
+        if (other.hasType()) {
+          setType(other.getType());
+        }
+        if (other.hasStatus()) {
+          setStatus(other.getStatus());
+        }
+        if (other.hasBody()) {
+          bitField0_ |= 0x00000040;
+          body_ = other.body_;
+          onChanged();
+        }
+        this.mergeUnknownFields(other.getUnknownFields());
+        return this;
+      }
+
+      public final boolean isInitialized() {
+        return true;
+      }
+
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage) e.getUnfinishedMessage();
+          throw e;
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
+      }
+      private int bitField0_;
+
+      // optional string address = 1;
+      private java.lang.Object address_ = "";
+      /**
+       * <code>optional string address = 1;</code>
+       */
+      public boolean hasAddress() {
+        return ((bitField0_ & 0x00000001) == 0x00000001);
+      }
+      /**
+       * <code>optional string address = 1;</code>
+       */
+      public java.lang.String getAddress() {
+        java.lang.Object ref = address_;
+        if (!(ref instanceof java.lang.String)) {
+          java.lang.String s = ((com.google.protobuf.ByteString) ref)
+              .toStringUtf8();
+          address_ = s;
+          return s;
+        } else {
+          return (java.lang.String) ref;
+        }
+      }
+      /**
+       * <code>optional string address = 1;</code>
+       */
+      public com.google.protobuf.ByteString
+          getAddressBytes() {
+        java.lang.Object ref = address_;
+        if (ref instanceof String) {
+          com.google.protobuf.ByteString b = 
+              com.google.protobuf.ByteString.copyFromUtf8(
+                  (java.lang.String) ref);
+          address_ = b;
+          return b;
+        } else {
+          return (com.google.protobuf.ByteString) ref;
+        }
+      }
+      /**
+       * <code>optional string address = 1;</code>
+       */
+      public Builder setAddress(
+          java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000001;
+        address_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string address = 1;</code>
+       */
+      public Builder clearAddress() {
+        bitField0_ = (bitField0_ & ~0x00000001);
+        address_ = getDefaultInstance().getAddress();
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string address = 1;</code>
+       */
+      public Builder setAddressBytes(
+          com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000001;
+        address_ = value;
+        onChanged();
+        return this;
+      }
+
+      // optional string threadAddress = 2;
+      private java.lang.Object threadAddress_ = "";
+      /**
+       * <code>optional string threadAddress = 2;</code>
+       */
+      public boolean hasThreadAddress() {
+        return ((bitField0_ & 0x00000002) == 0x00000002);
+      }
+      /**
+       * <code>optional string threadAddress = 2;</code>
+       */
+      public java.lang.String getThreadAddress() {
+        java.lang.Object ref = threadAddress_;
+        if (!(ref instanceof java.lang.String)) {
+          java.lang.String s = ((com.google.protobuf.ByteString) ref)
+              .toStringUtf8();
+          threadAddress_ = s;
+          return s;
+        } else {
+          return (java.lang.String) ref;
+        }
+      }
+      /**
+       * <code>optional string threadAddress = 2;</code>
+       */
+      public com.google.protobuf.ByteString
+          getThreadAddressBytes() {
+        java.lang.Object ref = threadAddress_;
+        if (ref instanceof String) {
+          com.google.protobuf.ByteString b = 
+              com.google.protobuf.ByteString.copyFromUtf8(
+                  (java.lang.String) ref);
+          threadAddress_ = b;
+          return b;
+        } else {
+          return (com.google.protobuf.ByteString) ref;
+        }
+      }
+      /**
+       * <code>optional string threadAddress = 2;</code>
+       */
+      public Builder setThreadAddress(
+          java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000002;
+        threadAddress_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string threadAddress = 2;</code>
+       */
+      public Builder clearThreadAddress() {
+        bitField0_ = (bitField0_ & ~0x00000002);
+        threadAddress_ = getDefaultInstance().getThreadAddress();
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string threadAddress = 2;</code>
+       */
+      public Builder setThreadAddressBytes(
+          com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000002;
+        threadAddress_ = value;
+        onChanged();
+        return this;
+      }
+
+      // optional uint64 dateSent = 3;
+      private long dateSent_ ;
+      /**
+       * <code>optional uint64 dateSent = 3;</code>
+       */
+      public boolean hasDateSent() {
+        return ((bitField0_ & 0x00000004) == 0x00000004);
+      }
+      /**
+       * <code>optional uint64 dateSent = 3;</code>
+       */
+      public long getDateSent() {
+        return dateSent_;
+      }
+      /**
+       * <code>optional uint64 dateSent = 3;</code>
+       */
+      public Builder setDateSent(long value) {
+        bitField0_ |= 0x00000004;
+        dateSent_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional uint64 dateSent = 3;</code>
+       */
+      public Builder clearDateSent() {
+        bitField0_ = (bitField0_ & ~0x00000004);
+        dateSent_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      // optional uint64 dateReceived = 4;
+      private long dateReceived_ ;
+      /**
+       * <code>optional uint64 dateReceived = 4;</code>
+       */
+      public boolean hasDateReceived() {
+        return ((bitField0_ & 0x00000008) == 0x00000008);
+      }
+      /**
+       * <code>optional uint64 dateReceived = 4;</code>
+       */
+      public long getDateReceived() {
+        return dateReceived_;
+      }
+      /**
+       * <code>optional uint64 dateReceived = 4;</code>
+       */
+      public Builder setDateReceived(long value) {
+        bitField0_ |= 0x00000008;
+        dateReceived_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional uint64 dateReceived = 4;</code>
+       */
+      public Builder clearDateReceived() {
+        bitField0_ = (bitField0_ & ~0x00000008);
+        dateReceived_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      // optional uint64 type = 5;
+      private long type_ ;
+      /**
+       * <code>optional uint64 type = 5;</code>
+       */
+      public boolean hasType() {
+        return ((bitField0_ & 0x00000010) == 0x00000010);
+      }
+      /**
+       * <code>optional uint64 type = 5;</code>
+       */
+      public long getType() {
+        return type_;
+      }
+      /**
+       * <code>optional uint64 type = 5;</code>
+       */
+      public Builder setType(long value) {
+        bitField0_ |= 0x00000010;
+        type_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional uint64 type = 5;</code>
+       */
+      public Builder clearType() {
+        bitField0_ = (bitField0_ & ~0x00000010);
+        type_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      // optional int32 status = 6;
+      private int status_ ;
+      /**
+       * <code>optional int32 status = 6;</code>
+       */
+      public boolean hasStatus() {
+        return ((bitField0_ & 0x00000020) == 0x00000020);
+      }
+      /**
+       * <code>optional int32 status = 6;</code>
+       */
+      public int getStatus() {
+        return status_;
+      }
+      /**
+       * <code>optional int32 status = 6;</code>
+       */
+      public Builder setStatus(int value) {
+        bitField0_ |= 0x00000020;
+        status_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional int32 status = 6;</code>
+       */
+      public Builder clearStatus() {
+        bitField0_ = (bitField0_ & ~0x00000020);
+        status_ = 0;
+        onChanged();
+        return this;
+      }
+
+      // optional string body = 7;
+      private java.lang.Object body_ = "";
+      /**
+       * <code>optional string body = 7;</code>
+       */
+      public boolean hasBody() {
+        return ((bitField0_ & 0x00000040) == 0x00000040);
+      }
+      /**
+       * <code>optional string body = 7;</code>
+       */
+      public java.lang.String getBody() {
+        java.lang.Object ref = body_;
+        if (!(ref instanceof java.lang.String)) {
+          java.lang.String s = ((com.google.protobuf.ByteString) ref)
+              .toStringUtf8();
+          body_ = s;
+          return s;
+        } else {
+          return (java.lang.String) ref;
+        }
+      }
+      /**
+       * <code>optional string body = 7;</code>
+       */
+      public com.google.protobuf.ByteString
+          getBodyBytes() {
+        java.lang.Object ref = body_;
+        if (ref instanceof String) {
+          com.google.protobuf.ByteString b = 
+              com.google.protobuf.ByteString.copyFromUtf8(
+                  (java.lang.String) ref);
+          body_ = b;
+          return b;
+        } else {
+          return (com.google.protobuf.ByteString) ref;
+        }
+      }
+      /**
+       * <code>optional string body = 7;</code>
+       */
+      public Builder setBody(
+          java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000040;
+        body_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string body = 7;</code>
+       */
+      public Builder clearBody() {
+        bitField0_ = (bitField0_ & ~0x00000040);
+        body_ = getDefaultInstance().getBody();
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string body = 7;</code>
+       */
+      public Builder setBodyBytes(
+          com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000040;
+        body_ = value;
+        onChanged();
+        return this;
+      }
+
+      // @@protoc_insertion_point(builder_scope:signal.SmsMessage)
+    }
+
+    static {
+      defaultInstance = new SmsMessage(true);
+      defaultInstance.initFields();
+    }
+
+    // @@protoc_insertion_point(class_scope:signal.SmsMessage)
+  }
+
+  public interface MmsMessageOrBuilder
+      extends com.google.protobuf.MessageOrBuilder {
+
+    // optional string threadAddress = 1;
+    /**
+     * <code>optional string threadAddress = 1;</code>
+     */
+    boolean hasThreadAddress();
+    /**
+     * <code>optional string threadAddress = 1;</code>
+     */
+    java.lang.String getThreadAddress();
+    /**
+     * <code>optional string threadAddress = 1;</code>
+     */
+    com.google.protobuf.ByteString
+        getThreadAddressBytes();
+
+    // optional string from = 2;
+    /**
+     * <code>optional string from = 2;</code>
+     */
+    boolean hasFrom();
+    /**
+     * <code>optional string from = 2;</code>
+     */
+    java.lang.String getFrom();
+    /**
+     * <code>optional string from = 2;</code>
+     */
+    com.google.protobuf.ByteString
+        getFromBytes();
+
+    // repeated string to = 3;
+    /**
+     * <code>repeated string to = 3;</code>
+     */
+    java.util.List<java.lang.String>
+    getToList();
+    /**
+     * <code>repeated string to = 3;</code>
+     */
+    int getToCount();
+    /**
+     * <code>repeated string to = 3;</code>
+     */
+    java.lang.String getTo(int index);
+    /**
+     * <code>repeated string to = 3;</code>
+     */
+    com.google.protobuf.ByteString
+        getToBytes(int index);
+
+    // optional uint64 dateSent = 4;
+    /**
+     * <code>optional uint64 dateSent = 4;</code>
+     */
+    boolean hasDateSent();
+    /**
+     * <code>optional uint64 dateSent = 4;</code>
+     */
+    long getDateSent();
+
+    // optional uint64 dateReceived = 5;
+    /**
+     * <code>optional uint64 dateReceived = 5;</code>
+     */
+    boolean hasDateReceived();
+    /**
+     * <code>optional uint64 dateReceived = 5;</code>
+     */
+    long getDateReceived();
+
+    // optional uint64 type = 6;
+    /**
+     * <code>optional uint64 type = 6;</code>
+     */
+    boolean hasType();
+    /**
+     * <code>optional uint64 type = 6;</code>
+     */
+    long getType();
+
+    // optional string body = 7;
+    /**
+     * <code>optional string body = 7;</code>
+     */
+    boolean hasBody();
+    /**
+     * <code>optional string body = 7;</code>
+     */
+    java.lang.String getBody();
+    /**
+     * <code>optional string body = 7;</code>
+     */
+    com.google.protobuf.ByteString
+        getBodyBytes();
+
+    // optional int32 subscriptionId = 8 [default = -1];
+    /**
+     * <code>optional int32 subscriptionId = 8 [default = -1];</code>
+     */
+    boolean hasSubscriptionId();
+    /**
+     * <code>optional int32 subscriptionId = 8 [default = -1];</code>
+     */
+    int getSubscriptionId();
+
+    // optional uint32 attachmentCount = 9;
+    /**
+     * <code>optional uint32 attachmentCount = 9;</code>
+     */
+    boolean hasAttachmentCount();
+    /**
+     * <code>optional uint32 attachmentCount = 9;</code>
+     */
+    int getAttachmentCount();
+  }
+  /**
+   * Protobuf type {@code signal.MmsMessage}
+   */
+  public static final class MmsMessage extends
+      com.google.protobuf.GeneratedMessage
+      implements MmsMessageOrBuilder {
+    // Use MmsMessage.newBuilder() to construct.
+    private MmsMessage(com.google.protobuf.GeneratedMessage.Builder<?> builder) {
+      super(builder);
+      this.unknownFields = builder.getUnknownFields();
+    }
+    private MmsMessage(boolean noInit) { this.unknownFields = com.google.protobuf.UnknownFieldSet.getDefaultInstance(); }
+
+    private static final MmsMessage defaultInstance;
+    public static MmsMessage getDefaultInstance() {
+      return defaultInstance;
+    }
+
+    public MmsMessage getDefaultInstanceForType() {
+      return defaultInstance;
+    }
+
+    private final com.google.protobuf.UnknownFieldSet unknownFields;
+    @java.lang.Override
+    public final com.google.protobuf.UnknownFieldSet
+        getUnknownFields() {
+      return this.unknownFields;
+    }
+    private MmsMessage(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      initFields();
+      int mutable_bitField0_ = 0;
+      com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder();
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            default: {
+              if (!parseUnknownField(input, unknownFields,
+                                     extensionRegistry, tag)) {
+                done = true;
+              }
+              break;
+            }
+            case 10: {
+              bitField0_ |= 0x00000001;
+              threadAddress_ = input.readBytes();
+              break;
+            }
+            case 18: {
+              bitField0_ |= 0x00000002;
+              from_ = input.readBytes();
+              break;
+            }
+            case 26: {
+              if (!((mutable_bitField0_ & 0x00000004) == 0x00000004)) {
+                to_ = new com.google.protobuf.LazyStringArrayList();
+                mutable_bitField0_ |= 0x00000004;
+              }
+              to_.add(input.readBytes());
+              break;
+            }
+            case 32: {
+              bitField0_ |= 0x00000004;
+              dateSent_ = input.readUInt64();
+              break;
+            }
+            case 40: {
+              bitField0_ |= 0x00000008;
+              dateReceived_ = input.readUInt64();
+              break;
+            }
+            case 48: {
+              bitField0_ |= 0x00000010;
+              type_ = input.readUInt64();
+              break;
+            }
+            case 58: {
+              bitField0_ |= 0x00000020;
+              body_ = input.readBytes();
+              break;
+            }
+            case 64: {
+              bitField0_ |= 0x00000040;
+              subscriptionId_ = input.readInt32();
+              break;
+            }
+            case 72: {
+              bitField0_ |= 0x00000080;
+              attachmentCount_ = input.readUInt32();
+              break;
+            }
+          }
+        }
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(this);
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(
+            e.getMessage()).setUnfinishedMessage(this);
+      } finally {
+        if (((mutable_bitField0_ & 0x00000004) == 0x00000004)) {
+          to_ = new com.google.protobuf.UnmodifiableLazyStringList(to_);
+        }
+        this.unknownFields = unknownFields.build();
+        makeExtensionsImmutable();
+      }
+    }
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_MmsMessage_descriptor;
+    }
+
+    protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_MmsMessage_fieldAccessorTable
+          .ensureFieldAccessorsInitialized(
+              org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage.class, org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage.Builder.class);
+    }
+
+    public static com.google.protobuf.Parser<MmsMessage> PARSER =
+        new com.google.protobuf.AbstractParser<MmsMessage>() {
+      public MmsMessage parsePartialFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return new MmsMessage(input, extensionRegistry);
+      }
+    };
+
+    @java.lang.Override
+    public com.google.protobuf.Parser<MmsMessage> getParserForType() {
+      return PARSER;
+    }
+
+    private int bitField0_;
+    // optional string threadAddress = 1;
+    public static final int THREADADDRESS_FIELD_NUMBER = 1;
+    private java.lang.Object threadAddress_;
+    /**
+     * <code>optional string threadAddress = 1;</code>
+     */
+    public boolean hasThreadAddress() {
+      return ((bitField0_ & 0x00000001) == 0x00000001);
+    }
+    /**
+     * <code>optional string threadAddress = 1;</code>
+     */
+    public java.lang.String getThreadAddress() {
+      java.lang.Object ref = threadAddress_;
+      if (ref instanceof java.lang.String) {
+        return (java.lang.String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        java.lang.String s = bs.toStringUtf8();
+        if (bs.isValidUtf8()) {
+          threadAddress_ = s;
+        }
+        return s;
+      }
+    }
+    /**
+     * <code>optional string threadAddress = 1;</code>
+     */
+    public com.google.protobuf.ByteString
+        getThreadAddressBytes() {
+      java.lang.Object ref = threadAddress_;
+      if (ref instanceof java.lang.String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8(
+                (java.lang.String) ref);
+        threadAddress_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+
+    // optional string from = 2;
+    public static final int FROM_FIELD_NUMBER = 2;
+    private java.lang.Object from_;
+    /**
+     * <code>optional string from = 2;</code>
+     */
+    public boolean hasFrom() {
+      return ((bitField0_ & 0x00000002) == 0x00000002);
+    }
+    /**
+     * <code>optional string from = 2;</code>
+     */
+    public java.lang.String getFrom() {
+      java.lang.Object ref = from_;
+      if (ref instanceof java.lang.String) {
+        return (java.lang.String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        java.lang.String s = bs.toStringUtf8();
+        if (bs.isValidUtf8()) {
+          from_ = s;
+        }
+        return s;
+      }
+    }
+    /**
+     * <code>optional string from = 2;</code>
+     */
+    public com.google.protobuf.ByteString
+        getFromBytes() {
+      java.lang.Object ref = from_;
+      if (ref instanceof java.lang.String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8(
+                (java.lang.String) ref);
+        from_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+
+    // repeated string to = 3;
+    public static final int TO_FIELD_NUMBER = 3;
+    private com.google.protobuf.LazyStringList to_;
+    /**
+     * <code>repeated string to = 3;</code>
+     */
+    public java.util.List<java.lang.String>
+        getToList() {
+      return to_;
+    }
+    /**
+     * <code>repeated string to = 3;</code>
+     */
+    public int getToCount() {
+      return to_.size();
+    }
+    /**
+     * <code>repeated string to = 3;</code>
+     */
+    public java.lang.String getTo(int index) {
+      return to_.get(index);
+    }
+    /**
+     * <code>repeated string to = 3;</code>
+     */
+    public com.google.protobuf.ByteString
+        getToBytes(int index) {
+      return to_.getByteString(index);
+    }
+
+    // optional uint64 dateSent = 4;
+    public static final int DATESENT_FIELD_NUMBER = 4;
+    private long dateSent_;
+    /**
+     * <code>optional uint64 dateSent = 4;</code>
+     */
+    public boolean hasDateSent() {
+      return ((bitField0_ & 0x00000004) == 0x00000004);
+    }
+    /**
+     * <code>optional uint64 dateSent = 4;</code>
+     */
+    public long getDateSent() {
+      return dateSent_;
+    }
+
+    // optional uint64 dateReceived = 5;
+    public static final int DATERECEIVED_FIELD_NUMBER = 5;
+    private long dateReceived_;
+    /**
+     * <code>optional uint64 dateReceived = 5;</code>
+     */
+    public boolean hasDateReceived() {
+      return ((bitField0_ & 0x00000008) == 0x00000008);
+    }
+    /**
+     * <code>optional uint64 dateReceived = 5;</code>
+     */
+    public long getDateReceived() {
+      return dateReceived_;
+    }
+
+    // optional uint64 type = 6;
+    public static final int TYPE_FIELD_NUMBER = 6;
+    private long type_;
+    /**
+     * <code>optional uint64 type = 6;</code>
+     */
+    public boolean hasType() {
+      return ((bitField0_ & 0x00000010) == 0x00000010);
+    }
+    /**
+     * <code>optional uint64 type = 6;</code>
+     */
+    public long getType() {
+      return type_;
+    }
+
+    // optional string body = 7;
+    public static final int BODY_FIELD_NUMBER = 7;
+    private java.lang.Object body_;
+    /**
+     * <code>optional string body = 7;</code>
+     */
+    public boolean hasBody() {
+      return ((bitField0_ & 0x00000020) == 0x00000020);
+    }
+    /**
+     * <code>optional string body = 7;</code>
+     */
+    public java.lang.String getBody() {
+      java.lang.Object ref = body_;
+      if (ref instanceof java.lang.String) {
+        return (java.lang.String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        java.lang.String s = bs.toStringUtf8();
+        if (bs.isValidUtf8()) {
+          body_ = s;
+        }
+        return s;
+      }
+    }
+    /**
+     * <code>optional string body = 7;</code>
+     */
+    public com.google.protobuf.ByteString
+        getBodyBytes() {
+      java.lang.Object ref = body_;
+      if (ref instanceof java.lang.String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8(
+                (java.lang.String) ref);
+        body_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+
+    // optional int32 subscriptionId = 8 [default = -1];
+    public static final int SUBSCRIPTIONID_FIELD_NUMBER = 8;
+    private int subscriptionId_;
+    /**
+     * <code>optional int32 subscriptionId = 8 [default = -1];</code>
+     */
+    public boolean hasSubscriptionId() {
+      return ((bitField0_ & 0x00000040) == 0x00000040);
+    }
+    /**
+     * <code>optional int32 subscriptionId = 8 [default = -1];</code>
+     */
+    public int getSubscriptionId() {
+      return subscriptionId_;
+    }
+
+    // optional uint32 attachmentCount = 9;
+    public static final int ATTACHMENTCOUNT_FIELD_NUMBER = 9;
+    private int attachmentCount_;
+    /**
+     * <code>optional uint32 attachmentCount = 9;</code>
+     */
+    public boolean hasAttachmentCount() {
+      return ((bitField0_ & 0x00000080) == 0x00000080);
+    }
+    /**
+     * <code>optional uint32 attachmentCount = 9;</code>
+     */
+    public int getAttachmentCount() {
+      return attachmentCount_;
+    }
+
+    private void initFields() {
+      threadAddress_ = "";
+      from_ = "";
+      to_ = com.google.protobuf.LazyStringArrayList.EMPTY;
+      dateSent_ = 0L;
+      dateReceived_ = 0L;
+      type_ = 0L;
+      body_ = "";
+      subscriptionId_ = -1;
+      attachmentCount_ = 0;
+    }
+    private byte memoizedIsInitialized = -1;
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized != -1) return isInitialized == 1;
+
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      getSerializedSize();
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        output.writeBytes(1, getThreadAddressBytes());
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        output.writeBytes(2, getFromBytes());
+      }
+      for (int i = 0; i < to_.size(); i++) {
+        output.writeBytes(3, to_.getByteString(i));
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        output.writeUInt64(4, dateSent_);
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        output.writeUInt64(5, dateReceived_);
+      }
+      if (((bitField0_ & 0x00000010) == 0x00000010)) {
+        output.writeUInt64(6, type_);
+      }
+      if (((bitField0_ & 0x00000020) == 0x00000020)) {
+        output.writeBytes(7, getBodyBytes());
+      }
+      if (((bitField0_ & 0x00000040) == 0x00000040)) {
+        output.writeInt32(8, subscriptionId_);
+      }
+      if (((bitField0_ & 0x00000080) == 0x00000080)) {
+        output.writeUInt32(9, attachmentCount_);
+      }
+      getUnknownFields().writeTo(output);
+    }
+
+    private int memoizedSerializedSize = -1;
+    public int getSerializedSize() {
+      int size = memoizedSerializedSize;
+      if (size != -1) return size;
+
+      size = 0;
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(1, getThreadAddressBytes());
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(2, getFromBytes());
+      }
+      {
+        int dataSize = 0;
+        for (int i = 0; i < to_.size(); i++) {
+          dataSize += com.google.protobuf.CodedOutputStream
+            .computeBytesSizeNoTag(to_.getByteString(i));
+        }
+        size += dataSize;
+        size += 1 * getToList().size();
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt64Size(4, dateSent_);
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt64Size(5, dateReceived_);
+      }
+      if (((bitField0_ & 0x00000010) == 0x00000010)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt64Size(6, type_);
+      }
+      if (((bitField0_ & 0x00000020) == 0x00000020)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(7, getBodyBytes());
+      }
+      if (((bitField0_ & 0x00000040) == 0x00000040)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(8, subscriptionId_);
+      }
+      if (((bitField0_ & 0x00000080) == 0x00000080)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt32Size(9, attachmentCount_);
+      }
+      size += getUnknownFields().getSerializedSize();
+      memoizedSerializedSize = size;
+      return size;
+    }
+
+    private static final long serialVersionUID = 0L;
+    @java.lang.Override
+    protected java.lang.Object writeReplace()
+        throws java.io.ObjectStreamException {
+      return super.writeReplace();
+    }
+
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return PARSER.parseDelimitedFrom(input);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseDelimitedFrom(input, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input, extensionRegistry);
+    }
+
+    public static Builder newBuilder() { return Builder.create(); }
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder(org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage prototype) {
+      return newBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() { return newBuilder(this); }
+
+    @java.lang.Override
+    protected Builder newBuilderForType(
+        com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+    /**
+     * Protobuf type {@code signal.MmsMessage}
+     */
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessage.Builder<Builder>
+       implements org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessageOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_MmsMessage_descriptor;
+      }
+
+      protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_MmsMessage_fieldAccessorTable
+            .ensureFieldAccessorsInitialized(
+                org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage.class, org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage.Builder.class);
+      }
+
+      // Construct using org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+
+      private Builder(
+          com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders) {
+        }
+      }
+      private static Builder create() {
+        return new Builder();
+      }
+
+      public Builder clear() {
+        super.clear();
+        threadAddress_ = "";
+        bitField0_ = (bitField0_ & ~0x00000001);
+        from_ = "";
+        bitField0_ = (bitField0_ & ~0x00000002);
+        to_ = com.google.protobuf.LazyStringArrayList.EMPTY;
+        bitField0_ = (bitField0_ & ~0x00000004);
+        dateSent_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000008);
+        dateReceived_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000010);
+        type_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000020);
+        body_ = "";
+        bitField0_ = (bitField0_ & ~0x00000040);
+        subscriptionId_ = -1;
+        bitField0_ = (bitField0_ & ~0x00000080);
+        attachmentCount_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000100);
+        return this;
+      }
+
+      public Builder clone() {
+        return create().mergeFrom(buildPartial());
+      }
+
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_MmsMessage_descriptor;
+      }
+
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage getDefaultInstanceForType() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage.getDefaultInstance();
+      }
+
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage build() {
+        org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage buildPartial() {
+        org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage result = new org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage(this);
+        int from_bitField0_ = bitField0_;
+        int to_bitField0_ = 0;
+        if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
+          to_bitField0_ |= 0x00000001;
+        }
+        result.threadAddress_ = threadAddress_;
+        if (((from_bitField0_ & 0x00000002) == 0x00000002)) {
+          to_bitField0_ |= 0x00000002;
+        }
+        result.from_ = from_;
+        if (((bitField0_ & 0x00000004) == 0x00000004)) {
+          to_ = new com.google.protobuf.UnmodifiableLazyStringList(
+              to_);
+          bitField0_ = (bitField0_ & ~0x00000004);
+        }
+        result.to_ = to_;
+        if (((from_bitField0_ & 0x00000008) == 0x00000008)) {
+          to_bitField0_ |= 0x00000004;
+        }
+        result.dateSent_ = dateSent_;
+        if (((from_bitField0_ & 0x00000010) == 0x00000010)) {
+          to_bitField0_ |= 0x00000008;
+        }
+        result.dateReceived_ = dateReceived_;
+        if (((from_bitField0_ & 0x00000020) == 0x00000020)) {
+          to_bitField0_ |= 0x00000010;
+        }
+        result.type_ = type_;
+        if (((from_bitField0_ & 0x00000040) == 0x00000040)) {
+          to_bitField0_ |= 0x00000020;
+        }
+        result.body_ = body_;
+        if (((from_bitField0_ & 0x00000080) == 0x00000080)) {
+          to_bitField0_ |= 0x00000040;
+        }
+        result.subscriptionId_ = subscriptionId_;
+        if (((from_bitField0_ & 0x00000100) == 0x00000100)) {
+          to_bitField0_ |= 0x00000080;
+        }
+        result.attachmentCount_ = attachmentCount_;
+        result.bitField0_ = to_bitField0_;
+        onBuilt();
+        return result;
+      }
+
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage) {
+          return mergeFrom((org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage other) {
+        if (other == org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage.getDefaultInstance()) return this;
+        if (other.hasThreadAddress()) {
+          bitField0_ |= 0x00000001;
+          threadAddress_ = other.threadAddress_;
+          onChanged();
+        }
+        if (other.hasFrom()) {
+          bitField0_ |= 0x00000002;
+          from_ = other.from_;
+          onChanged();
+        }
+        if (!other.to_.isEmpty()) {
+          if (to_.isEmpty()) {
+            to_ = other.to_;
+            bitField0_ = (bitField0_ & ~0x00000004);
+          } else {
+            ensureToIsMutable();
+            to_.addAll(other.to_);
+          }
+          onChanged();
+        }
+        if (other.hasDateSent()) {
+          setDateSent(other.getDateSent());
+        }
+        if (other.hasDateReceived()) {
+          setDateReceived(other.getDateReceived());
+        }
+        if (other.hasType()) {
+          setType(other.getType());
+        }
+        if (other.hasBody()) {
+          bitField0_ |= 0x00000040;
+          body_ = other.body_;
+          onChanged();
+        }
+        if (other.hasSubscriptionId()) {
+          setSubscriptionId(other.getSubscriptionId());
+        }
+        if (other.hasAttachmentCount()) {
+          setAttachmentCount(other.getAttachmentCount());
+        }
+        this.mergeUnknownFields(other.getUnknownFields());
+        return this;
+      }
+
+      public final boolean isInitialized() {
+        return true;
+      }
+
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage) e.getUnfinishedMessage();
+          throw e;
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
+      }
+      private int bitField0_;
+
+      // optional string threadAddress = 1;
+      private java.lang.Object threadAddress_ = "";
+      /**
+       * <code>optional string threadAddress = 1;</code>
+       */
+      public boolean hasThreadAddress() {
+        return ((bitField0_ & 0x00000001) == 0x00000001);
+      }
+      /**
+       * <code>optional string threadAddress = 1;</code>
+       */
+      public java.lang.String getThreadAddress() {
+        java.lang.Object ref = threadAddress_;
+        if (!(ref instanceof java.lang.String)) {
+          java.lang.String s = ((com.google.protobuf.ByteString) ref)
+              .toStringUtf8();
+          threadAddress_ = s;
+          return s;
+        } else {
+          return (java.lang.String) ref;
+        }
+      }
+      /**
+       * <code>optional string threadAddress = 1;</code>
+       */
+      public com.google.protobuf.ByteString
+          getThreadAddressBytes() {
+        java.lang.Object ref = threadAddress_;
+        if (ref instanceof String) {
+          com.google.protobuf.ByteString b = 
+              com.google.protobuf.ByteString.copyFromUtf8(
+                  (java.lang.String) ref);
+          threadAddress_ = b;
+          return b;
+        } else {
+          return (com.google.protobuf.ByteString) ref;
+        }
+      }
+      /**
+       * <code>optional string threadAddress = 1;</code>
+       */
+      public Builder setThreadAddress(
+          java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000001;
+        threadAddress_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string threadAddress = 1;</code>
+       */
+      public Builder clearThreadAddress() {
+        bitField0_ = (bitField0_ & ~0x00000001);
+        threadAddress_ = getDefaultInstance().getThreadAddress();
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string threadAddress = 1;</code>
+       */
+      public Builder setThreadAddressBytes(
+          com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000001;
+        threadAddress_ = value;
+        onChanged();
+        return this;
+      }
+
+      // optional string from = 2;
+      private java.lang.Object from_ = "";
+      /**
+       * <code>optional string from = 2;</code>
+       */
+      public boolean hasFrom() {
+        return ((bitField0_ & 0x00000002) == 0x00000002);
+      }
+      /**
+       * <code>optional string from = 2;</code>
+       */
+      public java.lang.String getFrom() {
+        java.lang.Object ref = from_;
+        if (!(ref instanceof java.lang.String)) {
+          java.lang.String s = ((com.google.protobuf.ByteString) ref)
+              .toStringUtf8();
+          from_ = s;
+          return s;
+        } else {
+          return (java.lang.String) ref;
+        }
+      }
+      /**
+       * <code>optional string from = 2;</code>
+       */
+      public com.google.protobuf.ByteString
+          getFromBytes() {
+        java.lang.Object ref = from_;
+        if (ref instanceof String) {
+          com.google.protobuf.ByteString b = 
+              com.google.protobuf.ByteString.copyFromUtf8(
+                  (java.lang.String) ref);
+          from_ = b;
+          return b;
+        } else {
+          return (com.google.protobuf.ByteString) ref;
+        }
+      }
+      /**
+       * <code>optional string from = 2;</code>
+       */
+      public Builder setFrom(
+          java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000002;
+        from_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string from = 2;</code>
+       */
+      public Builder clearFrom() {
+        bitField0_ = (bitField0_ & ~0x00000002);
+        from_ = getDefaultInstance().getFrom();
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string from = 2;</code>
+       */
+      public Builder setFromBytes(
+          com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000002;
+        from_ = value;
+        onChanged();
+        return this;
+      }
+
+      // repeated string to = 3;
+      private com.google.protobuf.LazyStringList to_ = com.google.protobuf.LazyStringArrayList.EMPTY;
+      private void ensureToIsMutable() {
+        if (!((bitField0_ & 0x00000004) == 0x00000004)) {
+          to_ = new com.google.protobuf.LazyStringArrayList(to_);
+          bitField0_ |= 0x00000004;
+         }
+      }
+      /**
+       * <code>repeated string to = 3;</code>
+       */
+      public java.util.List<java.lang.String>
+          getToList() {
+        return java.util.Collections.unmodifiableList(to_);
+      }
+      /**
+       * <code>repeated string to = 3;</code>
+       */
+      public int getToCount() {
+        return to_.size();
+      }
+      /**
+       * <code>repeated string to = 3;</code>
+       */
+      public java.lang.String getTo(int index) {
+        return to_.get(index);
+      }
+      /**
+       * <code>repeated string to = 3;</code>
+       */
+      public com.google.protobuf.ByteString
+          getToBytes(int index) {
+        return to_.getByteString(index);
+      }
+      /**
+       * <code>repeated string to = 3;</code>
+       */
+      public Builder setTo(
+          int index, java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  ensureToIsMutable();
+        to_.set(index, value);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated string to = 3;</code>
+       */
+      public Builder addTo(
+          java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  ensureToIsMutable();
+        to_.add(value);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated string to = 3;</code>
+       */
+      public Builder addAllTo(
+          java.lang.Iterable<java.lang.String> values) {
+        ensureToIsMutable();
+        super.addAll(values, to_);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated string to = 3;</code>
+       */
+      public Builder clearTo() {
+        to_ = com.google.protobuf.LazyStringArrayList.EMPTY;
+        bitField0_ = (bitField0_ & ~0x00000004);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated string to = 3;</code>
+       */
+      public Builder addToBytes(
+          com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  ensureToIsMutable();
+        to_.add(value);
+        onChanged();
+        return this;
+      }
+
+      // optional uint64 dateSent = 4;
+      private long dateSent_ ;
+      /**
+       * <code>optional uint64 dateSent = 4;</code>
+       */
+      public boolean hasDateSent() {
+        return ((bitField0_ & 0x00000008) == 0x00000008);
+      }
+      /**
+       * <code>optional uint64 dateSent = 4;</code>
+       */
+      public long getDateSent() {
+        return dateSent_;
+      }
+      /**
+       * <code>optional uint64 dateSent = 4;</code>
+       */
+      public Builder setDateSent(long value) {
+        bitField0_ |= 0x00000008;
+        dateSent_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional uint64 dateSent = 4;</code>
+       */
+      public Builder clearDateSent() {
+        bitField0_ = (bitField0_ & ~0x00000008);
+        dateSent_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      // optional uint64 dateReceived = 5;
+      private long dateReceived_ ;
+      /**
+       * <code>optional uint64 dateReceived = 5;</code>
+       */
+      public boolean hasDateReceived() {
+        return ((bitField0_ & 0x00000010) == 0x00000010);
+      }
+      /**
+       * <code>optional uint64 dateReceived = 5;</code>
+       */
+      public long getDateReceived() {
+        return dateReceived_;
+      }
+      /**
+       * <code>optional uint64 dateReceived = 5;</code>
+       */
+      public Builder setDateReceived(long value) {
+        bitField0_ |= 0x00000010;
+        dateReceived_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional uint64 dateReceived = 5;</code>
+       */
+      public Builder clearDateReceived() {
+        bitField0_ = (bitField0_ & ~0x00000010);
+        dateReceived_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      // optional uint64 type = 6;
+      private long type_ ;
+      /**
+       * <code>optional uint64 type = 6;</code>
+       */
+      public boolean hasType() {
+        return ((bitField0_ & 0x00000020) == 0x00000020);
+      }
+      /**
+       * <code>optional uint64 type = 6;</code>
+       */
+      public long getType() {
+        return type_;
+      }
+      /**
+       * <code>optional uint64 type = 6;</code>
+       */
+      public Builder setType(long value) {
+        bitField0_ |= 0x00000020;
+        type_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional uint64 type = 6;</code>
+       */
+      public Builder clearType() {
+        bitField0_ = (bitField0_ & ~0x00000020);
+        type_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      // optional string body = 7;
+      private java.lang.Object body_ = "";
+      /**
+       * <code>optional string body = 7;</code>
+       */
+      public boolean hasBody() {
+        return ((bitField0_ & 0x00000040) == 0x00000040);
+      }
+      /**
+       * <code>optional string body = 7;</code>
+       */
+      public java.lang.String getBody() {
+        java.lang.Object ref = body_;
+        if (!(ref instanceof java.lang.String)) {
+          java.lang.String s = ((com.google.protobuf.ByteString) ref)
+              .toStringUtf8();
+          body_ = s;
+          return s;
+        } else {
+          return (java.lang.String) ref;
+        }
+      }
+      /**
+       * <code>optional string body = 7;</code>
+       */
+      public com.google.protobuf.ByteString
+          getBodyBytes() {
+        java.lang.Object ref = body_;
+        if (ref instanceof String) {
+          com.google.protobuf.ByteString b = 
+              com.google.protobuf.ByteString.copyFromUtf8(
+                  (java.lang.String) ref);
+          body_ = b;
+          return b;
+        } else {
+          return (com.google.protobuf.ByteString) ref;
+        }
+      }
+      /**
+       * <code>optional string body = 7;</code>
+       */
+      public Builder setBody(
+          java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000040;
+        body_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string body = 7;</code>
+       */
+      public Builder clearBody() {
+        bitField0_ = (bitField0_ & ~0x00000040);
+        body_ = getDefaultInstance().getBody();
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string body = 7;</code>
+       */
+      public Builder setBodyBytes(
+          com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000040;
+        body_ = value;
+        onChanged();
+        return this;
+      }
+
+      // optional int32 subscriptionId = 8 [default = -1];
+      private int subscriptionId_ = -1;
+      /**
+       * <code>optional int32 subscriptionId = 8 [default = -1];</code>
+       */
+      public boolean hasSubscriptionId() {
+        return ((bitField0_ & 0x00000080) == 0x00000080);
+      }
+      /**
+       * <code>optional int32 subscriptionId = 8 [default = -1];</code>
+       */
+      public int getSubscriptionId() {
+        return subscriptionId_;
+      }
+      /**
+       * <code>optional int32 subscriptionId = 8 [default = -1];</code>
+       */
+      public Builder setSubscriptionId(int value) {
+        bitField0_ |= 0x00000080;
+        subscriptionId_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional int32 subscriptionId = 8 [default = -1];</code>
+       */
+      public Builder clearSubscriptionId() {
+        bitField0_ = (bitField0_ & ~0x00000080);
+        subscriptionId_ = -1;
+        onChanged();
+        return this;
+      }
+
+      // optional uint32 attachmentCount = 9;
+      private int attachmentCount_ ;
+      /**
+       * <code>optional uint32 attachmentCount = 9;</code>
+       */
+      public boolean hasAttachmentCount() {
+        return ((bitField0_ & 0x00000100) == 0x00000100);
+      }
+      /**
+       * <code>optional uint32 attachmentCount = 9;</code>
+       */
+      public int getAttachmentCount() {
+        return attachmentCount_;
+      }
+      /**
+       * <code>optional uint32 attachmentCount = 9;</code>
+       */
+      public Builder setAttachmentCount(int value) {
+        bitField0_ |= 0x00000100;
+        attachmentCount_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional uint32 attachmentCount = 9;</code>
+       */
+      public Builder clearAttachmentCount() {
+        bitField0_ = (bitField0_ & ~0x00000100);
+        attachmentCount_ = 0;
+        onChanged();
+        return this;
+      }
+
+      // @@protoc_insertion_point(builder_scope:signal.MmsMessage)
+    }
+
+    static {
+      defaultInstance = new MmsMessage(true);
+      defaultInstance.initFields();
+    }
+
+    // @@protoc_insertion_point(class_scope:signal.MmsMessage)
+  }
+
+  public interface AttachmentOrBuilder
+      extends com.google.protobuf.MessageOrBuilder {
+
+    // optional string contentType = 1;
+    /**
+     * <code>optional string contentType = 1;</code>
+     */
+    boolean hasContentType();
+    /**
+     * <code>optional string contentType = 1;</code>
+     */
+    java.lang.String getContentType();
+    /**
+     * <code>optional string contentType = 1;</code>
+     */
+    com.google.protobuf.ByteString
+        getContentTypeBytes();
+
+    // optional string fileName = 2;
+    /**
+     * <code>optional string fileName = 2;</code>
+     */
+    boolean hasFileName();
+    /**
+     * <code>optional string fileName = 2;</code>
+     */
+    java.lang.String getFileName();
+    /**
+     * <code>optional string fileName = 2;</code>
+     */
+    com.google.protobuf.ByteString
+        getFileNameBytes();
+
+    // optional string location = 3;
+    /**
+     * <code>optional string location = 3;</code>
+     */
+    boolean hasLocation();
+    /**
+     * <code>optional string location = 3;</code>
+     */
+    java.lang.String getLocation();
+    /**
+     * <code>optional string location = 3;</code>
+     */
+    com.google.protobuf.ByteString
+        getLocationBytes();
+
+    // optional uint64 size = 4;
+    /**
+     * <code>optional uint64 size = 4;</code>
+     */
+    boolean hasSize();
+    /**
+     * <code>optional uint64 size = 4;</code>
+     */
+    long getSize();
+  }
+  /**
+   * Protobuf type {@code signal.Attachment}
+   *
+   * <pre>
+   * Followed by AttachmentData records holding its content.
+   * </pre>
+   */
+  public static final class Attachment extends
+      com.google.protobuf.GeneratedMessage
+      implements AttachmentOrBuilder {
+    // Use Attachment.newBuilder() to construct.
+    private Attachment(com.google.protobuf.GeneratedMessage.Builder<?> builder) {
+      super(builder);
+      this.unknownFields = builder.getUnknownFields();
+    }
+    private Attachment(boolean noInit) { this.unknownFields = com.google.protobuf.UnknownFieldSet.getDefaultInstance(); }
+
+    private static final Attachment defaultInstance;
+    public static Attachment getDefaultInstance() {
+      return defaultInstance;
+    }
+
+    public Attachment getDefaultInstanceForType() {
+      return defaultInstance;
+    }
+
+    private final com.google.protobuf.UnknownFieldSet unknownFields;
+    @java.lang.Override
+    public final com.google.protobuf.UnknownFieldSet
+        getUnknownFields() {
+      return this.unknownFields;
+    }
+    private Attachment(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      initFields();
+      int mutable_bitField0_ = 0;
+      com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder();
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            default: {
+              if (!parseUnknownField(input, unknownFields,
+                                     extensionRegistry, tag)) {
+                done = true;
+              }
+              break;
+            }
+            case 10: {
+              bitField0_ |= 0x00000001;
+              contentType_ = input.readBytes();
+              break;
+            }
+            case 18: {
+              bitField0_ |= 0x00000002;
+              fileName_ = input.readBytes();
+              break;
+            }
+            case 26: {
+              bitField0_ |= 0x00000004;
+              location_ = input.readBytes();
+              break;
+            }
+            case 32: {
+              bitField0_ |= 0x00000008;
+              size_ = input.readUInt64();
+              break;
+            }
+          }
+        }
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(this);
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(
+            e.getMessage()).setUnfinishedMessage(this);
+      } finally {
+        this.unknownFields = unknownFields.build();
+        makeExtensionsImmutable();
+      }
+    }
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_Attachment_descriptor;
+    }
+
+    protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_Attachment_fieldAccessorTable
+          .ensureFieldAccessorsInitialized(
+              org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment.class, org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment.Builder.class);
+    }
+
+    public static com.google.protobuf.Parser<Attachment> PARSER =
+        new com.google.protobuf.AbstractParser<Attachment>() {
+      public Attachment parsePartialFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return new Attachment(input, extensionRegistry);
+      }
+    };
+
+    @java.lang.Override
+    public com.google.protobuf.Parser<Attachment> getParserForType() {
+      return PARSER;
+    }
+
+    private int bitField0_;
+    // optional string contentType = 1;
+    public static final int CONTENTTYPE_FIELD_NUMBER = 1;
+    private java.lang.Object contentType_;
+    /**
+     * <code>optional string contentType = 1;</code>
+     */
+    public boolean hasContentType() {
+      return ((bitField0_ & 0x00000001) == 0x00000001);
+    }
+    /**
+     * <code>optional string contentType = 1;</code>
+     */
+    public java.lang.String getContentType() {
+      java.lang.Object ref = contentType_;
+      if (ref instanceof java.lang.String) {
+        return (java.lang.String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        java.lang.String s = bs.toStringUtf8();
+        if (bs.isValidUtf8()) {
+          contentType_ = s;
+        }
+        return s;
+      }
+    }
+    /**
+     * <code>optional string contentType = 1;</code>
+     */
+    public com.google.protobuf.ByteString
+        getContentTypeBytes() {
+      java.lang.Object ref = contentType_;
+      if (ref instanceof java.lang.String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8(
+                (java.lang.String) ref);
+        contentType_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+
+    // optional string fileName = 2;
+    public static final int FILENAME_FIELD_NUMBER = 2;
+    private java.lang.Object fileName_;
+    /**
+     * <code>optional string fileName = 2;</code>
+     */
+    public boolean hasFileName() {
+      return ((bitField0_ & 0x00000002) == 0x00000002);
+    }
+    /**
+     * <code>optional string fileName = 2;</code>
+     */
+    public java.lang.String getFileName() {
+      java.lang.Object ref = fileName_;
+      if (ref instanceof java.lang.String) {
+        return (java.lang.String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        java.lang.String s = bs.toStringUtf8();
+        if (bs.isValidUtf8()) {
+          fileName_ = s;
+        }
+        return s;
+      }
+    }
+    /**
+     * <code>optional string fileName = 2;</code>
+     */
+    public com.google.protobuf.ByteString
+        getFileNameBytes() {
+      java.lang.Object ref = fileName_;
+      if (ref instanceof java.lang.String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8(
+                (java.lang.String) ref);
+        fileName_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+
+    // optional string location = 3;
+    public static final int LOCATION_FIELD_NUMBER = 3;
+    private java.lang.Object location_;
+    /**
+     * <code>optional string location = 3;</code>
+     */
+    public boolean hasLocation() {
+      return ((bitField0_ & 0x00000004) == 0x00000004);
+    }
+    /**
+     * <code>optional string location = 3;</code>
+     */
+    public java.lang.String getLocation() {
+      java.lang.Object ref = location_;
+      if (ref instanceof java.lang.String) {
+        return (java.lang.String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        java.lang.String s = bs.toStringUtf8();
+        if (bs.isValidUtf8()) {
+          location_ = s;
+        }
+        return s;
+      }
+    }
+    /**
+     * <code>optional string location = 3;</code>
+     */
+    public com.google.protobuf.ByteString
+        getLocationBytes() {
+      java.lang.Object ref = location_;
+      if (ref instanceof java.lang.String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8(
+                (java.lang.String) ref);
+        location_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+
+    // optional uint64 size = 4;
+    public static final int SIZE_FIELD_NUMBER = 4;
+    private long size_;
+    /**
+     * <code>optional uint64 size = 4;</code>
+     */
+    public boolean hasSize() {
+      return ((bitField0_ & 0x00000008) == 0x00000008);
+    }
+    /**
+     * <code>optional uint64 size = 4;</code>
+     */
+    public long getSize() {
+      return size_;
+    }
+
+    private void initFields() {
+      contentType_ = "";
+      fileName_ = "";
+      location_ = "";
+      size_ = 0L;
+    }
+    private byte memoizedIsInitialized = -1;
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized != -1) return isInitialized == 1;
+
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      getSerializedSize();
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        output.writeBytes(1, getContentTypeBytes());
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        output.writeBytes(2, getFileNameBytes());
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        output.writeBytes(3, getLocationBytes());
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        output.writeUInt64(4, size_);
+      }
+      getUnknownFields().writeTo(output);
+    }
+
+    private int memoizedSerializedSize = -1;
+    public int getSerializedSize() {
+      int size = memoizedSerializedSize;
+      if (size != -1) return size;
+
+      size = 0;
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(1, getContentTypeBytes());
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(2, getFileNameBytes());
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(3, getLocationBytes());
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt64Size(4, size_);
+      }
+      size += getUnknownFields().getSerializedSize();
+      memoizedSerializedSize = size;
+      return size;
+    }
+
+    private static final long serialVersionUID = 0L;
+    @java.lang.Override
+    protected java.lang.Object writeReplace()
+        throws java.io.ObjectStreamException {
+      return super.writeReplace();
+    }
+
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return PARSER.parseDelimitedFrom(input);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseDelimitedFrom(input, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input, extensionRegistry);
+    }
+
+    public static Builder newBuilder() { return Builder.create(); }
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder(org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment prototype) {
+      return newBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() { return newBuilder(this); }
+
+    @java.lang.Override
+    protected Builder newBuilderForType(
+        com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+    /**
+     * Protobuf type {@code signal.Attachment}
+     *
+     * <pre>
+     * Followed by AttachmentData records holding its content.
+     * </pre>
+     */
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessage.Builder<Builder>
+       implements org.thoughtcrime.securesms.database.backup.BackupProtos.AttachmentOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_Attachment_descriptor;
+      }
+
+      protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_Attachment_fieldAccessorTable
+            .ensureFieldAccessorsInitialized(
+                org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment.class, org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment.Builder.class);
+      }
+
+      // Construct using org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+
+      private Builder(
+          com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders) {
+        }
+      }
+      private static Builder create() {
+        return new Builder();
+      }
+
+      public Builder clear() {
+        super.clear();
+        contentType_ = "";
+        bitField0_ = (bitField0_ & ~0x00000001);
+        fileName_ = "";
+        bitField0_ = (bitField0_ & ~0x00000002);
+        location_ = "";
+        bitField0_ = (bitField0_ & ~0x00000004);
+        size_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000008);
+        return this;
+      }
+
+      public Builder clone() {
+        return create().mergeFrom(buildPartial());
+      }
+
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_Attachment_descriptor;
+      }
+
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment getDefaultInstanceForType() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment.getDefaultInstance();
+      }
+
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment build() {
+        org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment buildPartial() {
+        org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment result = new org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment(this);
+        int from_bitField0_ = bitField0_;
+        int to_bitField0_ = 0;
+        if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
+          to_bitField0_ |= 0x00000001;
+        }
+        result.contentType_ = contentType_;
+        if (((from_bitField0_ & 0x00000002) == 0x00000002)) {
+          to_bitField0_ |= 0x00000002;
+        }
+        result.fileName_ = fileName_;
+        if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
+          to_bitField0_ |= 0x00000004;
+        }
+        result.location_ = location_;
+        if (((from_bitField0_ & 0x00000008) == 0x00000008)) {
+          to_bitField0_ |= 0x00000008;
+        }
+        result.size_ = size_;
+        result.bitField0_ = to_bitField0_;
+        onBuilt();
+        return result;
+      }
+
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment) {
+          return mergeFrom((org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment other) {
+        if (other == org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment.getDefaultInstance()) return this;
+        if (other.hasContentType()) {
+          bitField0_ |= 0x00000001;
+          contentType_ = other.contentType_;
+          onChanged();
+        }
+        if (other.hasFileName()) {
+          bitField0_ |= 0x00000002;
+          fileName_ = other.fileName_;
+          onChanged();
+        }
+        if (other.hasLocation()) {
+          bitField0_ |= 0x00000004;
+          location_ = other.location_;
+          onChanged();
+        }
+        if (other.hasSize()) {
+          setSize(other.getSize());
+        }
+        this.mergeUnknownFields(other.getUnknownFields());
+        return this;
+      }
+
+      public final boolean isInitialized() {
+        return true;
+      }
+
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment) e.getUnfinishedMessage();
+          throw e;
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
+      }
+      private int bitField0_;
+
+      // optional string contentType = 1;
+      private java.lang.Object contentType_ = "";
+      /**
+       * <code>optional string contentType = 1;</code>
+       */
+      public boolean hasContentType() {
+        return ((bitField0_ & 0x00000001) == 0x00000001);
+      }
+      /**
+       * <code>optional string contentType = 1;</code>
+       */
+      public java.lang.String getContentType() {
+        java.lang.Object ref = contentType_;
+        if (!(ref instanceof java.lang.String)) {
+          java.lang.String s = ((com.google.protobuf.ByteString) ref)
+              .toStringUtf8();
+          contentType_ = s;
+          return s;
+        } else {
+          return (java.lang.String) ref;
+        }
+      }
+      /**
+       * <code>optional string contentType = 1;</code>
+       */
+      public com.google.protobuf.ByteString
+          getContentTypeBytes() {
+        java.lang.Object ref = contentType_;
+        if (ref instanceof String) {
+          com.google.protobuf.ByteString b = 
+              com.google.protobuf.ByteString.copyFromUtf8(
+                  (java.lang.String) ref);
+          contentType_ = b;
+          return b;
+        } else {
+          return (com.google.protobuf.ByteString) ref;
+        }
+      }
+      /**
+       * <code>optional string contentType = 1;</code>
+       */
+      public Builder setContentType(
+          java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000001;
+        contentType_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string contentType = 1;</code>
+       */
+      public Builder clearContentType() {
+        bitField0_ = (bitField0_ & ~0x00000001);
+        contentType_ = getDefaultInstance().getContentType();
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string contentType = 1;</code>
+       */
+      public Builder setContentTypeBytes(
+          com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000001;
+        contentType_ = value;
+        onChanged();
+        return this;
+      }
+
+      // optional string fileName = 2;
+      private java.lang.Object fileName_ = "";
+      /**
+       * <code>optional string fileName = 2;</code>
+       */
+      public boolean hasFileName() {
+        return ((bitField0_ & 0x00000002) == 0x00000002);
+      }
+      /**
+       * <code>optional string fileName = 2;</code>
+       */
+      public java.lang.String getFileName() {
+        java.lang.Object ref = fileName_;
+        if (!(ref instanceof java.lang.String)) {
+          java.lang.String s = ((com.google.protobuf.ByteString) ref)
+              .toStringUtf8();
+          fileName_ = s;
+          return s;
+        } else {
+          return (java.lang.String) ref;
+        }
+      }
+      /**
+       * <code>optional string fileName = 2;</code>
+       */
+      public com.google.protobuf.ByteString
+          getFileNameBytes() {
+        java.lang.Object ref = fileName_;
+        if (ref instanceof String) {
+          com.google.protobuf.ByteString b = 
+              com.google.protobuf.ByteString.copyFromUtf8(
+                  (java.lang.String) ref);
+          fileName_ = b;
+          return b;
+        } else {
+          return (com.google.protobuf.ByteString) ref;
+        }
+      }
+      /**
+       * <code>optional string fileName = 2;</code>
+       */
+      public Builder setFileName(
+          java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000002;
+        fileName_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string fileName = 2;</code>
+       */
+      public Builder clearFileName() {
+        bitField0_ = (bitField0_ & ~0x00000002);
+        fileName_ = getDefaultInstance().getFileName();
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string fileName = 2;</code>
+       */
+      public Builder setFileNameBytes(
+          com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000002;
+        fileName_ = value;
+        onChanged();
+        return this;
+      }
+
+      // optional string location = 3;
+      private java.lang.Object location_ = "";
+      /**
+       * <code>optional string location = 3;</code>
+       */
+      public boolean hasLocation() {
+        return ((bitField0_ & 0x00000004) == 0x00000004);
+      }
+      /**
+       * <code>optional string location = 3;</code>
+       */
+      public java.lang.String getLocation() {
+        java.lang.Object ref = location_;
+        if (!(ref instanceof java.lang.String)) {
+          java.lang.String s = ((com.google.protobuf.ByteString) ref)
+              .toStringUtf8();
+          location_ = s;
+          return s;
+        } else {
+          return (java.lang.String) ref;
+        }
+      }
+      /**
+       * <code>optional string location = 3;</code>
+       */
+      public com.google.protobuf.ByteString
+          getLocationBytes() {
+        java.lang.Object ref = location_;
+        if (ref instanceof String) {
+          com.google.protobuf.ByteString b = 
+              com.google.protobuf.ByteString.copyFromUtf8(
+                  (java.lang.String) ref);
+          location_ = b;
+          return b;
+        } else {
+          return (com.google.protobuf.ByteString) ref;
+        }
+      }
+      /**
+       * <code>optional string location = 3;</code>
+       */
+      public Builder setLocation(
+          java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000004;
+        location_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string location = 3;</code>
+       */
+      public Builder clearLocation() {
+        bitField0_ = (bitField0_ & ~0x00000004);
+        location_ = getDefaultInstance().getLocation();
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string location = 3;</code>
+       */
+      public Builder setLocationBytes(
+          com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000004;
+        location_ = value;
+        onChanged();
+        return this;
+      }
+
+      // optional uint64 size = 4;
+      private long size_ ;
+      /**
+       * <code>optional uint64 size = 4;</code>
+       */
+      public boolean hasSize() {
+        return ((bitField0_ & 0x00000008) == 0x00000008);
+      }
+      /**
+       * <code>optional uint64 size = 4;</code>
+       */
+      public long getSize() {
+        return size_;
+      }
+      /**
+       * <code>optional uint64 size = 4;</code>
+       */
+      public Builder setSize(long value) {
+        bitField0_ |= 0x00000008;
+        size_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional uint64 size = 4;</code>
+       */
+      public Builder clearSize() {
+        bitField0_ = (bitField0_ & ~0x00000008);
+        size_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      // @@protoc_insertion_point(builder_scope:signal.Attachment)
+    }
+
+    static {
+      defaultInstance = new Attachment(true);
+      defaultInstance.initFields();
+    }
+
+    // @@protoc_insertion_point(class_scope:signal.Attachment)
+  }
+
+  public interface EndOrBuilder
+      extends com.google.protobuf.MessageOrBuilder {
+
+    // optional uint32 messageCount = 1;
+    /**
+     * <code>optional uint32 messageCount = 1;</code>
+     */
+    boolean hasMessageCount();
+    /**
+     * <code>optional uint32 messageCount = 1;</code>
+     */
+    int getMessageCount();
+  }
+  /**
+   * Protobuf type {@code signal.End}
+   */
+  public static final class End extends
+      com.google.protobuf.GeneratedMessage
+      implements EndOrBuilder {
+    // Use End.newBuilder() to construct.
+    private End(com.google.protobuf.GeneratedMessage.Builder<?> builder) {
+      super(builder);
+      this.unknownFields = builder.getUnknownFields();
+    }
+    private End(boolean noInit) { this.unknownFields = com.google.protobuf.UnknownFieldSet.getDefaultInstance(); }
+
+    private static final End defaultInstance;
+    public static End getDefaultInstance() {
+      return defaultInstance;
+    }
+
+    public End getDefaultInstanceForType() {
+      return defaultInstance;
+    }
+
+    private final com.google.protobuf.UnknownFieldSet unknownFields;
+    @java.lang.Override
+    public final com.google.protobuf.UnknownFieldSet
+        getUnknownFields() {
+      return this.unknownFields;
+    }
+    private End(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      initFields();
+      int mutable_bitField0_ = 0;
+      com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder();
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            default: {
+              if (!parseUnknownField(input, unknownFields,
+                                     extensionRegistry, tag)) {
+                done = true;
+              }
+              break;
+            }
+            case 8: {
+              bitField0_ |= 0x00000001;
+              messageCount_ = input.readUInt32();
+              break;
+            }
+          }
+        }
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(this);
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(
+            e.getMessage()).setUnfinishedMessage(this);
+      } finally {
+        this.unknownFields = unknownFields.build();
+        makeExtensionsImmutable();
+      }
+    }
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_End_descriptor;
+    }
+
+    protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_End_fieldAccessorTable
+          .ensureFieldAccessorsInitialized(
+              org.thoughtcrime.securesms.database.backup.BackupProtos.End.class, org.thoughtcrime.securesms.database.backup.BackupProtos.End.Builder.class);
+    }
+
+    public static com.google.protobuf.Parser<End> PARSER =
+        new com.google.protobuf.AbstractParser<End>() {
+      public End parsePartialFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return new End(input, extensionRegistry);
+      }
+    };
+
+    @java.lang.Override
+    public com.google.protobuf.Parser<End> getParserForType() {
+      return PARSER;
+    }
+
+    private int bitField0_;
+    // optional uint32 messageCount = 1;
+    public static final int MESSAGECOUNT_FIELD_NUMBER = 1;
+    private int messageCount_;
+    /**
+     * <code>optional uint32 messageCount = 1;</code>
+     */
+    public boolean hasMessageCount() {
+      return ((bitField0_ & 0x00000001) == 0x00000001);
+    }
+    /**
+     * <code>optional uint32 messageCount = 1;</code>
+     */
+    public int getMessageCount() {
+      return messageCount_;
+    }
+
+    private void initFields() {
+      messageCount_ = 0;
+    }
+    private byte memoizedIsInitialized = -1;
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized != -1) return isInitialized == 1;
+
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      getSerializedSize();
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        output.writeUInt32(1, messageCount_);
+      }
+      getUnknownFields().writeTo(output);
+    }
+
+    private int memoizedSerializedSize = -1;
+    public int getSerializedSize() {
+      int size = memoizedSerializedSize;
+      if (size != -1) return size;
+
+      size = 0;
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt32Size(1, messageCount_);
+      }
+      size += getUnknownFields().getSerializedSize();
+      memoizedSerializedSize = size;
+      return size;
+    }
+
+    private static final long serialVersionUID = 0L;
+    @java.lang.Override
+    protected java.lang.Object writeReplace()
+        throws java.io.ObjectStreamException {
+      return super.writeReplace();
+    }
+
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.End parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.End parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.End parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.End parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.End parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.End parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.End parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return PARSER.parseDelimitedFrom(input);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.End parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseDelimitedFrom(input, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.End parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.End parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input, extensionRegistry);
+    }
+
+    public static Builder newBuilder() { return Builder.create(); }
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder(org.thoughtcrime.securesms.database.backup.BackupProtos.End prototype) {
+      return newBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() { return newBuilder(this); }
+
+    @java.lang.Override
+    protected Builder newBuilderForType(
+        com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+    /**
+     * Protobuf type {@code signal.End}
+     */
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessage.Builder<Builder>
+       implements org.thoughtcrime.securesms.database.backup.BackupProtos.EndOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_End_descriptor;
+      }
+
+      protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_End_fieldAccessorTable
+            .ensureFieldAccessorsInitialized(
+                org.thoughtcrime.securesms.database.backup.BackupProtos.End.class, org.thoughtcrime.securesms.database.backup.BackupProtos.End.Builder.class);
+      }
+
+      // Construct using org.thoughtcrime.securesms.database.backup.BackupProtos.End.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+
+      private Builder(
+          com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders) {
+        }
+      }
+      private static Builder create() {
+        return new Builder();
+      }
+
+      public Builder clear() {
+        super.clear();
+        messageCount_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000001);
+        return this;
+      }
+
+      public Builder clone() {
+        return create().mergeFrom(buildPartial());
+      }
+
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_End_descriptor;
+      }
+
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.End getDefaultInstanceForType() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.End.getDefaultInstance();
+      }
+
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.End build() {
+        org.thoughtcrime.securesms.database.backup.BackupProtos.End result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.End buildPartial() {
+        org.thoughtcrime.securesms.database.backup.BackupProtos.End result = new org.thoughtcrime.securesms.database.backup.BackupProtos.End(this);
+        int from_bitField0_ = bitField0_;
+        int to_bitField0_ = 0;
+        if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
+          to_bitField0_ |= 0x00000001;
+        }
+        result.messageCount_ = messageCount_;
+        result.bitField0_ = to_bitField0_;
+        onBuilt();
+        return result;
+      }
+
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof org.thoughtcrime.securesms.database.backup.BackupProtos.End) {
+          return mergeFrom((org.thoughtcrime.securesms.database.backup.BackupProtos.End)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(org.thoughtcrime.securesms.database.backup.BackupProtos.End other) {
+        if (other == org.thoughtcrime.securesms.database.backup.BackupProtos.End.getDefaultInstance()) return this;
+        if (other.hasMessageCount()) {
+          setMessageCount(other.getMessageCount());
+        }
+        this.mergeUnknownFields(other.getUnknownFields());
+        return this;
+      }
+
+      public final boolean isInitialized() {
+        return true;
+      }
+
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        org.thoughtcrime.securesms.database.backup.BackupProtos.End parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (org.thoughtcrime.securesms.database.backup.BackupProtos.End) e.getUnfinishedMessage();
+          throw e;
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
+      }
+      private int bitField0_;
+
+      // optional uint32 messageCount = 1;
+      private int messageCount_ ;
+      /**
+       * <code>optional uint32 messageCount = 1;</code>
+       */
+      public boolean hasMessageCount() {
+        return ((bitField0_ & 0x00000001) == 0x00000001);
+      }
+      /**
+       * <code>optional uint32 messageCount = 1;</code>
+       */
+      public int getMessageCount() {
+        return messageCount_;
+      }
+      /**
+       * <code>optional uint32 messageCount = 1;</code>
+       */
+      public Builder setMessageCount(int value) {
+        bitField0_ |= 0x00000001;
+        messageCount_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional uint32 messageCount = 1;</code>
+       */
+      public Builder clearMessageCount() {
+        bitField0_ = (bitField0_ & ~0x00000001);
+        messageCount_ = 0;
+        onChanged();
+        return this;
+      }
+
+      // @@protoc_insertion_point(builder_scope:signal.End)
+    }
+
+    static {
+      defaultInstance = new End(true);
+      defaultInstance.initFields();
+    }
+
+    // @@protoc_insertion_point(class_scope:signal.End)
+  }
+
+  public interface BackupRecordOrBuilder
+      extends com.google.protobuf.MessageOrBuilder {
+
+    // optional .signal.SmsMessage sms = 1;
+    /**
+     * <code>optional .signal.SmsMessage sms = 1;</code>
+     */
+    boolean hasSms();
+    /**
+     * <code>optional .signal.SmsMessage sms = 1;</code>
+     */
+    org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage getSms();
+    /**
+     * <code>optional .signal.SmsMessage sms = 1;</code>
+     */
+    org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessageOrBuilder getSmsOrBuilder();
+
+    // optional .signal.MmsMessage mms = 2;
+    /**
+     * <code>optional .signal.MmsMessage mms = 2;</code>
+     */
+    boolean hasMms();
+    /**
+     * <code>optional .signal.MmsMessage mms = 2;</code>
+     */
+    org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage getMms();
+    /**
+     * <code>optional .signal.MmsMessage mms = 2;</code>
+     */
+    org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessageOrBuilder getMmsOrBuilder();
+
+    // optional .signal.Attachment attachment = 3;
+    /**
+     * <code>optional .signal.Attachment attachment = 3;</code>
+     */
+    boolean hasAttachment();
+    /**
+     * <code>optional .signal.Attachment attachment = 3;</code>
+     */
+    org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment getAttachment();
+    /**
+     * <code>optional .signal.Attachment attachment = 3;</code>
+     */
+    org.thoughtcrime.securesms.database.backup.BackupProtos.AttachmentOrBuilder getAttachmentOrBuilder();
+
+    // optional bytes attachmentData = 4;
+    /**
+     * <code>optional bytes attachmentData = 4;</code>
+     */
+    boolean hasAttachmentData();
+    /**
+     * <code>optional bytes attachmentData = 4;</code>
+     */
+    com.google.protobuf.ByteString getAttachmentData();
+
+    // optional .signal.End end = 5;
+    /**
+     * <code>optional .signal.End end = 5;</code>
+     */
+    boolean hasEnd();
+    /**
+     * <code>optional .signal.End end = 5;</code>
+     */
+    org.thoughtcrime.securesms.database.backup.BackupProtos.End getEnd();
+    /**
+     * <code>optional .signal.End end = 5;</code>
+     */
+    org.thoughtcrime.securesms.database.backup.BackupProtos.EndOrBuilder getEndOrBuilder();
+  }
+  /**
+   * Protobuf type {@code signal.BackupRecord}
+   */
+  public static final class BackupRecord extends
+      com.google.protobuf.GeneratedMessage
+      implements BackupRecordOrBuilder {
+    // Use BackupRecord.newBuilder() to construct.
+    private BackupRecord(com.google.protobuf.GeneratedMessage.Builder<?> builder) {
+      super(builder);
+      this.unknownFields = builder.getUnknownFields();
+    }
+    private BackupRecord(boolean noInit) { this.unknownFields = com.google.protobuf.UnknownFieldSet.getDefaultInstance(); }
+
+    private static final BackupRecord defaultInstance;
+    public static BackupRecord getDefaultInstance() {
+      return defaultInstance;
+    }
+
+    public BackupRecord getDefaultInstanceForType() {
+      return defaultInstance;
+    }
+
+    private final com.google.protobuf.UnknownFieldSet unknownFields;
+    @java.lang.Override
+    public final com.google.protobuf.UnknownFieldSet
+        getUnknownFields() {
+      return this.unknownFields;
+    }
+    private BackupRecord(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      initFields();
+      int mutable_bitField0_ = 0;
+      com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder();
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            default: {
+              if (!parseUnknownField(input, unknownFields,
+                                     extensionRegistry, tag)) {
+                done = true;
+              }
+              break;
+            }
+            case 10: {
+              org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage.Builder subBuilder = null;
+              if (((bitField0_ & 0x00000001) == 0x00000001)) {
+                subBuilder = sms_.toBuilder();
+              }
+              sms_ = input.readMessage(org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage.PARSER, extensionRegistry);
+              if (subBuilder != null) {
+                subBuilder.mergeFrom(sms_);
+                sms_ = subBuilder.buildPartial();
+              }
+              bitField0_ |= 0x00000001;
+              break;
+            }
+            case 18: {
+              org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage.Builder subBuilder = null;
+              if (((bitField0_ & 0x00000002) == 0x00000002)) {
+                subBuilder = mms_.toBuilder();
+              }
+              mms_ = input.readMessage(org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage.PARSER, extensionRegistry);
+              if (subBuilder != null) {
+                subBuilder.mergeFrom(mms_);
+                mms_ = subBuilder.buildPartial();
+              }
+              bitField0_ |= 0x00000002;
+              break;
+            }
+            case 26: {
+              org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment.Builder subBuilder = null;
+              if (((bitField0_ & 0x00000004) == 0x00000004)) {
+                subBuilder = attachment_.toBuilder();
+              }
+              attachment_ = input.readMessage(org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment.PARSER, extensionRegistry);
+              if (subBuilder != null) {
+                subBuilder.mergeFrom(attachment_);
+                attachment_ = subBuilder.buildPartial();
+              }
+              bitField0_ |= 0x00000004;
+              break;
+            }
+            case 34: {
+              bitField0_ |= 0x00000008;
+              attachmentData_ = input.readBytes();
+              break;
+            }
+            case 42: {
+              org.thoughtcrime.securesms.database.backup.BackupProtos.End.Builder subBuilder = null;
+              if (((bitField0_ & 0x00000010) == 0x00000010)) {
+                subBuilder = end_.toBuilder();
+              }
+              end_ = input.readMessage(org.thoughtcrime.securesms.database.backup.BackupProtos.End.PARSER, extensionRegistry);
+              if (subBuilder != null) {
+                subBuilder.mergeFrom(end_);
+                end_ = subBuilder.buildPartial();
+              }
+              bitField0_ |= 0x00000010;
+              break;
+            }
+          }
+        }
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(this);
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(
+            e.getMessage()).setUnfinishedMessage(this);
+      } finally {
+        this.unknownFields = unknownFields.build();
+        makeExtensionsImmutable();
+      }
+    }
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_BackupRecord_descriptor;
+    }
+
+    protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_BackupRecord_fieldAccessorTable
+          .ensureFieldAccessorsInitialized(
+              org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord.class, org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord.Builder.class);
+    }
+
+    public static com.google.protobuf.Parser<BackupRecord> PARSER =
+        new com.google.protobuf.AbstractParser<BackupRecord>() {
+      public BackupRecord parsePartialFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return new BackupRecord(input, extensionRegistry);
+      }
+    };
+
+    @java.lang.Override
+    public com.google.protobuf.Parser<BackupRecord> getParserForType() {
+      return PARSER;
+    }
+
+    private int bitField0_;
+    // optional .signal.SmsMessage sms = 1;
+    public static final int SMS_FIELD_NUMBER = 1;
+    private org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage sms_;
+    /**
+     * <code>optional .signal.SmsMessage sms = 1;</code>
+     */
+    public boolean hasSms() {
+      return ((bitField0_ & 0x00000001) == 0x00000001);
+    }
+    /**
+     * <code>optional .signal.SmsMessage sms = 1;</code>
+     */
+    public org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage getSms() {
+      return sms_;
+    }
+    /**
+     * <code>optional .signal.SmsMessage sms = 1;</code>
+     */
+    public org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessageOrBuilder getSmsOrBuilder() {
+      return sms_;
+    }
+
+    // optional .signal.MmsMessage mms = 2;
+    public static final int MMS_FIELD_NUMBER = 2;
+    private org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage mms_;
+    /**
+     * <code>optional .signal.MmsMessage mms = 2;</code>
+     */
+    public boolean hasMms() {
+      return ((bitField0_ & 0x00000002) == 0x00000002);
+    }
+    /**
+     * <code>optional .signal.MmsMessage mms = 2;</code>
+     */
+    public org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage getMms() {
+      return mms_;
+    }
+    /**
+     * <code>optional .signal.MmsMessage mms = 2;</code>
+     */
+    public org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessageOrBuilder getMmsOrBuilder() {
+      return mms_;
+    }
+
+    // optional .signal.Attachment attachment = 3;
+    public static final int ATTACHMENT_FIELD_NUMBER = 3;
+    private org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment attachment_;
+    /**
+     * <code>optional .signal.Attachment attachment = 3;</code>
+     */
+    public boolean hasAttachment() {
+      return ((bitField0_ & 0x00000004) == 0x00000004);
+    }
+    /**
+     * <code>optional .signal.Attachment attachment = 3;</code>
+     */
+    public org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment getAttachment() {
+      return attachment_;
+    }
+    /**
+     * <code>optional .signal.Attachment attachment = 3;</code>
+     */
+    public org.thoughtcrime.securesms.database.backup.BackupProtos.AttachmentOrBuilder getAttachmentOrBuilder() {
+      return attachment_;
+    }
+
+    // optional bytes attachmentData = 4;
+    public static final int ATTACHMENTDATA_FIELD_NUMBER = 4;
+    private com.google.protobuf.ByteString attachmentData_;
+    /**
+     * <code>optional bytes attachmentData = 4;</code>
+     */
+    public boolean hasAttachmentData() {
+      return ((bitField0_ & 0x00000008) == 0x00000008);
+    }
+    /**
+     * <code>optional bytes attachmentData = 4;</code>
+     */
+    public com.google.protobuf.ByteString getAttachmentData() {
+      return attachmentData_;
+    }
+
+    // optional .signal.End end = 5;
+    public static final int END_FIELD_NUMBER = 5;
+    private org.thoughtcrime.securesms.database.backup.BackupProtos.End end_;
+    /**
+     * <code>optional .signal.End end = 5;</code>
+     */
+    public boolean hasEnd() {
+      return ((bitField0_ & 0x00000010) == 0x00000010);
+    }
+    /**
+     * <code>optional .signal.End end = 5;</code>
+     */
+    public org.thoughtcrime.securesms.database.backup.BackupProtos.End getEnd() {
+      return end_;
+    }
+    /**
+     * <code>optional .signal.End end = 5;</code>
+     */
+    public org.thoughtcrime.securesms.database.backup.BackupProtos.EndOrBuilder getEndOrBuilder() {
+      return end_;
+    }
+
+    private void initFields() {
+      sms_ = org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage.getDefaultInstance();
+      mms_ = org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage.getDefaultInstance();
+      attachment_ = org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment.getDefaultInstance();
+      attachmentData_ = com.google.protobuf.ByteString.EMPTY;
+      end_ = org.thoughtcrime.securesms.database.backup.BackupProtos.End.getDefaultInstance();
+    }
+    private byte memoizedIsInitialized = -1;
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized != -1) return isInitialized == 1;
+
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      getSerializedSize();
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        output.writeMessage(1, sms_);
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        output.writeMessage(2, mms_);
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        output.writeMessage(3, attachment_);
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        output.writeBytes(4, attachmentData_);
+      }
+      if (((bitField0_ & 0x00000010) == 0x00000010)) {
+        output.writeMessage(5, end_);
+      }
+      getUnknownFields().writeTo(output);
+    }
+
+    private int memoizedSerializedSize = -1;
+    public int getSerializedSize() {
+      int size = memoizedSerializedSize;
+      if (size != -1) return size;
+
+      size = 0;
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(1, sms_);
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(2, mms_);
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(3, attachment_);
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(4, attachmentData_);
+      }
+      if (((bitField0_ & 0x00000010) == 0x00000010)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(5, end_);
+      }
+      size += getUnknownFields().getSerializedSize();
+      memoizedSerializedSize = size;
+      return size;
+    }
+
+    private static final long serialVersionUID = 0L;
+    @java.lang.Override
+    protected java.lang.Object writeReplace()
+        throws java.io.ObjectStreamException {
+      return super.writeReplace();
+    }
+
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return PARSER.parseDelimitedFrom(input);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseDelimitedFrom(input, extensionRegistry);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input);
+    }
+    public static org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return PARSER.parseFrom(input, extensionRegistry);
+    }
+
+    public static Builder newBuilder() { return Builder.create(); }
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder(org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord prototype) {
+      return newBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() { return newBuilder(this); }
+
+    @java.lang.Override
+    protected Builder newBuilderForType(
+        com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+    /**
+     * Protobuf type {@code signal.BackupRecord}
+     */
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessage.Builder<Builder>
+       implements org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecordOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_BackupRecord_descriptor;
+      }
+
+      protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_BackupRecord_fieldAccessorTable
+            .ensureFieldAccessorsInitialized(
+                org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord.class, org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord.Builder.class);
+      }
+
+      // Construct using org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+
+      private Builder(
+          com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders) {
+          getSmsFieldBuilder();
+          getMmsFieldBuilder();
+          getAttachmentFieldBuilder();
+          getEndFieldBuilder();
+        }
+      }
+      private static Builder create() {
+        return new Builder();
+      }
+
+      public Builder clear() {
+        super.clear();
+        if (smsBuilder_ == null) {
+          sms_ = org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage.getDefaultInstance();
+        } else {
+          smsBuilder_.clear();
+        }
+        bitField0_ = (bitField0_ & ~0x00000001);
+        if (mmsBuilder_ == null) {
+          mms_ = org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage.getDefaultInstance();
+        } else {
+          mmsBuilder_.clear();
+        }
+        bitField0_ = (bitField0_ & ~0x00000002);
+        if (attachmentBuilder_ == null) {
+          attachment_ = org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment.getDefaultInstance();
+        } else {
+          attachmentBuilder_.clear();
+        }
+        bitField0_ = (bitField0_ & ~0x00000004);
+        attachmentData_ = com.google.protobuf.ByteString.EMPTY;
+        bitField0_ = (bitField0_ & ~0x00000008);
+        if (endBuilder_ == null) {
+          end_ = org.thoughtcrime.securesms.database.backup.BackupProtos.End.getDefaultInstance();
+        } else {
+          endBuilder_.clear();
+        }
+        bitField0_ = (bitField0_ & ~0x00000010);
+        return this;
+      }
+
+      public Builder clone() {
+        return create().mergeFrom(buildPartial());
+      }
+
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.internal_static_signal_BackupRecord_descriptor;
+      }
+
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord getDefaultInstanceForType() {
+        return org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord.getDefaultInstance();
+      }
+
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord build() {
+        org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord buildPartial() {
+        org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord result = new org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord(this);
+        int from_bitField0_ = bitField0_;
+        int to_bitField0_ = 0;
+        if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
+          to_bitField0_ |= 0x00000001;
+        }
+        if (smsBuilder_ == null) {
+          result.sms_ = sms_;
+        } else {
+          result.sms_ = smsBuilder_.build();
+        }
+        if (((from_bitField0_ & 0x00000002) == 0x00000002)) {
+          to_bitField0_ |= 0x00000002;
+        }
+        if (mmsBuilder_ == null) {
+          result.mms_ = mms_;
+        } else {
+          result.mms_ = mmsBuilder_.build();
+        }
+        if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
+          to_bitField0_ |= 0x00000004;
+        }
+        if (attachmentBuilder_ == null) {
+          result.attachment_ = attachment_;
+        } else {
+          result.attachment_ = attachmentBuilder_.build();
+        }
+        if (((from_bitField0_ & 0x00000008) == 0x00000008)) {
+          to_bitField0_ |= 0x00000008;
+        }
+        result.attachmentData_ = attachmentData_;
+        if (((from_bitField0_ & 0x00000010) == 0x00000010)) {
+          to_bitField0_ |= 0x00000010;
+        }
+        if (endBuilder_ == null) {
+          result.end_ = end_;
+        } else {
+          result.end_ = endBuilder_.build();
+        }
+        result.bitField0_ = to_bitField0_;
+        onBuilt();
+        return result;
+      }
+
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord) {
+          return mergeFrom((org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord other) {
+        if (other == org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord.getDefaultInstance()) return this;
+        if (other.hasSms()) {
+          mergeSms(other.getSms());
+        }
+        if (other.hasMms()) {
+          mergeMms(other.getMms());
+        }
+        if (other.hasAttachment()) {
+          mergeAttachment(other.getAttachment());
+        }
+        if (other.hasAttachmentData()) {
+          setAttachmentData(other.getAttachmentData());
+        }
+        if (other.hasEnd()) {
+          mergeEnd(other.getEnd());
+        }
+        this.mergeUnknownFields(other.getUnknownFields());
+        return this;
+      }
+
+      public final boolean isInitialized() {
+        return true;
+      }
+
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord) e.getUnfinishedMessage();
+          throw e;
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
+      }
+      private int bitField0_;
+
+      // optional .signal.SmsMessage sms = 1;
+      private org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage sms_ = org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage.getDefaultInstance();
+      private com.google.protobuf.SingleFieldBuilder<
+          org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage, org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage.Builder, org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessageOrBuilder> smsBuilder_;
+      /**
+       * <code>optional .signal.SmsMessage sms = 1;</code>
+       */
+      public boolean hasSms() {
+        return ((bitField0_ & 0x00000001) == 0x00000001);
+      }
+      /**
+       * <code>optional .signal.SmsMessage sms = 1;</code>
+       */
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage getSms() {
+        if (smsBuilder_ == null) {
+          return sms_;
+        } else {
+          return smsBuilder_.getMessage();
+        }
+      }
+      /**
+       * <code>optional .signal.SmsMessage sms = 1;</code>
+       */
+      public Builder setSms(org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage value) {
+        if (smsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          sms_ = value;
+          onChanged();
+        } else {
+          smsBuilder_.setMessage(value);
+        }
+        bitField0_ |= 0x00000001;
+        return this;
+      }
+      /**
+       * <code>optional .signal.SmsMessage sms = 1;</code>
+       */
+      public Builder setSms(
+          org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage.Builder builderForValue) {
+        if (smsBuilder_ == null) {
+          sms_ = builderForValue.build();
+          onChanged();
+        } else {
+          smsBuilder_.setMessage(builderForValue.build());
+        }
+        bitField0_ |= 0x00000001;
+        return this;
+      }
+      /**
+       * <code>optional .signal.SmsMessage sms = 1;</code>
+       */
+      public Builder mergeSms(org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage value) {
+        if (smsBuilder_ == null) {
+          if (((bitField0_ & 0x00000001) == 0x00000001) &&
+              sms_ != org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage.getDefaultInstance()) {
+            sms_ =
+              org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage.newBuilder(sms_).mergeFrom(value).buildPartial();
+          } else {
+            sms_ = value;
+          }
+          onChanged();
+        } else {
+          smsBuilder_.mergeFrom(value);
+        }
+        bitField0_ |= 0x00000001;
+        return this;
+      }
+      /**
+       * <code>optional .signal.SmsMessage sms = 1;</code>
+       */
+      public Builder clearSms() {
+        if (smsBuilder_ == null) {
+          sms_ = org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage.getDefaultInstance();
+          onChanged();
+        } else {
+          smsBuilder_.clear();
+        }
+        bitField0_ = (bitField0_ & ~0x00000001);
+        return this;
+      }
+      /**
+       * <code>optional .signal.SmsMessage sms = 1;</code>
+       */
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage.Builder getSmsBuilder() {
+        bitField0_ |= 0x00000001;
+        onChanged();
+        return getSmsFieldBuilder().getBuilder();
+      }
+      /**
+       * <code>optional .signal.SmsMessage sms = 1;</code>
+       */
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessageOrBuilder getSmsOrBuilder() {
+        if (smsBuilder_ != null) {
+          return smsBuilder_.getMessageOrBuilder();
+        } else {
+          return sms_;
+        }
+      }
+      /**
+       * <code>optional .signal.SmsMessage sms = 1;</code>
+       */
+      private com.google.protobuf.SingleFieldBuilder<
+          org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage, org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage.Builder, org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessageOrBuilder> 
+          getSmsFieldBuilder() {
+        if (smsBuilder_ == null) {
+          smsBuilder_ = new com.google.protobuf.SingleFieldBuilder<
+              org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage, org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage.Builder, org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessageOrBuilder>(
+                  sms_,
+                  getParentForChildren(),
+                  isClean());
+          sms_ = null;
+        }
+        return smsBuilder_;
+      }
+
+      // optional .signal.MmsMessage mms = 2;
+      private org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage mms_ = org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage.getDefaultInstance();
+      private com.google.protobuf.SingleFieldBuilder<
+          org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage, org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage.Builder, org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessageOrBuilder> mmsBuilder_;
+      /**
+       * <code>optional .signal.MmsMessage mms = 2;</code>
+       */
+      public boolean hasMms() {
+        return ((bitField0_ & 0x00000002) == 0x00000002);
+      }
+      /**
+       * <code>optional .signal.MmsMessage mms = 2;</code>
+       */
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage getMms() {
+        if (mmsBuilder_ == null) {
+          return mms_;
+        } else {
+          return mmsBuilder_.getMessage();
+        }
+      }
+      /**
+       * <code>optional .signal.MmsMessage mms = 2;</code>
+       */
+      public Builder setMms(org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage value) {
+        if (mmsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          mms_ = value;
+          onChanged();
+        } else {
+          mmsBuilder_.setMessage(value);
+        }
+        bitField0_ |= 0x00000002;
+        return this;
+      }
+      /**
+       * <code>optional .signal.MmsMessage mms = 2;</code>
+       */
+      public Builder setMms(
+          org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage.Builder builderForValue) {
+        if (mmsBuilder_ == null) {
+          mms_ = builderForValue.build();
+          onChanged();
+        } else {
+          mmsBuilder_.setMessage(builderForValue.build());
+        }
+        bitField0_ |= 0x00000002;
+        return this;
+      }
+      /**
+       * <code>optional .signal.MmsMessage mms = 2;</code>
+       */
+      public Builder mergeMms(org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage value) {
+        if (mmsBuilder_ == null) {
+          if (((bitField0_ & 0x00000002) == 0x00000002) &&
+              mms_ != org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage.getDefaultInstance()) {
+            mms_ =
+              org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage.newBuilder(mms_).mergeFrom(value).buildPartial();
+          } else {
+            mms_ = value;
+          }
+          onChanged();
+        } else {
+          mmsBuilder_.mergeFrom(value);
+        }
+        bitField0_ |= 0x00000002;
+        return this;
+      }
+      /**
+       * <code>optional .signal.MmsMessage mms = 2;</code>
+       */
+      public Builder clearMms() {
+        if (mmsBuilder_ == null) {
+          mms_ = org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage.getDefaultInstance();
+          onChanged();
+        } else {
+          mmsBuilder_.clear();
+        }
+        bitField0_ = (bitField0_ & ~0x00000002);
+        return this;
+      }
+      /**
+       * <code>optional .signal.MmsMessage mms = 2;</code>
+       */
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage.Builder getMmsBuilder() {
+        bitField0_ |= 0x00000002;
+        onChanged();
+        return getMmsFieldBuilder().getBuilder();
+      }
+      /**
+       * <code>optional .signal.MmsMessage mms = 2;</code>
+       */
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessageOrBuilder getMmsOrBuilder() {
+        if (mmsBuilder_ != null) {
+          return mmsBuilder_.getMessageOrBuilder();
+        } else {
+          return mms_;
+        }
+      }
+      /**
+       * <code>optional .signal.MmsMessage mms = 2;</code>
+       */
+      private com.google.protobuf.SingleFieldBuilder<
+          org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage, org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage.Builder, org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessageOrBuilder> 
+          getMmsFieldBuilder() {
+        if (mmsBuilder_ == null) {
+          mmsBuilder_ = new com.google.protobuf.SingleFieldBuilder<
+              org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage, org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage.Builder, org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessageOrBuilder>(
+                  mms_,
+                  getParentForChildren(),
+                  isClean());
+          mms_ = null;
+        }
+        return mmsBuilder_;
+      }
+
+      // optional .signal.Attachment attachment = 3;
+      private org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment attachment_ = org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment.getDefaultInstance();
+      private com.google.protobuf.SingleFieldBuilder<
+          org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment, org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment.Builder, org.thoughtcrime.securesms.database.backup.BackupProtos.AttachmentOrBuilder> attachmentBuilder_;
+      /**
+       * <code>optional .signal.Attachment attachment = 3;</code>
+       */
+      public boolean hasAttachment() {
+        return ((bitField0_ & 0x00000004) == 0x00000004);
+      }
+      /**
+       * <code>optional .signal.Attachment attachment = 3;</code>
+       */
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment getAttachment() {
+        if (attachmentBuilder_ == null) {
+          return attachment_;
+        } else {
+          return attachmentBuilder_.getMessage();
+        }
+      }
+      /**
+       * <code>optional .signal.Attachment attachment = 3;</code>
+       */
+      public Builder setAttachment(org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment value) {
+        if (attachmentBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          attachment_ = value;
+          onChanged();
+        } else {
+          attachmentBuilder_.setMessage(value);
+        }
+        bitField0_ |= 0x00000004;
+        return this;
+      }
+      /**
+       * <code>optional .signal.Attachment attachment = 3;</code>
+       */
+      public Builder setAttachment(
+          org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment.Builder builderForValue) {
+        if (attachmentBuilder_ == null) {
+          attachment_ = builderForValue.build();
+          onChanged();
+        } else {
+          attachmentBuilder_.setMessage(builderForValue.build());
+        }
+        bitField0_ |= 0x00000004;
+        return this;
+      }
+      /**
+       * <code>optional .signal.Attachment attachment = 3;</code>
+       */
+      public Builder mergeAttachment(org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment value) {
+        if (attachmentBuilder_ == null) {
+          if (((bitField0_ & 0x00000004) == 0x00000004) &&
+              attachment_ != org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment.getDefaultInstance()) {
+            attachment_ =
+              org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment.newBuilder(attachment_).mergeFrom(value).buildPartial();
+          } else {
+            attachment_ = value;
+          }
+          onChanged();
+        } else {
+          attachmentBuilder_.mergeFrom(value);
+        }
+        bitField0_ |= 0x00000004;
+        return this;
+      }
+      /**
+       * <code>optional .signal.Attachment attachment = 3;</code>
+       */
+      public Builder clearAttachment() {
+        if (attachmentBuilder_ == null) {
+          attachment_ = org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment.getDefaultInstance();
+          onChanged();
+        } else {
+          attachmentBuilder_.clear();
+        }
+        bitField0_ = (bitField0_ & ~0x00000004);
+        return this;
+      }
+      /**
+       * <code>optional .signal.Attachment attachment = 3;</code>
+       */
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment.Builder getAttachmentBuilder() {
+        bitField0_ |= 0x00000004;
+        onChanged();
+        return getAttachmentFieldBuilder().getBuilder();
+      }
+      /**
+       * <code>optional .signal.Attachment attachment = 3;</code>
+       */
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.AttachmentOrBuilder getAttachmentOrBuilder() {
+        if (attachmentBuilder_ != null) {
+          return attachmentBuilder_.getMessageOrBuilder();
+        } else {
+          return attachment_;
+        }
+      }
+      /**
+       * <code>optional .signal.Attachment attachment = 3;</code>
+       */
+      private com.google.protobuf.SingleFieldBuilder<
+          org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment, org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment.Builder, org.thoughtcrime.securesms.database.backup.BackupProtos.AttachmentOrBuilder> 
+          getAttachmentFieldBuilder() {
+        if (attachmentBuilder_ == null) {
+          attachmentBuilder_ = new com.google.protobuf.SingleFieldBuilder<
+              org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment, org.thoughtcrime.securesms.database.backup.BackupProtos.Attachment.Builder, org.thoughtcrime.securesms.database.backup.BackupProtos.AttachmentOrBuilder>(
+                  attachment_,
+                  getParentForChildren(),
+                  isClean());
+          attachment_ = null;
+        }
+        return attachmentBuilder_;
+      }
+
+      // optional bytes attachmentData = 4;
+      private com.google.protobuf.ByteString attachmentData_ = com.google.protobuf.ByteString.EMPTY;
+      /**
+       * <code>optional bytes attachmentData = 4;</code>
+       */
+      public boolean hasAttachmentData() {
+        return ((bitField0_ & 0x00000008) == 0x00000008);
+      }
+      /**
+       * <code>optional bytes attachmentData = 4;</code>
+       */
+      public com.google.protobuf.ByteString getAttachmentData() {
+        return attachmentData_;
+      }
+      /**
+       * <code>optional bytes attachmentData = 4;</code>
+       */
+      public Builder setAttachmentData(com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000008;
+        attachmentData_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional bytes attachmentData = 4;</code>
+       */
+      public Builder clearAttachmentData() {
+        bitField0_ = (bitField0_ & ~0x00000008);
+        attachmentData_ = getDefaultInstance().getAttachmentData();
+        onChanged();
+        return this;
+      }
+
+      // optional .signal.End end = 5;
+      private org.thoughtcrime.securesms.database.backup.BackupProtos.End end_ = org.thoughtcrime.securesms.database.backup.BackupProtos.End.getDefaultInstance();
+      private com.google.protobuf.SingleFieldBuilder<
+          org.thoughtcrime.securesms.database.backup.BackupProtos.End, org.thoughtcrime.securesms.database.backup.BackupProtos.End.Builder, org.thoughtcrime.securesms.database.backup.BackupProtos.EndOrBuilder> endBuilder_;
+      /**
+       * <code>optional .signal.End end = 5;</code>
+       */
+      public boolean hasEnd() {
+        return ((bitField0_ & 0x00000010) == 0x00000010);
+      }
+      /**
+       * <code>optional .signal.End end = 5;</code>
+       */
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.End getEnd() {
+        if (endBuilder_ == null) {
+          return end_;
+        } else {
+          return endBuilder_.getMessage();
+        }
+      }
+      /**
+       * <code>optional .signal.End end = 5;</code>
+       */
+      public Builder setEnd(org.thoughtcrime.securesms.database.backup.BackupProtos.End value) {
+        if (endBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          end_ = value;
+          onChanged();
+        } else {
+          endBuilder_.setMessage(value);
+        }
+        bitField0_ |= 0x00000010;
+        return this;
+      }
+      /**
+       * <code>optional .signal.End end = 5;</code>
+       */
+      public Builder setEnd(
+          org.thoughtcrime.securesms.database.backup.BackupProtos.End.Builder builderForValue) {
+        if (endBuilder_ == null) {
+          end_ = builderForValue.build();
+          onChanged();
+        } else {
+          endBuilder_.setMessage(builderForValue.build());
+        }
+        bitField0_ |= 0x00000010;
+        return this;
+      }
+      /**
+       * <code>optional .signal.End end = 5;</code>
+       */
+      public Builder mergeEnd(org.thoughtcrime.securesms.database.backup.BackupProtos.End value) {
+        if (endBuilder_ == null) {
+          if (((bitField0_ & 0x00000010) == 0x00000010) &&
+              end_ != org.thoughtcrime.securesms.database.backup.BackupProtos.End.getDefaultInstance()) {
+            end_ =
+              org.thoughtcrime.securesms.database.backup.BackupProtos.End.newBuilder(end_).mergeFrom(value).buildPartial();
+          } else {
+            end_ = value;
+          }
+          onChanged();
+        } else {
+          endBuilder_.mergeFrom(value);
+        }
+        bitField0_ |= 0x00000010;
+        return this;
+      }
+      /**
+       * <code>optional .signal.End end = 5;</code>
+       */
+      public Builder clearEnd() {
+        if (endBuilder_ == null) {
+          end_ = org.thoughtcrime.securesms.database.backup.BackupProtos.End.getDefaultInstance();
+          onChanged();
+        } else {
+          endBuilder_.clear();
+        }
+        bitField0_ = (bitField0_ & ~0x00000010);
+        return this;
+      }
+      /**
+       * <code>optional .signal.End end = 5;</code>
+       */
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.End.Builder getEndBuilder() {
+        bitField0_ |= 0x00000010;
+        onChanged();
+        return getEndFieldBuilder().getBuilder();
+      }
+      /**
+       * <code>optional .signal.End end = 5;</code>
+       */
+      public org.thoughtcrime.securesms.database.backup.BackupProtos.EndOrBuilder getEndOrBuilder() {
+        if (endBuilder_ != null) {
+          return endBuilder_.getMessageOrBuilder();
+        } else {
+          return end_;
+        }
+      }
+      /**
+       * <code>optional .signal.End end = 5;</code>
+       */
+      private com.google.protobuf.SingleFieldBuilder<
+          org.thoughtcrime.securesms.database.backup.BackupProtos.End, org.thoughtcrime.securesms.database.backup.BackupProtos.End.Builder, org.thoughtcrime.securesms.database.backup.BackupProtos.EndOrBuilder> 
+          getEndFieldBuilder() {
+        if (endBuilder_ == null) {
+          endBuilder_ = new com.google.protobuf.SingleFieldBuilder<
+              org.thoughtcrime.securesms.database.backup.BackupProtos.End, org.thoughtcrime.securesms.database.backup.BackupProtos.End.Builder, org.thoughtcrime.securesms.database.backup.BackupProtos.EndOrBuilder>(
+                  end_,
+                  getParentForChildren(),
+                  isClean());
+          end_ = null;
+        }
+        return endBuilder_;
+      }
+
+      // @@protoc_insertion_point(builder_scope:signal.BackupRecord)
+    }
+
+    static {
+      defaultInstance = new BackupRecord(true);
+      defaultInstance.initFields();
+    }
+
+    // @@protoc_insertion_point(class_scope:signal.BackupRecord)
+  }
+
+  private static com.google.protobuf.Descriptors.Descriptor
+    internal_static_signal_BackupHeader_descriptor;
+  private static
+    com.google.protobuf.GeneratedMessage.FieldAccessorTable
+      internal_static_signal_BackupHeader_fieldAccessorTable;
+  private static com.google.protobuf.Descriptors.Descriptor
+    internal_static_signal_SmsMessage_descriptor;
+  private static
+    com.google.protobuf.GeneratedMessage.FieldAccessorTable
+      internal_static_signal_SmsMessage_fieldAccessorTable;
+  private static com.google.protobuf.Descriptors.Descriptor
+    internal_static_signal_MmsMessage_descriptor;
+  private static
+    com.google.protobuf.GeneratedMessage.FieldAccessorTable
+      internal_static_signal_MmsMessage_fieldAccessorTable;
+  private static com.google.protobuf.Descriptors.Descriptor
+    internal_static_signal_Attachment_descriptor;
+  private static
+    com.google.protobuf.GeneratedMessage.FieldAccessorTable
+      internal_static_signal_Attachment_fieldAccessorTable;
+  private static com.google.protobuf.Descriptors.Descriptor
+    internal_static_signal_End_descriptor;
+  private static
+    com.google.protobuf.GeneratedMessage.FieldAccessorTable
+      internal_static_signal_End_fieldAccessorTable;
+  private static com.google.protobuf.Descriptors.Descriptor
+    internal_static_signal_BackupRecord_descriptor;
+  private static
+    com.google.protobuf.GeneratedMessage.FieldAccessorTable
+      internal_static_signal_BackupRecord_fieldAccessorTable;
+
+  public static com.google.protobuf.Descriptors.FileDescriptor
+      getDescriptor() {
+    return descriptor;
+  }
+  private static com.google.protobuf.Descriptors.FileDescriptor
+      descriptor;
+  static {
+    java.lang.String[] descriptorData = {
+      "\n\014Backup.proto\022\006signal\"\217\001\n\014BackupHeader\022" +
+      "\017\n\007version\030\001 \001(\r\022\014\n\004salt\030\002 \001(\014\022\022\n\niterat" +
+      "ions\030\003 \001(\r\022\020\n\010keyCheck\030\004 \001(\014\022\022\n\ncompress" +
+      "ed\030\005 \001(\010\022\022\n\nsmsAfterId\030\006 \001(\004\022\022\n\nmmsAfter" +
+      "Id\030\007 \001(\004\"\210\001\n\nSmsMessage\022\017\n\007address\030\001 \001(\t" +
+      "\022\025\n\rthreadAddress\030\002 \001(\t\022\020\n\010dateSent\030\003 \001(" +
+      "\004\022\024\n\014dateReceived\030\004 \001(\004\022\014\n\004type\030\005 \001(\004\022\016\n" +
+      "\006status\030\006 \001(\005\022\014\n\004body\030\007 \001(\t\"\266\001\n\nMmsMessa" +
+      "ge\022\025\n\rthreadAddress\030\001 \001(\t\022\014\n\004from\030\002 \001(\t\022" +
+      "\n\n\002to\030\003 \003(\t\022\020\n\010dateSent\030\004 \001(\004\022\024\n\014dateRec",
+      "eived\030\005 \001(\004\022\014\n\004type\030\006 \001(\004\022\014\n\004body\030\007 \001(\t\022" +
+      "\032\n\016subscriptionId\030\010 \001(\005:\002-1\022\027\n\017attachmen" +
+      "tCount\030\t \001(\r\"S\n\nAttachment\022\023\n\013contentTyp" +
+      "e\030\001 \001(\t\022\020\n\010fileName\030\002 \001(\t\022\020\n\010location\030\003 " +
+      "\001(\t\022\014\n\004size\030\004 \001(\004\"\033\n\003End\022\024\n\014messageCount" +
+      "\030\001 \001(\r\"\252\001\n\014BackupRecord\022\037\n\003sms\030\001 \001(\0132\022.s" +
+      "ignal.SmsMessage\022\037\n\003mms\030\002 \001(\0132\022.signal.M" +
+      "msMessage\022&\n\nattachment\030\003 \001(\0132\022.signal.A" +
+      "ttachment\022\026\n\016attachmentData\030\004 \001(\014\022\030\n\003end" +
+      "\030\005 \001(\0132\013.signal.EndB:\n*org.thoughtcrime.",
+      "securesms.database.backupB\014BackupProtos"
+    };
+    com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
+      new com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner() {
+        public com.google.protobuf.ExtensionRegistry assignDescriptors(
+            com.google.protobuf.Descriptors.FileDescriptor root) {
+          descriptor = root;
+          internal_static_signal_BackupHeader_descriptor =
+            getDescriptor().getMessageTypes().get(0);
+          internal_static_signal_BackupHeader_fieldAccessorTable = new
+            com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+              internal_static_signal_BackupHeader_descriptor,
+              new java.lang.String[] { "Version", "Salt", "Iterations", "KeyCheck", "Compressed", "SmsAfterId", "MmsAfterId", });
+          internal_static_signal_SmsMessage_descriptor =
+            getDescriptor().getMessageTypes().get(1);
+          internal_static_signal_SmsMessage_fieldAccessorTable = new
+            com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+              internal_static_signal_SmsMessage_descriptor,
+              new java.lang.String[] { "Address", "ThreadAddress", "DateSent", "DateReceived", "Type", "Status", "Body", });
+          internal_static_signal_MmsMessage_descriptor =
+            getDescriptor().getMessageTypes().get(2);
+          internal_static_signal_MmsMessage_fieldAccessorTable = new
+            com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+              internal_static_signal_MmsMessage_descriptor,
+              new java.lang.String[] { "ThreadAddress", "From", "To", "DateSent", "DateReceived", "Type", "Body", "SubscriptionId", "AttachmentCount", });
+          internal_static_signal_Attachment_descriptor =
+            getDescriptor().getMessageTypes().get(3);
+          internal_static_signal_Attachment_fieldAccessorTable = new
+            com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+              internal_static_signal_Attachment_descriptor,
+              new java.lang.String[] { "ContentType", "FileName", "Location", "Size", });
+          internal_static_signal_End_descriptor =
+            getDescriptor().getMessageTypes().get(4);
+          internal_static_signal_End_fieldAccessorTable = new
+            com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+              internal_static_signal_End_descriptor,
+              new java.lang.String[] { "MessageCount", });
+          internal_static_signal_BackupRecord_descriptor =
+            getDescriptor().getMessageTypes().get(5);
+          internal_static_signal_BackupRecord_fieldAccessorTable = new
+            com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+              internal_static_signal_BackupRecord_descriptor,
+              new java.lang.String[] { "Sms", "Mms", "Attachment", "AttachmentData", "End", });
+          return null;
+        }
+      };
+    com.google.protobuf.Descriptors.FileDescriptor
+      .internalBuildGeneratedFileFrom(descriptorData,
+        new com.google.protobuf.Descriptors.FileDescriptor[] {
+        }, assigner);
+  }
+
+  // @@protoc_insertion_point(outer_class_scope)
+}
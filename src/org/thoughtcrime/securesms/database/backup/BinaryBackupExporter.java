@@ -0,0 +1,332 @@
+package org.thoughtcrime.securesms.database.backup;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import android.util.Pair;
+
+import com.google.protobuf.ByteString;
+
+import org.thoughtcrime.securesms.attachments.Attachment;
+import org.thoughtcrime.securesms.crypto.MasterSecret;
+import org.thoughtcrime.securesms.database.DatabaseFactory;
+import org.thoughtcrime.securesms.database.GroupDatabase;
+import org.thoughtcrime.securesms.database.MmsDatabase;
+import org.thoughtcrime.securesms.database.NoExternalStorageException;
+import org.thoughtcrime.securesms.database.SmsDatabase;
+import org.thoughtcrime.securesms.database.ThreadDatabase;
+import org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord;
+import org.thoughtcrime.securesms.database.backup.BackupProtos.End;
+import org.thoughtcrime.securesms.database.backup.BackupProtos.MmsMessage;
+import org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage;
+import org.thoughtcrime.securesms.database.model.MediaMmsMessageRecord;
+import org.thoughtcrime.securesms.database.model.MessageRecord;
+import org.thoughtcrime.securesms.database.model.SmsMessageRecord;
+import org.thoughtcrime.securesms.mms.PartAuthority;
+import org.thoughtcrime.securesms.recipients.Recipient;
+import org.thoughtcrime.securesms.recipients.Recipients;
+import org.thoughtcrime.securesms.util.GroupUtil;
+import org.thoughtcrime.securesms.util.StorageUtil;
+import org.thoughtcrime.securesms.util.TextSecurePreferences;
+import org.thoughtcrime.securesms.util.Util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Exports messages to the binary backup format of protobuf/Backup.proto.
+ * Incremental exports are written as deltas next to the full backup, and
+ * only hold the messages added since the last export, which is tracked by
+ * the highest sms and mms ids written.
+ */
+public class BinaryBackupExporter {
+
+  private static final String TAG = BinaryBackupExporter.class.getSimpleName();
+
+  private static final String FILENAME          = "SignalBackup.bin";
+  private static final String DELTA_FILENAME    = "SignalBackup-delta-%d.bin";
+  private static final int    PAGE_SIZE         = 500;
+  private static final int    WRITE_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * @param incremental only write the messages added since the last export,
+   *                    as the next delta against it, if there is a full backup.
+   */
+  public static void exportBinaryToSd(@NonNull Context context, @NonNull MasterSecret masterSecret,
+                                      @NonNull String passphrase, boolean incremental)
+      throws NoExternalStorageException, IOException
+  {
+    Pair<Long, Long> watermarks;
+
+    if (incremental && getBinaryExportFile().exists()) {
+      File delta = getBinaryDeltaFile(getBinaryDeltaFiles().size() + 1);
+
+      watermarks = exportBinary(context, masterSecret, passphrase, delta,
+                                TextSecurePreferences.getBackupSmsWatermark(context),
+                                TextSecurePreferences.getBackupMmsWatermark(context));
+    } else {
+      watermarks = exportBinary(context, masterSecret, passphrase, getBinaryExportFile(), 0, 0);
+
+      for (File delta : getBinaryDeltaFiles()) {
+        if (!delta.delete()) Log.w(TAG, "Couldn't delete old delta " + delta);
+      }
+    }
+
+    TextSecurePreferences.setBackupSmsWatermark(context, watermarks.first);
+    TextSecurePreferences.setBackupMmsWatermark(context, watermarks.second);
+  }
+
+  public static File getBinaryExportFile() throws NoExternalStorageException {
+    return new File(StorageUtil.getBackupDir(), FILENAME);
+  }
+
+  /**
+   * @return the deltas written against the full backup, in the order they
+   *         have to be imported.
+   */
+  public static List<File> getBinaryDeltaFiles() throws NoExternalStorageException {
+    List<File> deltas = new LinkedList<>();
+    File       delta;
+
+    while ((delta = getBinaryDeltaFile(deltas.size() + 1)).exists()) {
+      deltas.add(delta);
+    }
+
+    return deltas;
+  }
+
+  private static File getBinaryDeltaFile(int sequence) throws NoExternalStorageException {
+    return new File(StorageUtil.getBackupDir(), String.format(Locale.US, DELTA_FILENAME, sequence));
+  }
+
+  /**
+   * @return the highest sms and mms ids written, to export after next time.
+   */
+  static Pair<Long, Long> exportBinary(@NonNull Context context, @NonNull MasterSecret masterSecret,
+                                       @NonNull String passphrase, @NonNull File file,
+                                       long smsAfterId, long mmsAfterId)
+      throws IOException
+  {
+    int                     smsCount = DatabaseFactory.getSmsDatabase(context).getMessageCount();
+    int                     mmsCount = DatabaseFactory.getMmsDatabase(context).getMessageCount();
+    BackupProgress          progress = new BackupProgress(TAG, smsCount + mmsCount);
+    BackupFrameOutputStream output   = new BackupFrameOutputStream(new BufferedOutputStream(new FileOutputStream(file), WRITE_BUFFER_SIZE),
+                                                                   passphrase, true, smsAfterId, mmsAfterId);
+    RecordWriter            writer   = new RecordWriter(context, masterSecret, output, progress);
+
+    try {
+      long lastSmsId = writer.writeSms(smsAfterId);
+      long lastMmsId = writer.writeMms(mmsAfterId);
+
+      writer.writeEnd();
+      progress.log();
+
+      return new Pair<>(lastSmsId, lastMmsId);
+    } finally {
+      output.close();
+    }
+  }
+
+  private static class RecordWriter {
+
+    private final Context                 context;
+    private final MasterSecret            masterSecret;
+    private final BackupFrameOutputStream output;
+    private final BackupProgress          progress;
+    private final ThreadDatabase          threads;
+    private final GroupDatabase           groups;
+    private final String                  localNumber;
+    private final byte[]                  buffer           = new byte[BackupFrameOutputStream.FRAME_SIZE];
+    private final Map<Long, Recipients>   threadRecipients = new HashMap<>();
+
+    private int messageCount;
+
+    RecordWriter(Context context, MasterSecret masterSecret, BackupFrameOutputStream output, BackupProgress progress) {
+      this.context      = context;
+      this.masterSecret = masterSecret;
+      this.output       = output;
+      this.progress     = progress;
+      this.threads      = DatabaseFactory.getThreadDatabase(context);
+      this.groups       = DatabaseFactory.getGroupDatabase(context);
+      this.localNumber  = TextSecurePreferences.getLocalNumber(context);
+    }
+
+    long writeSms(long afterId) throws IOException {
+      long lastId = afterId;
+
+      for (long pageLastId : DatabaseFactory.getSmsDatabase(context).getMessagePageBoundaries(PAGE_SIZE)) {
+        if (pageLastId <= afterId) continue;
+
+        SmsDatabase.Reader reader = DatabaseFactory.getEncryptingSmsDatabase(context)
+                                                   .getMessagesInRange(masterSecret, lastId, pageLastId);
+
+        try {
+          SmsMessageRecord record;
+
+          while ((record = reader.getNext()) != null) {
+            Recipients recipients = getThreadRecipients(record.getThreadId());
+
+            if (recipients != null) {
+              SmsMessage.Builder sms = SmsMessage.newBuilder()
+                                                 .setThreadAddress(getThreadAddress(recipients))
+                                                 .setDateSent(record.getDateSent())
+                                                 .setDateReceived(record.getDateReceived())
+                                                 .setType(record.getType())
+                                                 .setStatus(record.getDeliveryStatus());
+
+              if (record.getIndividualRecipient().getNumber() != null) sms.setAddress(record.getIndividualRecipient().getNumber());
+              if (record.getBody().getBody() != null)                  sms.setBody(record.getBody().getBody());
+
+              write(BackupRecord.newBuilder().setSms(sms).build());
+              messageCount++;
+              progress.update(1, 0);
+            }
+          }
+        } finally {
+          reader.close();
+        }
+
+        lastId = pageLastId;
+      }
+
+      return lastId;
+    }
+
+    long writeMms(long afterId) throws IOException {
+      long lastId = afterId;
+
+      for (long pageLastId : DatabaseFactory.getMmsDatabase(context).getMessagePageBoundaries(PAGE_SIZE)) {
+        if (pageLastId <= afterId) continue;
+
+        MmsDatabase.Reader reader = DatabaseFactory.getMmsDatabase(context)
+                                                   .getMessagesInRange(masterSecret, lastId, pageLastId);
+
+        try {
+          MessageRecord record;
+          long          previousId = -1;
+
+          while ((record = reader.getNext()) != null) {
+            // The attachment join repeats a message once for each of its parts
+            if (record.getId() == previousId || record.isMmsNotification()) continue;
+            previousId = record.getId();
+
+            Recipients recipients = getThreadRecipients(record.getThreadId());
+
+            if (recipients != null) {
+              writeMms((MediaMmsMessageRecord) record, recipients);
+              messageCount++;
+              progress.update(1, 0);
+            }
+          }
+        } finally {
+          reader.close();
+        }
+
+        lastId = pageLastId;
+      }
+
+      return lastId;
+    }
+
+    void writeEnd() throws IOException {
+      write(BackupRecord.newBuilder().setEnd(End.newBuilder().setMessageCount(messageCount)).build());
+    }
+
+    private void writeMms(MediaMmsMessageRecord record, Recipients recipients) throws IOException {
+      String           from        = record.isOutgoing() ? localNumber : record.getIndividualRecipient().getNumber();
+      List<String>     to          = new LinkedList<>();
+      List<Attachment> attachments = new LinkedList<>();
+
+      if (recipients.isGroupRecipient()) {
+        byte[] groupId = GroupUtil.getDecodedId(recipients.getPrimaryRecipient().getNumber());
+
+        for (Recipient member : groups.getGroupMembers(groupId, true)) {
+          if (!member.getNumber().equals(from)) to.add(member.getNumber());
+        }
+      } else {
+        to.add(record.isOutgoing() ? recipients.getPrimaryRecipient().getNumber() : localNumber);
+      }
+
+      for (Attachment attachment : record.getSlideDeck().asAttachments()) {
+        if (!attachment.isInProgress() && attachment.getDataUri() != null) {
+          attachments.add(attachment);
+        }
+      }
+
+      MmsMessage.Builder mms = MmsMessage.newBuilder()
+                                         .setThreadAddress(getThreadAddress(recipients))
+                                         .addAllTo(to)
+                                         .setDateSent(record.getDateSent())
+                                         .setDateReceived(record.getDateReceived())
+                                         .setType(record.getType())
+                                         .setSubscriptionId(record.getSubscriptionId())
+                                         .setAttachmentCount(attachments.size());
+
+      if (from != null)                       mms.setFrom(from);
+      if (record.getBody().getBody() != null) mms.setBody(record.getBody().getBody());
+
+      write(BackupRecord.newBuilder().setMms(mms).build());
+
+      for (Attachment attachment : attachments) {
+        BackupProtos.Attachment.Builder part = BackupProtos.Attachment.newBuilder()
+                                                                      .setContentType(attachment.getContentType())
+                                                                      .setSize(attachment.getSize());
+
+        if (attachment.getFileName() != null) part.setFileName(attachment.getFileName());
+        if (attachment.getLocation() != null) part.setLocation(attachment.getLocation());
+
+        write(BackupRecord.newBuilder().setAttachment(part).build());
+        writeAttachmentData(attachment);
+      }
+    }
+
+    private void writeAttachmentData(Attachment attachment) throws IOException {
+      InputStream in = PartAuthority.getAttachmentStream(context, masterSecret, attachment.getDataUri());
+
+      try {
+        int read;
+
+        while ((read = in.read(buffer)) != -1) {
+          write(BackupRecord.newBuilder().setAttachmentData(ByteString.copyFrom(buffer, 0, read)).build());
+        }
+      } finally {
+        in.close();
+      }
+    }
+
+    private void write(BackupRecord record) throws IOException {
+      output.writeRecord(record);
+      progress.update(0, record.getSerializedSize());
+    }
+
+    private @Nullable Recipients getThreadRecipients(long threadId) {
+      if (threadRecipients.containsKey(threadId)) {
+        return threadRecipients.get(threadId);
+      }
+
+      Recipients recipients = threads.getRecipientsForThreadId(threadId);
+
+      if (recipients == null || recipients.isEmpty()) {
+        Log.w(TAG, "No recipients for thread " + threadId + ", skipping its messages");
+        recipients = null;
+      }
+
+      threadRecipients.put(threadId, recipients);
+      return recipients;
+    }
+
+    private static String getThreadAddress(Recipients recipients) {
+      if (recipients.isGroupRecipient()) return recipients.getPrimaryRecipient().getNumber();
+      else                               return Util.join(recipients.toNumberStringArray(false), ",");
+    }
+  }
+}
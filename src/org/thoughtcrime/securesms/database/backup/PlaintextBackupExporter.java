@@ -4,8 +4,11 @@ package org.thoughtcrime.securesms.database.backup;
 import android.content.Context;
 import android.os.Environment;
 import android.support.annotation.Nullable;
+import android.util.Log;
+import android.util.Pair;
 
 import org.thoughtcrime.securesms.crypto.MasterSecret;
+import org.thoughtcrime.securesms.database.BackupJournalDatabase;
 import org.thoughtcrime.securesms.database.DatabaseFactory;
 import org.thoughtcrime.securesms.database.EncryptingSmsDatabase;
 import org.thoughtcrime.securesms.database.MmsDatabase;
@@ -17,83 +20,378 @@ import org.thoughtcrime.securesms.database.model.MessageRecord;
 import org.thoughtcrime.securesms.database.model.NotificationMmsMessageRecord;
 import org.thoughtcrime.securesms.database.model.SmsMessageRecord;
 import org.thoughtcrime.securesms.util.StorageUtil;
+import org.thoughtcrime.securesms.util.TextSecurePreferences;
+import org.thoughtcrime.securesms.util.Util;
 import org.thoughtcrime.securesms.recipients.Recipient;
+import org.thoughtcrime.securesms.recipients.RecipientFactory;
 import org.thoughtcrime.securesms.recipients.Recipients;
 
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class PlaintextBackupExporter {
 
-  private static final String FILENAME = "SignalPlaintextBackup.xml";
+  private static final String TAG = PlaintextBackupExporter.class.getSimpleName();
 
-  public static void exportPlaintextToSd(Context context, MasterSecret masterSecret)
+  private static final String FILENAME       = "SignalPlaintextBackup.xml";
+  private static final String DELTA_FILENAME = "SignalPlaintextBackup-delta-%d.xml";
+
+  private static final int  PAGE_SIZE           = 500;
+  private static final int  WORKER_COUNT        = Math.min(4, Math.max(2, Runtime.getRuntime().availableProcessors()));
+  private static final int  MAX_PENDING_PAGES   = WORKER_COUNT * 2;
+  private static final int  WRITE_BUFFER_SIZE   = 64 * 1024;
+
+  /**
+   * @param incremental only write what changed since the last backup, as the
+   *                    next delta against it, if there is a full backup.
+   */
+  public static void exportPlaintextToSd(Context context, MasterSecret masterSecret, boolean incremental)
       throws NoExternalStorageException, IOException
   {
-    exportPlaintext(context, masterSecret);
+    long journalWatermark = TextSecurePreferences.getPlaintextBackupJournalWatermark(context);
+
+    if (incremental && journalWatermark >= 0 && getPlaintextExportFile().exists()) {
+      exportDelta(context, masterSecret, journalWatermark);
+    } else {
+      exportPlaintext(context, masterSecret);
+    }
   }
 
   public static File getPlaintextExportFile() throws NoExternalStorageException {
     return new File(StorageUtil.getBackupDir(), FILENAME);
   }
 
+  /**
+   * @return the deltas written against the full backup, in the order they
+   *         have to be applied.
+   */
+  public static List<File> getPlaintextDeltaFiles() throws NoExternalStorageException {
+    List<File> deltas = new LinkedList<>();
+    File       delta;
+
+    while ((delta = getPlaintextDeltaFile(deltas.size() + 1)).exists()) {
+      deltas.add(delta);
+    }
+
+    return deltas;
+  }
+
+  private static File getPlaintextDeltaFile(int sequence) throws NoExternalStorageException {
+    return new File(StorageUtil.getBackupDir(), String.format(Locale.US, DELTA_FILENAME, sequence));
+  }
+
   private static void exportPlaintext(Context context, MasterSecret masterSecret)
       throws NoExternalStorageException, IOException
   {
+    BackupJournalDatabase journal = DatabaseFactory.getBackupJournalDatabase(context);
+    journal.enable();
+
+    long             journalId = journal.getLastId();
+    Pair<Long, Long> lastIds   = exportPlaintext(context, masterSecret, getPlaintextExportFile());
+
+    for (File delta : getPlaintextDeltaFiles()) {
+      if (!delta.delete()) Log.w(TAG, "Couldn't delete old delta " + delta);
+    }
+
+    saveWatermarks(context, lastIds.first, lastIds.second, journalId, 0);
+    journal.clear(journalId);
+  }
+
+  /**
+   * @return the highest sms and mms ids written.
+   */
+  static Pair<Long, Long> exportPlaintext(Context context, MasterSecret masterSecret, File file)
+      throws IOException
+  {
+    long[] smsPages = DatabaseFactory.getSmsDatabase(context).getMessagePageBoundaries(PAGE_SIZE);
+    long[] mmsPages = DatabaseFactory.getMmsDatabase(context).getMessagePageBoundaries(PAGE_SIZE);
+
     int smsCount = DatabaseFactory.getSmsDatabase(context).getMessageCount();
     int mmsCount = DatabaseFactory.getMmsDatabase(context).getMessageCount();
-    BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(getPlaintextExportFile().getAbsolutePath(), false));
+    BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(file.getAbsolutePath(), false), WRITE_BUFFER_SIZE);
     XmlBackupWriter writer = new XmlBackupWriter(bufferedWriter, context, masterSecret);
-    writer.writeHeader(smsCount + mmsCount);
+    BackupProgress progress = new BackupProgress(TAG, smsCount + mmsCount);
+    ExecutorService executor = Executors.newFixedThreadPool(WORKER_COUNT);
+
+    try {
+      writer.writeHeader(smsCount + mmsCount);
+
+      exportPages(executor, writer, getSmsPages(context, masterSecret, smsPages, 0), progress);
+      exportPages(executor, writer, getMmsPages(context, masterSecret, mmsPages, 0), progress);
+
+      writer.close();
+    } finally {
+      executor.shutdownNow();
+    }
 
-    exportSms(context, masterSecret, writer);
-    exportMms(context, masterSecret, writer);
+    progress.log();
 
-    writer.close();
+    return new Pair<>(getLastId(smsPages, 0), getLastId(mmsPages, 0));
   }
 
-  private static void exportMms(Context context, MasterSecret masterSecret, XmlBackupWriter writer) throws IOException {
-    final int ROW_LIMIT = 500;
-    int skip = 0;
+  /**
+   * A delta holds tombstones for the messages of earlier backups that were
+   * deleted or changed, then the current version of the changed messages,
+   * then the messages added since.
+   */
+  private static void exportDelta(Context context, MasterSecret masterSecret, long journalWatermark)
+      throws NoExternalStorageException, IOException
+  {
+    BackupJournalDatabase journal = DatabaseFactory.getBackupJournalDatabase(context);
+    journal.enable();
+
+    long                              journalId  = journal.getLastId();
+    long                              smsAfterId = TextSecurePreferences.getPlaintextBackupSmsWatermark(context);
+    long                              mmsAfterId = TextSecurePreferences.getPlaintextBackupMmsWatermark(context);
+    int                               sequence   = TextSecurePreferences.getPlaintextBackupDeltaCount(context) + 1;
+    long[]                            smsPages   = DatabaseFactory.getSmsDatabase(context).getMessagePageBoundaries(PAGE_SIZE);
+    long[]                            mmsPages   = DatabaseFactory.getMmsDatabase(context).getMessagePageBoundaries(PAGE_SIZE);
+    Set<Long>                         changedSms = new LinkedHashSet<>();
+    Set<Long>                         changedMms = new LinkedHashSet<>();
+    List<BackupJournalDatabase.Entry> deleted    = new LinkedList<>();
+
+    for (BackupJournalDatabase.Entry entry : journal.getEntries(journalWatermark, journalId)) {
+      Set<Long> changed = entry.isMms() ? changedMms : changedSms;
+
+      // Messages newer than the last backup are written in full below
+      if (entry.getMessageId() > (entry.isMms() ? mmsAfterId : smsAfterId)) continue;
+
+      if (entry.isDeleted()) {
+        changed.remove(entry.getMessageId());
+        deleted.add(entry);
+      } else {
+        changed.add(entry.getMessageId());
+      }
+    }
+
+    int count = changedSms.size() + changedMms.size() +
+                DatabaseFactory.getSmsDatabase(context).getMessageCountAfter(smsAfterId) +
+                DatabaseFactory.getMmsDatabase(context).getMessageCountAfter(mmsAfterId);
+
+    BufferedWriter  bufferedWriter = new BufferedWriter(new FileWriter(getPlaintextDeltaFile(sequence).getAbsolutePath(), false), WRITE_BUFFER_SIZE);
+    XmlBackupWriter writer         = new XmlBackupWriter(bufferedWriter, context, masterSecret);
+    BackupProgress  progress       = new BackupProgress(TAG, count);
+    ExecutorService executor       = Executors.newFixedThreadPool(WORKER_COUNT);
 
-    MmsDatabase mmsDatabase = DatabaseFactory.getMmsDatabase(context);
-    MmsDatabase.Reader mmsReader = null;
-    do {
-      if (mmsReader != null)
-        mmsReader.close();
+    try {
+      writer.writeHeader(count);
 
-      mmsReader = mmsDatabase.getMessages(masterSecret, skip, ROW_LIMIT);
+      for (BackupJournalDatabase.Entry entry : deleted) {
+        Recipients threadRecipients = entry.getThreadRecipientIds() == null ? null :
+                                      RecipientFactory.getRecipientsForIds(context, entry.getThreadRecipientIds(), false);
 
-      MessageRecord mmsRecord;
-      while ((mmsRecord = mmsReader.getNext()) != null) {
-        writer.writeRecord(mmsRecord);
+        writer.writeTombstone(entry.getDateSent(), entry.getAddress(), getThreadAddress(threadRecipients), entry.isOutgoing());
       }
 
-      skip += ROW_LIMIT;
-    } while (mmsReader.getCount() > 0);
+      for (long messageId : changedSms) {
+        SmsDatabase.Reader reader = DatabaseFactory.getEncryptingSmsDatabase(context)
+                                                   .getMessagesInRange(masterSecret, messageId - 1, messageId);
+        try {
+          writeChangedRecord(context, writer, reader.getNext());
+        } finally {
+          reader.close();
+        }
+      }
+
+      for (long messageId : changedMms) {
+        MmsDatabase.Reader reader = DatabaseFactory.getMmsDatabase(context)
+                                                   .getMessagesInRange(masterSecret, messageId - 1, messageId);
+        try {
+          writeChangedRecord(context, writer, reader.getNext());
+        } finally {
+          reader.close();
+        }
+      }
+
+      progress.update(changedSms.size() + changedMms.size(), 0);
+
+      exportPages(executor, writer, getSmsPages(context, masterSecret, smsPages, smsAfterId), progress);
+      exportPages(executor, writer, getMmsPages(context, masterSecret, mmsPages, mmsAfterId), progress);
+
+      writer.close();
+    } finally {
+      executor.shutdownNow();
+    }
+
+    saveWatermarks(context, getLastId(smsPages, smsAfterId), getLastId(mmsPages, mmsAfterId), journalId, sequence);
+    journal.clear(journalId);
+
+    Log.w(TAG, "Wrote delta " + sequence + " with " + deleted.size() + " deleted, " +
+               (changedSms.size() + changedMms.size()) + " changed messages");
+    progress.log();
+  }
+
+  private static void writeChangedRecord(Context context, XmlBackupWriter writer, @Nullable MessageRecord record)
+      throws IOException
+  {
+    if (record == null) return;
+
+    Recipients threadRecipients = DatabaseFactory.getThreadDatabase(context).getRecipientsForThreadId(record.getThreadId());
+
+    writer.writeTombstone(record.getDateSent(), record.getIndividualRecipient().getNumber(),
+                          getThreadAddress(threadRecipients), record.isOutgoing());
+    writer.writeRecord(record);
   }
 
-  private static void exportSms(Context context, MasterSecret masterSecret, XmlBackupWriter writer) throws IOException {
-    final int ROW_LIMIT = 500;
-    int skip = 0;
+  private static @Nullable String getThreadAddress(@Nullable Recipients threadRecipients) {
+    if (threadRecipients == null || threadRecipients.isEmpty()) return null;
+    else                                                        return Util.join(threadRecipients.toNumberStringArray(false), ",");
+  }
 
-    EncryptingSmsDatabase smsDatabase = DatabaseFactory.getEncryptingSmsDatabase(context);
-    SmsDatabase.Reader reader = null;
+  private static void saveWatermarks(Context context, long smsId, long mmsId, long journalId, int deltaCount) {
+    TextSecurePreferences.setPlaintextBackupSmsWatermark(context, smsId);
+    TextSecurePreferences.setPlaintextBackupMmsWatermark(context, mmsId);
+    TextSecurePreferences.setPlaintextBackupJournalWatermark(context, journalId);
+    TextSecurePreferences.setPlaintextBackupDeltaCount(context, deltaCount);
+  }
 
-    do {
-      if (reader != null) reader.close();
+  private static long getLastId(long[] boundaries, long afterId) {
+    return boundaries.length > 0 ? Math.max(afterId, boundaries[boundaries.length - 1]) : afterId;
+  }
 
-      reader = smsDatabase.getMessages(masterSecret, skip, ROW_LIMIT);
+  /**
+   * Pages are rendered on the worker pool, a few ahead of the page being
+   * written, and written here in order.
+   */
+  private static void exportPages(ExecutorService executor, XmlBackupWriter writer,
+                                  List<PageTask> pages, BackupProgress progress)
+      throws IOException
+  {
+    LinkedList<Future<BackupChunk>> pending = new LinkedList<>();
+    Iterator<PageTask>              queued  = pages.iterator();
 
-      SmsMessageRecord record;
-      while ((record = reader.getNext()) != null) {
-        writer.writeRecord(record);
+    while (queued.hasNext() || !pending.isEmpty()) {
+      while (queued.hasNext() && pending.size() < MAX_PENDING_PAGES) {
+        pending.add(executor.submit(queued.next()));
       }
 
-      skip += ROW_LIMIT;
-    } while (reader.getCount() > 0);
+      BackupChunk chunk = getChunk(pending.removeFirst());
+      long        chars = writer.writeChunk(chunk);
+
+      progress.update(chunk.getMessageCount(), chars);
+    }
   }
 
+  private static BackupChunk getChunk(Future<BackupChunk> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException)     throw (IOException) e.getCause();
+      if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+      throw new AssertionError(e);
+    }
+  }
+
+  private static List<PageTask> getSmsPages(Context context, MasterSecret masterSecret, long[] boundaries, long afterId) {
+    List<PageTask> pages = new ArrayList<>(boundaries.length);
+
+    for (long lastId : boundaries) {
+      if (lastId <= afterId) continue;
+
+      pages.add(new SmsPageTask(context, masterSecret, afterId, lastId));
+      afterId = lastId;
+    }
+
+    return pages;
+  }
+
+  private static List<PageTask> getMmsPages(Context context, MasterSecret masterSecret, long[] boundaries, long afterId) {
+    List<PageTask> pages = new ArrayList<>(boundaries.length);
+
+    for (long lastId : boundaries) {
+      if (lastId <= afterId) continue;
+
+      pages.add(new MmsPageTask(context, masterSecret, afterId, lastId));
+      afterId = lastId;
+    }
+
+    return pages;
+  }
+
+  private static abstract class PageTask implements Callable<BackupChunk> {
+    protected final Context      context;
+    protected final MasterSecret masterSecret;
+    protected final long         afterId;
+    protected final long         lastId;
+
+    PageTask(Context context, MasterSecret masterSecret, long afterId, long lastId) {
+      this.context      = context;
+      this.masterSecret = masterSecret;
+      this.afterId      = afterId;
+      this.lastId       = lastId;
+    }
+
+    @Override
+    public BackupChunk call() throws IOException {
+      BackupChunk     chunk  = new BackupChunk();
+      XmlBackupWriter writer = new XmlBackupWriter(chunk, context, masterSecret);
+
+      writeRecords(writer, chunk);
+      writer.finishChunk();
+
+      return chunk;
+    }
+
+    protected abstract void writeRecords(XmlBackupWriter writer, BackupChunk chunk) throws IOException;
+  }
+
+  private static class SmsPageTask extends PageTask {
+    SmsPageTask(Context context, MasterSecret masterSecret, long afterId, long lastId) {
+      super(context, masterSecret, afterId, lastId);
+    }
+
+    @Override
+    protected void writeRecords(XmlBackupWriter writer, BackupChunk chunk) throws IOException {
+      EncryptingSmsDatabase smsDatabase = DatabaseFactory.getEncryptingSmsDatabase(context);
+      SmsDatabase.Reader    reader      = smsDatabase.getMessagesInRange(masterSecret, afterId, lastId);
+
+      try {
+        SmsMessageRecord record;
+        while ((record = reader.getNext()) != null) {
+          writer.writeRecord(record);
+          chunk.addMessage();
+        }
+      } finally {
+        reader.close();
+      }
+    }
+  }
+
+  private static class MmsPageTask extends PageTask {
+    MmsPageTask(Context context, MasterSecret masterSecret, long afterId, long lastId) {
+      super(context, masterSecret, afterId, lastId);
+    }
+
+    @Override
+    protected void writeRecords(XmlBackupWriter writer, BackupChunk chunk) throws IOException {
+      MmsDatabase        mmsDatabase = DatabaseFactory.getMmsDatabase(context);
+      MmsDatabase.Reader reader      = mmsDatabase.getMessagesInRange(masterSecret, afterId, lastId);
+
+      try {
+        MessageRecord record;
+        while ((record = reader.getNext()) != null) {
+          writer.writeRecord(record);
+          chunk.addMessage();
+        }
+      } finally {
+        reader.close();
+      }
+    }
+  }
 }
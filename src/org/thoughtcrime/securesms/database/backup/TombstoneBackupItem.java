@@ -0,0 +1,49 @@
+package org.thoughtcrime.securesms.database.backup;
+
+import android.provider.Telephony;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.xmlpull.v1.XmlPullParser;
+
+/**
+ * A message of an earlier backup that a delta backup deletes, matched by its
+ * sent date and thread and, for incoming messages, its sender.  The thread
+ * is written as the thread's comma separated addresses in the group address
+ * attribute, tombstones written without it name a one to one thread by the
+ * message's address.
+ */
+public class TombstoneBackupItem extends BackupItem {
+
+  protected boolean outgoing;
+
+  public TombstoneBackupItem(@NonNull XmlPullParser parser) {
+    super(parser);
+  }
+
+  @Override
+  protected void readAttribute(@NonNull XmlPullParser parser, int i) {
+    switch (parser.getAttributeName(i)) {
+      case XmlBackupWriter.SIGNAL_OUTGOING:
+        outgoing = "1".equals(parser.getAttributeValue(i));
+        break;
+      default:
+        super.readAttribute(parser, i);
+    }
+  }
+
+  public boolean isOutgoing() {
+    return outgoing;
+  }
+
+  public @Nullable String getThreadAddress() {
+    if (getSignalGroupAddress() != null) return getSignalGroupAddress();
+    else if (getAddress() != null)       return getAddress().replace('~', ',');
+    else                                 return null;
+  }
+
+  @Override
+  public int getType() {
+    return outgoing ? Telephony.TextBasedSmsColumns.MESSAGE_TYPE_SENT : Telephony.TextBasedSmsColumns.MESSAGE_TYPE_INBOX;
+  }
+}
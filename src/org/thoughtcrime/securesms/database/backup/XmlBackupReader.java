@@ -1,23 +1,90 @@
 package org.thoughtcrime.securesms.database.backup;
 
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.util.Log;
 import org.thoughtcrime.securesms.attachments.Attachment;
+import org.thoughtcrime.securesms.crypto.MasterSecret;
 import org.thoughtcrime.securesms.database.PlaintextBackupImporter;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 import org.xmlpull.v1.XmlPullParserFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.SequenceInputStream;
 
 public class XmlBackupReader {
+
+  private static final String TAG = XmlBackupReader.class.getSimpleName();
+
+  private static final String RESUME_PREFIX = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?><smses>";
+
   private final XmlPullParser parser;
+  @Nullable private final AttachmentSpoolingInputStream spooler;
+
+  private int  count         = -1;
+  private long messageOffset = -1;
 
   public XmlBackupReader(String path) throws XmlPullParserException, FileNotFoundException {
     parser = XmlPullParserFactory.newInstance().newPullParser();
     parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
     parser.setInput(new FileInputStream(path), null);
+    spooler = null;
+  }
+
+  /**
+   * A reader that decodes attachment data into encrypted part files in
+   * spoolDirectory while parsing, see {@link #takeSpooledPart(String)}.
+   *
+   * @param offset where to start reading, either 0 or an offset returned by
+   *               {@link #getMessageOffset()} for the same file.
+   */
+  public XmlBackupReader(String path, long offset, @NonNull MasterSecret masterSecret, @NonNull File spoolDirectory)
+      throws XmlPullParserException, IOException
+  {
+    FileInputStream in = new FileInputStream(path);
+    in.getChannel().position(offset);
+
+    parser  = XmlPullParserFactory.newInstance().newPullParser();
+    spooler = new AttachmentSpoolingInputStream(in, offset, masterSecret, spoolDirectory);
+    parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+
+    if (offset > 0) parser.setInput(new SequenceInputStream(new ByteArrayInputStream(RESUME_PREFIX.getBytes("UTF-8")), spooler), null);
+    else            parser.setInput(spooler, null);
+  }
+
+  /**
+   * @return the message count the backup declares, or -1 if it's unknown.
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * @return the file offset of the message last returned by {@link #getNext()},
+   *         or -1 if it's unknown.
+   */
+  public long getMessageOffset() {
+    return messageOffset;
+  }
+
+  /**
+   * @return the spooled part a part's data attribute refers to, or null if it
+   *         holds the attachment data itself.
+   */
+  public @Nullable AttachmentSpoolingInputStream.SpooledPart takeSpooledPart(@Nullable String data) {
+    return spooler == null ? null : spooler.takeSpooledPart(data);
+  }
+
+  public void close() throws IOException {
+    if (spooler != null) {
+      spooler.deleteUntakenParts();
+      spooler.close();
+    }
   }
 
   public @Nullable
@@ -26,6 +93,15 @@ public class XmlBackupReader {
       if (parser.getEventType() != XmlPullParser.START_TAG) {
         continue;
       }
+      if (parser.getName().equalsIgnoreCase("smses")) {
+        readCount();
+        continue;
+      }
+      if (spooler != null && (parser.getName().equalsIgnoreCase("sms") || parser.getName().equalsIgnoreCase("mms") ||
+                              parser.getName().equalsIgnoreCase("tombstone")))
+      {
+        messageOffset = spooler.takeMessageOffset();
+      }
       if (parser.getAttributeCount() <= 0) {
         continue;
       }
@@ -35,9 +111,22 @@ public class XmlBackupReader {
       else if (parser.getName().equalsIgnoreCase("mms")) {
         return new MmsBackupItem(parser);
       }
+      else if (parser.getName().equalsIgnoreCase("tombstone")) {
+        return new TombstoneBackupItem(parser);
+      }
     }
     return null;
   }
 
+  private void readCount() {
+    String value = parser.getAttributeValue(null, "count");
+
+    try {
+      if (value != null) count = Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      Log.w(TAG, e);
+    }
+  }
+
 
 }
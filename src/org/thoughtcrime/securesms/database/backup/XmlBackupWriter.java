@@ -1,6 +1,7 @@
 package org.thoughtcrime.securesms.database.backup;
 
 import android.content.Context;
+import android.net.Uri;
 import android.provider.Telephony;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
@@ -66,12 +67,14 @@ public class XmlBackupWriter {
   public static final String OPEN_TAG_ADDRESS = "    <addr ";
   public static final String OPEN_TAG_ADDRESSES = "   <addrs>";
   public static final String CLOSE_TAG_ADDRESSES = "   </addrs>";
+  public static final String OPEN_TAG_TOMBSTONE = " <tombstone ";
 
   // common signal attributes
 //  public static final String READABLE_DATE   = "readable_date";  // SMS Backup & Restore, optional
 //  public static final String CONTACT_NAME    = "contact_name";   // SMS Backup & Restore, optional
   public static final String SIGNAL_GROUP_ADDRESS = "signal_group_address"; // Signal
   public static final String SIGNAL_TYPE = "signal_type"; // Signal
+  public static final String SIGNAL_OUTGOING = "signal_outgoing"; // Signal
 
   // Part attribute names
   public static final String DISPLAY_NAME = "_display_name"; // SMS Backup & Restore, optional
@@ -82,13 +85,29 @@ public class XmlBackupWriter {
   // XML escaping
   public static final Pattern PATTERN = Pattern.compile("[^\u0020-\uD7FF]");
 
+  private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
   private final BufferedWriter writer;
   private final ThreadDatabase threads;
   private final Context context;
   private final MasterSecret masterSecret;
+  @Nullable private final BackupChunk chunk;
 
   public XmlBackupWriter(BufferedWriter writer, @NonNull Context context, @NonNull MasterSecret masterSecret) {
+    this(writer, null, context, masterSecret);
+  }
+
+  /**
+   * A writer that renders into a chunk, deferring attachment data until the
+   * chunk is written out with {@link #writeChunk(BackupChunk)}.
+   */
+  XmlBackupWriter(@NonNull BackupChunk chunk, @NonNull Context context, @NonNull MasterSecret masterSecret) {
+    this(new BufferedWriter(chunk), chunk, context, masterSecret);
+  }
+
+  private XmlBackupWriter(BufferedWriter writer, @Nullable BackupChunk chunk, @NonNull Context context, @NonNull MasterSecret masterSecret) {
     this.writer = writer;
+    this.chunk = chunk;
     this.context = context;
     this.masterSecret = masterSecret;
     this.threads = DatabaseFactory.getThreadDatabase(context);
@@ -129,20 +148,54 @@ public class XmlBackupWriter {
   }
 
   private void storeAttributeStream(String name, InputStream value) throws IOException {
+    writer.write(name);
+    writer.write(OPEN_ATTRIBUTE);
+    writeEncoded(value);
+    writer.write(CLOSE_ATTRIBUTE);
+  }
+
+  private long writeEncoded(InputStream value) throws IOException {
     // value -> buffer (because crypto needs buffered reads) -> base64 encode  -> reader -> pipe to writer
-    InputStreamReader encoded = new InputStreamReader(new Base64.InputStream(new BufferedInputStream(value), Base64.ENCODE), "US-ASCII");
+    InputStreamReader encoded = new InputStreamReader(new Base64.InputStream(new BufferedInputStream(value, STREAM_BUFFER_SIZE), Base64.ENCODE), "US-ASCII");
+    long written = 0;
     try {
-      writer.write(name);
-      writer.write(OPEN_ATTRIBUTE);
-      char[] buffer = new char[1024];
+      char[] buffer = new char[STREAM_BUFFER_SIZE];
       int len;
       while ((len = encoded.read(buffer)) != -1) {
         writer.write(buffer, 0, len);
+        written += len;
       }
-      writer.write(CLOSE_ATTRIBUTE);
     } finally {
       encoded.close();
     }
+    return written;
+  }
+
+  /**
+   * Writes a chunk rendered by another writer, streaming its attachments.
+   *
+   * @return the number of characters written.
+   */
+  long writeChunk(@NonNull BackupChunk chunk) throws IOException {
+    long written = 0;
+
+    for (BackupChunk.Segment segment : chunk.getSegments()) {
+      if (segment.getText() != null) {
+        writer.write(segment.getText());
+        written += segment.getText().length();
+      } else if (segment.getAttachment() != null) {
+        written += writeEncoded(PartAuthority.getAttachmentStream(context, masterSecret, segment.getAttachment()));
+      }
+    }
+
+    return written;
+  }
+
+  /**
+   * Pushes everything rendered so far into the chunk this writer renders into.
+   */
+  void finishChunk() throws IOException {
+    writer.flush();
   }
 
 
@@ -227,6 +280,22 @@ public class XmlBackupWriter {
     writer.newLine();
   }
 
+  /**
+   * Marks a message of an earlier backup as deleted, or as replaced by a
+   * later record of a delta backup.
+   */
+  public void writeTombstone(long dateSent, @Nullable String address, @Nullable String threadAddress, boolean outgoing)
+      throws IOException
+  {
+    writer.write(OPEN_TAG_TOMBSTONE);
+    storeAttribute(Telephony.TextBasedSmsColumns.DATE_SENT, dateSent);
+    storeAttribute(Telephony.TextBasedSmsColumns.ADDRESS, address);
+    storeAttribute(SIGNAL_GROUP_ADDRESS, threadAddress);
+    storeAttribute(SIGNAL_OUTGOING, outgoing);
+    writer.write(CLOSE_EMPTY_TAG);
+    writer.newLine();
+  }
+
   void writeComment(@NonNull String comment) throws IOException {
     writer.write("<!-- ");
     writer.write(comment);
@@ -388,10 +457,22 @@ public class XmlBackupWriter {
     storeCommonPartAttributes(attachment.getContentType(), null);
     // CONTENT_LOCATION seems to be used by Backup&Restore to create temporary files when viewing images
     storeAttribute(Telephony.Mms.Part.CONTENT_LOCATION, name);      // should be int?
-    storeAttributeStream(DATA, PartAuthority.getAttachmentStream(context, masterSecret, attachment.getDataUri()));
+    if (chunk != null) {
+      storeDeferredAttributeStream(DATA, attachment.getDataUri());
+    } else {
+      storeAttributeStream(DATA, PartAuthority.getAttachmentStream(context, masterSecret, attachment.getDataUri()));
+    }
     closePart();
   }
 
+  private void storeDeferredAttributeStream(String name, Uri dataUri) throws IOException {
+    writer.write(name);
+    writer.write(OPEN_ATTRIBUTE);
+    writer.flush();
+    chunk.addAttachment(dataUri);
+    writer.write(CLOSE_ATTRIBUTE);
+  }
+
   private void storeBodyAsPart(MessageRecord record) throws IOException {
     // store message text only
     startPart();
@@ -8,6 +8,7 @@ import android.database.MergeCursor;
 import org.thoughtcrime.securesms.contacts.ContactAccessor;
 import org.thoughtcrime.securesms.database.DatabaseFactory;
 import org.thoughtcrime.securesms.database.ThreadDatabase;
+import org.thoughtcrime.securesms.recipients.RecipientFactory;
 import org.thoughtcrime.securesms.util.AbstractCursorLoader;
 
 import java.util.LinkedList;
@@ -15,6 +16,8 @@ import java.util.List;
 
 public class ConversationListLoader extends AbstractCursorLoader {
 
+  private static final int RECIPIENT_PREFETCH_COUNT = 50;
+
   private final String filter;
   private final boolean archived;
 
@@ -33,7 +36,7 @@ public class ConversationListLoader extends AbstractCursorLoader {
 
   private Cursor getUnarchivedConversationList() {
     List<Cursor> cursorList = new LinkedList<>();
-    cursorList.add(DatabaseFactory.getThreadDatabase(context).getConversationList());
+    cursorList.add(prefetchRecipients(DatabaseFactory.getThreadDatabase(context).getConversationList()));
 
     int archivedCount = DatabaseFactory.getThreadDatabase(context)
                                        .getArchivedConversationListCount();
@@ -57,11 +60,28 @@ public class ConversationListLoader extends AbstractCursorLoader {
   }
 
   private Cursor getArchivedConversationList() {
-    return DatabaseFactory.getThreadDatabase(context).getArchivedConversationList();
+    return prefetchRecipients(DatabaseFactory.getThreadDatabase(context).getArchivedConversationList());
   }
 
   private Cursor getFilteredConversationList(String filter) {
     List<String> numbers = ContactAccessor.getInstance().getNumbersForThreadSearchFilter(context, filter);
-    return DatabaseFactory.getThreadDatabase(context).getFilteredConversationList(numbers);
+    return prefetchRecipients(DatabaseFactory.getThreadDatabase(context).getFilteredConversationList(numbers));
+  }
+
+  /**
+   * Resolves the recipients of the first conversations in one batch, rather
+   * than in a lookup per row as each one is bound.
+   */
+  private Cursor prefetchRecipients(Cursor cursor) {
+    List<String> recipientIds = new LinkedList<>();
+
+    while (cursor != null && recipientIds.size() < RECIPIENT_PREFETCH_COUNT && cursor.moveToNext()) {
+      recipientIds.add(cursor.getString(cursor.getColumnIndexOrThrow(ThreadDatabase.RECIPIENT_IDS)));
+    }
+
+    if (cursor != null) cursor.moveToPosition(-1);
+
+    RecipientFactory.prefetchRecipients(context, recipientIds, true);
+    return cursor;
   }
 }
@@ -0,0 +1,204 @@
+package org.thoughtcrime.securesms.database.loaders;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.os.AsyncTask;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import org.thoughtcrime.securesms.crypto.MasterCipher;
+import org.thoughtcrime.securesms.crypto.MasterSecret;
+import org.thoughtcrime.securesms.database.ThreadDatabase;
+import org.thoughtcrime.securesms.recipients.Recipient;
+import org.thoughtcrime.securesms.recipients.RecipientFactory;
+import org.thoughtcrime.securesms.recipients.Recipients;
+import org.thoughtcrime.securesms.util.JsonUtils;
+import org.thoughtcrime.securesms.util.Util;
+import org.whispersystems.libsignal.InvalidMessageException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * An encrypted copy of the first screen of the conversation list, written when
+ * the list is left and read back on the next launch so that something can be
+ * drawn before the thread query and contact lookups have completed.  The live
+ * cursor always replaces the snapshot as soon as it's loaded.
+ */
+public class ConversationListSnapshot {
+
+  private static final String TAG = ConversationListSnapshot.class.getSimpleName();
+
+  private static final String FILE_NAME = "conversation_list_snapshot";
+  private static final int    MAX_ROWS  = 20;
+
+  private static final String[] COLUMNS = new String[] {
+      ThreadDatabase.ID, ThreadDatabase.DATE, ThreadDatabase.MESSAGE_COUNT,
+      ThreadDatabase.RECIPIENT_IDS, ThreadDatabase.SNIPPET, ThreadDatabase.READ,
+      ThreadDatabase.TYPE, ThreadDatabase.SNIPPET_TYPE, ThreadDatabase.SNIPPET_URI,
+      ThreadDatabase.ARCHIVED, ThreadDatabase.STATUS, ThreadDatabase.RECEIPT_COUNT,
+      ThreadDatabase.EXPIRES_IN, ThreadDatabase.LAST_SEEN
+  };
+
+  private final Context      context;
+  private final MasterSecret masterSecret;
+
+  public ConversationListSnapshot(@NonNull Context context, @NonNull MasterSecret masterSecret) {
+    this.context      = context.getApplicationContext();
+    this.masterSecret = masterSecret;
+  }
+
+  /**
+   * Reads the snapshot and seeds the recipient cache with the names and colors
+   * it was written with.  Returns null if there is no usable snapshot.
+   */
+  public @Nullable Cursor load() {
+    File file = getFile();
+
+    if (!file.exists()) return null;
+
+    try {
+      byte[]   plaintext = new MasterCipher(masterSecret).decryptBytes(Util.readFully(new FileInputStream(file)));
+      Snapshot snapshot  = JsonUtils.fromJson(plaintext, Snapshot.class);
+
+      if (snapshot.rows == null || snapshot.rows.isEmpty()) return null;
+
+      MatrixCursor cursor = new MatrixCursor(COLUMNS, snapshot.rows.size());
+
+      for (Row row : snapshot.rows) {
+        cursor.addRow(new Object[] {row.threadId, row.date, row.count, row.recipientIds, row.snippet,
+                                    row.read, row.distributionType, row.snippetType, row.snippetUri,
+                                    0, row.status, row.receiptCount, row.expiresIn, row.lastSeen});
+
+        if (row.recipientId > 0 && row.number != null) {
+          RecipientFactory.primeRecipient(context, row.recipientId, row.number, row.name, row.color);
+        }
+      }
+
+      return cursor;
+    } catch (IOException | InvalidMessageException e) {
+      Log.w(TAG, e);
+      if (!file.delete()) Log.w(TAG, "Failed to delete unreadable snapshot");
+      return null;
+    }
+  }
+
+  /**
+   * Copies the leading rows of a live conversation list cursor on the calling
+   * thread, then encrypts and writes them in the background.
+   */
+  public void save(@NonNull Cursor cursor) {
+    final Snapshot snapshot = new Snapshot();
+    snapshot.rows = new LinkedList<>();
+
+    int position = cursor.getPosition();
+
+    try {
+      cursor.moveToPosition(-1);
+
+      while (cursor.moveToNext() && snapshot.rows.size() < MAX_ROWS) {
+        snapshot.rows.add(getRow(cursor));
+      }
+    } finally {
+      cursor.moveToPosition(position);
+    }
+
+    new AsyncTask<Void, Void, Void>() {
+      @Override
+      protected Void doInBackground(Void... params) {
+        try {
+          byte[] ciphertext = new MasterCipher(masterSecret).encryptBytes(JsonUtils.toJson(snapshot).getBytes());
+
+          if (ciphertext == null) return null;
+
+          File             file = getFile();
+          File             temp = new File(file.getPath() + ".tmp");
+          FileOutputStream out  = new FileOutputStream(temp);
+
+          try {
+            out.write(ciphertext);
+            out.getFD().sync();
+          } finally {
+            out.close();
+          }
+
+          if (!temp.renameTo(file)) Log.w(TAG, "Failed to replace snapshot");
+        } catch (IOException e) {
+          Log.w(TAG, e);
+        }
+
+        return null;
+      }
+    }.execute();
+  }
+
+  private @NonNull Row getRow(@NonNull Cursor cursor) {
+    Row row = new Row();
+
+    row.threadId         = cursor.getLong(cursor.getColumnIndexOrThrow(ThreadDatabase.ID));
+    row.date             = cursor.getLong(cursor.getColumnIndexOrThrow(ThreadDatabase.DATE));
+    row.count            = cursor.getLong(cursor.getColumnIndexOrThrow(ThreadDatabase.MESSAGE_COUNT));
+    row.recipientIds     = cursor.getString(cursor.getColumnIndexOrThrow(ThreadDatabase.RECIPIENT_IDS));
+    row.snippet          = cursor.getString(cursor.getColumnIndexOrThrow(ThreadDatabase.SNIPPET));
+    row.read             = cursor.getInt(cursor.getColumnIndexOrThrow(ThreadDatabase.READ));
+    row.distributionType = cursor.getInt(cursor.getColumnIndexOrThrow(ThreadDatabase.TYPE));
+    row.snippetType      = cursor.getLong(cursor.getColumnIndexOrThrow(ThreadDatabase.SNIPPET_TYPE));
+    row.snippetUri       = cursor.getString(cursor.getColumnIndexOrThrow(ThreadDatabase.SNIPPET_URI));
+    row.status           = cursor.getInt(cursor.getColumnIndexOrThrow(ThreadDatabase.STATUS));
+    row.receiptCount     = cursor.getInt(cursor.getColumnIndexOrThrow(ThreadDatabase.RECEIPT_COUNT));
+    row.expiresIn        = cursor.getLong(cursor.getColumnIndexOrThrow(ThreadDatabase.EXPIRES_IN));
+    row.lastSeen         = cursor.getLong(cursor.getColumnIndexOrThrow(ThreadDatabase.LAST_SEEN));
+
+    if (row.threadId > 0 && row.recipientIds != null) {
+      Recipients recipients = RecipientFactory.getRecipientsForIds(context, row.recipientIds, true);
+      Recipient  recipient  = recipients.getPrimaryRecipient();
+
+      if (recipients.isSingleRecipient() && recipient != null) {
+        row.recipientId = recipient.getRecipientId();
+        row.number      = recipient.getNumber();
+        row.name        = recipient.getName();
+        row.color       = recipient.getColor().serialize();
+      }
+    }
+
+    return row;
+  }
+
+  private @NonNull File getFile() {
+    return new File(context.getFilesDir(), FILE_NAME);
+  }
+
+  private static class Snapshot {
+    @JsonProperty
+    private List<Row> rows;
+  }
+
+  private static class Row {
+    @JsonProperty private long   threadId;
+    @JsonProperty private long   date;
+    @JsonProperty private long   count;
+    @JsonProperty private String recipientIds;
+    @JsonProperty private String snippet;
+    @JsonProperty private int    read;
+    @JsonProperty private int    distributionType;
+    @JsonProperty private long   snippetType;
+    @JsonProperty private String snippetUri;
+    @JsonProperty private int    status;
+    @JsonProperty private int    receiptCount;
+    @JsonProperty private long   expiresIn;
+    @JsonProperty private long   lastSeen;
+
+    @JsonProperty private long   recipientId;
+    @JsonProperty private String number;
+    @JsonProperty private String name;
+    @JsonProperty private String color;
+  }
+}
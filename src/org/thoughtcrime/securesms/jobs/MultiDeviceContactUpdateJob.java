@@ -10,6 +10,8 @@ import android.support.annotation.Nullable;
 import android.text.TextUtils;
 import android.util.Log;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import org.thoughtcrime.securesms.contacts.ContactAccessor;
 import org.thoughtcrime.securesms.contacts.ContactAccessor.ContactData;
 import org.thoughtcrime.securesms.crypto.MasterSecret;
@@ -21,6 +23,8 @@ import org.thoughtcrime.securesms.jobs.requirements.MasterSecretRequirement;
 import org.thoughtcrime.securesms.recipients.Recipient;
 import org.thoughtcrime.securesms.recipients.RecipientFactory;
 import org.thoughtcrime.securesms.recipients.Recipients;
+import org.thoughtcrime.securesms.util.Hex;
+import org.thoughtcrime.securesms.util.JsonUtils;
 import org.thoughtcrime.securesms.util.TextSecurePreferences;
 import org.thoughtcrime.securesms.util.Util;
 import org.whispersystems.jobqueue.JobParameters;
@@ -44,7 +48,13 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.Collection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 
@@ -56,13 +66,29 @@ public class MultiDeviceContactUpdateJob extends MasterSecretJob implements Inje
 
   @Inject transient SignalMessageSenderFactory messageSenderFactory;
 
-  private final long recipientId;
+  private static final String FINGERPRINTS_FILE = "multidevice_contact_fingerprints";
+
+  private final long    recipientId;
+  private final boolean forceSync;
 
   public MultiDeviceContactUpdateJob(Context context) {
-    this(context, -1);
+    this(context, false);
+  }
+
+  /**
+   * @param forceSync Send every contact as a complete update, even if nothing
+   *                  changed since the last one.  Used when a linked device asks
+   *                  for our contacts.
+   */
+  public MultiDeviceContactUpdateJob(Context context, boolean forceSync) {
+    this(context, -1, forceSync);
   }
 
   public MultiDeviceContactUpdateJob(Context context, long recipientId) {
+    this(context, recipientId, false);
+  }
+
+  private MultiDeviceContactUpdateJob(Context context, long recipientId, boolean forceSync) {
     super(context, JobParameters.newBuilder()
                                 .withRequirement(new NetworkRequirement(context))
                                 .withRequirement(new MasterSecretRequirement(context))
@@ -71,6 +97,7 @@ public class MultiDeviceContactUpdateJob extends MasterSecretJob implements Inje
                                 .create());
 
     this.recipientId = recipientId;
+    this.forceSync   = forceSync;
   }
 
   @Override
@@ -117,29 +144,70 @@ public class MultiDeviceContactUpdateJob extends MasterSecretJob implements Inje
   private void generateFullContactUpdate()
       throws IOException, UntrustedIdentityException, NetworkException
   {
+    Map<String, String>  previous = forceSync ? null : getFingerprints();
+    Map<String, String>  current  = new HashMap<>();
+    List<PendingContact> contacts = new LinkedList<>();
+    Map<Long, String>    photos   = getPhotoFingerprints();
+
+    try {
+      for (ContactData contactData : ContactAccessor.getInstance().getContactsWithPush(context)) {
+        Uri                                       contactUri  = Uri.withAppendedPath(ContactsContract.Contacts.CONTENT_URI, String.valueOf(contactData.id));
+        String                                    number      = Util.canonicalizeNumber(context, contactData.numbers.get(0).number);
+        Recipient                                 recipient   = RecipientFactory.getRecipientsFromString(context, number, true).getPrimaryRecipient();
+        Optional<IdentityDatabase.IdentityRecord> identity    = DatabaseFactory.getIdentityDatabase(context).getIdentity(recipient.getRecipientId());
+        Optional<VerifiedMessage>                 verified    = getVerifiedMessage(recipient, identity);
+        Optional<String>                          name        = Optional.fromNullable(contactData.name);
+        Optional<String>                          color       = getColor(number);
+        String                                    fingerprint = getFingerprint(name, color, photos.get(contactData.id), identity);
+
+        current.put(number, fingerprint);
+        contacts.add(new PendingContact(number, name, color, verified, contactUri, fingerprint));
+      }
+    } catch (InvalidNumberException e) {
+      Log.w(TAG, e);
+      return;
+    }
+
+    boolean complete = previous == null || !current.keySet().containsAll(previous.keySet());
+
+    if (!complete) {
+      Iterator<PendingContact> iterator = contacts.iterator();
+
+      while (iterator.hasNext()) {
+        PendingContact contact = iterator.next();
+
+        if (contact.fingerprint.equals(previous.get(contact.number))) {
+          iterator.remove();
+        }
+      }
+
+      if (contacts.isEmpty()) {
+        Log.w(TAG, "No contacts changed, skipping update...");
+        return;
+      }
+    }
+
+    Log.w(TAG, "Sending " + contacts.size() + " of " + current.size() + " contacts, complete: " + complete);
+
     SignalServiceMessageSender messageSender   = messageSenderFactory.create();
     File                       contactDataFile = createTempFile("multidevice-contact-update");
 
     try {
-      DeviceContactsOutputStream out      = new DeviceContactsOutputStream(new FileOutputStream(contactDataFile));
-      Collection<ContactData>    contacts = ContactAccessor.getInstance().getContactsWithPush(context);
-
-      for (ContactData contactData : contacts) {
-        Uri                                       contactUri = Uri.withAppendedPath(ContactsContract.Contacts.CONTENT_URI, String.valueOf(contactData.id));
-        String                                    number     = Util.canonicalizeNumber(context, contactData.numbers.get(0).number);
-        Recipient                                 recipient  = RecipientFactory.getRecipientsFromString(context, number, true).getPrimaryRecipient();
-        Optional<IdentityDatabase.IdentityRecord> identity   = DatabaseFactory.getIdentityDatabase(context).getIdentity(recipient.getRecipientId());
-        Optional<VerifiedMessage>                 verified   = getVerifiedMessage(recipient, identity);
-        Optional<String>                          name       = Optional.fromNullable(contactData.name);
-        Optional<String>                          color      = getColor(number);
-
-        out.write(new DeviceContact(number, name, getAvatar(contactUri), color, verified));
+      DeviceContactsOutputStream out = new DeviceContactsOutputStream(new FileOutputStream(contactDataFile));
+
+      for (PendingContact contact : contacts) {
+        out.write(new DeviceContact(contact.number, contact.name, getAvatar(contact.contactUri), contact.color, contact.verified));
       }
 
       out.close();
-      sendUpdate(messageSender, contactDataFile, true);
-    } catch(InvalidNumberException e) {
-      Log.w(TAG, e);
+      sendUpdate(messageSender, contactDataFile, complete);
+
+      if (!complete) {
+        previous.putAll(current);
+        current = previous;
+      }
+
+      setFingerprints(current);
     } finally {
       if (contactDataFile != null) contactDataFile.delete();
     }
@@ -260,6 +328,88 @@ public class MultiDeviceContactUpdateJob extends MasterSecretJob implements Inje
     return Optional.of(new VerifiedMessage(destination, identityKey, state, System.currentTimeMillis()));
   }
 
+  /**
+   * Identifies what a linked device would see of a contact, so that unchanged
+   * contacts can be left out of the next update.  Avatars are represented by
+   * their photo ids rather than their contents, which would mean reading every
+   * avatar on every run.
+   */
+  private String getFingerprint(Optional<String> name, Optional<String> color, @Nullable String photo,
+                                Optional<IdentityDatabase.IdentityRecord> identity)
+  {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA1");
+
+      digest.update(name.or("").getBytes());
+      digest.update((byte)0);
+      digest.update(color.or("").getBytes());
+      digest.update((byte)0);
+      digest.update(photo == null ? new byte[0] : photo.getBytes());
+      digest.update((byte)0);
+
+      if (identity.isPresent()) {
+        digest.update(identity.get().getIdentityKey().serialize());
+        digest.update(identity.get().getVerifiedStatus().name().getBytes());
+      }
+
+      return Hex.toStringCondensed(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private Map<Long, String> getPhotoFingerprints() {
+    Map<Long, String> results    = new HashMap<>();
+    boolean           hasFileId  = Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH;
+    String[]          projection = hasFileId ? new String[] {ContactsContract.Contacts._ID, ContactsContract.Contacts.PHOTO_ID, ContactsContract.Contacts.PHOTO_FILE_ID}
+                                             : new String[] {ContactsContract.Contacts._ID, ContactsContract.Contacts.PHOTO_ID};
+    Cursor            cursor     = null;
+
+    try {
+      cursor = context.getContentResolver().query(ContactsContract.Contacts.CONTENT_URI, projection,
+                                                  ContactsContract.Contacts.PHOTO_ID + " IS NOT NULL",
+                                                  null, null);
+
+      while (cursor != null && cursor.moveToNext()) {
+        results.put(cursor.getLong(0), cursor.getLong(1) + ":" + (hasFileId ? cursor.getLong(2) : 0));
+      }
+    } finally {
+      if (cursor != null) cursor.close();
+    }
+
+    return results;
+  }
+
+  private @Nullable Map<String, String> getFingerprints() {
+    File file = new File(context.getFilesDir(), FINGERPRINTS_FILE);
+
+    if (!file.exists()) return null;
+
+    try {
+      return JsonUtils.fromJson(new FileInputStream(file), Fingerprints.class).contacts;
+    } catch (IOException e) {
+      Log.w(TAG, e);
+      return null;
+    }
+  }
+
+  private void setFingerprints(Map<String, String> contacts) throws IOException {
+    Fingerprints fingerprints = new Fingerprints();
+    fingerprints.contacts = contacts;
+
+    File             file = new File(context.getFilesDir(), FINGERPRINTS_FILE);
+    File             temp = new File(file.getPath() + ".tmp");
+    FileOutputStream out  = new FileOutputStream(temp);
+
+    try {
+      out.write(JsonUtils.toJson(fingerprints).getBytes());
+    } finally {
+      out.close();
+    }
+
+    if (!temp.renameTo(file)) Log.w(TAG, "Failed to replace contact fingerprints");
+  }
+
   private File createTempFile(String prefix) throws IOException {
     File file = File.createTempFile(prefix, "tmp", context.getCacheDir());
     file.deleteOnExit();
@@ -267,6 +417,31 @@ public class MultiDeviceContactUpdateJob extends MasterSecretJob implements Inje
     return file;
   }
 
+  private static class PendingContact {
+    private final String                    number;
+    private final Optional<String>          name;
+    private final Optional<String>          color;
+    private final Optional<VerifiedMessage> verified;
+    private final Uri                       contactUri;
+    private final String                    fingerprint;
+
+    private PendingContact(String number, Optional<String> name, Optional<String> color,
+                           Optional<VerifiedMessage> verified, Uri contactUri, String fingerprint)
+    {
+      this.number      = number;
+      this.name        = name;
+      this.color       = color;
+      this.verified    = verified;
+      this.contactUri  = contactUri;
+      this.fingerprint = fingerprint;
+    }
+  }
+
+  private static class Fingerprints {
+    @JsonProperty
+    private Map<String, String> contacts;
+  }
+
   private static class NetworkException extends Exception {
 
     public NetworkException(Exception ioe) {
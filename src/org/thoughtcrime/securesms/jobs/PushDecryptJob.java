@@ -129,6 +129,7 @@ public class PushDecryptJob extends ContextJob {
     else                      masterSecretUnion = new MasterSecretUnion(masterSecret);
 
     handleMessage(masterSecretUnion, envelope, optionalSmsMessageId);
+    TextSecureSessionStore.flushPendingSessions(context);
     database.delete(messageId);
   }
 
@@ -437,7 +438,7 @@ public class PushDecryptJob extends ContextJob {
     if (message.isContactsRequest()) {
       ApplicationContext.getInstance(context)
                         .getJobManager()
-                        .add(new MultiDeviceContactUpdateJob(getContext()));
+                        .add(new MultiDeviceContactUpdateJob(getContext(), true));
     }
 
     if (message.isGroupsRequest()) {
@@ -34,36 +34,34 @@ import android.service.notification.StatusBarNotification;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.app.NotificationManagerCompat;
-import android.text.TextUtils;
 import android.util.Log;
 
 import org.thoughtcrime.securesms.ConversationActivity;
-import org.thoughtcrime.securesms.R;
 import org.thoughtcrime.securesms.crypto.MasterSecret;
 import org.thoughtcrime.securesms.database.DatabaseFactory;
 import org.thoughtcrime.securesms.database.MessagingDatabase.MarkedMessageInfo;
-import org.thoughtcrime.securesms.database.MmsSmsDatabase;
-import org.thoughtcrime.securesms.database.SmsDatabase;
 import org.thoughtcrime.securesms.database.ThreadDatabase;
-import org.thoughtcrime.securesms.database.model.MediaMmsMessageRecord;
-import org.thoughtcrime.securesms.database.model.MessageRecord;
-import org.thoughtcrime.securesms.mms.SlideDeck;
-import org.thoughtcrime.securesms.recipients.Recipient;
+import org.thoughtcrime.securesms.preferences.NotificationPrivacyPreference;
 import org.thoughtcrime.securesms.recipients.Recipients;
 import org.thoughtcrime.securesms.service.KeyCachingService;
 import org.thoughtcrime.securesms.service.MessageRetrievalService;
 import org.thoughtcrime.securesms.util.ServiceUtil;
-import org.thoughtcrime.securesms.util.SpanUtil;
 import org.thoughtcrime.securesms.util.TextSecurePreferences;
 import org.thoughtcrime.securesms.webrtc.CallNotificationBuilder;
 import org.whispersystems.signalservice.internal.util.Util;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -93,6 +91,9 @@ public class MessageNotifier {
   private volatile static       long               lastDesktopActivityTimestamp = -1;
   private volatile static       long               lastAudibleNotification      = -1;
   private          static final CancelableExecutor executor                     = new CancelableExecutor();
+  private          static final NotificationItemCache notificationItems = new NotificationItemCache();
+  private          static final NotificationBatcher   batcher           = new NotificationBatcher();
+  private          static final Map<Long, String>     renderedThreads   = new HashMap<>();
 
   public static void setVisibleThread(long threadId) {
     visibleThread = threadId;
@@ -132,6 +133,11 @@ public class MessageNotifier {
 
   private static void cancelActiveNotifications(@NonNull Context context) {
     NotificationManager notifications = ServiceUtil.getNotificationManager(context);
+
+    synchronized (renderedThreads) {
+      renderedThreads.clear();
+    }
+
     notifications.cancel(SUMMARY_NOTIFICATION_ID);
 
     if (Build.VERSION.SDK_INT >= 23) {
@@ -175,6 +181,10 @@ public class MessageNotifier {
 
             if (!validNotification) {
               notifications.cancel(notification.getId());
+
+              synchronized (renderedThreads) {
+                renderedThreads.remove((long) (notification.getId() - SUMMARY_NOTIFICATION_ID));
+              }
             }
           }
         }
@@ -201,7 +211,7 @@ public class MessageNotifier {
       Log.w(TAG, "Scheduling delayed notification...");
       executor.execute(new DelayedNotification(context, masterSecret, threadId));
     } else {
-      updateNotification(context, masterSecret, threadId, true);
+      batcher.add(context, masterSecret, threadId);
     }
   }
 
@@ -210,26 +220,48 @@ public class MessageNotifier {
                                         long      threadId,
                                         boolean   signal)
   {
-    boolean    isVisible  = visibleThread == threadId;
+    updateNotification(context, masterSecret, Collections.singleton(threadId), signal);
+  }
+
+  private static void updateNotification(@NonNull  Context context,
+                                         @Nullable MasterSecret masterSecret,
+                                         @NonNull  Set<Long> threadIds,
+                                         boolean   signal)
+  {
+    ThreadDatabase        threads            = DatabaseFactory.getThreadDatabase(context);
+    Map<Long, Recipients> threadRecipients   = threads.getRecipientsForThreadIds(threadIds);
+    Recipients            inThreadRecipients = null;
+    boolean               inThread           = false;
+    boolean               outOfThread        = false;
+
+    for (long threadId : threadIds) {
+      boolean    isVisible  = visibleThread == threadId;
+      Recipients recipients = threadRecipients.get(threadId);
+
+      if (isVisible) {
+        List<MarkedMessageInfo> messageIds = threads.setRead(threadId, false);
+        MarkReadReceiver.process(context, messageIds);
+      }
 
-    ThreadDatabase threads    = DatabaseFactory.getThreadDatabase(context);
-    Recipients     recipients = DatabaseFactory.getThreadDatabase(context)
-                                               .getRecipientsForThreadId(threadId);
+      if (!TextSecurePreferences.isNotificationsEnabled(context) ||
+          (recipients != null && recipients.isMuted()))
+      {
+        continue;
+      }
 
-    if (isVisible) {
-      List<MarkedMessageInfo> messageIds = threads.setRead(threadId, false);
-      MarkReadReceiver.process(context, messageIds);
+      if (isVisible) {
+        inThread           = true;
+        inThreadRecipients = recipients;
+      } else {
+        outOfThread = true;
+      }
     }
 
-    if (!TextSecurePreferences.isNotificationsEnabled(context) ||
-        (recipients != null && recipients.isMuted()))
-    {
-      return;
+    if (inThread) {
+      sendInThreadNotification(context, inThreadRecipients);
     }
 
-    if (isVisible) {
-      sendInThreadNotification(context, threads.getRecipientsForThreadId(threadId));
-    } else {
+    if (outOfThread) {
       updateNotification(context, masterSecret, signal, 0);
     }
   }
@@ -239,14 +271,14 @@ public class MessageNotifier {
                                          boolean signal,
                                          int     reminderCount)
   {
-    Cursor telcoCursor = null;
-    Cursor pushCursor  = null;
+    Cursor pushCursor = null;
 
     try {
-      telcoCursor = DatabaseFactory.getMmsSmsDatabase(context).getUnread();
-      pushCursor  = DatabaseFactory.getPushDatabase(context).getPending();
+      NotificationState notificationState = notificationItems.getNotificationState(context, masterSecret);
 
-      if ((telcoCursor == null || telcoCursor.isAfterLast()) &&
+      pushCursor = DatabaseFactory.getPushDatabase(context).getPending();
+
+      if (notificationState.getNotifications().isEmpty() &&
           (pushCursor == null || pushCursor.isAfterLast()))
       {
         cancelActiveNotifications(context);
@@ -255,8 +287,6 @@ public class MessageNotifier {
         return;
       }
 
-      NotificationState notificationState = constructNotificationState(context, masterSecret, telcoCursor);
-
       if (signal && (System.currentTimeMillis() - lastAudibleNotification) < MIN_AUDIBLE_PERIOD_MILLIS) {
         signal = false;
       } else if (signal) {
@@ -266,7 +296,11 @@ public class MessageNotifier {
       if (notificationState.hasMultipleThreads()) {
         if (Build.VERSION.SDK_INT >= 23) {
           for (long threadId : notificationState.getThreads()) {
-            sendSingleThreadNotification(context, masterSecret, new NotificationState(notificationState.getNotificationsForThread(threadId)), false, true);
+            NotificationState threadState = new NotificationState(notificationState.getNotificationsForThread(threadId));
+
+            if (isThreadChanged(context, masterSecret, threadId, threadState)) {
+              sendSingleThreadNotification(context, masterSecret, threadState, false, true);
+            }
           }
         }
 
@@ -282,8 +316,43 @@ public class MessageNotifier {
         scheduleReminder(context, reminderCount);
       }
     } finally {
-      if (telcoCursor != null) telcoCursor.close();
-      if (pushCursor != null)  pushCursor.close();
+      if (pushCursor != null) pushCursor.close();
+    }
+  }
+
+  /**
+   * Bundled per-thread notifications are only reposted when what they would show
+   * differs from what was last posted for that thread.
+   */
+  private static boolean isThreadChanged(@NonNull  Context context,
+                                         @Nullable MasterSecret masterSecret,
+                                         long      threadId,
+                                         @NonNull  NotificationState threadState)
+  {
+    NotificationPrivacyPreference privacy     = TextSecurePreferences.getNotificationPrivacy(context);
+    StringBuilder                 fingerprint = new StringBuilder();
+
+    fingerprint.append(privacy.isDisplayContact()).append(privacy.isDisplayMessage())
+               .append(masterSecret != null);
+
+    for (NotificationItem item : threadState.getNotifications()) {
+      fingerprint.append(':').append(item.isMms() ? 'm' : 's').append(item.getId())
+                 .append('/').append(item.getIndividualRecipient().toShortString());
+    }
+
+    if (!threadState.getNotifications().isEmpty()) {
+      fingerprint.append(':').append(threadState.getNotifications().get(0).getRecipients().toShortString());
+    }
+
+    synchronized (renderedThreads) {
+      String rendered = fingerprint.toString();
+
+      if (rendered.equals(renderedThreads.get(threadId))) {
+        return false;
+      }
+
+      renderedThreads.put(threadId, rendered);
+      return true;
     }
   }
 
@@ -423,54 +492,6 @@ public class MessageNotifier {
     ringtone.play();
   }
 
-  private static NotificationState constructNotificationState(@NonNull  Context context,
-                                                              @Nullable MasterSecret masterSecret,
-                                                              @NonNull  Cursor cursor)
-  {
-    NotificationState notificationState = new NotificationState();
-    MessageRecord record;
-    MmsSmsDatabase.Reader reader;
-
-    if (masterSecret == null) reader = DatabaseFactory.getMmsSmsDatabase(context).readerFor(cursor);
-    else                      reader = DatabaseFactory.getMmsSmsDatabase(context).readerFor(cursor, masterSecret);
-
-    while ((record = reader.getNext()) != null) {
-      long         id               = record.getId();
-      boolean      mms              = record.isMms() || record.isMmsNotification();
-      Recipient    recipient        = record.getIndividualRecipient();
-      Recipients   recipients       = record.getRecipients();
-      long         threadId         = record.getThreadId();
-      CharSequence body             = record.getDisplayBody();
-      Recipients   threadRecipients = null;
-      SlideDeck    slideDeck        = null;
-      long         timestamp        = record.getTimestamp();
-
-
-      if (threadId != -1) {
-        threadRecipients = DatabaseFactory.getThreadDatabase(context).getRecipientsForThreadId(threadId);
-      }
-
-      if (SmsDatabase.Types.isDecryptInProgressType(record.getType()) || !record.getBody().isPlaintext()) {
-        body = SpanUtil.italic(context.getString(R.string.MessageNotifier_locked_message));
-      } else if (record.isMms() && TextUtils.isEmpty(body)) {
-        body = SpanUtil.italic(context.getString(R.string.MessageNotifier_media_message));
-        slideDeck = ((MediaMmsMessageRecord)record).getSlideDeck();
-      } else if (record.isMms() && !record.isMmsNotification()) {
-        String message      = context.getString(R.string.MessageNotifier_media_message_with_text, body);
-        int    italicLength = message.length() - body.length();
-        body = SpanUtil.italic(message, italicLength);
-        slideDeck = ((MediaMmsMessageRecord)record).getSlideDeck();
-      }
-
-      if (threadRecipients == null || !threadRecipients.isMuted()) {
-        notificationState.addNotification(new NotificationItem(id, mms, recipient, recipients, threadRecipients, threadId, body, timestamp, slideDeck));
-      }
-    }
-
-    reader.close();
-    return notificationState;
-  }
-
   private static void updateBadge(Context context, int count) {
     try {
       if (count == 0) ShortcutBadger.removeCount(context);
@@ -599,4 +620,84 @@ public class MessageNotifier {
       }
     }
   }
+
+  /**
+   * Coalesces the notification updates requested for incoming messages.  The first
+   * request after a quiet period renders immediately; requests that follow within
+   * the debounce window are collected and rendered together, but never later than
+   * the maximum delay after the first of them.
+   */
+  private static class NotificationBatcher {
+
+    private static final long DEBOUNCE_MILLIS  = 250;
+    private static final long MAX_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final Set<Long>                threads  = new LinkedHashSet<>();
+
+    private           Context            context;
+    private @Nullable MasterSecret       masterSecret;
+    private           int                requests;
+    private           long               firstRequest = -1;
+    private           long               lastRender   = -1;
+    private @Nullable ScheduledFuture<?> scheduled;
+
+    public synchronized void add(@NonNull Context context, @Nullable MasterSecret masterSecret, long threadId) {
+      long now = System.currentTimeMillis();
+
+      this.context      = context.getApplicationContext();
+      this.masterSecret = masterSecret;
+      this.threads.add(threadId);
+      this.requests++;
+
+      long delay;
+
+      if (firstRequest == -1 && now - lastRender > DEBOUNCE_MILLIS) {
+        delay = 0;
+      } else {
+        if (firstRequest == -1) firstRequest = now;
+        delay = Math.max(0, Math.min(DEBOUNCE_MILLIS, firstRequest + MAX_DELAY_MILLIS - now));
+      }
+
+      if (scheduled != null) {
+        scheduled.cancel(false);
+      }
+
+      scheduled = executor.schedule(new Runnable() {
+        @Override
+        public void run() {
+          render();
+        }
+      }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void render() {
+      Context      context;
+      MasterSecret masterSecret;
+      Set<Long>    threads;
+      int          requests;
+
+      synchronized (this) {
+        if (this.threads.isEmpty()) return;
+
+        context      = this.context;
+        masterSecret = this.masterSecret;
+        threads      = new LinkedHashSet<>(this.threads);
+        requests     = this.requests;
+
+        this.threads.clear();
+        this.masterSecret = null;
+        this.requests     = 0;
+        this.firstRequest = -1;
+        this.lastRender   = System.currentTimeMillis();
+        this.scheduled    = null;
+      }
+
+      if (requests > 1) {
+        Log.i(TAG, "Coalesced " + requests + " notification updates for " + threads.size() + " threads");
+      }
+
+      updateNotification(context, masterSecret, threads, true);
+    }
+  }
 }
@@ -47,6 +47,10 @@ public class NotificationItem {
     return threadRecipients == null ? recipients : threadRecipients;
   }
 
+  public @Nullable Recipients getThreadRecipients() {
+    return threadRecipients;
+  }
+
   public @NonNull  Recipient getIndividualRecipient() {
     return individualRecipient;
   }
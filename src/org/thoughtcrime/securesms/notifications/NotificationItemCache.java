@@ -0,0 +1,227 @@
+package org.thoughtcrime.securesms.notifications;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import android.util.Log;
+
+import org.thoughtcrime.securesms.R;
+import org.thoughtcrime.securesms.crypto.MasterSecret;
+import org.thoughtcrime.securesms.database.DatabaseFactory;
+import org.thoughtcrime.securesms.database.MmsSmsColumns;
+import org.thoughtcrime.securesms.database.MmsSmsDatabase;
+import org.thoughtcrime.securesms.database.SmsDatabase;
+import org.thoughtcrime.securesms.database.model.MediaMmsMessageRecord;
+import org.thoughtcrime.securesms.database.model.MessageRecord;
+import org.thoughtcrime.securesms.mms.SlideDeck;
+import org.thoughtcrime.securesms.recipients.Recipient;
+import org.thoughtcrime.securesms.recipients.Recipients;
+import org.thoughtcrime.securesms.util.SpanUtil;
+import org.thoughtcrime.securesms.util.Stopwatch;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the notification items for unread messages between notification updates,
+ * so that an update only has to read and decrypt the messages that arrived since
+ * the last one.  Each update still lists the ids and dates of all unread, unnotified
+ * messages, which the read and notified index finds without scanning the tables,
+ * though each row found is still looked up for its date.  Items for messages that
+ * have since been read, notified or deleted simply drop out.
+ */
+class NotificationItemCache {
+
+  private static final String TAG = NotificationItemCache.class.getSimpleName();
+
+  private final Map<MessageKey, NotificationItem> items = new HashMap<>();
+
+  private boolean locked;
+
+  synchronized @NonNull NotificationState getNotificationState(@NonNull Context context, @Nullable MasterSecret masterSecret) {
+    Stopwatch stopwatch = new Stopwatch("notification-state");
+
+    if (locked != (masterSecret == null)) {
+      items.clear();
+      locked = masterSecret == null;
+    }
+
+    List<MessageKey>                  unread  = getUnreadKeys(context);
+    Map<MessageKey, NotificationItem> current = new HashMap<>(unread.size());
+    Set<MessageKey>                   pending = new HashSet<>();
+    List<Long>                        sms     = new LinkedList<>();
+    List<Long>                        mms     = new LinkedList<>();
+
+    for (MessageKey key : unread) {
+      NotificationItem item = items.get(key);
+
+      if      (item != null) current.put(key, item);
+      else if (key.mms)      mms.add(key.id);
+      else                   sms.add(key.id);
+    }
+
+    stopwatch.split("unread-ids");
+
+    int missing = sms.size() + mms.size();
+
+    if (missing > 0) {
+      MmsSmsDatabase database = DatabaseFactory.getMmsSmsDatabase(context);
+      Cursor         cursor;
+
+      if (missing == unread.size()) cursor = database.getUnread();
+      else                          cursor = database.getUnread(toArray(sms), toArray(mms));
+
+      readItems(context, masterSecret, cursor, current, pending);
+    }
+
+    stopwatch.split("records");
+
+    NotificationState notificationState = new NotificationState();
+
+    items.clear();
+
+    for (MessageKey key : unread) {
+      NotificationItem item = current.get(key);
+
+      if (item == null) continue;
+
+      if (!pending.contains(key)) {
+        items.put(key, item);
+      }
+
+      if (item.getThreadRecipients() == null || !item.getThreadRecipients().isMuted()) {
+        notificationState.addNotification(item);
+      }
+    }
+
+    stopwatch.split("state");
+    stopwatch.stop(TAG);
+
+    Log.i(TAG, "Unread messages: " + unread.size() + ", read from database: " + missing);
+
+    return notificationState;
+  }
+
+  private @NonNull List<MessageKey> getUnreadKeys(@NonNull Context context) {
+    List<MessageKey> keys   = new LinkedList<>();
+    Cursor           cursor = DatabaseFactory.getMmsSmsDatabase(context).getUnreadIds();
+
+    try {
+      while (cursor != null && cursor.moveToNext()) {
+        long    id           = cursor.getLong(cursor.getColumnIndexOrThrow(MmsSmsColumns.ID));
+        boolean mms          = MmsSmsDatabase.MMS_TRANSPORT.equals(cursor.getString(cursor.getColumnIndexOrThrow(MmsSmsDatabase.TRANSPORT)));
+        long    dateReceived = cursor.getLong(cursor.getColumnIndexOrThrow(MmsSmsColumns.NORMALIZED_DATE_RECEIVED));
+
+        keys.add(new MessageKey(id, mms, dateReceived));
+      }
+    } finally {
+      if (cursor != null) cursor.close();
+    }
+
+    return keys;
+  }
+
+  private void readItems(@NonNull Context context, @Nullable MasterSecret masterSecret,
+                         @NonNull Cursor cursor, @NonNull Map<MessageKey, NotificationItem> current,
+                         @NonNull Set<MessageKey> pending)
+  {
+    List<MessageRecord>   records   = new LinkedList<>();
+    Set<Long>             threadIds = new HashSet<>();
+    MmsSmsDatabase.Reader reader;
+    MessageRecord         next;
+
+    if (masterSecret == null) reader = DatabaseFactory.getMmsSmsDatabase(context).readerFor(cursor);
+    else                      reader = DatabaseFactory.getMmsSmsDatabase(context).readerFor(cursor, masterSecret);
+
+    try {
+      while ((next = reader.getNext()) != null) {
+        records.add(next);
+        if (next.getThreadId() != -1) threadIds.add(next.getThreadId());
+      }
+    } finally {
+      reader.close();
+    }
+
+    Map<Long, Recipients> threadRecipientsById = DatabaseFactory.getThreadDatabase(context).getRecipientsForThreadIds(threadIds);
+
+    for (MessageRecord record : records) {
+      long         id               = record.getId();
+      boolean      mms              = record.isMms() || record.isMmsNotification();
+      Recipient    recipient        = record.getIndividualRecipient();
+      Recipients   recipients       = record.getRecipients();
+      long         threadId         = record.getThreadId();
+      CharSequence body             = record.getDisplayBody();
+      Recipients   threadRecipients = null;
+      SlideDeck    slideDeck        = null;
+      long         timestamp        = record.getTimestamp();
+      boolean      unreadable       = false;
+
+      if (threadId != -1) {
+        threadRecipients = threadRecipientsById.get(threadId);
+      }
+
+      if (SmsDatabase.Types.isDecryptInProgressType(record.getType()) || !record.getBody().isPlaintext()) {
+        body       = SpanUtil.italic(context.getString(R.string.MessageNotifier_locked_message));
+        unreadable = true;
+      } else if (record.isMms() && TextUtils.isEmpty(body)) {
+        body = SpanUtil.italic(context.getString(R.string.MessageNotifier_media_message));
+        slideDeck = ((MediaMmsMessageRecord)record).getSlideDeck();
+      } else if (record.isMms() && !record.isMmsNotification()) {
+        String message      = context.getString(R.string.MessageNotifier_media_message_with_text, body);
+        int    italicLength = message.length() - body.length();
+        body = SpanUtil.italic(message, italicLength);
+        slideDeck = ((MediaMmsMessageRecord)record).getSlideDeck();
+      }
+
+      MessageKey key = new MessageKey(id, mms, record.getDateReceived());
+
+      if (unreadable) {
+        pending.add(key);
+      }
+
+      current.put(key, new NotificationItem(id, mms, recipient, recipients, threadRecipients, threadId, body, timestamp, slideDeck));
+    }
+  }
+
+  private static long[] toArray(@NonNull List<Long> ids) {
+    long[] array = new long[ids.size()];
+    int    index = 0;
+
+    for (long id : ids) {
+      array[index++] = id;
+    }
+
+    return array;
+  }
+
+  private static class MessageKey {
+    private final long    id;
+    private final boolean mms;
+    private final long    dateReceived;
+
+    private MessageKey(long id, boolean mms, long dateReceived) {
+      this.id           = id;
+      this.mms          = mms;
+      this.dateReceived = dateReceived;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (other == null || !(other instanceof MessageKey)) return false;
+
+      MessageKey that = (MessageKey) other;
+      return this.id == that.id && this.mms == that.mms && this.dateReceived == that.dateReceived;
+    }
+
+    @Override
+    public int hashCode() {
+      return (int) (id ^ (id >>> 32)) ^ (mms ? 1 : 0) ^ (int) (dateReceived ^ (dateReceived >>> 32));
+    }
+  }
+}
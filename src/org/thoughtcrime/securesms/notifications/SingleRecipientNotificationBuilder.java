@@ -19,6 +19,7 @@ import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
 
 import org.thoughtcrime.securesms.R;
+import org.thoughtcrime.securesms.contacts.avatars.ContactPhoto;
 import org.thoughtcrime.securesms.crypto.MasterSecret;
 import org.thoughtcrime.securesms.mms.DecryptableStreamUriLoader;
 import org.thoughtcrime.securesms.mms.Slide;
@@ -27,17 +28,22 @@ import org.thoughtcrime.securesms.preferences.NotificationPrivacyPreference;
 import org.thoughtcrime.securesms.recipients.Recipient;
 import org.thoughtcrime.securesms.recipients.Recipients;
 import org.thoughtcrime.securesms.util.BitmapUtil;
+import org.thoughtcrime.securesms.util.LRUCache;
 import org.thoughtcrime.securesms.util.TextSecurePreferences;
 import org.thoughtcrime.securesms.util.Util;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 public class SingleRecipientNotificationBuilder extends AbstractNotificationBuilder {
 
   private static final String TAG = SingleRecipientNotificationBuilder.class.getSimpleName();
 
+  private static final Map<LargeIconKey, Bitmap> LARGE_ICONS   = new LRUCache<>(20);
+  private static final ContactPhoto              UNKNOWN_PHOTO = Recipient.getUnknownRecipient().getContactPhoto();
+
   private final List<CharSequence> messageBodies = new LinkedList<>();
 
   private       SlideDeck    slideDeck;
@@ -64,16 +70,10 @@ public class SingleRecipientNotificationBuilder extends AbstractNotificationBuil
         addPerson(recipients.getPrimaryRecipient().getContactUri().toString());
       }
 
-      setLargeIcon(recipients.getContactPhoto()
-                            .asDrawable(context, recipients.getColor()
-                                                          .toConversationColor(context)));
+      setLargeIcon(recipients.getContactPhoto(), recipients.getColor().toConversationColor(context));
     } else {
       setContentTitle(context.getString(R.string.SingleRecipientNotificationBuilder_signal));
-      setLargeIcon(Recipient.getUnknownRecipient()
-                            .getContactPhoto()
-                            .asDrawable(context, Recipient.getUnknownRecipient()
-                                                          .getColor()
-                                                          .toConversationColor(context)));
+      setLargeIcon(UNKNOWN_PHOTO, Recipient.getUnknownRecipient().getColor().toConversationColor(context));
     }
   }
 
@@ -197,15 +197,32 @@ public class SingleRecipientNotificationBuilder extends AbstractNotificationBuil
     return super.build();
   }
 
-  private void setLargeIcon(@Nullable Drawable drawable) {
-    if (drawable != null) {
-      int    largeIconTargetSize  = context.getResources().getDimensionPixelSize(R.dimen.contact_photo_target_size);
-      Bitmap recipientPhotoBitmap = BitmapUtil.createFromDrawable(drawable, largeIconTargetSize, largeIconTargetSize);
+  private void setLargeIcon(@NonNull ContactPhoto contactPhoto, int color) {
+    LargeIconKey key = new LargeIconKey(contactPhoto, color);
+    Bitmap       recipientPhotoBitmap;
+
+    synchronized (LARGE_ICONS) {
+      recipientPhotoBitmap = LARGE_ICONS.get(key);
+    }
+
+    if (recipientPhotoBitmap == null) {
+      Drawable drawable = contactPhoto.asDrawable(context, color);
+
+      if (drawable != null) {
+        int largeIconTargetSize = context.getResources().getDimensionPixelSize(R.dimen.contact_photo_target_size);
+        recipientPhotoBitmap = BitmapUtil.createFromDrawable(drawable, largeIconTargetSize, largeIconTargetSize);
+      }
 
       if (recipientPhotoBitmap != null) {
-        setLargeIcon(recipientPhotoBitmap);
+        synchronized (LARGE_ICONS) {
+          LARGE_ICONS.put(key, recipientPhotoBitmap);
+        }
       }
     }
+
+    if (recipientPhotoBitmap != null) {
+      setLargeIcon(recipientPhotoBitmap);
+    }
   }
 
   private boolean hasBigPictureSlide(@Nullable SlideDeck slideDeck) {
@@ -250,4 +267,31 @@ public class SingleRecipientNotificationBuilder extends AbstractNotificationBuil
     return content;
   }
 
+  /**
+   * Rendered large icons are reused for as long as the recipient's contact photo
+   * and color stay the same.  A recipient gets a new photo instance whenever it's
+   * resolved again, so photos are compared by identity.
+   */
+  private static class LargeIconKey {
+    private final ContactPhoto contactPhoto;
+    private final int          color;
+
+    private LargeIconKey(@NonNull ContactPhoto contactPhoto, int color) {
+      this.contactPhoto = contactPhoto;
+      this.color        = color;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (other == null || !(other instanceof LargeIconKey)) return false;
+
+      LargeIconKey that = (LargeIconKey) other;
+      return this.contactPhoto == that.contactPhoto && this.color == that.color;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(contactPhoto) ^ color;
+    }
+  }
 }
@@ -19,8 +19,12 @@ package org.thoughtcrime.securesms.recipients;
 import android.content.Context;
 import android.content.Intent;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.text.TextUtils;
+import android.util.Log;
 
+import org.thoughtcrime.securesms.color.MaterialColor;
+import org.thoughtcrime.securesms.contacts.avatars.ContactPhotoFactory;
 import org.thoughtcrime.securesms.database.CanonicalAddressDatabase;
 import org.thoughtcrime.securesms.util.Util;
 import org.whispersystems.libsignal.util.guava.Optional;
@@ -32,6 +36,8 @@ import java.util.StringTokenizer;
 
 public class RecipientFactory {
 
+  private static final String TAG = RecipientFactory.class.getSimpleName();
+
   public static final String RECIPIENT_CLEAR_ACTION = "org.thoughtcrime.securesms.database.RecipientFactory.CLEAR";
 
   private static final RecipientProvider provider = new RecipientProvider();
@@ -98,7 +104,41 @@ public class RecipientFactory {
     return getRecipientsForIds(context, ids, asynchronous);
   }
 
+  /**
+   * Resolves the recipients of many threads together, ahead of the list items
+   * or notifications that each look up their own.
+   *
+   * @param recipientIds The space separated recipient ids of each thread.
+   */
+  public static void prefetchRecipients(Context context, Collection<String> recipientIds, boolean asynchronous) {
+    List<String> ids = new LinkedList<>();
+
+    for (String threadRecipientIds : recipientIds) {
+      ids.addAll(Util.split(threadRecipientIds, " "));
+    }
+
+    provider.prefetchRecipients(context, toArray(ids), asynchronous);
+  }
+
+  public static void prefetchRecipientsFromStrings(Context context, List<String> numbers, boolean asynchronous) {
+    List<String> ids = new LinkedList<>();
+
+    for (String number : numbers) {
+      Optional<Long> id = getRecipientIdFromNumber(context, number);
+
+      if (id.isPresent()) {
+        ids.add(String.valueOf(id.get()));
+      }
+    }
+
+    provider.prefetchRecipients(context, toArray(ids), asynchronous);
+  }
+
   private static @NonNull Recipients getRecipientsForIds(Context context, List<String> idStrings, boolean asynchronous) {
+    return provider.getRecipients(context, toArray(idStrings), asynchronous);
+  }
+
+  private static @NonNull long[] toArray(List<String> idStrings) {
     long[]       ids      = new long[idStrings.size()];
     int          i        = 0;
 
@@ -106,7 +146,7 @@ public class RecipientFactory {
       ids[i++] = Long.parseLong(id);
     }
 
-    return provider.getRecipients(context, ids, asynchronous);
+    return ids;
   }
 
   private static Optional<Long> getRecipientIdFromNumber(Context context, String number) {
@@ -136,8 +176,30 @@ public class RecipientFactory {
     return value;
   }
 
+  /**
+   * Seeds the cache with previously known details for a recipient.  The seeded
+   * recipient is stale, so the next lookup still resolves it, but displays these
+   * details instead of a blank placeholder until it does.
+   */
+  public static void primeRecipient(Context context, long recipientId, @NonNull String number,
+                                    @Nullable String name, @Nullable String serializedColor)
+  {
+    MaterialColor color = null;
+
+    if (serializedColor != null) {
+      try {
+        color = MaterialColor.fromSerialized(serializedColor);
+      } catch (MaterialColor.UnknownColorException e) {
+        Log.w(TAG, e);
+      }
+    }
+
+    provider.primeRecipient(recipientId, number, name, color);
+  }
+
   public static void clearCache(Context context) {
     provider.clearCache();
+    ContactPhotoFactory.clearCache();
     context.sendBroadcast(new Intent(RECIPIENT_CLEAR_ACTION));
   }
 
@@ -16,9 +16,12 @@
  */
 package org.thoughtcrime.securesms.recipients;
 
+import android.annotation.TargetApi;
 import android.content.Context;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.Build;
+import android.provider.ContactsContract.CommonDataKinds.Phone;
 import android.provider.ContactsContract.Contacts;
 import android.provider.ContactsContract.PhoneLookup;
 import android.support.annotation.NonNull;
@@ -35,14 +38,18 @@ import org.thoughtcrime.securesms.database.DatabaseFactory;
 import org.thoughtcrime.securesms.database.GroupDatabase;
 import org.thoughtcrime.securesms.database.RecipientPreferenceDatabase.RecipientsPreferences;
 import org.thoughtcrime.securesms.util.GroupUtil;
-import org.thoughtcrime.securesms.util.LRUCache;
 import org.thoughtcrime.securesms.util.ListenableFutureTask;
+import org.thoughtcrime.securesms.util.ShardedCache;
 import org.thoughtcrime.securesms.util.Util;
 import org.whispersystems.libsignal.util.guava.Optional;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -53,9 +60,14 @@ class RecipientProvider {
 
   private static final String TAG = RecipientProvider.class.getSimpleName();
 
-  private static final RecipientCache  recipientCache         = new RecipientCache();
-  private static final RecipientsCache recipientsCache        = new RecipientsCache();
-  private static final ExecutorService asyncRecipientResolver = Util.newSingleThreadedLifoExecutor();
+  private static final int MAX_QUERY_ARGUMENTS = 500;
+  private static final int CACHE_SHARD_COUNT   = 16;
+  private static final int CACHE_SHARD_SIZE    = 1000 / CACHE_SHARD_COUNT;
+
+  private static final ShardedCache<Long, Recipient>          recipientCache         = new ShardedCache<>(CACHE_SHARD_COUNT, CACHE_SHARD_SIZE);
+  private static final ShardedCache<RecipientIds, Recipients> recipientsCache        = new ShardedCache<>(CACHE_SHARD_COUNT, CACHE_SHARD_SIZE);
+  private static final ShardedCache.Statistics                cacheStatistics        = new ShardedCache.Statistics();
+  private static final ExecutorService                        asyncRecipientResolver = Util.newSingleThreadedLifoExecutor();
 
   private static final String[] CALLER_ID_PROJECTION = new String[] {
     PhoneLookup.DISPLAY_NAME,
@@ -65,6 +77,15 @@ class RecipientProvider {
     PhoneLookup.LABEL
   };
 
+  private static final String[] BULK_CALLER_ID_PROJECTION = new String[] {
+    Phone.DISPLAY_NAME,
+    Phone.LOOKUP_KEY,
+    Phone.CONTACT_ID,
+    Phone.NUMBER,
+    Phone.LABEL,
+    Phone.NORMALIZED_NUMBER
+  };
+
   private static final Map<String, RecipientDetails> STATIC_DETAILS = new HashMap<String, RecipientDetails>() {{
     put("262966", new RecipientDetails("Amazon", "262966", null, null,
                                        ContactPhotoFactory.getResourceContactPhoto(R.drawable.ic_amazon),
@@ -74,9 +95,12 @@ class RecipientProvider {
   @NonNull Recipient getRecipient(Context context, long recipientId, boolean asynchronous) {
     Recipient cachedRecipient = recipientCache.get(recipientId);
     if (cachedRecipient != null && !cachedRecipient.isStale() && (asynchronous || !cachedRecipient.isResolving())) {
+      cacheStatistics.hit();
       return cachedRecipient;
     }
 
+    cacheStatistics.miss();
+
     String number = CanonicalAddressDatabase.getInstance(context).getAddressFromId(recipientId);
 
     if (asynchronous) {
@@ -85,7 +109,7 @@ class RecipientProvider {
       cachedRecipient = new Recipient(recipientId, getRecipientDetailsSync(context, recipientId, number));
     }
 
-    recipientCache.set(recipientId, cachedRecipient);
+    recipientCache.put(recipientId, cachedRecipient);
     return cachedRecipient;
   }
 
@@ -95,22 +119,135 @@ class RecipientProvider {
       return cachedRecipients;
     }
 
-    List<Recipient> recipientList = new LinkedList<>();
+    List<Recipient> recipientList;
 
-    for (long recipientId : recipientIds) {
-      recipientList.add(getRecipient(context, recipientId, asynchronous));
+    if (asynchronous && recipientIds.length > 1) {
+      recipientList = getRecipientsAsync(context, recipientIds);
+    } else {
+      recipientList = new LinkedList<>();
+
+      for (long recipientId : recipientIds) {
+        recipientList.add(getRecipient(context, recipientId, asynchronous));
+      }
     }
 
     if (asynchronous) cachedRecipients = new Recipients(recipientList, cachedRecipients, getRecipientsPreferencesAsync(context, recipientIds));
     else              cachedRecipients = new Recipients(recipientList, getRecipientsPreferencesSync(context, recipientIds));
 
-    recipientsCache.set(new RecipientIds(recipientIds), cachedRecipients);
+    recipientsCache.put(new RecipientIds(recipientIds), cachedRecipients);
     return cachedRecipients;
   }
 
+  /**
+   * Resolves every recipient that isn't already cached in one batch, so that
+   * their contacts are found with one query and their photos are decoded
+   * together.  Later lookups of each recipient on its own then hit the cache.
+   */
+  void prefetchRecipients(Context context, long[] recipientIds, boolean asynchronous) {
+    if (asynchronous) {
+      getRecipientsAsync(context, recipientIds);
+      return;
+    }
+
+    Map<Long, String> unresolved = new LinkedHashMap<>();
+
+    for (long recipientId : recipientIds) {
+      Recipient cachedRecipient = recipientCache.get(recipientId);
+
+      if (cachedRecipient == null || cachedRecipient.isStale() || cachedRecipient.isResolving()) {
+        unresolved.put(recipientId, CanonicalAddressDatabase.getInstance(context).getAddressFromId(recipientId));
+      }
+    }
+
+    if (unresolved.isEmpty()) return;
+
+    for (Map.Entry<Long, RecipientDetails> entry : getRecipientDetailsSync(context, unresolved).entrySet()) {
+      recipientCache.put(entry.getKey(), new Recipient(entry.getKey(), entry.getValue()));
+    }
+  }
+
+  void primeRecipient(long recipientId, @NonNull String number, @Nullable String name, @Nullable MaterialColor color) {
+    ContactPhoto avatar = GroupUtil.isEncodedGroup(number) ? ContactPhotoFactory.getDefaultGroupPhoto()
+                                                           : ContactPhotoFactory.getDefaultContactPhoto(name);
+    Recipient    primed = new Recipient(recipientId, new RecipientDetails(name, number, null, null, avatar, color));
+
+    primed.setStale();
+
+    recipientCache.putIfAbsent(recipientId, primed);
+  }
+
   void clearCache() {
-    recipientCache.reset();
-    recipientsCache.reset();
+    for (Recipient recipient : recipientCache.values()) {
+      recipient.setStale();
+    }
+
+    for (Recipients recipients : recipientsCache.values()) {
+      recipients.setStale();
+    }
+  }
+
+  /**
+   * Looks up every recipient that isn't already cached in one background task,
+   * rather than queueing a separate contacts and preferences lookup for each.
+   */
+  private @NonNull List<Recipient> getRecipientsAsync(final Context context, long[] recipientIds) {
+    final Map<Long, String>                                 unresolved = new LinkedHashMap<>();
+    final Map<Long, RecipientDetails>                       resolved   = new HashMap<>();
+    final Map<Long, ListenableFutureTask<RecipientDetails>> futures    = new HashMap<>();
+    final Map<Long, Recipient>                              created    = new HashMap<>();
+    final List<Recipient>                                   results    = new LinkedList<>();
+
+    for (final long recipientId : recipientIds) {
+      Recipient cachedRecipient = created.get(recipientId);
+
+      if (cachedRecipient == null) {
+        cachedRecipient = recipientCache.get(recipientId);
+      }
+
+      if (cachedRecipient != null && (!cachedRecipient.isStale() || created.containsKey(recipientId))) {
+        cacheStatistics.hit();
+        results.add(cachedRecipient);
+        continue;
+      }
+
+      cacheStatistics.miss();
+
+      ListenableFutureTask<RecipientDetails> future = new ListenableFutureTask<>(new Callable<RecipientDetails>() {
+        @Override
+        public RecipientDetails call() throws Exception {
+          RecipientDetails details = resolved.get(recipientId);
+          if (details == null) throw new IOException("Recipient wasn't resolved: " + recipientId);
+          return details;
+        }
+      });
+
+      String number = CanonicalAddressDatabase.getInstance(context).getAddressFromId(recipientId);
+
+      cachedRecipient = new Recipient(recipientId, number, cachedRecipient, future);
+      recipientCache.put(recipientId, cachedRecipient);
+
+      created.put(recipientId, cachedRecipient);
+      unresolved.put(recipientId, number);
+      futures.put(recipientId, future);
+      results.add(cachedRecipient);
+    }
+
+    if (!unresolved.isEmpty()) {
+      asyncRecipientResolver.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            resolved.putAll(getRecipientDetailsSync(context, unresolved));
+          } finally {
+            for (ListenableFutureTask<RecipientDetails> future : futures.values()) {
+              future.run();
+            }
+          }
+        }
+      });
+    }
+
+    return results;
   }
 
   private @NonNull ListenableFutureTask<RecipientDetails> getRecipientDetailsAsync(final Context context,
@@ -134,12 +271,125 @@ class RecipientProvider {
     else                                  return getIndividualRecipientDetails(context, recipientId, number);
   }
 
+  private @NonNull Map<Long, RecipientDetails> getRecipientDetailsSync(Context context, Map<Long, String> numbers) {
+    long                        startTime   = System.currentTimeMillis();
+    Map<Long, RecipientDetails> results     = new HashMap<>();
+    Map<Long, String>           individuals = new HashMap<>();
+
+    for (Map.Entry<Long, String> entry : numbers.entrySet()) {
+      if (GroupUtil.isEncodedGroup(entry.getValue())) results.put(entry.getKey(), getGroupRecipientDetails(context, entry.getValue()));
+      else                                            individuals.put(entry.getKey(), entry.getValue());
+    }
+
+    if (!individuals.isEmpty()) {
+      Map<Long, RecipientsPreferences> preferences = DatabaseFactory.getRecipientPreferenceDatabase(context)
+                                                                    .getIndividualRecipientsPreferences(individuals.keySet());
+      Map<String, RecipientDetails>    contacts    = getContactDetails(context, individuals.values());
+
+      for (Map.Entry<Long, String> entry : individuals.entrySet()) {
+        RecipientsPreferences recipientPreferences = preferences.get(entry.getKey());
+        MaterialColor         color                = recipientPreferences != null ? recipientPreferences.getColor() : null;
+        String                number               = entry.getValue();
+        RecipientDetails      contact              = contacts.get(number);
+
+        if (contact != null) {
+          results.put(entry.getKey(), new RecipientDetails(contact.name, contact.number, contact.customLabel,
+                                                           contact.contactUri, contact.avatar, color));
+        } else {
+          results.put(entry.getKey(), getIndividualRecipientDetails(context, number, color));
+        }
+      }
+    }
+
+    Log.i(TAG, "Resolved " + numbers.size() + " recipients in " + (System.currentTimeMillis() - startTime) + "ms, " +
+               "cache hit rate " + Math.round(cacheStatistics.getHitRate() * 100) + "%");
+
+    return results;
+  }
+
+  /**
+   * Finds the contacts for many E.164 numbers with one query against the
+   * normalized numbers the contacts provider keeps for each phone entry.
+   * Numbers that don't match anything are absent from the result, and still
+   * have to go through PhoneLookup: entries saved without a country code, or
+   * before the provider normalized numbers, have no normalized number to
+   * match against.
+   */
+  @TargetApi(16)
+  private @NonNull Map<String, RecipientDetails> getContactDetails(Context context, Collection<String> numbers) {
+    Map<String, RecipientDetails> results = new HashMap<>();
+
+    if (Build.VERSION.SDK_INT < 16) return results;
+
+    List<String>     batch    = new LinkedList<>();
+    Iterator<String> iterator = numbers.iterator();
+
+    while (iterator.hasNext()) {
+      String number = iterator.next();
+
+      if (number.startsWith("+")) {
+        batch.add(number);
+      }
+
+      if (!batch.isEmpty() && (batch.size() == MAX_QUERY_ARGUMENTS || !iterator.hasNext())) {
+        String placeholders = Util.join(Collections.nCopies(batch.size(), "?"), ",");
+        Cursor cursor       = null;
+
+        try {
+          cursor = context.getContentResolver().query(Phone.CONTENT_URI, BULK_CALLER_ID_PROJECTION,
+                                                      Phone.NORMALIZED_NUMBER + " IN (" + placeholders + ")",
+                                                      batch.toArray(new String[0]), null);
+
+          Map<String, ContactRow> rows  = new HashMap<>();
+          Map<Uri, String>        names = new HashMap<>();
+
+          while (cursor != null && cursor.moveToNext()) {
+            String normalizedNumber = cursor.getString(5);
+            String resultNumber     = cursor.getString(3);
+
+            if (normalizedNumber == null || resultNumber == null || rows.containsKey(normalizedNumber)) {
+              continue;
+            }
+
+            Uri    photoUri = Uri.withAppendedPath(Contacts.CONTENT_URI, cursor.getLong(2) + "");
+            String name     = resultNumber.equals(cursor.getString(0)) ? null : cursor.getString(0);
+
+            rows.put(normalizedNumber, new ContactRow(cursor.getString(0), resultNumber, cursor.getString(4),
+                                                      Contacts.getLookupUri(cursor.getLong(2), cursor.getString(1)),
+                                                      photoUri));
+            names.put(photoUri, name);
+          }
+
+          Map<Uri, ContactPhoto> contactPhotos = ContactPhotoFactory.getContactPhotos(context, names);
+
+          for (Map.Entry<String, ContactRow> entry : rows.entrySet()) {
+            ContactRow row = entry.getValue();
+
+            results.put(entry.getKey(), new RecipientDetails(row.name, row.number, row.label, row.contactUri,
+                                                             contactPhotos.get(row.photoUri), null));
+          }
+        } finally {
+          if (cursor != null) cursor.close();
+        }
+
+        batch.clear();
+      }
+    }
+
+    return results;
+  }
+
   private @NonNull RecipientDetails getIndividualRecipientDetails(Context context, long recipientId, @NonNull String number) {
     Optional<RecipientsPreferences> preferences = DatabaseFactory.getRecipientPreferenceDatabase(context).getRecipientsPreferences(new long[]{recipientId});
     MaterialColor                   color       = preferences.isPresent() ? preferences.get().getColor() : null;
-    Uri                             uri         = Uri.withAppendedPath(PhoneLookup.CONTENT_FILTER_URI, Uri.encode(number));
-    Cursor                          cursor      = context.getContentResolver().query(uri, CALLER_ID_PROJECTION,
-                                                                                     null, null, null);
+
+    return getIndividualRecipientDetails(context, number, color);
+  }
+
+  private @NonNull RecipientDetails getIndividualRecipientDetails(Context context, @NonNull String number, @Nullable MaterialColor color) {
+    Uri    uri    = Uri.withAppendedPath(PhoneLookup.CONTENT_FILTER_URI, Uri.encode(number));
+    Cursor cursor = context.getContentResolver().query(uri, CALLER_ID_PROJECTION,
+                                                       null, null, null);
 
     try {
       if (cursor != null && cursor.moveToFirst()) {
@@ -161,6 +411,10 @@ class RecipientProvider {
         cursor.close();
     }
 
+    return getNonContactRecipientDetails(number, color);
+  }
+
+  private @NonNull RecipientDetails getNonContactRecipientDetails(@NonNull String number, @Nullable MaterialColor color) {
     if (STATIC_DETAILS.containsKey(number)) return STATIC_DETAILS.get(number);
     else                                    return new RecipientDetails(null, number, null, null, ContactPhotoFactory.getDefaultContactPhoto(null), color);
   }
@@ -228,6 +482,22 @@ class RecipientProvider {
     }
   }
 
+  private static class ContactRow {
+    private final String name;
+    private final String number;
+    private final String label;
+    private final Uri    contactUri;
+    private final Uri    photoUri;
+
+    private ContactRow(String name, String number, String label, Uri contactUri, Uri photoUri) {
+      this.name       = name;
+      this.number     = number;
+      this.label      = label;
+      this.contactUri = contactUri;
+      this.photoUri   = photoUri;
+    }
+  }
+
   private static class RecipientIds {
     private final long[] ids;
 
@@ -245,46 +515,4 @@ class RecipientProvider {
     }
   }
 
-  private static class RecipientCache {
-
-    private final Map<Long,Recipient> cache = new LRUCache<>(1000);
-
-    public synchronized Recipient get(long recipientId) {
-      return cache.get(recipientId);
-    }
-
-    public synchronized void set(long recipientId, Recipient recipient) {
-      cache.put(recipientId, recipient);
-    }
-
-    public synchronized void reset() {
-      for (Recipient recipient : cache.values()) {
-        recipient.setStale();
-      }
-    }
-
-  }
-
-  private static class RecipientsCache {
-
-    private final Map<RecipientIds,Recipients> cache = new LRUCache<>(1000);
-
-    public synchronized Recipients get(RecipientIds ids) {
-      return cache.get(ids);
-    }
-
-    public synchronized void set(RecipientIds ids, Recipients recipients) {
-      cache.put(ids, recipients);
-    }
-
-    public synchronized void reset() {
-      for (Recipients recipients : cache.values()) {
-        recipients.setStale();
-      }
-    }
-
-  }
-
-
-
-}
\ No newline at end of file
+}
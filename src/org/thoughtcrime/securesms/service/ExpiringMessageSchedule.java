@@ -0,0 +1,121 @@
+package org.thoughtcrime.securesms.service;
+
+import android.support.annotation.NonNull;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Orders expiring messages by expiration time and hands them out in buckets, so that
+ * every message expiring within the tolerance window of the earliest one is deleted
+ * together, and only re-arms the wakeup alarm when the next wakeup moves meaningfully earlier.
+ *
+ * Not thread safe; callers synchronize on the schedule.
+ */
+class ExpiringMessageSchedule {
+
+  private final TreeSet<ExpiringMessageReference> references = new TreeSet<>(new ExpiringMessageComparator());
+  private final long                              toleranceMillis;
+
+  private long alarmAtMillis = -1;
+
+  ExpiringMessageSchedule(long toleranceMillis) {
+    this.toleranceMillis = toleranceMillis;
+  }
+
+  void add(long id, boolean mms, long expiresAtMillis) {
+    references.add(new ExpiringMessageReference(id, mms, expiresAtMillis));
+  }
+
+  boolean isEmpty() {
+    return references.isEmpty();
+  }
+
+  int size() {
+    return references.size();
+  }
+
+  /**
+   * @return How long to wait from {@code nowMillis} before the earliest message expires, or 0
+   *         if it has already expired.
+   */
+  long getWaitTime(long nowMillis) {
+    if (references.isEmpty()) throw new IllegalStateException("Empty schedule");
+    return Math.max(0, references.first().expiresAtMillis - nowMillis);
+  }
+
+  /**
+   * Removes and returns every message expiring at or before {@code nowMillis} plus the tolerance.
+   */
+  @NonNull List<ExpiringMessageReference> removeExpired(long nowMillis) {
+    List<ExpiringMessageReference>     expired  = new LinkedList<>();
+    Iterator<ExpiringMessageReference> iterator = references.iterator();
+
+    while (iterator.hasNext()) {
+      ExpiringMessageReference reference = iterator.next();
+
+      if (reference.expiresAtMillis > nowMillis + toleranceMillis) break;
+
+      expired.add(reference);
+      iterator.remove();
+    }
+
+    return expired;
+  }
+
+  /**
+   * @return True if an alarm needs to be (re)armed to wake at {@code wakeAtMillis}. An already
+   *         armed alarm that is still pending and not later than the wakeup by more than the
+   *         tolerance is reused.
+   */
+  boolean shouldSetAlarm(long wakeAtMillis, long nowMillis) {
+    if (alarmAtMillis <= nowMillis || wakeAtMillis < alarmAtMillis - toleranceMillis) {
+      alarmAtMillis = wakeAtMillis;
+      return true;
+    }
+
+    return false;
+  }
+
+  static class ExpiringMessageReference {
+    final long    id;
+    final boolean mms;
+    final long    expiresAtMillis;
+
+    ExpiringMessageReference(long id, boolean mms, long expiresAtMillis) {
+      this.id              = id;
+      this.mms             = mms;
+      this.expiresAtMillis = expiresAtMillis;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (other == null) return false;
+      if (!(other instanceof ExpiringMessageReference)) return false;
+
+      ExpiringMessageReference that = (ExpiringMessageReference)other;
+      return this.id == that.id && this.mms == that.mms && this.expiresAtMillis == that.expiresAtMillis;
+    }
+
+    @Override
+    public int hashCode() {
+      return (int)this.id ^ (mms ? 1 : 0) ^ (int)expiresAtMillis;
+    }
+  }
+
+  private static class ExpiringMessageComparator implements Comparator<ExpiringMessageReference> {
+    @Override
+    public int compare(ExpiringMessageReference lhs, ExpiringMessageReference rhs) {
+      if      (lhs.expiresAtMillis < rhs.expiresAtMillis) return -1;
+      else if (lhs.expiresAtMillis > rhs.expiresAtMillis) return 1;
+      else if (lhs.id < rhs.id)                           return -1;
+      else if (lhs.id > rhs.id)                           return 1;
+      else if (!lhs.mms && rhs.mms)                       return -1;
+      else if (lhs.mms && !rhs.mms)                       return 1;
+      else                                                return 0;
+    }
+  }
+}
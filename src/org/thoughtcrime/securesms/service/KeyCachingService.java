@@ -75,13 +75,14 @@ public class KeyCachingService extends Service {
   private final IBinder binder  = new KeySetBinder();
 
   private static MasterSecret masterSecret;
+  private static MasterSecret unencryptedMasterSecret;
 
   public KeyCachingService() {}
 
   public static synchronized @Nullable MasterSecret getMasterSecret(Context context) {
     if (masterSecret == null && TextSecurePreferences.isPasswordDisabled(context)) {
       try {
-        MasterSecret masterSecret = MasterSecretUtil.getMasterSecret(context, MasterSecretUtil.UNENCRYPTED_PASSPHRASE);
+        MasterSecret masterSecret = getUnencryptedMasterSecret(context);
         Intent       intent       = new Intent(context, KeyCachingService.class);
 
         context.startService(intent);
@@ -95,6 +96,23 @@ public class KeyCachingService extends Service {
     return masterSecret;
   }
 
+  /**
+   * With the passphrase disabled, the keys are derived from a fixed
+   * passphrase, so the result is kept instead of running the derivation again
+   * for every caller until the service has started.  The iteration count
+   * isn't upgraded here, since more iterations over a fixed passphrase
+   * protect nothing; setting a passphrase wraps it with the target count.
+   */
+  private static synchronized MasterSecret getUnencryptedMasterSecret(Context context)
+      throws InvalidPassphraseException
+  {
+    if (unencryptedMasterSecret == null) {
+      unencryptedMasterSecret = MasterSecretUtil.getMasterSecret(context, MasterSecretUtil.UNENCRYPTED_PASSPHRASE);
+    }
+
+    return unencryptedMasterSecret;
+  }
+
   public void setMasterSecret(final MasterSecret masterSecret) {
     synchronized (KeyCachingService.class) {
       KeyCachingService.masterSecret = masterSecret;
@@ -147,7 +165,7 @@ public class KeyCachingService extends Service {
 
     if (TextSecurePreferences.isPasswordDisabled(this)) {
       try {
-        MasterSecret masterSecret = MasterSecretUtil.getMasterSecret(this, MasterSecretUtil.UNENCRYPTED_PASSPHRASE);
+        MasterSecret masterSecret = getUnencryptedMasterSecret(this);
         setMasterSecret(masterSecret);
       } catch (InvalidPassphraseException e) {
         Log.w("KeyCachingService", e);
@@ -190,7 +208,12 @@ public class KeyCachingService extends Service {
 
   private void handleClearKey() {
     Log.w("KeyCachingService", "handleClearKey()");
-    KeyCachingService.masterSecret = null;
+
+    synchronized (KeyCachingService.class) {
+      KeyCachingService.masterSecret            = null;
+      KeyCachingService.unencryptedMasterSecret = null;
+    }
+
     stopForeground(true);
 
     Intent intent = new Intent(CLEAR_KEY_EVENT);
@@ -272,6 +272,9 @@ public class WebRtcCallService extends Service implements InjectableType, PeerCo
 
     this.callState             = CallState.STATE_IDLE;
     this.lockManager           = new LockManager(this);
+
+    ApplicationContext.getInstance(this).initializeWebRtc();
+
     this.peerConnectionFactory = new PeerConnectionFactory(new PeerConnectionFactoryOptions());
     this.audioManager          = new SignalAudioManager(this);
     this.bluetoothStateManager = new BluetoothStateManager(this, this);
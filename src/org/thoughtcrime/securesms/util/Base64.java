@@ -446,6 +446,31 @@ public class Base64
     public static int getEncodedBytesForTarget(int targetSize) {
     	return ((int)(targetSize * 3)) / 4;
     }
+
+
+    /**
+     * The number of bytes {@link #encode(byte[], int, int, byte[], int)}
+     * writes for <var>unencodedLength</var> bytes, padding included.
+     *
+     * @param unencodedLength the number of bytes to encode
+     * @return the length of the encoding
+     */
+    private static int getEncodedLength(int unencodedLength) {
+        return ((unencodedLength + 2) / 3) * 4;
+    }
+
+
+    /**
+     * An upper bound on the number of bytes
+     * {@link #decode(byte[], int, int, byte[], int)} writes for
+     * <var>encodedLength</var> bytes of Base64.
+     *
+     * @param encodedLength the number of Base64 bytes to decode
+     * @return the most bytes they can decode to
+     */
+    private static int getMaxDecodedLength(int encodedLength) {
+        return ((encodedLength + 3) / 4) * 3;
+    }
     
     
 /* ********  E N C O D I N G   M E T H O D S  ******** */    
@@ -558,15 +583,35 @@ public class Base64
      * @since 2.3
      */
     public static void encode( java.nio.ByteBuffer raw, java.nio.ByteBuffer encoded ){
-        byte[] raw3 = new byte[3];
-        byte[] enc4 = new byte[4];
-
-        while( raw.hasRemaining() ){
-            int rem = Math.min(3,raw.remaining());
-            raw.get(raw3,0,rem);
-            Base64.encode3to4(enc4, raw3, rem, Base64.NO_OPTIONS );
-            encoded.put(enc4);
+        if( raw.hasArray() && encoded.hasArray() ){
+            int written = encode( raw.array(), raw.arrayOffset() + raw.position(), raw.remaining(),
+                                  encoded.array(), encoded.arrayOffset() + encoded.position() );
+            raw.position( raw.limit() );
+            encoded.position( encoded.position() + written );
+            return;
+        }   // end if: backed by arrays
+
+        // Direct buffers are encoded in place, three bytes at a time.
+        byte[] ALPHABET = _STANDARD_ALPHABET;
+
+        while( raw.remaining() >= 3 ){
+            int inBuff = ( (raw.get() & 0xff) << 16 ) | ( (raw.get() & 0xff) << 8 ) | ( raw.get() & 0xff );
+
+            encoded.put( ALPHABET[ (inBuff >>> 18)        ] );
+            encoded.put( ALPHABET[ (inBuff >>> 12) & 0x3f ] );
+            encoded.put( ALPHABET[ (inBuff >>>  6) & 0x3f ] );
+            encoded.put( ALPHABET[ (inBuff       ) & 0x3f ] );
         }   // end input remaining
+
+        if( raw.hasRemaining() ){
+            int rem    = raw.remaining();
+            int inBuff = ( (raw.get() & 0xff) << 16 ) | ( rem > 1 ? (raw.get() & 0xff) << 8 : 0 );
+
+            encoded.put( ALPHABET[ (inBuff >>> 18)        ] );
+            encoded.put( ALPHABET[ (inBuff >>> 12) & 0x3f ] );
+            encoded.put( rem > 1 ? ALPHABET[ (inBuff >>> 6) & 0x3f ] : EQUALS_SIGN );
+            encoded.put( EQUALS_SIGN );
+        }   // end if: padding needed
     }
 
 
@@ -958,6 +1003,12 @@ public class Base64
         }   // end if: compress
 
         // Else, don't compress. Better not to use streams at all then.
+        else if( options == NO_OPTIONS ) {
+            byte[] outBuff = new byte[ getEncodedLength( len ) ];
+            encode( source, off, len, outBuff, 0 );
+            return outBuff;
+        }   // end else if: plain encoding
+
         else {
             boolean breakLines = (options & DO_BREAK_LINES) > 0;
 
@@ -1011,6 +1062,59 @@ public class Base64
         }   // end else: don't compress
 
     }   // end encodeBytesToBytes
+
+
+    /**
+     * Encodes <var>len</var> bytes of <var>source</var> into
+     * <var>destination</var> a whole group at a time, for
+     * {@link #encodeBytesToBytes(byte[], int, int, int)} without options and
+     * for array-backed ByteBuffers.  The output is padded and has no line breaks,
+     * as with {@link #encodeBytes(byte[])}.  The destination needs
+     * {@link #getEncodedLength(int)} bytes from <var>destOffset</var>.
+     *
+     * @param source The data to convert
+     * @param off Offset in array where conversion should begin
+     * @param len Length of data to convert
+     * @param destination the array to hold the conversion
+     * @param destOffset the index where output will be put
+     * @return the number of bytes written
+     * @throws NullPointerException if source or destination arrays are null
+     * @throws IllegalArgumentException if the offsets or length are invalid
+     */
+    private static int encode( byte[] source, int off, int len, byte[] destination, int destOffset ) {
+        if( source == null || destination == null ){
+            throw new NullPointerException( "Cannot encode with a null array." );
+        }   // end if: null
+        if( off < 0 || len < 0 || off + len > source.length ){
+            throw new IllegalArgumentException( String.format(
+            "Cannot have offset of %d and length of %d with array of length %d", off, len, source.length ) );
+        }   // end if: bad source
+        if( destOffset < 0 || destOffset + getEncodedLength( len ) > destination.length ){
+            throw new IllegalArgumentException( String.format(
+            "Destination array with length %d cannot hold %d bytes at offset %d", destination.length, getEncodedLength( len ), destOffset ) );
+        }   // end if: bad destination
+
+        byte[] ALPHABET = _STANDARD_ALPHABET;
+        int    end      = off + len;
+        int    d        = off;
+        int    e        = destOffset;
+
+        for( ; d < end - 2; d += 3 ) {
+            int inBuff = ( (source[d] & 0xff) << 16 ) | ( (source[d + 1] & 0xff) << 8 ) | ( source[d + 2] & 0xff );
+
+            destination[ e++ ] = ALPHABET[ (inBuff >>> 18)        ];
+            destination[ e++ ] = ALPHABET[ (inBuff >>> 12) & 0x3f ];
+            destination[ e++ ] = ALPHABET[ (inBuff >>>  6) & 0x3f ];
+            destination[ e++ ] = ALPHABET[ (inBuff       ) & 0x3f ];
+        }   // end for: each full group
+
+        if( d < end ) {
+            encode3to4( source, d, end - d, destination, e, NO_OPTIONS );
+            e += 4;
+        }   // end if: some padding needed
+
+        return e - destOffset;
+    }   // end encode
     
 
     
@@ -1183,6 +1287,17 @@ public class Base64
         }   // end if
         
         byte[] DECODABET = getDecodabet( options );
+
+        if( DECODABET == _STANDARD_DECODABET ){
+            // Sized exactly for whole groups, so usually no copy is needed. Anything
+            // else gets the upper bound, since the padding can't be trusted to say
+            // how much is missing.
+            int    padding = ( source[ off + len - 1 ] == EQUALS_SIGN ? 1 : 0 ) + ( source[ off + len - 2 ] == EQUALS_SIGN ? 1 : 0 );
+            byte[] out     = new byte[ len % 4 == 0 ? len * 3 / 4 - padding : getMaxDecodedLength( len ) ];
+            int    written = decode( source, off, len, out, 0 );
+
+            return written == out.length ? out : java.util.Arrays.copyOf( out, written );
+        }   // end if: standard alphabet
 	
         int    len34   = len * 3 / 4;       // Estimate on array size
         byte[] outBuff = new byte[ len34 ]; // Upper limit on size of output
@@ -1227,6 +1342,80 @@ public class Base64
         System.arraycopy( outBuff, 0, out, 0, outBuffPosn ); 
         return out;
     }   // end decode
+
+
+    /**
+     * Decodes <var>len</var> bytes of standard Base64 from <var>source</var>
+     * into <var>destination</var>, for {@link #decode(byte[], int, int, int)}
+     * with the standard alphabet.  White space is skipped, decoding stops at
+     * the first equals sign, and missing padding is tolerated, but padding
+     * where a group can't end is rejected.  The
+     * destination needs {@link #getMaxDecodedLength(int)} bytes from
+     * <var>destOffset</var>, or exactly the decoded length if the caller
+     * knows it.
+     *
+     * @param source The Base64 encoded data
+     * @param off    The offset of where to begin decoding
+     * @param len    The length of characters to decode
+     * @param destination the array to hold the conversion
+     * @param destOffset the index where output will be put
+     * @return the number of bytes written
+     * @throws java.io.IOException If bogus characters exist in source data
+     * @throws ArrayIndexOutOfBoundsException if the destination is too small
+     */
+    private static int decode( byte[] source, int off, int len, byte[] destination, int destOffset )
+    throws java.io.IOException {
+
+        if( source == null || destination == null ){
+            throw new NullPointerException( "Cannot decode with a null array." );
+        }   // end if
+        if( off < 0 || len < 0 || off + len > source.length ){
+            throw new IllegalArgumentException( String.format(
+            "Source array with length %d cannot have offset of %d and process %d bytes.", source.length, off, len ) );
+        }   // end if
+
+        byte[] DECODABET = _STANDARD_DECODABET;
+        int    e         = destOffset;
+        int    quantum   = 0;               // Bits of the group being built
+        int    count     = 0;               // Characters in the group being built
+
+        for( int i = off; i < off + len; i++ ) {
+            int  sbi       = source[i];
+            byte sbiDecode = sbi >= 0 && sbi < DECODABET.length ? DECODABET[ sbi ] : -9;
+
+            if( sbiDecode >= 0 ) {
+                quantum = ( quantum << 6 ) | sbiDecode;
+
+                if( ++count == 4 ) {
+                    destination[ e++ ] = (byte)( quantum >>> 16 );
+                    destination[ e++ ] = (byte)( quantum >>>  8 );
+                    destination[ e++ ] = (byte)( quantum        );
+                    quantum = 0;
+                    count   = 0;
+                }   // end if: group complete
+            } else if( sbiDecode == EQUALS_SIGN_ENC ) {
+                if( count < 2 ) {
+                    throw new java.io.IOException( String.format(
+                    "Bad Base64 padding in array position %d", i ) );
+                }   // end if: nothing to pad
+                break;
+            } else if( sbiDecode != WHITE_SPACE_ENC ) {
+                throw new java.io.IOException( String.format(
+                "Bad Base64 input character '%c' in array position %d", source[i], i ) );
+            }   // end else: bad character
+        }   // each input character
+
+        if( count == 2 ) {
+            destination[ e++ ] = (byte)( quantum >>> 4 );
+        } else if( count == 3 ) {
+            destination[ e++ ] = (byte)( quantum >>> 10 );
+            destination[ e++ ] = (byte)( quantum >>>  2 );
+        }   // end if: padded group
+
+        return e - destOffset;
+    }   // end decode
+
+
     
     
 	
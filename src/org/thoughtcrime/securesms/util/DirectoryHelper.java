@@ -79,15 +79,7 @@ public class DirectoryHelper {
                                             AccountManagerFactory.createManager(context),
                                             TextSecurePreferences.getLocalNumber(context));
 
-    if (!result.getNewUsers().isEmpty() && TextSecurePreferences.isMultiDevice(context)) {
-      ApplicationContext.getInstance(context)
-                        .getJobManager()
-                        .add(new MultiDeviceContactUpdateJob(context));
-    }
-
-    if (!result.isFresh()) {
-      notifyNewUsers(context, masterSecret, result.getNewUsers());
-    }
+    handleRefreshResult(context, masterSecret, result);
   }
 
   public static @NonNull RefreshResult refreshDirectory(@NonNull Context context,
@@ -95,23 +87,78 @@ public class DirectoryHelper {
                                                         @NonNull String localNumber)
       throws IOException
   {
-    TextSecureDirectory       directory              = TextSecureDirectory.getInstance(context);
-    Set<String>               eligibleContactNumbers = directory.getPushEligibleContactNumbers(localNumber);
-    List<ContactTokenDetails> activeTokens           = accountManager.getContacts(eligibleContactNumbers);
+    TextSecureDirectory                directory       = TextSecureDirectory.getInstance(context);
+    TextSecureDirectory.ContactNumbers contactNumbers  = directory.getPushEligibleContactNumbers(localNumber);
+    Set<String>                        eligibleNumbers = contactNumbers.getNumbers();
+    List<ContactTokenDetails>          activeTokens    = accountManager.getContacts(eligibleNumbers);
 
     if (activeTokens != null) {
       for (ContactTokenDetails activeToken : activeTokens) {
-        eligibleContactNumbers.remove(activeToken.getNumber());
+        eligibleNumbers.remove(activeToken.getNumber());
         activeToken.setNumber(activeToken.getNumber());
       }
 
-      directory.setNumbers(activeTokens, eligibleContactNumbers);
+      directory.setNumbers(activeTokens, eligibleNumbers);
+      TextSecurePreferences.setDirectoryContactsWatermark(context, contactNumbers.getLastUpdated());
+
       return updateContactsDatabase(context, localNumber, activeTokens, true);
     }
 
     return new RefreshResult(new LinkedList<String>(), false);
   }
 
+  /**
+   * Looks up only the numbers of contacts that were added or edited since the last
+   * refresh and aren't in the directory yet, and updates the contacts of those
+   * edited contacts that are already registered.  Removed contacts and users who
+   * have since unregistered are left to the periodic full refresh, which this falls
+   * back to when there is no watermark or the platform can't report contact changes.
+   */
+  public static void refreshDirectoryForChangedContacts(@NonNull Context context, @Nullable MasterSecret masterSecret)
+      throws IOException
+  {
+    long watermark = TextSecurePreferences.getDirectoryContactsWatermark(context);
+
+    if (watermark <= 0 || !TextSecureDirectory.isIncrementalContactScanSupported()) {
+      refreshDirectory(context, masterSecret);
+      return;
+    }
+
+    TextSecureDirectory                directory      = TextSecureDirectory.getInstance(context);
+    String                             localNumber    = TextSecurePreferences.getLocalNumber(context);
+    TextSecureDirectory.ContactNumbers contactNumbers = directory.getNewContactNumbers(localNumber, watermark);
+    Set<String>                        newNumbers     = contactNumbers.getNumbers();
+    List<ContactTokenDetails>          activeTokens   = new LinkedList<>();
+
+    Log.w(TAG, "Contacts changed since " + watermark + ", new numbers: " + newNumbers.size() +
+               ", registered numbers: " + contactNumbers.getRegisteredNumbers().size());
+
+    if (!newNumbers.isEmpty()) {
+      List<ContactTokenDetails> newTokens = AccountManagerFactory.createManager(context).getContacts(newNumbers);
+
+      if (newTokens == null) return;
+
+      for (ContactTokenDetails newToken : newTokens) {
+        newNumbers.remove(newToken.getNumber());
+      }
+
+      directory.setNumbers(newTokens, newNumbers);
+      activeTokens.addAll(newTokens);
+    }
+
+    for (String registeredNumber : contactNumbers.getRegisteredNumbers()) {
+      ContactTokenDetails registeredToken = new ContactTokenDetails();
+      registeredToken.setNumber(registeredNumber);
+      activeTokens.add(registeredToken);
+    }
+
+    if (!activeTokens.isEmpty()) {
+      handleRefreshResult(context, masterSecret, updateContactsDatabase(context, localNumber, activeTokens, false));
+    }
+
+    TextSecurePreferences.setDirectoryContactsWatermark(context, contactNumbers.getLastUpdated());
+  }
+
   public static UserCapabilities refreshDirectoryFor(@NonNull  Context context,
                                                      @Nullable MasterSecret masterSecret,
                                                      @NonNull  Recipients recipients,
@@ -127,15 +174,7 @@ public class DirectoryHelper {
       if (details.isPresent()) {
         directory.setNumber(details.get(), true);
 
-        RefreshResult result = updateContactsDatabase(context, localNumber, details.get());
-
-        if (!result.getNewUsers().isEmpty() && TextSecurePreferences.isMultiDevice(context)) {
-          ApplicationContext.getInstance(context).getJobManager().add(new MultiDeviceContactUpdateJob(context));
-        }
-
-        if (!result.isFresh()) {
-          notifyNewUsers(context, masterSecret, result.getNewUsers());
-        }
+        handleRefreshResult(context, masterSecret, updateContactsDatabase(context, localNumber, details.get()));
 
         return new UserCapabilities(Capability.SUPPORTED,
                                     details.get().isVoice() ? Capability.SUPPORTED : Capability.UNSUPPORTED,
@@ -195,6 +234,21 @@ public class DirectoryHelper {
     }
   }
 
+  private static void handleRefreshResult(@NonNull  Context context,
+                                          @Nullable MasterSecret masterSecret,
+                                          @NonNull  RefreshResult result)
+  {
+    if (!result.getNewUsers().isEmpty() && TextSecurePreferences.isMultiDevice(context)) {
+      ApplicationContext.getInstance(context)
+                        .getJobManager()
+                        .add(new MultiDeviceContactUpdateJob(context));
+    }
+
+    if (!result.isFresh()) {
+      notifyNewUsers(context, masterSecret, result.getNewUsers());
+    }
+  }
+
   private static @NonNull RefreshResult updateContactsDatabase(@NonNull Context context,
                                                                @NonNull String localNumber,
                                                                @NonNull final ContactTokenDetails activeToken)
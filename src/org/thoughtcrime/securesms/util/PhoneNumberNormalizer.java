@@ -0,0 +1,153 @@
+package org.thoughtcrime.securesms.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import org.whispersystems.signalservice.api.util.InvalidNumberException;
+import org.whispersystems.signalservice.api.util.PhoneNumberFormatter;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Memoizes {@link PhoneNumberFormatter#formatNumber(String, String)} and
+ * {@link ShortCodeUtil#isShortCode(String, String)}, both of which run
+ * libphonenumber's parser on every call.  Results, including numbers that failed
+ * to parse, are kept in sharded LRU caches keyed by the raw number and the local
+ * number it was formatted against.
+ */
+public class PhoneNumberNormalizer {
+
+  private static final String TAG = PhoneNumberNormalizer.class.getSimpleName();
+
+  private static final int SHARD_COUNT = 16;
+  private static final int SHARD_SIZE  = 256;
+  private static final int LOG_PERIOD  = 1000;
+
+  private static final String INVALID = new String("invalid");
+
+  private static final PhoneNumberNormalizer instance = new PhoneNumberNormalizer(SHARD_COUNT, SHARD_SIZE);
+
+  public static PhoneNumberNormalizer getInstance() {
+    return instance;
+  }
+
+  private final ShardedCache<Key, String>  numbers;
+  private final ShardedCache<Key, Boolean> shortCodes;
+  private final ShardedCache.Statistics    statistics = new ShardedCache.Statistics();
+
+  PhoneNumberNormalizer(int shardCount, int shardSize) {
+    this.numbers    = new ShardedCache<>(shardCount, shardSize);
+    this.shortCodes = new ShardedCache<>(shardCount, shardSize);
+  }
+
+  public @NonNull String normalize(@NonNull String rawNumber, @Nullable String localNumber)
+      throws InvalidNumberException
+  {
+    Key    key    = new Key(rawNumber, localNumber);
+    String result = numbers.get(key);
+
+    if (result != null) {
+      statistics.hit();
+    } else {
+      onMiss();
+
+      try {
+        result = PhoneNumberFormatter.formatNumber(rawNumber, localNumber);
+      } catch (InvalidNumberException e) {
+        result = INVALID;
+      }
+
+      numbers.put(key, result);
+    }
+
+    if (result == INVALID) throw new InvalidNumberException("Invalid number: " + rawNumber);
+    else                   return result;
+  }
+
+  /**
+   * Memoized {@link ShortCodeUtil#isShortCode(String, String)}, which parses
+   * both numbers with libphonenumber.
+   */
+  public boolean isShortCode(@NonNull String localNumber, @NonNull String number) {
+    Key     key    = new Key(number, localNumber);
+    Boolean result = shortCodes.get(key);
+
+    if (result != null) {
+      statistics.hit();
+    } else {
+      onMiss();
+      result = ShortCodeUtil.isShortCode(localNumber, number);
+      shortCodes.put(key, result);
+    }
+
+    return result;
+  }
+
+  /**
+   * Normalizes each number in a contact scan, skipping the ones that aren't
+   * valid phone numbers.
+   *
+   * @return A map of raw numbers to their E164 form.
+   */
+  public @NonNull Map<String, String> normalize(@NonNull Collection<String> rawNumbers, @Nullable String localNumber) {
+    Map<String, String> results = new HashMap<>(rawNumbers.size());
+
+    for (String rawNumber : rawNumbers) {
+      if (rawNumber == null || results.containsKey(rawNumber)) continue;
+
+      try {
+        results.put(rawNumber, normalize(rawNumber, localNumber));
+      } catch (InvalidNumberException e) {
+        Log.w(TAG, "Invalid number: " + rawNumber);
+      }
+    }
+
+    return results;
+  }
+
+  public long getHitCount() {
+    return statistics.getHitCount();
+  }
+
+  public long getMissCount() {
+    return statistics.getMissCount();
+  }
+
+  public double getHitRate() {
+    return statistics.getHitRate();
+  }
+
+  private void onMiss() {
+    long misses = statistics.miss();
+
+    if (misses % LOG_PERIOD == 0) {
+      Log.i(TAG, "Misses: " + misses + ", hit rate: " + getHitRate());
+    }
+  }
+
+  private static class Key {
+    private final String rawNumber;
+    private final String localNumber;
+
+    private Key(@NonNull String rawNumber, @Nullable String localNumber) {
+      this.rawNumber   = rawNumber;
+      this.localNumber = localNumber;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (other == null || !(other instanceof Key)) return false;
+
+      Key that = (Key) other;
+      return this.rawNumber.equals(that.rawNumber) && Util.equals(this.localNumber, that.localNumber);
+    }
+
+    @Override
+    public int hashCode() {
+      return rawNumber.hashCode() * 31 + (localNumber == null ? 0 : localNumber.hashCode());
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package org.thoughtcrime.securesms.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An LRU cache split into independently locked shards, so that lookups from
+ * the UI don't contend with background threads updating other entries.  Each
+ * shard evicts on its own, so the cache holds at most shardCount * shardSize
+ * entries.
+ */
+public class ShardedCache<K, V> {
+
+  private final List<Map<K, V>> shards;
+
+  public ShardedCache(int shardCount, int shardSize) {
+    this.shards = new ArrayList<>(shardCount);
+
+    for (int i = 0; i < shardCount; i++) {
+      shards.add(new LRUCache<K, V>(Math.max(1, shardSize)));
+    }
+  }
+
+  public @Nullable V get(@NonNull K key) {
+    Map<K, V> shard = getShard(key);
+
+    synchronized (shard) {
+      return shard.get(key);
+    }
+  }
+
+  public void put(@NonNull K key, @NonNull V value) {
+    Map<K, V> shard = getShard(key);
+
+    synchronized (shard) {
+      shard.put(key, value);
+    }
+  }
+
+  public void putIfAbsent(@NonNull K key, @NonNull V value) {
+    Map<K, V> shard = getShard(key);
+
+    synchronized (shard) {
+      if (!shard.containsKey(key)) {
+        shard.put(key, value);
+      }
+    }
+  }
+
+  public @NonNull List<V> values() {
+    List<V> values = new LinkedList<>();
+
+    for (Map<K, V> shard : shards) {
+      synchronized (shard) {
+        values.addAll(shard.values());
+      }
+    }
+
+    return values;
+  }
+
+  private @NonNull Map<K, V> getShard(@NonNull K key) {
+    int hash = key.hashCode();
+    hash ^= (hash >>> 16);
+
+    return shards.get((hash & 0x7fffffff) % shards.size());
+  }
+
+  /**
+   * Hit and miss counts for one or more caches.  Callers record them
+   * themselves, since what counts as a hit can depend on more than whether
+   * the key was present.
+   */
+  public static class Statistics {
+
+    private final AtomicLong hits   = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public long hit() {
+      return hits.incrementAndGet();
+    }
+
+    public long miss() {
+      return misses.incrementAndGet();
+    }
+
+    public long getHitCount() {
+      return hits.get();
+    }
+
+    public long getMissCount() {
+      return misses.get();
+    }
+
+    /**
+     * @return the share of lookups that hit, from 0 to 1.
+     */
+    public double getHitRate() {
+      long hits    = this.hits.get();
+      long lookups = hits + misses.get();
+
+      return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+  }
+}
@@ -74,6 +74,13 @@ public class TextSecurePreferences {
   private static final String PROMPTED_SHARE_PREF              = "pref_prompted_share";
   private static final String SIGNALING_KEY_PREF               = "pref_signaling_key";
   private static final String DIRECTORY_FRESH_TIME_PREF        = "pref_directory_refresh_time";
+  private static final String DIRECTORY_CONTACTS_WATERMARK_PREF = "pref_directory_contacts_watermark";
+  private static final String BACKUP_SMS_WATERMARK_PREF        = "pref_backup_sms_watermark";
+  private static final String BACKUP_MMS_WATERMARK_PREF        = "pref_backup_mms_watermark";
+  private static final String PLAINTEXT_SMS_WATERMARK_PREF     = "pref_plaintext_backup_sms_watermark";
+  private static final String PLAINTEXT_MMS_WATERMARK_PREF     = "pref_plaintext_backup_mms_watermark";
+  private static final String PLAINTEXT_JOURNAL_WATERMARK_PREF = "pref_plaintext_backup_journal_watermark";
+  private static final String PLAINTEXT_DELTA_COUNT_PREF       = "pref_plaintext_backup_delta_count";
   private static final String UPDATE_APK_REFRESH_TIME_PREF     = "pref_update_apk_refresh_time";
   private static final String UPDATE_APK_DOWNLOAD_ID           = "pref_update_apk_download_id";
   private static final String UPDATE_APK_DIGEST                = "pref_update_apk_digest";
@@ -279,6 +286,66 @@ public class TextSecurePreferences {
     setLongPreference(context, DIRECTORY_FRESH_TIME_PREF, value);
   }
 
+  public static long getDirectoryContactsWatermark(Context context) {
+    return getLongPreference(context, DIRECTORY_CONTACTS_WATERMARK_PREF, 0L);
+  }
+
+  public static void setDirectoryContactsWatermark(Context context, long value) {
+    setLongPreference(context, DIRECTORY_CONTACTS_WATERMARK_PREF, value);
+  }
+
+  public static long getBackupSmsWatermark(Context context) {
+    return getLongPreference(context, BACKUP_SMS_WATERMARK_PREF, 0L);
+  }
+
+  public static void setBackupSmsWatermark(Context context, long value) {
+    setLongPreference(context, BACKUP_SMS_WATERMARK_PREF, value);
+  }
+
+  public static long getBackupMmsWatermark(Context context) {
+    return getLongPreference(context, BACKUP_MMS_WATERMARK_PREF, 0L);
+  }
+
+  public static void setBackupMmsWatermark(Context context, long value) {
+    setLongPreference(context, BACKUP_MMS_WATERMARK_PREF, value);
+  }
+
+  public static long getPlaintextBackupSmsWatermark(Context context) {
+    return getLongPreference(context, PLAINTEXT_SMS_WATERMARK_PREF, 0L);
+  }
+
+  public static void setPlaintextBackupSmsWatermark(Context context, long value) {
+    setLongPreference(context, PLAINTEXT_SMS_WATERMARK_PREF, value);
+  }
+
+  public static long getPlaintextBackupMmsWatermark(Context context) {
+    return getLongPreference(context, PLAINTEXT_MMS_WATERMARK_PREF, 0L);
+  }
+
+  public static void setPlaintextBackupMmsWatermark(Context context, long value) {
+    setLongPreference(context, PLAINTEXT_MMS_WATERMARK_PREF, value);
+  }
+
+  /**
+   * @return the last backup journal entry a plaintext backup holds, or -1 if
+   *         there's no full backup to make a delta against.
+   */
+  public static long getPlaintextBackupJournalWatermark(Context context) {
+    return getLongPreference(context, PLAINTEXT_JOURNAL_WATERMARK_PREF, -1L);
+  }
+
+  public static void setPlaintextBackupJournalWatermark(Context context, long value) {
+    setLongPreference(context, PLAINTEXT_JOURNAL_WATERMARK_PREF, value);
+  }
+
+  public static int getPlaintextBackupDeltaCount(Context context) {
+    return getIntegerPreference(context, PLAINTEXT_DELTA_COUNT_PREF, 0);
+  }
+
+  public static void setPlaintextBackupDeltaCount(Context context, int value) {
+    setIntegerPrefrence(context, PLAINTEXT_DELTA_COUNT_PREF, value);
+  }
+
   public static long getUpdateApkRefreshTime(Context context) {
     return getLongPreference(context, UPDATE_APK_REFRESH_TIME_PREF, 0L);
   }
@@ -50,6 +50,7 @@ import org.whispersystems.signalservice.api.util.InvalidNumberException;
 import org.whispersystems.signalservice.api.util.PhoneNumberFormatter;
 
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -197,7 +198,7 @@ public class Util {
       throws InvalidNumberException
   {
     String localNumber = TextSecurePreferences.getLocalNumber(context);
-    return PhoneNumberFormatter.formatNumber(number, localNumber);
+    return PhoneNumberNormalizer.getInstance().normalize(number, localNumber);
   }
 
   public static String canonicalizeNumberOrGroup(@NonNull Context context, @NonNull String number)
@@ -231,6 +232,17 @@ public class Util {
     return bout.toByteArray();
   }
 
+  public static void readFully(InputStream in, byte[] buffer) throws IOException {
+    int offset = 0;
+
+    while (offset < buffer.length) {
+      int read = in.read(buffer, offset, buffer.length - offset);
+
+      if (read == -1) throw new EOFException("Stream ended early");
+      offset += read;
+    }
+  }
+
   public static String readFullyAsString(InputStream in) throws IOException {
     return new String(readFully(in));
   }
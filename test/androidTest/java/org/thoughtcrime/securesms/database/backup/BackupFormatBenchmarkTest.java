@@ -0,0 +1,159 @@
+package org.thoughtcrime.securesms.database.backup;
+
+import android.content.Context;
+import android.provider.Telephony;
+import android.util.Log;
+
+import org.thoughtcrime.securesms.TextSecureTestCase;
+import org.thoughtcrime.securesms.crypto.MasterSecret;
+import org.thoughtcrime.securesms.database.BinaryBackupImporter;
+import org.thoughtcrime.securesms.database.DatabaseFactory;
+import org.thoughtcrime.securesms.database.PlaintextBackupImporter;
+import org.thoughtcrime.securesms.recipients.RecipientFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Exports the same messages with the XML and the binary exporter, imports
+ * each file back with its importer, and logs the time and file size of
+ * each.  The binary timings include deriving its key from the passphrase.
+ * The exporters write the whole database, so run it on an install with no
+ * other messages.
+ */
+public class BackupFormatBenchmarkTest extends TextSecureTestCase {
+
+  private static final String TAG = BackupFormatBenchmarkTest.class.getSimpleName();
+
+  private static final int    MESSAGE_COUNT = 20000;
+  private static final int    THREAD_COUNT  = 50;
+  private static final int    BUFFER_SIZE   = 64 * 1024;
+  private static final String PASSPHRASE    = "correct horse battery staple";
+
+  private Context      context;
+  private MasterSecret masterSecret;
+  private File         seedFile;
+  private File         xmlFile;
+  private File         binaryFile;
+
+  @Override
+  public void setUp() {
+    super.setUp();
+    context      = getInstrumentation().getTargetContext();
+    masterSecret = new MasterSecret(new SecretKeySpec(new byte[16], "AES"),
+                                    new SecretKeySpec(new byte[16], "HmacSHA1"));
+    seedFile     = new File(context.getCacheDir(), "benchmark-seed.xml");
+    xmlFile      = new File(context.getCacheDir(), "benchmark.xml");
+    binaryFile   = new File(context.getCacheDir(), "benchmark.bin");
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    deleteThreads();
+    seedFile.delete();
+    xmlFile.delete();
+    binaryFile.delete();
+    super.tearDown();
+  }
+
+  public void testXmlVersusBinary() throws Exception {
+    writeSeed();
+    deleteThreads();
+    PlaintextBackupImporter.importPlaintext(context, masterSecret, seedFile);
+
+    long start = System.currentTimeMillis();
+    PlaintextBackupExporter.exportPlaintext(context, masterSecret, xmlFile);
+    long xmlWrite = System.currentTimeMillis() - start;
+
+    start = System.currentTimeMillis();
+    BinaryBackupExporter.exportBinary(context, masterSecret, PASSPHRASE, binaryFile, 0, 0);
+    long binaryWrite = System.currentTimeMillis() - start;
+
+    deleteThreads();
+    start = System.currentTimeMillis();
+    PlaintextBackupImporter.importPlaintext(context, masterSecret, xmlFile);
+    long xmlRead  = System.currentTimeMillis() - start;
+    int  xmlCount = getMessageCount();
+
+    deleteThreads();
+    start = System.currentTimeMillis();
+    BinaryBackupImporter.importBinary(context, masterSecret, PASSPHRASE, binaryFile);
+    long binaryRead  = System.currentTimeMillis() - start;
+    int  binaryCount = getMessageCount();
+
+    Log.w(TAG, MESSAGE_COUNT + " messages, " +
+               "XML: " + xmlFile.length() + " bytes, export " + xmlWrite + "ms, import " + xmlRead + "ms; " +
+               "binary: " + binaryFile.length() + " bytes, export " + binaryWrite + "ms, import " + binaryRead + "ms");
+
+    assertEquals(MESSAGE_COUNT, xmlCount);
+    assertEquals(MESSAGE_COUNT, binaryCount);
+    assertTrue(binaryFile.length() < xmlFile.length());
+  }
+
+  private void writeSeed() throws Exception {
+    XmlBackupWriter writer = new XmlBackupWriter(new BufferedWriter(new FileWriter(seedFile), BUFFER_SIZE),
+                                                 context, masterSecret);
+
+    writer.writeHeader(MESSAGE_COUNT);
+
+    for (int i = 0; i < MESSAGE_COUNT; i++) {
+      writer.openSMS();
+      writer.storeAttribute(Telephony.TextBasedSmsColumns.ADDRESS, getAddress(i));
+      writer.storeAttribute(Telephony.TextBasedSmsColumns.DATE, getDate(i) + 1000);
+      writer.storeAttribute(Telephony.TextBasedSmsColumns.DATE_SENT, getDate(i));
+      writer.storeAttribute(XmlBackupWriter.SIGNAL_TYPE, 10485780L);
+      writer.storeAttribute(Telephony.TextBasedSmsColumns.READ, 1);
+      writer.storeAttribute(Telephony.TextBasedSmsColumns.STATUS, -1);
+      writer.storeAttribute(Telephony.TextBasedSmsColumns.TYPE, 1);
+      writer.storeAttribute(Telephony.TextBasedSmsColumns.BODY, getBody(i));
+      writer.closeSMS();
+    }
+
+    writer.close();
+  }
+
+  private Set<Long> getThreadIds() {
+    Set<Long> threadIds = new HashSet<>();
+
+    for (int i = 0; i < THREAD_COUNT; i++) {
+      long threadId = DatabaseFactory.getThreadDatabase(context)
+                                     .getThreadIdIfExistsFor(RecipientFactory.getRecipientsFromString(context, getAddress(i), false));
+
+      if (threadId != -1) threadIds.add(threadId);
+    }
+
+    return threadIds;
+  }
+
+  private int getMessageCount() {
+    int count = 0;
+
+    for (long threadId : getThreadIds()) {
+      count += DatabaseFactory.getMmsSmsDatabase(context).getConversationCount(threadId);
+    }
+
+    return count;
+  }
+
+  private void deleteThreads() {
+    DatabaseFactory.getThreadDatabase(context).deleteConversations(getThreadIds());
+  }
+
+  private static String getAddress(int i) {
+    return "+1555" + String.format(Locale.US, "%07d", i % THREAD_COUNT);
+  }
+
+  private static long getDate(int i) {
+    return 1483228800000L + i * 60000L;
+  }
+
+  private static String getBody(int i) {
+    return "Message " + i + ", are we still on for lunch tomorrow? Let me know & I'll book a table <3";
+  }
+}
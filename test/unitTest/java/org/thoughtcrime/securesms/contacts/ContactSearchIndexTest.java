@@ -0,0 +1,138 @@
+package org.thoughtcrime.securesms.contacts;
+
+import android.database.Cursor;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.thoughtcrime.securesms.BaseUnitTest;
+import org.thoughtcrime.securesms.contacts.ContactSearchIndex.QueryState;
+import org.thoughtcrime.securesms.contacts.ContactSearchIndex.Section;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ContactSearchIndexTest extends BaseUnitTest {
+
+  private static final Object[][] CONTACTS = new Object[][] {
+      {"Alice Smith",   "+15550001111"},
+      {"Bob Jones",     "+15550002222"},
+      {"Alicia Keys",   "+15550003333"},
+      {"Malcolm Reyes", "+14440001111"},
+  };
+
+  @Test
+  public void testSubstringMatches() {
+    Section section = new Section(getCursor(), true);
+
+    assertThat(section.getMatches("ali", new QueryState())).containsExactly(0, 2);
+    assertThat(section.getMatches("ALI", new QueryState())).containsExactly(0, 2);
+    assertThat(section.getMatches("jones", new QueryState())).containsExactly(1);
+    assertThat(section.getMatches("xyz", new QueryState())).isEmpty();
+  }
+
+  @Test
+  public void testShortQueriesCheckEveryEntry() {
+    Section section = new Section(getCursor(), true);
+
+    assertThat(section.getMatches("al", new QueryState())).containsExactly(0, 2, 3);
+    assertThat(section.getMatches("e", new QueryState())).containsExactly(0, 1, 2, 3);
+  }
+
+  @Test
+  public void testNumberMatchesIgnoreFormatting() {
+    Section section = new Section(getCursor(), true);
+
+    assertThat(section.getMatches("555-000-1", new QueryState())).containsExactly(0);
+    assertThat(section.getMatches("(444) 000", new QueryState())).containsExactly(3);
+    assertThat(section.getMatches("0001111", new QueryState())).containsExactly(0, 3);
+  }
+
+  @Test
+  public void testExtendedQueryNarrowsLastMatches() {
+    Section    section = new Section(getCursor(), true);
+    QueryState state   = new QueryState();
+
+    assertThat(section.getMatches("al", state)).containsExactly(0, 2, 3);
+    assertThat(section.getMatches("ali", state)).containsExactly(0, 2);
+    assertThat(section.getMatches("alic", state)).containsExactly(0, 2);
+    assertThat(section.getMatches("alici", state)).containsExactly(2);
+  }
+
+  @Test
+  public void testQueryThatDoesntExtendTheLastOneSearchesAgain() {
+    Section    section = new Section(getCursor(), true);
+    QueryState state   = new QueryState();
+
+    assertThat(section.getMatches("alici", state)).containsExactly(2);
+    assertThat(section.getMatches("alic", state)).containsExactly(0, 2);
+    assertThat(section.getMatches("lm", state)).containsExactly(3);
+    assertThat(section.getMatches("l", state)).containsExactly(0, 2, 3);
+  }
+
+  @Test
+  public void testStateFromAnotherSectionIsIgnored() {
+    Section    first  = new Section(getCursor(), true);
+    Section    second = new Section(getCursor(), true);
+    QueryState state  = new QueryState();
+
+    assertThat(first.getMatches("alici", state)).containsExactly(2);
+    assertThat(second.getMatches("alic", state)).containsExactly(0, 2);
+  }
+
+  @Test
+  public void testStatesDontNarrowEachOther() {
+    Section    section = new Section(getCursor(), true);
+    QueryState first   = new QueryState();
+    QueryState second  = new QueryState();
+
+    assertThat(section.getMatches("bob", first)).containsExactly(1);
+    assertThat(section.getMatches("a", second)).containsExactly(0, 2, 3);
+    assertThat(section.getMatches("bob j", first)).containsExactly(1);
+    assertThat(section.getMatches("al", second)).containsExactly(0, 2, 3);
+  }
+
+  private static Cursor getCursor() {
+    final Cursor cursor   = mock(Cursor.class);
+    final int[]  position = new int[] {-1};
+
+    when(cursor.getColumnIndexOrThrow(anyString())).thenAnswer(new Answer<Integer>() {
+      @Override
+      public Integer answer(InvocationOnMock invocation) throws Throwable {
+        return Arrays.asList(ContactSearchIndex.COLUMNS).indexOf(invocation.getArguments()[0]);
+      }
+    });
+
+    when(cursor.moveToNext()).thenAnswer(new Answer<Boolean>() {
+      @Override
+      public Boolean answer(InvocationOnMock invocation) throws Throwable {
+        return ++position[0] < CONTACTS.length;
+      }
+    });
+
+    when(cursor.getString(anyInt())).thenAnswer(new Answer<String>() {
+      @Override
+      public String answer(InvocationOnMock invocation) throws Throwable {
+        String column = ContactSearchIndex.COLUMNS[(Integer) invocation.getArguments()[0]];
+
+        if      (ContactsDatabase.NAME_COLUMN.equals(column))   return (String) CONTACTS[position[0]][0];
+        else if (ContactsDatabase.NUMBER_COLUMN.equals(column)) return (String) CONTACTS[position[0]][1];
+        else                                                    return null;
+      }
+    });
+
+    when(cursor.getLong(anyInt())).thenAnswer(new Answer<Long>() {
+      @Override
+      public Long answer(InvocationOnMock invocation) throws Throwable {
+        return (long) position[0];
+      }
+    });
+
+    return cursor;
+  }
+}
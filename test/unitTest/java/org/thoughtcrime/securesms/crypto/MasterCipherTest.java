@@ -6,6 +6,8 @@ import org.powermock.core.classloader.annotations.PowerMockIgnore;
 import org.thoughtcrime.securesms.BaseUnitTest;
 import org.whispersystems.libsignal.InvalidMessageException;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 @PowerMockIgnore("javax.crypto.*")
 public class MasterCipherTest extends BaseUnitTest {
   private MasterCipher masterCipher;
@@ -21,4 +23,22 @@ public class MasterCipherTest extends BaseUnitTest {
   public void testEncryptBytesWithZeroBody() throws Exception {
     masterCipher.decryptBytes(new byte[]{});
   }
+
+  @Test
+  public void testDecryptBytesAtOffset() throws Exception {
+    byte[] ciphertext = masterCipher.encryptBytes("hello".getBytes());
+    byte[] stored     = new byte[ciphertext.length + 3];
+    System.arraycopy(ciphertext, 0, stored, 1, ciphertext.length);
+
+    assertThat(masterCipher.decryptBytes(stored, 1, ciphertext.length)).isEqualTo("hello".getBytes());
+  }
+
+  @Test(expected = InvalidMessageException.class)
+  public void testDecryptBytesAtWrongOffset() throws Exception {
+    byte[] ciphertext = masterCipher.encryptBytes("hello".getBytes());
+    byte[] stored     = new byte[ciphertext.length + 1];
+    System.arraycopy(ciphertext, 0, stored, 1, ciphertext.length);
+
+    masterCipher.decryptBytes(stored, 0, ciphertext.length);
+  }
 }
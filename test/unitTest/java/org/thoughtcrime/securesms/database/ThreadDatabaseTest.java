@@ -0,0 +1,212 @@
+package org.thoughtcrime.securesms.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
+import android.preference.PreferenceManager;
+import android.text.TextUtils;
+import android.util.Log;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.core.classloader.annotations.SuppressStaticInitializationFor;
+import org.thoughtcrime.securesms.BaseUnitTest;
+import org.thoughtcrime.securesms.database.ThreadDatabase.ThreadRecipientsCache;
+import org.thoughtcrime.securesms.recipients.RecipientFactory;
+import org.thoughtcrime.securesms.recipients.Recipients;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.powermock.api.mockito.PowerMockito.mock;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+@PrepareForTest({ Log.class, Handler.class, Looper.class, TextUtils.class, PreferenceManager.class,
+                  SQLiteDatabase.class, RecipientFactory.class })
+@SuppressStaticInitializationFor("org.thoughtcrime.securesms.recipients.RecipientFactory")
+public class ThreadDatabaseTest extends BaseUnitTest {
+
+  private SQLiteDatabase db;
+  private ThreadDatabase threadDatabase;
+  private List<String>   selections;
+
+  @Before
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+
+    SQLiteOpenHelper databaseHelper = mock(SQLiteOpenHelper.class);
+
+    db             = mock(SQLiteDatabase.class);
+    selections     = new LinkedList<>();
+    threadDatabase = new ThreadDatabase(context, databaseHelper);
+
+    mockStatic(RecipientFactory.class);
+
+    when(databaseHelper.getReadableDatabase()).thenReturn(db);
+    when(RecipientFactory.getRecipientsForIds(any(Context.class), anyString(), anyBoolean())).thenReturn(mock(Recipients.class));
+
+    when(TextUtils.join(any(CharSequence.class), any(Iterable.class))).thenAnswer(new Answer<String>() {
+      @Override
+      public String answer(InvocationOnMock invocation) throws Throwable {
+        StringBuilder builder = new StringBuilder();
+
+        for (Object element : (Iterable<?>) invocation.getArguments()[1]) {
+          if (builder.length() > 0) builder.append(invocation.getArguments()[0]);
+          builder.append(element);
+        }
+
+        return builder.toString();
+      }
+    });
+
+    when(db.query(anyString(), any(String[].class), anyString(), any(String[].class),
+                  anyString(), anyString(), anyString())).thenAnswer(new Answer<Cursor>() {
+      @Override
+      public Cursor answer(InvocationOnMock invocation) throws Throwable {
+        String selection = (String) invocation.getArguments()[2];
+        selections.add(selection);
+        return getCursor(getThreadIds(selection));
+      }
+    });
+  }
+
+  @Test
+  public void testCacheLooksUpBothWays() {
+    ThreadRecipientsCache cache = new ThreadRecipientsCache(10);
+
+    cache.put(1, "11 12");
+
+    assertThat(cache.getRecipientIds(1)).isEqualTo("11 12");
+    assertThat(cache.getThreadId("11 12")).isEqualTo(1);
+    assertThat(cache.getRecipientIds(2)).isNull();
+    assertThat(cache.getThreadId("13")).isEqualTo(-1);
+  }
+
+  @Test
+  public void testCacheEvictionDropsBothDirections() {
+    ThreadRecipientsCache cache = new ThreadRecipientsCache(2);
+
+    cache.put(1, "11");
+    cache.put(2, "12");
+    cache.put(3, "13");
+
+    assertThat(cache.getRecipientIds(1)).isNull();
+    assertThat(cache.getThreadId("11")).isEqualTo(-1);
+    assertThat(cache.getThreadId("12")).isEqualTo(2);
+    assertThat(cache.getThreadId("13")).isEqualTo(3);
+  }
+
+  @Test
+  public void testCacheRemoveAndClear() {
+    ThreadRecipientsCache cache = new ThreadRecipientsCache(10);
+
+    cache.put(1, "11");
+    cache.put(2, "12");
+    cache.remove(1);
+    cache.remove(4);
+
+    assertThat(cache.getRecipientIds(1)).isNull();
+    assertThat(cache.getThreadId("11")).isEqualTo(-1);
+    assertThat(cache.getThreadId("12")).isEqualTo(2);
+
+    cache.clear();
+
+    assertThat(cache.getRecipientIds(2)).isNull();
+    assertThat(cache.getThreadId("12")).isEqualTo(-1);
+  }
+
+  @Test
+  public void testOnlyUncachedThreadsAreRead() {
+    when(db.inTransaction()).thenReturn(false);
+
+    assertThat(threadDatabase.getRecipientsForThreadIds(Arrays.asList(1L, 2L)).keySet()).containsOnly(1L, 2L);
+    assertThat(selections).containsExactly("_id IN (1,2)");
+
+    selections.clear();
+
+    Map<Long, Recipients> recipients = threadDatabase.getRecipientsForThreadIds(Arrays.asList(1L, 2L, 3L));
+
+    assertThat(recipients.keySet()).containsOnly(1L, 2L, 3L);
+    assertThat(selections).containsExactly("_id IN (3)");
+  }
+
+  @Test
+  public void testThreadsReadInTransactionAreNotCached() {
+    when(db.inTransaction()).thenReturn(true);
+
+    threadDatabase.getRecipientsForThreadIds(Arrays.asList(1L));
+    threadDatabase.getRecipientsForThreadIds(Arrays.asList(1L));
+
+    assertThat(selections).containsExactly("_id IN (1)", "_id IN (1)");
+  }
+
+  @Test
+  public void testUncachedThreadsAreReadInBatches() {
+    List<Long> threadIds = new LinkedList<>();
+
+    for (long threadId = 1; threadId <= 1201; threadId++) {
+      threadIds.add(threadId);
+    }
+
+    Map<Long, Recipients> recipients = threadDatabase.getRecipientsForThreadIds(threadIds);
+
+    assertThat(recipients).hasSize(1201);
+    assertThat(selections).hasSize(3);
+    assertThat(getThreadIds(selections.get(0))).hasSize(500);
+    assertThat(getThreadIds(selections.get(1))).hasSize(500);
+    assertThat(getThreadIds(selections.get(2))).containsExactly(1201L);
+  }
+
+  private static List<Long> getThreadIds(String selection) {
+    List<Long> threadIds = new LinkedList<>();
+    String     list      = selection.substring(selection.indexOf('(') + 1, selection.indexOf(')'));
+
+    for (String threadId : list.split(",")) {
+      threadIds.add(Long.parseLong(threadId));
+    }
+
+    return threadIds;
+  }
+
+  private static Cursor getCursor(final List<Long> threadIds) {
+    final Cursor cursor   = mock(Cursor.class);
+    final int[]  position = new int[] {-1};
+
+    when(cursor.moveToNext()).thenAnswer(new Answer<Boolean>() {
+      @Override
+      public Boolean answer(InvocationOnMock invocation) throws Throwable {
+        return ++position[0] < threadIds.size();
+      }
+    });
+
+    when(cursor.getLong(0)).thenAnswer(new Answer<Long>() {
+      @Override
+      public Long answer(InvocationOnMock invocation) throws Throwable {
+        return threadIds.get(position[0]);
+      }
+    });
+
+    when(cursor.getString(1)).thenAnswer(new Answer<String>() {
+      @Override
+      public String answer(InvocationOnMock invocation) throws Throwable {
+        return String.valueOf(threadIds.get(position[0]) + 10);
+      }
+    });
+
+    return cursor;
+  }
+}
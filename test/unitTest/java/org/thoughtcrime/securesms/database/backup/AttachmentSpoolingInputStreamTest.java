@@ -0,0 +1,99 @@
+package org.thoughtcrime.securesms.database.backup;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.thoughtcrime.securesms.BaseUnitTest;
+import org.thoughtcrime.securesms.crypto.DecryptingPartInputStream;
+import org.thoughtcrime.securesms.util.Base64;
+import org.thoughtcrime.securesms.util.Util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AttachmentSpoolingInputStreamTest extends BaseUnitTest {
+
+  private File directory;
+
+  @Before
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    directory = File.createTempFile("spool", "test");
+    assertThat(directory.delete()).isTrue();
+    assertThat(directory.mkdir()).isTrue();
+  }
+
+  @After
+  public void tearDown() {
+    File[] files = directory.listFiles();
+    if (files != null) for (File file : files) file.delete();
+    directory.delete();
+  }
+
+  @Test
+  public void testPartDataIsSpooled() throws Exception {
+    byte[] payload = new byte[200 * 1024];
+    for (int i=0;i<payload.length;i++) payload[i] = (byte) i;
+
+    String xml = "<smses count=\"1\"><mms address=\"+15555555555\" data=\"not-a-part\">" +
+                 "<parts><part ct=\"image/jpeg\" data=\"" + Base64.encodeBytes(payload) + "\" cl=\"a.jpg\"/></parts>" +
+                 "</mms></smses>";
+
+    AttachmentSpoolingInputStream spooler = new AttachmentSpoolingInputStream(new ByteArrayInputStream(xml.getBytes("UTF-8")),
+                                                                              masterSecret, directory);
+    String parsed = new String(readAll(spooler), "UTF-8");
+
+    assertThat(parsed).contains("data=\"not-a-part\"");
+    assertThat(parsed).contains("cl=\"a.jpg\"");
+
+    String reference = parsed.substring(parsed.indexOf("<part "));
+    reference = reference.substring(reference.indexOf("data=\"") + 6);
+    reference = reference.substring(0, reference.indexOf('"'));
+
+    AttachmentSpoolingInputStream.SpooledPart part = spooler.takeSpooledPart(reference);
+
+    assertThat(part).isNotNull();
+    assertThat(part.getSize()).isEqualTo(payload.length);
+    assertThat(readAll(DecryptingPartInputStream.createFor(masterSecret, part.getFile()))).isEqualTo(payload);
+    assertThat(spooler.takeSpooledPart(reference)).isNull();
+  }
+
+  @Test
+  public void testUntakenPartsAreDeleted() throws Exception {
+    String xml = "<mms><parts><part data=\"" + Base64.encodeBytes(new byte[] {1, 2, 3}) + "\"/></parts></mms>";
+
+    AttachmentSpoolingInputStream spooler = new AttachmentSpoolingInputStream(new ByteArrayInputStream(xml.getBytes("UTF-8")),
+                                                                              masterSecret, directory);
+    readAll(spooler);
+
+    assertThat(directory.listFiles()).hasSize(1);
+    spooler.deleteUntakenParts();
+    assertThat(directory.listFiles()).isEmpty();
+  }
+
+  @Test
+  public void testMessageAndTombstoneOffsets() throws Exception {
+    String xml = "<smses count=\"2\">\n <tombstone date_sent=\"1\" signal_outgoing=\"1\" />\n" +
+                 " <sms address=\"+15555555555\" date_sent=\"2\" />\n</smses>";
+
+    AttachmentSpoolingInputStream spooler = new AttachmentSpoolingInputStream(new ByteArrayInputStream(xml.getBytes("UTF-8")),
+                                                                              masterSecret, directory);
+    readAll(spooler);
+
+    assertThat(spooler.takeMessageOffset()).isEqualTo(xml.indexOf("<tombstone"));
+    assertThat(spooler.takeMessageOffset()).isEqualTo(xml.indexOf("<sms"));
+    assertThat(spooler.takeMessageOffset()).isEqualTo(-1);
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Util.copy(in, out);
+    return out.toByteArray();
+  }
+}
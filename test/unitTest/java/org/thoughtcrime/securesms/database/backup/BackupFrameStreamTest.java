@@ -0,0 +1,113 @@
+package org.thoughtcrime.securesms.database.backup;
+
+import com.google.protobuf.ByteString;
+
+import org.junit.Test;
+import org.thoughtcrime.securesms.BaseUnitTest;
+import org.thoughtcrime.securesms.crypto.InvalidPassphraseException;
+import org.thoughtcrime.securesms.database.backup.BackupProtos.BackupRecord;
+import org.thoughtcrime.securesms.database.backup.BackupProtos.End;
+import org.thoughtcrime.securesms.database.backup.BackupProtos.SmsMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BackupFrameStreamTest extends BaseUnitTest {
+
+  private static final String PASSPHRASE = "correct horse battery staple";
+
+  @Test
+  public void testCompressedRoundTrip() throws Exception {
+    assertRoundTrip(true);
+  }
+
+  @Test
+  public void testUncompressedRoundTrip() throws Exception {
+    assertRoundTrip(false);
+  }
+
+  @Test(expected = InvalidPassphraseException.class)
+  public void testWrongPassphrase() throws Exception {
+    new BackupFrameInputStream(new ByteArrayInputStream(writeBackup(true)), "wrong");
+  }
+
+  @Test(expected = IOException.class)
+  public void testTamperedFrame() throws Exception {
+    byte[] backup = writeBackup(true);
+    backup[backup.length - 40] ^= 1;
+
+    BackupFrameInputStream in = new BackupFrameInputStream(new ByteArrayInputStream(backup), PASSPHRASE);
+    while (in.readRecord() != null);
+  }
+
+  @Test(expected = IOException.class)
+  public void testTamperedHeader() throws Exception {
+    byte[] backup       = writeBackup(true);
+    int    headerLength = ByteBuffer.wrap(backup, BackupFrameOutputStream.MAGIC.length, 4).getInt();
+
+    // The header ends with the mms id to start after, 7, change it to 8
+    backup[BackupFrameOutputStream.MAGIC.length + 4 + headerLength - 1] = 8;
+
+    new BackupFrameInputStream(new ByteArrayInputStream(backup), PASSPHRASE);
+  }
+
+  private void assertRoundTrip(boolean compressed) throws Exception {
+    BackupFrameInputStream in = new BackupFrameInputStream(new ByteArrayInputStream(writeBackup(compressed)), PASSPHRASE);
+
+    assertThat(in.getSmsAfterId()).isEqualTo(3);
+    assertThat(in.getMmsAfterId()).isEqualTo(7);
+
+    for (int i = 0; i < 1000; i++) {
+      BackupRecord record = in.readRecord();
+
+      assertThat(record.hasSms()).isTrue();
+      assertThat(record.getSms().getAddress()).isEqualTo("+1555555" + i);
+      assertThat(record.getSms().getDateSent()).isEqualTo(i);
+      assertThat(record.getSms().getBody()).isEqualTo("message " + i);
+    }
+
+    BackupRecord data = in.readRecord();
+    assertThat(data.hasAttachmentData()).isTrue();
+    assertThat(data.getAttachmentData().toByteArray()).isEqualTo(getAttachmentData());
+
+    BackupRecord end = in.readRecord();
+    assertThat(end.hasEnd()).isTrue();
+    assertThat(end.getEnd().getMessageCount()).isEqualTo(1000);
+
+    assertThat(in.readRecord()).isNull();
+    in.close();
+  }
+
+  private byte[] writeBackup(boolean compressed) throws IOException {
+    ByteArrayOutputStream   bytes = new ByteArrayOutputStream();
+    BackupFrameOutputStream out   = new BackupFrameOutputStream(bytes, PASSPHRASE, compressed, 3, 7);
+
+    for (int i = 0; i < 1000; i++) {
+      out.writeRecord(BackupRecord.newBuilder()
+                                  .setSms(SmsMessage.newBuilder()
+                                                    .setAddress("+1555555" + i)
+                                                    .setThreadAddress("+1555555" + i)
+                                                    .setDateSent(i)
+                                                    .setDateReceived(i)
+                                                    .setBody("message " + i))
+                                  .build());
+    }
+
+    out.writeRecord(BackupRecord.newBuilder().setAttachmentData(ByteString.copyFrom(getAttachmentData())).build());
+    out.writeRecord(BackupRecord.newBuilder().setEnd(End.newBuilder().setMessageCount(1000)).build());
+    out.close();
+
+    return bytes.toByteArray();
+  }
+
+  private static byte[] getAttachmentData() {
+    byte[] data = new byte[150 * 1024];
+    Arrays.fill(data, (byte) 'x');
+    return data;
+  }
+}
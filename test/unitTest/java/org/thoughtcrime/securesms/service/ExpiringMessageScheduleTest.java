@@ -0,0 +1,81 @@
+package org.thoughtcrime.securesms.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.thoughtcrime.securesms.BaseUnitTest;
+import org.thoughtcrime.securesms.service.ExpiringMessageSchedule.ExpiringMessageReference;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ExpiringMessageScheduleTest extends BaseUnitTest {
+
+  private static final long TOLERANCE = 1000;
+
+  private ExpiringMessageSchedule schedule;
+  private long                    now;
+
+  @Before
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    schedule = new ExpiringMessageSchedule(TOLERANCE);
+    now      = 1000000;
+  }
+
+  @Test public void testWaitTimeUntilEarliestExpiration() {
+    schedule.add(1, false, now + 5000);
+    schedule.add(2, true, now + 3000);
+
+    assertEquals(3000, schedule.getWaitTime(now));
+
+    now += 2500;
+    assertEquals(500, schedule.getWaitTime(now));
+
+    now += 1000;
+    assertEquals(0, schedule.getWaitTime(now));
+  }
+
+  @Test public void testRemovesWholeBucketWithinTolerance() {
+    schedule.add(1, false, now + 1000);
+    schedule.add(2, true,  now + 1500);
+    schedule.add(3, false, now + 1999);
+    schedule.add(4, false, now + 2001);
+
+    now += 1000;
+
+    List<ExpiringMessageReference> expired = schedule.removeExpired(now);
+
+    assertEquals(3, expired.size());
+    assertEquals(1, expired.get(0).id);
+    assertEquals(2, expired.get(1).id);
+    assertTrue(expired.get(1).mms);
+    assertEquals(3, expired.get(2).id);
+    assertEquals(1, schedule.size());
+    assertEquals(1001, schedule.getWaitTime(now));
+  }
+
+  @Test public void testNothingExpiresEarly() {
+    schedule.add(1, false, now + 5000);
+
+    assertTrue(schedule.removeExpired(now).isEmpty());
+    assertFalse(schedule.isEmpty());
+  }
+
+  @Test public void testAlarmIsCoalesced() {
+    assertTrue(schedule.shouldSetAlarm(now + 10000, now));
+
+    assertFalse(schedule.shouldSetAlarm(now + 10000, now));
+    assertFalse(schedule.shouldSetAlarm(now + 9500, now));
+    assertFalse(schedule.shouldSetAlarm(now + 20000, now));
+
+    assertTrue(schedule.shouldSetAlarm(now + 5000, now));
+
+    now += 5000;
+    assertTrue(schedule.shouldSetAlarm(now + 5000, now));
+  }
+
+}
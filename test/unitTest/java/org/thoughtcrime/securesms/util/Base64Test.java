@@ -0,0 +1,88 @@
+package org.thoughtcrime.securesms.util;
+
+import org.junit.Test;
+import org.thoughtcrime.securesms.BaseUnitTest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class Base64Test extends BaseUnitTest {
+
+  private static final int[] MESSAGE_BODY_SIZES = {0, 1, 2, 3, 4, 5, 47, 48, 49, 160, 2000};
+  private static final int[] ATTACHMENT_SIZES   = {64 * 1024, 1024 * 1024 + 1};
+
+  @Test
+  public void testEncodeBytesMatchesLineBrokenEncoding() throws IOException {
+    for (byte[] data : getInputs()) {
+      String lineBroken = Base64.encodeBytes(data, Base64.DO_BREAK_LINES);
+
+      assertThat(Base64.encodeBytes(data)).isEqualTo(lineBroken.replace("\n", ""));
+    }
+  }
+
+  @Test
+  public void testDecodeRoundTrip() throws IOException {
+    for (byte[] data : getInputs()) {
+      assertThat(Base64.decode(Base64.encodeBytes(data))).isEqualTo(data);
+      assertThat(Base64.decode(Base64.encodeBytes(data, Base64.DO_BREAK_LINES))).isEqualTo(data);
+    }
+  }
+
+  @Test
+  public void testDecodeSkipsWhiteSpaceAndMissingPadding() throws IOException {
+    assertThat(Base64.decode("aGVs\nbG8=")).isEqualTo("hello".getBytes());
+    assertThat(Base64.decode("aGVsbG8")).isEqualTo("hello".getBytes());
+  }
+
+  @Test(expected = IOException.class)
+  public void testDecodeRejectsBadCharacter() throws IOException {
+    Base64.decode("aGV*bG8=");
+  }
+
+  @Test(expected = IOException.class)
+  public void testDecodeRejectsPaddingAfterWholeGroup() throws IOException {
+    Base64.decode("aGVsbGxv=");
+  }
+
+  @Test
+  public void testByteBufferEncodeMatchesEncodeBytes() throws IOException {
+    for (byte[] data : getInputs()) {
+      String     expected = Base64.encodeBytes(data);
+      ByteBuffer heap     = ByteBuffer.allocate(expected.length());
+      ByteBuffer direct   = ByteBuffer.allocateDirect(expected.length());
+
+      Base64.encode(ByteBuffer.wrap(data), heap);
+
+      ByteBuffer raw = ByteBuffer.allocateDirect(data.length);
+      raw.put(data).flip();
+      Base64.encode(raw, direct);
+
+      byte[] directBytes = new byte[expected.length()];
+      direct.flip();
+      direct.get(directBytes);
+
+      assertThat(new String(heap.array())).isEqualTo(expected);
+      assertThat(new String(directBytes)).isEqualTo(expected);
+    }
+  }
+
+  private static byte[][] getInputs() {
+    Random   random = new Random(1);
+    byte[][] inputs = new byte[MESSAGE_BODY_SIZES.length + ATTACHMENT_SIZES.length][];
+
+    for (int i = 0; i < MESSAGE_BODY_SIZES.length; i++) {
+      inputs[i] = new byte[MESSAGE_BODY_SIZES[i]];
+      random.nextBytes(inputs[i]);
+    }
+
+    for (int i = 0; i < ATTACHMENT_SIZES.length; i++) {
+      inputs[MESSAGE_BODY_SIZES.length + i] = new byte[ATTACHMENT_SIZES[i]];
+      random.nextBytes(inputs[MESSAGE_BODY_SIZES.length + i]);
+    }
+
+    return inputs;
+  }
+}
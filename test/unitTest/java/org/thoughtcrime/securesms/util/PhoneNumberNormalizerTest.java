@@ -0,0 +1,63 @@
+package org.thoughtcrime.securesms.util;
+
+import junit.framework.AssertionFailedError;
+
+import org.junit.Test;
+import org.thoughtcrime.securesms.BaseUnitTest;
+import org.whispersystems.signalservice.api.util.InvalidNumberException;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PhoneNumberNormalizerTest extends BaseUnitTest {
+  private static final String LOCAL_NUMBER_US = "+15555555555";
+  private static final String LOCAL_NUMBER_DE = "+4930123456";
+
+  @Test
+  public void testNormalizeCachesResults() throws Exception {
+    PhoneNumberNormalizer normalizer = new PhoneNumberNormalizer(4, 8);
+
+    assertThat(normalizer.normalize("(555) 555-5555", LOCAL_NUMBER_US)).isEqualTo(LOCAL_NUMBER_US);
+    assertThat(normalizer.normalize("(555) 555-5555", LOCAL_NUMBER_US)).isEqualTo(LOCAL_NUMBER_US);
+    assertThat(normalizer.getMissCount()).isEqualTo(1);
+    assertThat(normalizer.getHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testNormalizeKeyedByLocalNumber() throws Exception {
+    PhoneNumberNormalizer normalizer = new PhoneNumberNormalizer(4, 8);
+
+    assertThat(normalizer.normalize("030 123456", LOCAL_NUMBER_DE)).isEqualTo(LOCAL_NUMBER_DE);
+    assertThat(normalizer.normalize("030 123456", LOCAL_NUMBER_US)).isNotEqualTo(LOCAL_NUMBER_DE);
+    assertThat(normalizer.getMissCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void testNormalizeCachesInvalidNumbers() throws Exception {
+    PhoneNumberNormalizer normalizer = new PhoneNumberNormalizer(4, 8);
+
+    for (int i=0;i<2;i++) {
+      try {
+        normalizer.normalize("person@domain.com", LOCAL_NUMBER_US);
+        throw new AssertionFailedError("should have thrown on email");
+      } catch (InvalidNumberException ine) {
+        // success
+      }
+    }
+
+    assertThat(normalizer.getMissCount()).isEqualTo(1);
+    assertThat(normalizer.getHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testBatchNormalizeSkipsInvalidNumbers() throws Exception {
+    PhoneNumberNormalizer normalizer = new PhoneNumberNormalizer(4, 8);
+    Map<String, String>   results    = normalizer.normalize(Arrays.asList("555-5555", "person@domain.com", "555-5555"),
+                                                            LOCAL_NUMBER_US);
+
+    assertThat(results).hasSize(1);
+    assertThat(results.get("555-5555")).isEqualTo(LOCAL_NUMBER_US);
+  }
+}
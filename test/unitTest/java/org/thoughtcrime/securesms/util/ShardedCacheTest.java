@@ -0,0 +1,51 @@
+package org.thoughtcrime.securesms.util;
+
+import org.junit.Test;
+import org.thoughtcrime.securesms.BaseUnitTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShardedCacheTest extends BaseUnitTest {
+
+  @Test
+  public void testShardEvictsEldest() {
+    ShardedCache<Long, String> cache = new ShardedCache<>(1, 2);
+
+    cache.put(1L, "one");
+    cache.put(2L, "two");
+    cache.put(3L, "three");
+
+    assertThat(cache.get(1L)).isNull();
+    assertThat(cache.get(2L)).isEqualTo("two");
+    assertThat(cache.get(3L)).isEqualTo("three");
+  }
+
+  @Test
+  public void testPutIfAbsentKeepsExisting() {
+    ShardedCache<Long, String> cache = new ShardedCache<>(4, 8);
+
+    cache.put(1L, "one");
+    cache.putIfAbsent(1L, "uno");
+    cache.putIfAbsent(2L, "two");
+
+    assertThat(cache.get(1L)).isEqualTo("one");
+    assertThat(cache.get(2L)).isEqualTo("two");
+    assertThat(cache.values()).containsOnly("one", "two");
+  }
+
+  @Test
+  public void testStatistics() {
+    ShardedCache.Statistics statistics = new ShardedCache.Statistics();
+
+    assertThat(statistics.getHitRate()).isEqualTo(0);
+
+    statistics.hit();
+    statistics.hit();
+    statistics.hit();
+    statistics.miss();
+
+    assertThat(statistics.getHitCount()).isEqualTo(3);
+    assertThat(statistics.getMissCount()).isEqualTo(1);
+    assertThat(statistics.getHitRate()).isEqualTo(0.75);
+  }
+}